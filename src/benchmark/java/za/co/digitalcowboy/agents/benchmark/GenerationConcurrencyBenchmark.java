@@ -0,0 +1,234 @@
+package za.co.digitalcowboy.agents.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import za.co.digitalcowboy.agents.agents.ContentAgent;
+import za.co.digitalcowboy.agents.agents.ImageAgent;
+import za.co.digitalcowboy.agents.agents.ResearchAgent;
+import za.co.digitalcowboy.agents.agents.ToolCallingResearcher;
+import za.co.digitalcowboy.agents.config.AsyncConfig;
+import za.co.digitalcowboy.agents.config.GenerationDeadlineProperties;
+import za.co.digitalcowboy.agents.config.ResearchCacheProperties;
+import za.co.digitalcowboy.agents.config.ResearchProperties;
+import za.co.digitalcowboy.agents.config.SearchCacheProperties;
+import za.co.digitalcowboy.agents.config.SearchContextProperties;
+import za.co.digitalcowboy.agents.config.SearchIndexProperties;
+import za.co.digitalcowboy.agents.domain.ImageResult;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.TaskPriority;
+import za.co.digitalcowboy.agents.domain.TopicRequest;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.graph.AgentGraph;
+import za.co.digitalcowboy.agents.service.AdmissionController;
+import za.co.digitalcowboy.agents.service.research.SemanticResearchCache;
+import za.co.digitalcowboy.agents.service.search.LocalSearchIndex;
+import za.co.digitalcowboy.agents.service.search.NoSearchCacheStore;
+import za.co.digitalcowboy.agents.service.search.SearchContextBuilder;
+import za.co.digitalcowboy.agents.service.search.SearchProvider;
+import za.co.digitalcowboy.agents.service.search.SearchResponseCache;
+import za.co.digitalcowboy.agents.tools.ConcurrencyLimitedChatLanguageModel;
+import za.co.digitalcowboy.agents.tools.OpenAiImageTool;
+import za.co.digitalcowboy.agents.tools.ProviderConcurrencyLimiter;
+import za.co.digitalcowboy.agents.tools.ProviderConcurrencyLimiter.Provider;
+import za.co.digitalcowboy.agents.tools.WebSearchService;
+import za.co.digitalcowboy.agents.tools.WebSearchTool;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs {@code tasks} concurrent generations through the admission controller and agent
+ * graph against stubbed providers that only sleep, comparing the pooled executors with
+ * virtual threads. The virtual mode needs a Java 21 runtime:
+ *
+ * <pre>mvn -Pjava21,benchmark test-compile exec:exec -Dbenchmark.args="GenerationConcurrencyBenchmark"</pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class GenerationConcurrencyBenchmark {
+
+    private static final String RESEARCH_JSON =
+        "{\"points\":[\"Point 1\",\"Point 2\",\"Point 3\",\"Point 4\",\"Point 5\"],\"sources\":[]}";
+    private static final String CONTENT_JSON =
+        "{\"platform\":\"twitter\",\"tone\":\"professional\",\"headline\":\"Headline\",\"body\":\"Body\",\"cta\":\"CTA\"}";
+    private static final String IMAGE_BRIEF_JSON = "{\"prompt\":\"Image prompt\"}";
+
+    @Param({"20", "200", "2000"})
+    private int tasks;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"50"})
+    private long providerLatencyMs;
+
+    private Executor taskExecutor;
+    private Executor agentExecutor;
+    private AdmissionController admissionController;
+    private AgentGraph agentGraph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean virtual = "virtual".equals(mode);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Timer timer = Timer.builder("benchmark.timer").register(registry);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        // Platform mode is bounded by the 20-thread task pool; virtual mode admits every
+        // task and leaves the provider permits as the only limit
+        int maxConcurrent = virtual ? tasks : 20;
+        AsyncConfig asyncConfig = new AsyncConfig(virtual);
+        taskExecutor = asyncConfig.taskExecutor(maxConcurrent);
+        agentExecutor = asyncConfig.agentExecutor();
+        admissionController = new AdmissionController(taskExecutor, maxConcurrent, tasks, 30, registry);
+
+        ProviderConcurrencyLimiter limiter = new ProviderConcurrencyLimiter(256, 64, 64, 64, 60_000, registry);
+        ChatLanguageModel chatModel = new ConcurrencyLimitedChatLanguageModel(this::stubChat, limiter);
+
+        WebSearchService searchService = newSearchService(limiter, registry);
+        ResearchAgent researchAgent = new ResearchAgent(chatModel, objectMapper, timer, searchService,
+            new SearchContextBuilder(new SearchContextProperties(), new OpenAiTokenizer("gpt-4o"), registry),
+            new ToolCallingResearcher(chatModel, objectMapper, new WebSearchTool(searchService), new ResearchProperties(), registry),
+            new SemanticResearchCache(new ResearchCacheProperties(), null, registry));
+        // The benchmark's runs have no listener asking for content deltas, so nothing streams
+        StreamingChatLanguageModel streamingModel =
+            (messages, handler) -> handler.onError(new UnsupportedOperationException("Content is not streamed"));
+        ContentAgent contentAgent = new ContentAgent(chatModel, streamingModel, objectMapper, timer, 5000);
+        ImageAgent imageAgent = new ImageAgent(chatModel, objectMapper, new StubImageTool(limiter), timer);
+        agentGraph = new AgentGraph(researchAgent, contentAgent, imageAgent, timer, agentExecutor,
+            new GenerationDeadlineProperties(), registry);
+    }
+
+    @Benchmark
+    public void generate() throws InterruptedException {
+        CountDownLatch completed = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            TopicRequest request = new TopicRequest("Benchmark topic " + i, "twitter", "professional", 1);
+            admissionController.submit(List.of("task-" + i), TaskPriority.INTERACTIVE, () -> {
+                try {
+                    agentGraph.run(request);
+                } finally {
+                    completed.countDown();
+                }
+            }, completed::countDown);
+        }
+        if (!completed.await(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException(completed.getCount() + " generations did not complete");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (Executor executor : List.of(taskExecutor, agentExecutor)) {
+            if (executor instanceof AutoCloseable closeable) {
+                closeable.close();
+            } else if (executor instanceof org.springframework.beans.factory.DisposableBean disposable) {
+                disposable.destroy();
+            }
+        }
+    }
+
+    private Response<AiMessage> stubChat(List<ChatMessage> messages) {
+        sleep();
+        // Instructions arrive as the system message, the topic as the user message
+        String prompt = messages.stream().map(ChatMessage::text).collect(Collectors.joining("\n\n"));
+        if (prompt.contains("Generate 2-3 effective search queries")) {
+            return Response.from(AiMessage.from("query one\nquery two\nquery three"));
+        }
+        if (prompt.contains("Research Agent")) {
+            return Response.from(AiMessage.from(RESEARCH_JSON));
+        }
+        if (prompt.contains("Content Agent")) {
+            return Response.from(AiMessage.from(CONTENT_JSON));
+        }
+        return Response.from(AiMessage.from(IMAGE_BRIEF_JSON));
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(providerLatencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private WebSearchService newSearchService(ProviderConcurrencyLimiter limiter, MeterRegistry registry) {
+        return new WebSearchService(new StubSearchProvider(limiter),
+            new SearchResponseCache(new NoSearchCacheStore(), agentExecutor, new SearchCacheProperties(), registry),
+            new LocalSearchIndex(new SearchIndexProperties(), agentExecutor, registry), agentExecutor, registry, 3, 30_000);
+    }
+
+    private class StubSearchProvider implements SearchProvider {
+
+        private final ProviderConcurrencyLimiter limiter;
+
+        StubSearchProvider(ProviderConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        @Override
+        public String name() {
+            return "stub";
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public WebSearchResponse search(String query) {
+            return limiter.call(Provider.SERPAPI, () -> {
+                sleep();
+                return new WebSearchResponse(query,
+                    List.of(SearchResult.of("Result for " + query, "Snippet", "https://example.com/result")),
+                    null, 1L, 0.1);
+            });
+        }
+    }
+
+    private class StubImageTool extends OpenAiImageTool {
+
+        private final ProviderConcurrencyLimiter limiter;
+
+        StubImageTool(ProviderConcurrencyLimiter limiter) {
+            super(null, null, null, null, false, "", agentExecutor, limiter);
+            this.limiter = limiter;
+        }
+
+        @Override
+        public ImageResult generateImage(String prompt, int count, String topic) {
+            limiter.call(Provider.OPENAI_IMAGES, () -> {
+                sleep();
+                return null;
+            });
+            limiter.call(Provider.IMAGE_DOWNLOAD, () -> {
+                sleep();
+                return null;
+            });
+            return new ImageResult(prompt, List.of(), List.of("/tmp/benchmark.png"), List.of());
+        }
+    }
+}
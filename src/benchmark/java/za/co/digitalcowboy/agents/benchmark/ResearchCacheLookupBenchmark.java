@@ -0,0 +1,69 @@
+package za.co.digitalcowboy.agents.benchmark;
+
+import dev.langchain4j.model.embedding.AllMiniLmL6V2QuantizedEmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import za.co.digitalcowboy.agents.service.research.TopicVectorIndex;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency of the semantic research cache with {@code topics} cached topics. The index
+ * is filled with random vectors of the embedding model's 384 dimensions, since embedding 100k
+ * real topics would take minutes; {@code nearest} measures the index scan alone and
+ * {@code embedAndNearest} adds embedding the looked-up topic, as a live lookup does:
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="ResearchCacheLookupBenchmark"</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ResearchCacheLookupBenchmark {
+
+    private static final int DIMENSION = 384;
+
+    @Param({"1000", "10000", "100000"})
+    private int topics;
+
+    private TopicVectorIndex index;
+    private EmbeddingModel embeddingModel;
+    private float[] query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        index = new TopicVectorIndex();
+        for (int i = 0; i < topics; i++) {
+            index.put("topic " + i, randomVector(random));
+        }
+        embeddingModel = new AllMiniLmL6V2QuantizedEmbeddingModel();
+        query = embeddingModel.embed("healthcare AI trends").content().vector();
+    }
+
+    @Benchmark
+    public TopicVectorIndex.Match nearest() {
+        return index.nearest(query);
+    }
+
+    @Benchmark
+    public TopicVectorIndex.Match embedAndNearest() {
+        return index.nearest(embeddingModel.embed("healthcare AI trends").content().vector());
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,108 @@
+package za.co.digitalcowboy.agents.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.tools.SerpApiResponseParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming SerpAPI parser with the previous approach of reading the body into
+ * a String and building a full Gson tree. Starts from the synthetic response in
+ * {@code src/test/resources/serpapi}, written by hand in SerpAPI's documented format rather
+ * than captured from the live API, with its ads, images and related questions repeated
+ * {@code padding} times to approach the size of a real payload. Run with the GC profiler to
+ * see allocation per parse:
+ *
+ * <pre>mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="SerpApiParserBenchmark -prof gc"</pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SerpApiParserBenchmark {
+
+    private static final int MAX_RESULTS = 5;
+
+    // 0 is the synthetic payload as written (~9 KB); 100 is ~330 KB
+    @Param({"0", "100"})
+    private int padding;
+
+    private final Gson gson = new Gson();
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        JsonObject response;
+        try (InputStream in = getClass().getResourceAsStream("/serpapi/search-response.json")) {
+            response = gson.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), JsonObject.class);
+        }
+        for (String bulky : List.of("ads", "inline_images", "related_questions", "related_searches")) {
+            JsonArray original = response.getAsJsonArray(bulky);
+            JsonArray padded = new JsonArray();
+            for (int i = 0; i <= padding; i++) {
+                original.forEach(padded::add);
+            }
+            response.add(bulky, padded);
+        }
+        payload = gson.toJson(response).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public WebSearchResponse streaming() throws IOException {
+        return SerpApiResponseParser.parse("ai market size",
+            new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8), MAX_RESULTS);
+    }
+
+    @Benchmark
+    public WebSearchResponse tree() {
+        // What SerpApiSearchService did before: body string, full tree, then walk it
+        String body = new String(payload, StandardCharsets.UTF_8);
+        JsonObject results = gson.fromJson(body, JsonObject.class);
+
+        List<SearchResult> searchResults = new ArrayList<>();
+        JsonArray organic = results.getAsJsonArray("organic_results");
+        for (int i = 0; i < Math.min(organic.size(), MAX_RESULTS); i++) {
+            JsonObject result = organic.get(i).getAsJsonObject();
+            searchResults.add(new SearchResult(string(result, "title"), string(result, "snippet"),
+                string(result, "link"), string(result, "displayed_link"), string(result, "date"), i + 1));
+        }
+
+        Map<String, Object> knowledgeGraph = new HashMap<>();
+        JsonObject kg = results.getAsJsonObject("knowledge_graph");
+        knowledgeGraph.put("title", kg.get("title").getAsString());
+        knowledgeGraph.put("description", kg.get("description").getAsString());
+        knowledgeGraph.put("sourceLink", kg.getAsJsonObject("source").get("link").getAsString());
+
+        JsonObject info = results.getAsJsonObject("search_information");
+        return new WebSearchResponse("ai market size", searchResults, knowledgeGraph,
+            info.get("total_results").getAsLong(),
+            Double.parseDouble(info.get("time_taken_displayed").getAsString().replaceAll("[^0-9.]", "")));
+    }
+
+    private static String string(JsonObject object, String key) {
+        JsonElement element = object.get(key);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : "";
+    }
+}
@@ -1,41 +1,86 @@
 package za.co.digitalcowboy.agents.agents;
 
 import za.co.digitalcowboy.agents.domain.ContentDraft;
+import za.co.digitalcowboy.agents.domain.ModelStep;
 import za.co.digitalcowboy.agents.domain.ResearchPoints;
 import za.co.digitalcowboy.agents.prompts.ContentPrompt;
+import za.co.digitalcowboy.agents.tools.CallDeadline;
+import za.co.digitalcowboy.agents.tools.CallStep;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
 import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 @Component
 public class ContentAgent {
     
     private static final Logger log = LoggerFactory.getLogger(ContentAgent.class);
     
+    // Fields worth showing while the draft is still being written
+    private static final Set<String> STREAMED_FIELDS = Set.of("headline", "body", "cta");
+    
     private final ChatLanguageModel chatModel;
+    private final StreamingChatLanguageModel streamingChatModel;
     private final ObjectMapper objectMapper;
     private final Timer contentTimer;
+    private final long streamTimeoutMs;
     
-    public ContentAgent(ChatLanguageModel chatModel, ObjectMapper objectMapper, Timer contentAgentTimer) {
+    @Autowired
+    public ContentAgent(@Qualifier("contentChatModel") ChatLanguageModel chatModel,
+                        StreamingChatLanguageModel streamingChatModel,
+                        ObjectMapper objectMapper,
+                        Timer contentAgentTimer,
+                        @Value("${openai.stream-timeout-ms:120000}") long streamTimeoutMs) {
         this.chatModel = chatModel;
+        this.streamingChatModel = streamingChatModel;
         this.objectMapper = objectMapper;
         this.contentTimer = contentAgentTimer;
+        this.streamTimeoutMs = streamTimeoutMs;
     }
     
     public ContentDraft createContent(ResearchPoints research, String platform, String tone) {
+        return createContent(research, platform, tone, ContentFieldListener.NONE);
+    }
+    
+    /**
+     * As {@link #createContent(ResearchPoints, String, String)}, streaming the completion
+     * and passing headline, body and cta text to {@code listener} as it arrives. The
+     * returned draft is parsed and validated from the full completion as before.
+     */
+    public ContentDraft createContent(ResearchPoints research, String platform, String tone,
+                                      ContentFieldListener listener) {
         try {
             return contentTimer.recordCallable(() -> {
             log.debug("Creating {} content with {} tone", platform, tone);
             
             try {
-                String userPrompt = ContentPrompt.formatUserPrompt(research, platform, tone);
-                String fullPrompt = ContentPrompt.SYSTEM_MESSAGE + "\n\nUser: " + userPrompt;
+                // System message first and unchanged between calls, so it is cacheable as a prompt prefix
+                List<ChatMessage> messages = List.of(
+                    SystemMessage.from(ContentPrompt.SYSTEM_MESSAGE),
+                    UserMessage.from(ContentPrompt.formatUserPrompt(research, platform, tone)));
                 
                 log.debug("Sending content prompt to LLM");
-                String response = chatModel.generate(fullPrompt);
+                String response = listener != ContentFieldListener.NONE
+                    ? generateStreaming(messages, listener)
+                    : CallStep.call(ModelStep.CONTENT, () -> chatModel.generate(messages).content().text());
                 log.debug("Received content response: {}", response);
                 
                 String cleanedResponse = extractJsonFromResponse(response);
@@ -50,27 +95,49 @@ public class ContentAgent {
             } catch (Exception e) {
                 log.error("Error during content creation", e);
                 // Return fallback content with platform/tone info preserved
-                return new ContentDraft(
-                    platform,
-                    tone,
-                    "Content Creation Error",
-                    "Unable to generate content based on the research provided.",
-                    "Please try again."
-                );
+                return ContentDraft.failed(platform, tone);
             }
         });
         } catch (Exception e) {
             log.error("Timer execution error during content creation", e);
-            return new ContentDraft(
-                platform,
-                tone,
-                "Content Creation Error",
-                "Unable to generate content based on the research provided.",
-                "Please try again."
-            );
+            return ContentDraft.failed(platform, tone);
         }
     }
     
+    private String generateStreaming(List<ChatMessage> messages, ContentFieldListener listener) throws Exception {
+        IncrementalJsonFieldReader reader = new IncrementalJsonFieldReader(STREAMED_FIELDS, listener);
+        CompletableFuture<String> completion = new CompletableFuture<>();
+        
+        StreamingResponseHandler<AiMessage> handler = new StreamingResponseHandler<>() {
+            @Override
+            public void onNext(String token) {
+                try {
+                    reader.feed(token);
+                } catch (Exception e) {
+                    // The full completion is still parsed at the end
+                    log.debug("Failed to relay content token: {}", e.getMessage());
+                }
+            }
+            
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                completion.complete(response.content().text());
+            }
+            
+            @Override
+            public void onError(Throwable error) {
+                completion.completeExceptionally(error);
+            }
+        };
+        // The step picks the content profile, downgraded like a blocking call, and tags its token usage
+        CallStep.call(ModelStep.CONTENT, () -> {
+            streamingChatModel.generate(messages, handler);
+            return null;
+        });
+        
+        return completion.get(CallDeadline.cap(Duration.ofMillis(streamTimeoutMs)).toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
     private void validatePlatformConstraints(ContentDraft content, String platform) {
         switch (platform.toLowerCase()) {
             case "twitter" -> {
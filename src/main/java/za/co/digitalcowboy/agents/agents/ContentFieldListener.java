@@ -0,0 +1,13 @@
+package za.co.digitalcowboy.agents.agents;
+
+/**
+ * Receives text of the content draft's fields as the model streams it. Deltas for a field
+ * arrive in order and concatenate to the field's decoded value.
+ */
+@FunctionalInterface
+public interface ContentFieldListener {
+    
+    ContentFieldListener NONE = (field, delta) -> {};
+    
+    void onFieldDelta(String field, String delta);
+}
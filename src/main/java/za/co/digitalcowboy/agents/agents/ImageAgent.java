@@ -3,13 +3,18 @@ package za.co.digitalcowboy.agents.agents;
 import za.co.digitalcowboy.agents.domain.ContentDraft;
 import za.co.digitalcowboy.agents.domain.ImageBrief;
 import za.co.digitalcowboy.agents.domain.ImageResult;
+import za.co.digitalcowboy.agents.domain.ModelStep;
 import za.co.digitalcowboy.agents.prompts.ImagePrompt;
+import za.co.digitalcowboy.agents.tools.CallStep;
 import za.co.digitalcowboy.agents.tools.OpenAiImageTool;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -24,7 +29,7 @@ public class ImageAgent {
     private final OpenAiImageTool imageTool;
     private final Timer imageTimer;
     
-    public ImageAgent(ChatLanguageModel chatModel, ObjectMapper objectMapper, 
+    public ImageAgent(@Qualifier("imageChatModel") ChatLanguageModel chatModel, ObjectMapper objectMapper, 
                      OpenAiImageTool imageTool, Timer imageAgentTimer) {
         this.chatModel = chatModel;
         this.objectMapper = objectMapper;
@@ -33,16 +38,20 @@ public class ImageAgent {
     }
     
     public ImageResult generateImage(ContentDraft content, int imageCount, String topic) {
+        // Step 1: Generate image prompt from content
+        ImageBrief brief = generateImageBrief(content);
+        log.debug("Generated image brief: {}", brief.prompt());
+        
+        // Step 2: Generate actual images using OpenAI Images API
+        return generateImage(brief, content, imageCount, topic);
+    }
+    
+    public ImageResult generateImage(ImageBrief brief, ContentDraft content, int imageCount, String topic) {
         try {
             return imageTimer.recordCallable(() -> {
             log.debug("Generating {} image(s) for content", imageCount);
             
             try {
-                // Step 1: Generate image prompt from content
-                ImageBrief brief = generateImageBrief(content);
-                log.debug("Generated image brief: {}", brief.prompt());
-                
-                // Step 2: Generate actual images using OpenAI Images API
                 ImageResult result = imageTool.generateImage(brief.prompt(), imageCount, topic);
                 
                 log.debug("Image generation completed with {} URLs", result.openAiImageUrls().size());
@@ -67,13 +76,13 @@ public class ImageAgent {
         }
     }
     
-    private ImageBrief generateImageBrief(ContentDraft content) {
+    public ImageBrief generateImageBrief(ContentDraft content) {
         try {
             String userPrompt = ImagePrompt.formatUserPrompt(content);
-            String fullPrompt = ImagePrompt.SYSTEM_MESSAGE + "\n\nUser: " + userPrompt;
             
             log.debug("Generating image prompt from content");
-            String response = chatModel.generate(fullPrompt);
+            String response = CallStep.call(ModelStep.IMAGE_BRIEF, () -> chatModel.generate(
+                SystemMessage.from(ImagePrompt.SYSTEM_MESSAGE), UserMessage.from(userPrompt)).content().text());
             log.debug("Received image prompt response: {}", response);
             
             String cleanedResponse = extractJsonFromResponse(response);
@@ -0,0 +1,141 @@
+package za.co.digitalcowboy.agents.agents;
+
+import java.util.Set;
+
+/**
+ * Reads a JSON object a chunk at a time and reports the decoded text of selected
+ * top-level string fields as soon as it arrives, without waiting for the document to
+ * close. Anything before the first {@code '{'} (such as a Markdown code fence) and all
+ * nested values are skipped. Not thread-safe; feed chunks in order from one thread.
+ */
+public class IncrementalJsonFieldReader {
+    
+    private final Set<String> fields;
+    private final ContentFieldListener listener;
+    
+    private int depth;
+    private boolean inString;
+    private boolean stringIsKey;
+    private boolean expectingValue;
+    private boolean escaped;
+    private int unicodeDigits = -1;
+    private int unicodeValue;
+    private char pendingHighSurrogate;
+    
+    private final StringBuilder key = new StringBuilder();
+    private String currentField;
+    private final StringBuilder delta = new StringBuilder();
+    
+    public IncrementalJsonFieldReader(Set<String> fields, ContentFieldListener listener) {
+        this.fields = fields;
+        this.listener = listener;
+    }
+    
+    public void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            accept(chunk.charAt(i));
+        }
+        flush();
+    }
+    
+    private void accept(char c) {
+        if (inString) {
+            acceptStringChar(c);
+            return;
+        }
+        switch (c) {
+            case '{', '[' -> {
+                depth++;
+                expectingValue = false;
+            }
+            case '}', ']' -> depth = Math.max(depth - 1, 0);
+            case '"' -> {
+                if (depth > 0) {
+                    startString();
+                }
+            }
+            case ':' -> expectingValue = depth == 1;
+            case ',' -> expectingValue = false;
+            default -> { }
+        }
+    }
+    
+    private void startString() {
+        inString = true;
+        stringIsKey = depth == 1 && !expectingValue;
+        if (stringIsKey) {
+            key.setLength(0);
+        } else if (depth == 1 && fields.contains(key.toString())) {
+            currentField = key.toString();
+        }
+    }
+    
+    private void acceptStringChar(char c) {
+        if (unicodeDigits >= 0) {
+            unicodeValue = (unicodeValue << 4) | Character.digit(c, 16);
+            if (++unicodeDigits == 4) {
+                unicodeDigits = -1;
+                append((char) unicodeValue);
+            }
+            return;
+        }
+        if (escaped) {
+            escaped = false;
+            switch (c) {
+                case 'n' -> append('\n');
+                case 't' -> append('\t');
+                case 'r' -> append('\r');
+                case 'b' -> append('\b');
+                case 'f' -> append('\f');
+                case 'u' -> {
+                    unicodeDigits = 0;
+                    unicodeValue = 0;
+                }
+                default -> append(c);
+            }
+            return;
+        }
+        if (c == '\\') {
+            escaped = true;
+        } else if (c == '"') {
+            endString();
+        } else {
+            append(c);
+        }
+    }
+    
+    private void endString() {
+        inString = false;
+        if (stringIsKey) {
+            stringIsKey = false;
+        } else {
+            flush();
+            currentField = null;
+            expectingValue = false;
+        }
+    }
+    
+    private void append(char c) {
+        if (stringIsKey) {
+            key.append(c);
+        } else if (currentField != null) {
+            // Hold a high surrogate back so a delta never ends half way through a code point
+            if (Character.isHighSurrogate(c)) {
+                pendingHighSurrogate = c;
+                return;
+            }
+            if (pendingHighSurrogate != 0) {
+                delta.append(pendingHighSurrogate);
+                pendingHighSurrogate = 0;
+            }
+            delta.append(c);
+        }
+    }
+    
+    private void flush() {
+        if (currentField != null && !delta.isEmpty()) {
+            listener.onFieldDelta(currentField, delta.toString());
+            delta.setLength(0);
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package za.co.digitalcowboy.agents.agents;
 
+import za.co.digitalcowboy.agents.domain.ModelStep;
 import za.co.digitalcowboy.agents.domain.ResearchPoints;
 import za.co.digitalcowboy.agents.domain.WebSearchResponse;
 import za.co.digitalcowboy.agents.prompts.ResearchPrompt;
-import za.co.digitalcowboy.agents.tools.SerpApiSearchService;
+import za.co.digitalcowboy.agents.service.research.SemanticResearchCache;
+import za.co.digitalcowboy.agents.service.search.SearchContext;
+import za.co.digitalcowboy.agents.service.search.SearchContextBuilder;
+import za.co.digitalcowboy.agents.tools.CallStep;
+import za.co.digitalcowboy.agents.tools.WebSearchService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -25,15 +33,24 @@ public class ResearchAgent {
     private final ChatLanguageModel chatModel;
     private final ObjectMapper objectMapper;
     private final Timer researchTimer;
-    private final SerpApiSearchService searchService;
+    private final WebSearchService searchService;
+    private final SearchContextBuilder searchContextBuilder;
+    private final ToolCallingResearcher toolCallingResearcher;
+    private final SemanticResearchCache researchCache;
     
     @Autowired
-    public ResearchAgent(ChatLanguageModel chatModel, ObjectMapper objectMapper, 
-                         Timer researchAgentTimer, SerpApiSearchService searchService) {
+    public ResearchAgent(@Qualifier("researchChatModel") ChatLanguageModel chatModel, ObjectMapper objectMapper, 
+                         Timer researchAgentTimer, WebSearchService searchService,
+                         SearchContextBuilder searchContextBuilder,
+                         ToolCallingResearcher toolCallingResearcher,
+                         SemanticResearchCache researchCache) {
         this.chatModel = chatModel;
         this.objectMapper = objectMapper;
         this.researchTimer = researchAgentTimer;
         this.searchService = searchService;
+        this.searchContextBuilder = searchContextBuilder;
+        this.toolCallingResearcher = toolCallingResearcher;
+        this.researchCache = researchCache;
     }
     
     public ResearchPoints research(String topic) {
@@ -42,86 +59,154 @@ public class ResearchAgent {
                 log.debug("Starting research for topic: {}", topic);
                 
                 try {
+                    ResearchPoints result;
                     // Check if web search is enabled
-                    if (searchService.isEnabled()) {
-                        return researchWithWebSearch(topic);
+                    if (isToolCallingEnabled()) {
+                        result = researchWithTools(topic);
+                    } else if (searchService.isEnabled()) {
+                        result = researchWithWebSearch(topic);
                     } else {
-                        return researchWithoutWebSearch(topic);
+                        result = researchWithoutWebSearch(topic);
                     }
+                    remember(topic, result);
+                    return result;
                 } catch (Exception e) {
                     log.error("Error during research", e);
                     // Return fallback result
-                    return new ResearchPoints(
-                        List.of("Unable to complete research for the topic: " + topic),
-                        List.of()
-                    );
+                    return ResearchPoints.unavailable(topic);
                 }
             });
         } catch (Exception e) {
             log.error("Timer execution error during research", e);
-            return new ResearchPoints(
-                List.of("Unable to complete research for the topic: " + topic),
-                List.of()
-            );
+            return ResearchPoints.unavailable(topic);
         }
     }
     
-    private ResearchPoints researchWithWebSearch(String topic) throws Exception {
-        log.debug("Performing research with web search for topic: {}", topic);
-        
-        // Step 1: Generate search queries
-        String queryPrompt = ResearchPrompt.formatQueryGenerationPrompt(topic);
-        String queryResponse = chatModel.generate(queryPrompt);
-        List<String> queries = Arrays.stream(queryResponse.split("\n"))
-            .map(String::trim)
-            .filter(s -> !s.isEmpty())
-            .limit(3)
-            .collect(Collectors.toList());
+    public ResearchPoints research(String topic, List<WebSearchResponse> searchResponses) {
+        try {
+            return researchTimer.recordCallable(() -> {
+                log.debug("Starting research for topic: {} with {} search responses", topic, searchResponses.size());
+                
+                try {
+                    ResearchPoints result = searchResponses.isEmpty()
+                        ? researchWithoutWebSearch(topic)
+                        : synthesizeWithWebSearch(topic, searchResponses);
+                    remember(topic, result);
+                    return result;
+                } catch (Exception e) {
+                    log.error("Error during research", e);
+                    return ResearchPoints.unavailable(topic);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Timer execution error during research", e);
+            return ResearchPoints.unavailable(topic);
+        }
+    }
+    
+    /**
+     * Research already done for this topic or one with the same meaning, or {@code null}.
+     * The graph asks before generating queries, so a hit skips the searches as well.
+     */
+    public ResearchPoints cachedResearch(String topic) {
+        return researchCache.get(topic);
+    }
+    
+    public boolean isWebSearchEnabled() {
+        return searchService.isEnabled();
+    }
+    
+    /**
+     * Whether research searches through model tool calls. The graph then skips its query and
+     * search steps and leaves the searching to {@link #research(String)}.
+     */
+    public boolean isToolCallingEnabled() {
+        return toolCallingResearcher.isEnabled() && searchService.isEnabled();
+    }
+    
+    public List<WebSearchResponse> searchWeb(List<String> queries) {
+        return searchService.searchMultiple(queries);
+    }
+    
+    public List<String> generateSearchQueries(String topic) {
+        List<String> queries = List.of();
+        try {
+            String queryPrompt = ResearchPrompt.formatQueryGenerationPrompt(topic);
+            String queryResponse = CallStep.call(ModelStep.RESEARCH_QUERIES,
+                () -> generate(ResearchPrompt.QUERY_GENERATION_SYSTEM_MESSAGE, queryPrompt));
+            queries = Arrays.stream(queryResponse.split("\n"))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .limit(3)
+                .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("Error generating search queries, using defaults", e);
+        }
         
         if (queries.isEmpty()) {
             queries = List.of(topic, topic + " latest news", topic + " facts statistics");
         }
         
         log.debug("Generated {} search queries for topic: {}", queries.size(), topic);
+        return queries;
+    }
+    
+    /**
+     * The instructions go out as a system message of their own, identical on every call, so
+     * the provider can serve that prefix from its prompt cache; only the user message varies.
+     */
+    private String generate(String systemMessage, String userPrompt) {
+        return chatModel.generate(SystemMessage.from(systemMessage), UserMessage.from(userPrompt)).content().text();
+    }
+    
+    private void remember(String topic, ResearchPoints result) {
+        researchCache.put(topic, result);
+    }
+    
+    private ResearchPoints researchWithWebSearch(String topic) throws Exception {
+        log.debug("Performing research with web search for topic: {}", topic);
         
-        // Step 2: Perform web searches
+        List<String> queries = generateSearchQueries(topic);
         List<WebSearchResponse> searchResponses = searchService.searchMultiple(queries);
         
-        // Step 3: Combine search results
-        StringBuilder searchResults = new StringBuilder();
-        List<String> allSources = new ArrayList<>();
+        return synthesizeWithWebSearch(topic, searchResponses);
+    }
+    
+    private ResearchPoints researchWithTools(String topic) throws Exception {
+        log.debug("Performing tool-calling research for topic: {}", topic);
         
-        for (WebSearchResponse response : searchResponses) {
-            searchResults.append(response.toSummaryText()).append("\n\n");
-            allSources.addAll(response.extractSources());
-        }
+        ToolCallingResearcher.Result answer = toolCallingResearcher.research(topic);
+        ResearchPoints result = objectMapper.readValue(extractJsonFromResponse(answer.answer()), ResearchPoints.class);
+        
+        List<String> searchSources = answer.searchResponses().stream()
+            .flatMap(response -> response.extractSources().stream())
+            .distinct()
+            .toList();
+        ResearchPoints enrichedResult = withSources(result, searchSources);
+        validateResearchPoints(enrichedResult);
+        
+        log.debug("Tool-calling research completed with {} points after {} round trips and {} searches",
+                 enrichedResult.points().size(), answer.roundTrips(), answer.searchResponses().size());
+        return enrichedResult;
+    }
+    
+    private ResearchPoints synthesizeWithWebSearch(String topic, List<WebSearchResponse> searchResponses) throws Exception {
+        // Merge overlapping results across queries and fit them to the context budget
+        SearchContext searchContext = searchContextBuilder.build(searchResponses);
         
-        // Step 4: Generate research points with web search context
-        String userPrompt = ResearchPrompt.formatUserPromptWithSearch(topic, searchResults.toString());
-        String fullPrompt = ResearchPrompt.SYSTEM_MESSAGE_WITH_WEB_SEARCH + "\n\nUser: " + userPrompt;
+        // Generate research points with web search context
+        String userPrompt = ResearchPrompt.formatUserPromptWithSearch(topic, searchContext.text());
         
         log.debug("Sending prompt to LLM with web search context");
-        String response = chatModel.generate(fullPrompt);
+        String response = CallStep.call(ModelStep.RESEARCH,
+            () -> generate(ResearchPrompt.SYSTEM_MESSAGE_WITH_WEB_SEARCH, userPrompt));
         log.debug("Received LLM response with web search context");
         
         // Clean and parse response
         String cleanedResponse = extractJsonFromResponse(response);
         ResearchPoints result = objectMapper.readValue(cleanedResponse, ResearchPoints.class);
         
-        // Add web sources to the result if not already present
-        List<String> finalSources = new ArrayList<>(result.sources());
-        for (String source : allSources) {
-            if (!finalSources.contains(source)) {
-                finalSources.add(source);
-            }
-        }
-        
-        // Limit sources to top 5
-        if (finalSources.size() > 5) {
-            finalSources = finalSources.subList(0, 5);
-        }
-        
-        ResearchPoints enrichedResult = new ResearchPoints(result.points(), finalSources);
+        ResearchPoints enrichedResult = withSources(result, searchContext.sources());
         
         // Validate constraints
         validateResearchPoints(enrichedResult);
@@ -135,10 +220,9 @@ public class ResearchAgent {
         log.debug("Performing research without web search for topic: {}", topic);
         
         String userPrompt = ResearchPrompt.formatUserPrompt(topic);
-        String fullPrompt = ResearchPrompt.SYSTEM_MESSAGE + "\n\nUser: " + userPrompt;
         
         log.debug("Sending prompt to LLM");
-        String response = chatModel.generate(fullPrompt);
+        String response = CallStep.call(ModelStep.RESEARCH, () -> generate(ResearchPrompt.SYSTEM_MESSAGE, userPrompt));
         log.debug("Received LLM response: {}", response);
         
         // Clean response - extract JSON if wrapped in markdown or other text
@@ -153,6 +237,23 @@ public class ResearchAgent {
         return result;
     }
     
+    private static ResearchPoints withSources(ResearchPoints result, List<String> searchSources) {
+        // Add web sources to the result if not already present
+        List<String> finalSources = new ArrayList<>(result.sources());
+        for (String source : searchSources) {
+            if (!finalSources.contains(source)) {
+                finalSources.add(source);
+            }
+        }
+        
+        // Limit sources to top 5
+        if (finalSources.size() > 5) {
+            finalSources = finalSources.subList(0, 5);
+        }
+        
+        return new ResearchPoints(result.points(), finalSources);
+    }
+    
     private void validateResearchPoints(ResearchPoints result) {
         if (result.points().size() < 5 || result.points().size() > 7) {
             log.warn("Research points count {} is outside expected range 5-7", result.points().size());
@@ -0,0 +1,219 @@
+package za.co.digitalcowboy.agents.agents;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.ResearchProperties;
+import za.co.digitalcowboy.agents.domain.ModelStep;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.prompts.ResearchPrompt;
+import za.co.digitalcowboy.agents.tools.CallStep;
+import za.co.digitalcowboy.agents.tools.WebSearchTool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Research in which the model drives {@link WebSearchTool#searchWeb} itself. The tool calls
+ * of one turn are run side by side through {@link WebSearchTool#searchWebAll}, and the loop
+ * is capped at {@code research.max-round-trips} LLM calls: the last one is made without the
+ * tool, so the model has to answer.
+ *
+ * <p>LangChain4j's {@code AiServices} runs the tool calls of a turn one after another, so the
+ * loop is driven here on the same tool specification and message types.
+ */
+@Component
+public class ToolCallingResearcher {
+    
+    private static final Logger log = LoggerFactory.getLogger(ToolCallingResearcher.class);
+    
+    private static final String SEARCH_TOOL = "searchWeb";
+    
+    private final ChatLanguageModel chatModel;
+    private final WebSearchTool webSearchTool;
+    private final ResearchProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ToolSpecification searchSpecification;
+    
+    private final DistributionSummary fanOut;
+    private final DistributionSummary roundTrips;
+    private final Counter refusedCalls;
+    private final Counter inputTokens;
+    private final Counter outputTokens;
+    
+    public ToolCallingResearcher(@Qualifier("researchChatModel") ChatLanguageModel chatModel,
+                                 ObjectMapper objectMapper,
+                                 WebSearchTool webSearchTool,
+                                 ResearchProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.chatModel = chatModel;
+        this.objectMapper = objectMapper;
+        this.webSearchTool = webSearchTool;
+        this.properties = properties;
+        try {
+            this.searchSpecification = ToolSpecifications.toolSpecificationFrom(
+                WebSearchTool.class.getMethod(SEARCH_TOOL, String.class));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("WebSearchTool has no " + SEARCH_TOOL + " tool", e);
+        }
+        
+        this.fanOut = DistributionSummary.builder("research.tool.fanout")
+            .description("Web search calls the model issued in one turn")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.roundTrips = DistributionSummary.builder("research.tool.round_trips")
+            .description("LLM calls made by a tool-calling research step")
+            .register(meterRegistry);
+        this.refusedCalls = Counter.builder("research.tool.calls.refused")
+            .description("Web search calls refused for exceeding the per-turn limit")
+            .register(meterRegistry);
+        this.inputTokens = tokens(meterRegistry, "input");
+        this.outputTokens = tokens(meterRegistry, "output");
+    }
+    
+    public boolean isEnabled() {
+        return properties.getMode() == ResearchProperties.Mode.TOOL_CALLING;
+    }
+    
+    /**
+     * Runs the loop for {@code topic} and returns the model's final answer together with
+     * every search response it saw.
+     */
+    public Result research(String topic) {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(SystemMessage.from(ResearchPrompt.SYSTEM_MESSAGE_WITH_TOOLS));
+        messages.add(UserMessage.from(ResearchPrompt.formatUserPrompt(topic)));
+        List<WebSearchResponse> searchResponses = new ArrayList<>();
+        int maxRoundTrips = Math.max(1, properties.getMaxRoundTrips());
+        
+        for (int round = 1; ; round++) {
+            boolean last = round >= maxRoundTrips;
+            if (last && round > 1) {
+                messages.add(UserMessage.from(ResearchPrompt.FINAL_ANSWER_INSTRUCTION));
+            }
+            Response<AiMessage> response = CallStep.call(ModelStep.RESEARCH, () -> last
+                ? chatModel.generate(messages)
+                : chatModel.generate(messages, List.of(searchSpecification)));
+            recordTokens(response.tokenUsage());
+            
+            AiMessage message = response.content();
+            if (!message.hasToolExecutionRequests()) {
+                roundTrips.record(round);
+                log.debug("Tool-calling research for topic {} answered after {} round trips", topic, round);
+                return new Result(message.text(), searchResponses, round);
+            }
+            if (last) {
+                roundTrips.record(round);
+                throw new IllegalStateException("Model was still searching after " + round + " round trips");
+            }
+            
+            messages.add(message);
+            messages.addAll(runTools(message.toolExecutionRequests(), searchResponses));
+        }
+    }
+    
+    private List<ToolExecutionResultMessage> runTools(List<ToolExecutionRequest> requests,
+                                                      List<WebSearchResponse> searchResponses) {
+        fanOut.record(requests.size());
+        int maxCalls = Math.max(1, properties.getMaxToolCallsPerTurn());
+        
+        // Why each request is not run, or null if it is
+        List<String> refusals = new ArrayList<>(requests.size());
+        List<String> toRun = new ArrayList<>();
+        for (ToolExecutionRequest request : requests) {
+            String query = SEARCH_TOOL.equals(request.name()) ? query(request) : null;
+            String refusal = null;
+            if (query == null) {
+                refusal = SEARCH_TOOL.equals(request.name())
+                    ? "Not searched: a query is required."
+                    : "Unknown tool: " + request.name();
+            } else if (toRun.size() >= maxCalls) {
+                refusedCalls.increment();
+                refusal = "Not searched: at most " + maxCalls + " searches can run per turn.";
+            }
+            refusals.add(refusal);
+            if (refusal == null) {
+                toRun.add(query);
+            }
+        }
+        log.debug("Running {} of {} tool calls side by side", toRun.size(), requests.size());
+        Iterator<WebSearchResponse> responses = toRun.isEmpty()
+            ? Collections.emptyIterator()
+            : webSearchTool.searchWebAll(toRun).iterator();
+        
+        List<ToolExecutionResultMessage> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            String text = refusals.get(i);
+            if (text == null) {
+                WebSearchResponse response = responses.next();
+                searchResponses.add(response);
+                text = response.toSummaryText();
+            }
+            results.add(ToolExecutionResultMessage.from(requests.get(i), text));
+        }
+        return results;
+    }
+    
+    /** The query argument, whatever name the parameter was compiled with, or null if blank. */
+    private String query(ToolExecutionRequest request) {
+        try {
+            JsonNode arguments = objectMapper.readTree(request.arguments());
+            JsonNode query = arguments.get("query");
+            if (query == null) {
+                for (JsonNode value : arguments) {
+                    if (value.isTextual()) {
+                        query = value;
+                        break;
+                    }
+                }
+            }
+            if (query != null && !query.asText().isBlank()) {
+                return query.asText().trim();
+            }
+        } catch (Exception e) {
+            log.warn("Unreadable arguments for tool call {}: {}", request.name(), request.arguments());
+        }
+        return null;
+    }
+    
+    private void recordTokens(TokenUsage usage) {
+        if (usage == null) {
+            return;
+        }
+        if (usage.inputTokenCount() != null) {
+            inputTokens.increment(usage.inputTokenCount());
+        }
+        if (usage.outputTokenCount() != null) {
+            outputTokens.increment(usage.outputTokenCount());
+        }
+    }
+    
+    private static Counter tokens(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("research.tool.tokens")
+            .description("Tokens used by tool-calling research, across all of its round trips")
+            .tag("type", type)
+            .register(meterRegistry);
+    }
+    
+    /** The model's final answer and the search responses behind it. */
+    public record Result(String answer, List<WebSearchResponse> searchResponses, int roundTrips) {}
+}
@@ -2,11 +2,22 @@ package za.co.digitalcowboy.agents.api;
 
 import za.co.digitalcowboy.agents.domain.*;
 import za.co.digitalcowboy.agents.service.AsyncGenerationService;
+import za.co.digitalcowboy.agents.service.TaskEventBus;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/generate")
@@ -15,22 +26,62 @@ public class GenerationController {
     private static final Logger log = LoggerFactory.getLogger(GenerationController.class);
     
     private final AsyncGenerationService asyncGenerationService;
+    private final long streamTimeoutMs;
     
-    public GenerationController(AsyncGenerationService asyncGenerationService) {
+    public GenerationController(AsyncGenerationService asyncGenerationService,
+                                @Value("${generation.stream.timeout-ms:600000}") long streamTimeoutMs) {
         this.asyncGenerationService = asyncGenerationService;
+        this.streamTimeoutMs = streamTimeoutMs;
     }
     
     @PostMapping("/async")
-    public ResponseEntity<AsyncGenerationResponse> startAsyncGeneration(@Valid @RequestBody TopicRequest request) {
+    public ResponseEntity<AsyncGenerationResponse> startAsyncGeneration(@Valid @RequestBody TopicRequest request,
+                                                                        @AuthenticationPrincipal UserDetails userDetails) {
         log.info("Starting async generation for topic: {} on platform: {}", request.topic(), request.platform());
         
-        String taskId = asyncGenerationService.startGeneration(request);
-        AsyncGenerationResponse response = AsyncGenerationResponse.forTask(taskId);
+        String taskId = asyncGenerationService.startGeneration(request, userId(userDetails));
+        AsyncGenerationResponse response = AsyncGenerationResponse.forTask(
+                taskId, asyncGenerationService.getQueuePosition(taskId));
         
         log.info("Started async generation task: {} for topic: {}", taskId, request.topic());
         return ResponseEntity.accepted().body(response);
     }
     
+    @PostMapping("/async/fan-out")
+    public ResponseEntity<FanOutGenerationResponse> startFanOutGeneration(@Valid @RequestBody FanOutTopicRequest request,
+                                                                          @AuthenticationPrincipal UserDetails userDetails) {
+        log.info("Starting fan-out generation for topic: {} on platforms: {} with tones: {}", 
+                request.topic(), request.platforms(), request.tones());
+        
+        List<String> taskIds = asyncGenerationService.startFanOutGeneration(request, userId(userDetails));
+        FanOutGenerationResponse response = FanOutGenerationResponse.forTasks(
+                request.topic(), taskIds, asyncGenerationService.getQueuePosition(taskIds.get(0)));
+        
+        log.info("Started {} fan-out generation tasks for topic: {}", taskIds.size(), request.topic());
+        return ResponseEntity.accepted().body(response);
+    }
+    
+    @PostMapping("/{taskId}/resume")
+    public ResponseEntity<AsyncGenerationResponse> resumeGeneration(@PathVariable String taskId,
+                                                                    @AuthenticationPrincipal UserDetails userDetails) {
+        GenerationTask task = asyncGenerationService.getTask(taskId);
+        
+        if (task == null) {
+            log.warn("Task not found: {}", taskId);
+            return ResponseEntity.notFound().build();
+        }
+        
+        if (!asyncGenerationService.resumeGeneration(taskId, userId(userDetails))) {
+            log.warn("Task {} cannot be resumed. Status: {}", taskId, task.status());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        
+        AsyncGenerationResponse response = AsyncGenerationResponse.forTask(
+                taskId, asyncGenerationService.getQueuePosition(taskId));
+        log.info("Resumed generation task: {}", taskId);
+        return ResponseEntity.accepted().body(response);
+    }
+    
     @GetMapping("/status/{taskId}")
     public ResponseEntity<GenerationTask> getTaskStatus(@PathVariable String taskId) {
         GenerationTask task = asyncGenerationService.getTask(taskId);
@@ -67,4 +118,55 @@ public class GenerationController {
         log.info("Retrieved result for completed task: {}", taskId);
         return ResponseEntity.ok(result);
     }
+    
+    @GetMapping(path = "/stream/{taskId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTask(@PathVariable String taskId,
+                                                 @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        GenerationTask task = asyncGenerationService.getTask(taskId);
+        
+        if (task == null) {
+            log.warn("Task not found: {}", taskId);
+            return ResponseEntity.notFound().build();
+        }
+        
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        long afterSequence = lastEventId != null ? lastEventId : 0;
+        
+        TaskEventBus.Subscription subscription = asyncGenerationService.subscribe(
+                taskId, afterSequence, event -> sendEvent(emitter, event));
+        
+        if (subscription == null) {
+            // Not running on this node - replay what the store knows and finish
+            asyncGenerationService.snapshotEvents(task).stream()
+                    .filter(event -> event.sequence() > afterSequence)
+                    .forEach(event -> sendEvent(emitter, event));
+            emitter.complete();
+        } else {
+            emitter.onCompletion(subscription::close);
+            emitter.onTimeout(subscription::close);
+            emitter.onError(error -> subscription.close());
+        }
+        
+        log.debug("Streaming events for task: {} after event {}", taskId, afterSequence);
+        return ResponseEntity.ok(emitter);
+    }
+    
+    private void sendEvent(SseEmitter emitter, TaskEvent event) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.sequence()))
+                    .name(event.type().getValue())
+                    .data(event.data(), MediaType.APPLICATION_JSON));
+            if (event.type().isTerminal()) {
+                emitter.complete();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    // Token budgets are kept per username; unauthenticated calls have no daily budget
+    private static String userId(UserDetails userDetails) {
+        return userDetails != null ? userDetails.getUsername() : null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Users granted {@code ROLE_ADMIN} on top of {@code ROLE_USER}. Anyone can register, so
+ * operational endpoints such as {@code /actuator/cacheadmin} are limited to these.
+ */
+@Component
+@ConfigurationProperties(prefix = "admin")
+public class AdminProperties {
+    
+    // Emails of the users allowed to administer the service; none by default
+    private List<String> emails = List.of();
+    
+    public List<String> getEmails() {
+        return emails;
+    }
+    
+    public void setEmails(List<String> emails) {
+        this.emails = emails;
+    }
+    
+    public boolean isAdmin(String email) {
+        return email != null && emails.stream().anyMatch(email::equalsIgnoreCase);
+    }
+}
@@ -1,7 +1,11 @@
 package za.co.digitalcowboy.agents.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -13,18 +17,30 @@ import java.util.concurrent.Executor;
 @EnableScheduling
 public class AsyncConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
+    private final boolean virtualThreads;
+
+    public AsyncConfig(@Value("${agents.virtual-threads.enabled:false}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     @Bean("taskExecutor")
-    public Executor taskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    public Executor taskExecutor(@Value("${generation.admission.max-concurrent:20}") int maxConcurrent) {
+        if (virtualThreads) {
+            // AdmissionController still caps running generations at maxConcurrent
+            return virtualThreadExecutor("AsyncGeneration-");
+        }
         
-        // Core pool size - number of threads to keep alive
-        executor.setCorePoolSize(5);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
-        // Maximum pool size - maximum number of threads
-        executor.setMaxPoolSize(20);
+        // One thread per admitted generation - AdmissionController never runs more than this
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
         
-        // Queue capacity - number of tasks that can be queued
-        executor.setQueueCapacity(100);
+        // Small hand-off buffer for workers that are releasing a slot; pending work
+        // waits in AdmissionController where its queue position is visible
+        executor.setQueueCapacity(maxConcurrent);
         
         // Thread name prefix for easy identification in logs
         executor.setThreadNamePrefix("AsyncGeneration-");
@@ -33,11 +49,129 @@ public class AsyncConfig {
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
         
-        // Rejection policy - what to do when queue is full
-        // CALLER_RUNS means the calling thread will execute the task
+        // Rejection policy - never run a generation on the submitting request thread
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean("agentExecutor")
+    public Executor agentExecutor() {
+        if (virtualThreads) {
+            // Blocked nodes cost no platform thread; ProviderConcurrencyLimiter bounds the calls
+            return virtualThreadExecutor("AgentNode-");
+        }
+        
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        
+        // Runs independent agent graph nodes, searches and image downloads side by side
+        executor.setCorePoolSize(10);
+        executor.setMaxPoolSize(50);
+        
+        // No queue - hand work straight to a thread or run it inline
+        executor.setQueueCapacity(0);
+        
+        executor.setThreadNamePrefix("AgentNode-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        
+        // Callers are graph workers already waiting on this work, so running it inline
+        // degrades to sequential execution instead of deadlocking on a full pool
         executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
         
         executor.initialize();
         return executor;
     }
+
+    @Bean("llmCallExecutor")
+    public Executor llmCallExecutor(@Value("${providers.limits.openai-chat:16}") int openAiChatLimit) {
+        if (virtualThreads) {
+            return virtualThreadExecutor("LlmCall-");
+        }
+        
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        
+        // Runs chat completions so the caller can stop waiting at its deadline. Twice the
+        // OpenAI chat permits leaves room for calls queued on a permit while abandoned ones
+        // run on to their profile timeout, without letting them grow the thread count
+        executor.setCorePoolSize(openAiChatLimit * 2);
+        executor.setMaxPoolSize(openAiChatLimit * 2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("LlmCall-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        
+        // A saturated pool fails the call, which agents answer with their fallback
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean("cacheRefreshExecutor")
+    public Executor cacheRefreshExecutor() {
+        if (virtualThreads) {
+            return virtualThreadExecutor("CacheRefresh-");
+        }
+        
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        
+        // Background cache refreshes and write-backs; nobody waits on them
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("CacheRefresh-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        
+        // Never run on the caller - that would put the refresh back on the request path
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean("taskEventExecutor")
+    public Executor taskEventExecutor() {
+        if (virtualThreads) {
+            return virtualThreadExecutor("TaskEvent-");
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        
+        // Writes task events to SSE clients, one drain per subscriber at a time
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("TaskEvent-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        
+        // Never deliver on the generation worker - TaskEventBus drops the subscriber,
+        // which reconnects and replays from its last event id
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * One virtual thread per task, so blocking LLM and HTTP calls park instead of holding
+     * a pool thread. Requires a Java 21 runtime.
+     */
+    private Executor virtualThreadExecutor(String threadNamePrefix) {
+        if (Runtime.version().feature() < 21) {
+            throw new IllegalStateException("agents.virtual-threads.enabled requires Java 21 or newer, running on "
+                    + Runtime.version());
+        }
+        log.info("Using virtual threads for {} tasks", threadNamePrefix.replace("-", ""));
+        
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        
+        // Graceful shutdown - wait for tasks to complete before shutting down
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package za.co.digitalcowboy.agents.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.model.embedding.AllMiniLmL6V2QuantizedEmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
@@ -8,10 +10,16 @@ import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import java.time.Duration;
 import java.util.Arrays;
 
+/**
+ * Caches behind {@code @Cacheable} and {@link CacheManager}. Spring Boot binds each of them to
+ * Micrometer, so they record statistics; caches kept outside the manager are registered with
+ * {@link za.co.digitalcowboy.agents.service.cache.CacheRegistry} instead.
+ */
 @Configuration
 @EnableCaching
 public class CacheConfig {
@@ -28,6 +36,7 @@ public class CacheConfig {
                 Caffeine.newBuilder()
                         .maximumSize(10000)
                         .expireAfterWrite(Duration.ofMinutes(10))
+                        .recordStats()
                         .build());
         
         // SERP API search results cache - expires after configured time (default 1 hour)
@@ -38,15 +47,18 @@ public class CacheConfig {
                         .recordStats()
                         .build());
         
-        // Web search cache (alias for backwards compatibility)
-        CaffeineCache webSearchCache = new CaffeineCache("webSearchCache",
-                Caffeine.newBuilder()
-                        .maximumSize(100)
-                        .expireAfterWrite(Duration.ofSeconds(serpApiCacheTtlSeconds))
-                        .recordStats()
-                        .build());
-        
-        cacheManager.setCaches(Arrays.asList(oauthStateCache, serpApiCache, webSearchCache));
+        // Web search responses are cached by SearchResponseCache, which adds a persistent tier
+        cacheManager.setCaches(Arrays.asList(oauthStateCache, serpApiCache));
         return cacheManager;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Topic embeddings for the semantic research cache, computed in process. The ONNX model is
+     * only loaded on first use, so it costs nothing while the cache is disabled.
+     */
+    @Bean
+    @Lazy
+    public EmbeddingModel topicEmbeddingModel() {
+        return new AllMiniLmL6V2QuantizedEmbeddingModel();
+    }
+}
@@ -0,0 +1,53 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * End-to-end time budget for one generation and the budget each optional step needs in
+ * order to start. Steps that would eat into the time reserved for later, required steps
+ * are skipped instead.
+ */
+@Component
+@ConfigurationProperties(prefix = "generation.deadline")
+public class GenerationDeadlineProperties {
+    
+    // Zero disables the deadline
+    private Duration total = Duration.ofSeconds(180);
+    
+    // Web search only starts if more than this is left for research and content afterwards
+    private Duration searchReserve = Duration.ofSeconds(60);
+    
+    // Image steps only start if at least this much is left
+    private Duration imageMinimum = Duration.ofSeconds(30);
+    
+    public boolean isEnabled() {
+        return total != null && !total.isZero() && !total.isNegative();
+    }
+    
+    public Duration getTotal() {
+        return total;
+    }
+    
+    public void setTotal(Duration total) {
+        this.total = total;
+    }
+    
+    public Duration getSearchReserve() {
+        return searchReserve;
+    }
+    
+    public void setSearchReserve(Duration searchReserve) {
+        this.searchReserve = searchReserve;
+    }
+    
+    public Duration getImageMinimum() {
+        return imageMinimum;
+    }
+    
+    public void setImageMinimum(Duration imageMinimum) {
+        this.imageMinimum = imageMinimum;
+    }
+}
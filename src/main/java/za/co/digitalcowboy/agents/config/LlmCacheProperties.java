@@ -0,0 +1,75 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Which agents reuse earlier completions for byte-identical prompts, and how long and where
+ * those completions are kept.
+ */
+@Component
+@ConfigurationProperties(prefix = "llm.cache")
+public class LlmCacheProperties {
+    
+    /** Agents whose completions are cached: {@code research}, {@code content}, {@code image}. */
+    private Set<String> agents = Set.of();
+    
+    /** How long a cached completion is reused. */
+    private Duration ttl = Duration.ofHours(24);
+    
+    /** Completions kept in the in-memory tier. */
+    private long memoryMaxSize = 1000;
+    
+    /** Whether completions are also written to disk, so they survive restarts. */
+    private boolean diskEnabled = false;
+    
+    /** Directory of the disk tier; not a publicly served one. */
+    private String diskPath = "./data/llm-cache";
+    
+    public boolean isEnabledFor(String agent) {
+        return agents.contains(agent);
+    }
+    
+    public Set<String> getAgents() {
+        return agents;
+    }
+    
+    public void setAgents(Set<String> agents) {
+        this.agents = agents;
+    }
+    
+    public Duration getTtl() {
+        return ttl;
+    }
+    
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+    
+    public long getMemoryMaxSize() {
+        return memoryMaxSize;
+    }
+    
+    public void setMemoryMaxSize(long memoryMaxSize) {
+        this.memoryMaxSize = memoryMaxSize;
+    }
+    
+    public boolean isDiskEnabled() {
+        return diskEnabled;
+    }
+    
+    public void setDiskEnabled(boolean diskEnabled) {
+        this.diskEnabled = diskEnabled;
+    }
+    
+    public String getDiskPath() {
+        return diskPath;
+    }
+    
+    public void setDiskPath(String diskPath) {
+        this.diskPath = diskPath;
+    }
+}
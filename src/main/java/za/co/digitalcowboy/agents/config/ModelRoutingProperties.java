@@ -0,0 +1,174 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.domain.ModelStep;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Named chat model profiles, the profile each agent step uses, and when a step falls back
+ * from its profile to a faster one.
+ */
+@Component
+@ConfigurationProperties(prefix = "llm.routing")
+public class ModelRoutingProperties {
+    
+    /** Profiles by name. */
+    private Map<String, Profile> profiles = new LinkedHashMap<>(Map.of(
+        "primary", new Profile("gpt-4o", 2000, Duration.ofSeconds(30), 0.1, "fast"),
+        "fast", new Profile("gpt-4o-mini", 1000, Duration.ofSeconds(15), 0.1, null)));
+    
+    /** Profile of each step; steps not listed, and calls outside any step, use the default. */
+    private Map<ModelStep, String> steps = new EnumMap<>(Map.of(
+        ModelStep.RESEARCH_QUERIES, "fast",
+        ModelStep.IMAGE_BRIEF, "fast"));
+    
+    private String defaultProfile = "primary";
+    
+    /** A call falls back when less than this is left of the generation deadline. */
+    private Duration downgradeBelowBudget = Duration.ofSeconds(20);
+    
+    /** Latency samples a profile keeps for its p95, and how long each one counts. */
+    private int latencyWindowSize = 100;
+    private Duration latencyWindowAge = Duration.ofMinutes(1);
+    
+    /** Samples needed before a profile's p95 can mark it degraded. */
+    private int latencyMinSamples = 20;
+    
+    public String profileFor(ModelStep step) {
+        return step != null ? steps.getOrDefault(step, defaultProfile) : defaultProfile;
+    }
+    
+    public Map<String, Profile> getProfiles() {
+        return profiles;
+    }
+    
+    public void setProfiles(Map<String, Profile> profiles) {
+        this.profiles = profiles;
+    }
+    
+    public Map<ModelStep, String> getSteps() {
+        return steps;
+    }
+    
+    public void setSteps(Map<ModelStep, String> steps) {
+        this.steps = steps;
+    }
+    
+    public String getDefaultProfile() {
+        return defaultProfile;
+    }
+    
+    public void setDefaultProfile(String defaultProfile) {
+        this.defaultProfile = defaultProfile;
+    }
+    
+    public Duration getDowngradeBelowBudget() {
+        return downgradeBelowBudget;
+    }
+    
+    public void setDowngradeBelowBudget(Duration downgradeBelowBudget) {
+        this.downgradeBelowBudget = downgradeBelowBudget;
+    }
+    
+    public int getLatencyWindowSize() {
+        return latencyWindowSize;
+    }
+    
+    public void setLatencyWindowSize(int latencyWindowSize) {
+        this.latencyWindowSize = latencyWindowSize;
+    }
+    
+    public Duration getLatencyWindowAge() {
+        return latencyWindowAge;
+    }
+    
+    public void setLatencyWindowAge(Duration latencyWindowAge) {
+        this.latencyWindowAge = latencyWindowAge;
+    }
+    
+    public int getLatencyMinSamples() {
+        return latencyMinSamples;
+    }
+    
+    public void setLatencyMinSamples(int latencyMinSamples) {
+        this.latencyMinSamples = latencyMinSamples;
+    }
+    
+    public static class Profile {
+        
+        private String model;
+        private int maxTokens;
+        private Duration timeout;
+        private double temperature;
+        
+        /** Profile used instead when this one is degraded or the budget is tight; none if blank. */
+        private String downgradeTo;
+        
+        /** Recent p95 latency above which this profile counts as degraded; zero never does. */
+        private Duration degradedP95 = Duration.ZERO;
+        
+        public Profile() {
+        }
+        
+        public Profile(String model, int maxTokens, Duration timeout, double temperature, String downgradeTo) {
+            this.model = model;
+            this.maxTokens = maxTokens;
+            this.timeout = timeout;
+            this.temperature = temperature;
+            this.downgradeTo = downgradeTo;
+        }
+        
+        public String getModel() {
+            return model;
+        }
+        
+        public void setModel(String model) {
+            this.model = model;
+        }
+        
+        public int getMaxTokens() {
+            return maxTokens;
+        }
+        
+        public void setMaxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+        }
+        
+        public Duration getTimeout() {
+            return timeout;
+        }
+        
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+        
+        public double getTemperature() {
+            return temperature;
+        }
+        
+        public void setTemperature(double temperature) {
+            this.temperature = temperature;
+        }
+        
+        public String getDowngradeTo() {
+            return downgradeTo;
+        }
+        
+        public void setDowngradeTo(String downgradeTo) {
+            this.downgradeTo = downgradeTo;
+        }
+        
+        public Duration getDegradedP95() {
+            return degradedP95;
+        }
+        
+        public void setDegradedP95(Duration degradedP95) {
+            this.degradedP95 = degradedP95;
+        }
+    }
+}
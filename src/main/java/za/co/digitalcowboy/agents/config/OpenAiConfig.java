@@ -1,13 +1,34 @@
 package za.co.digitalcowboy.agents.config;
 
+import dev.langchain4j.model.Tokenizer;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import io.micrometer.core.instrument.MeterRegistry;
 import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import za.co.digitalcowboy.agents.service.llm.LlmResponseCache;
+import za.co.digitalcowboy.agents.service.llm.TokenAccounting;
+import za.co.digitalcowboy.agents.tools.CachingChatLanguageModel;
+import za.co.digitalcowboy.agents.tools.ConcurrencyLimitedChatLanguageModel;
+import za.co.digitalcowboy.agents.tools.ConcurrencyLimitedStreamingChatLanguageModel;
+import za.co.digitalcowboy.agents.tools.DeadlineChatLanguageModel;
+import za.co.digitalcowboy.agents.tools.ProviderConcurrencyLimiter;
+import za.co.digitalcowboy.agents.tools.RoutingChatLanguageModel;
+import za.co.digitalcowboy.agents.tools.RoutingStreamingChatLanguageModel;
+import za.co.digitalcowboy.agents.tools.TokenAccountingChatLanguageModel;
+import za.co.digitalcowboy.agents.tools.TokenAccountingStreamingChatLanguageModel;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 @Configuration
 public class OpenAiConfig {
@@ -33,19 +54,93 @@ public class OpenAiConfig {
     @Value("${openai.max-tokens}")
     private int maxTokens;
 
+    /**
+     * One OpenAI model per {@code llm.routing} profile, each behind its own permits and the
+     * generation deadline, with every call routed to the profile of the step making it.
+     */
     @Bean
-    public ChatLanguageModel chatLanguageModel() {
+    @Primary
+    public RoutingChatLanguageModel chatLanguageModel(ProviderConcurrencyLimiter providerConcurrencyLimiter,
+                                                      @Qualifier("llmCallExecutor") Executor llmCallExecutor,
+                                                      ModelRoutingProperties modelRouting,
+                                                      Tokenizer tokenizer,
+                                                      TokenAccounting tokenAccounting,
+                                                      MeterRegistry meterRegistry) {
         if (apiKey == null || apiKey.isBlank()) {
             throw new IllegalStateException("OpenAI API key is not configured. Set OPENAI_API_KEY environment variable.");
         }
         
-        return OpenAiChatModel.builder()
-                .apiKey(apiKey)
-                .modelName(textModel)
-                .temperature(temperature)
-                .maxTokens(maxTokens)
-                .timeout(Duration.ofMillis(timeoutMs))
-                .build();
+        Map<String, ChatLanguageModel> models = new HashMap<>();
+        modelRouting.getProfiles().forEach((name, profile) -> {
+            ChatLanguageModel openAiChatModel = OpenAiChatModel.builder()
+                    .apiKey(apiKey)
+                    .modelName(profile.getModel())
+                    .temperature(profile.getTemperature())
+                    .maxTokens(profile.getMaxTokens())
+                    .timeout(profile.getTimeout())
+                    .build();
+            // Waiting for a permit counts against the generation deadline too; usage is
+            // recorded on the caller's thread, where its step and token budget are set
+            models.put(name, new TokenAccountingChatLanguageModel(new DeadlineChatLanguageModel(
+                    new ConcurrencyLimitedChatLanguageModel(openAiChatModel, providerConcurrencyLimiter), llmCallExecutor),
+                    profile.getModel(), tokenAccounting));
+        });
+        return new RoutingChatLanguageModel(models, modelRouting, tokenizer, meterRegistry);
+    }
+
+    @Bean
+    public ChatLanguageModel researchChatModel(RoutingChatLanguageModel chatLanguageModel, LlmResponseCache llmResponseCache,
+                                               MeterRegistry meterRegistry) {
+        return cachedFor("research", chatLanguageModel, llmResponseCache, meterRegistry);
+    }
+
+    @Bean
+    public ChatLanguageModel contentChatModel(RoutingChatLanguageModel chatLanguageModel, LlmResponseCache llmResponseCache,
+                                              MeterRegistry meterRegistry) {
+        return cachedFor("content", chatLanguageModel, llmResponseCache, meterRegistry);
+    }
+
+    @Bean
+    public ChatLanguageModel imageChatModel(RoutingChatLanguageModel chatLanguageModel, LlmResponseCache llmResponseCache,
+                                            MeterRegistry meterRegistry) {
+        return cachedFor("image", chatLanguageModel, llmResponseCache, meterRegistry);
+    }
+
+    /**
+     * A streaming OpenAI model per {@code llm.routing} profile, routed by the same router as
+     * the blocking models so streamed content is downgraded like any other step.
+     */
+    @Bean
+    public StreamingChatLanguageModel streamingChatLanguageModel(ProviderConcurrencyLimiter providerConcurrencyLimiter,
+                                                                 RoutingChatLanguageModel chatLanguageModel,
+                                                                 ModelRoutingProperties modelRouting,
+                                                                 TokenAccounting tokenAccounting,
+                                                                 MeterRegistry meterRegistry) {
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalStateException("OpenAI API key is not configured. Set OPENAI_API_KEY environment variable.");
+        }
+        
+        Map<String, StreamingChatLanguageModel> models = new HashMap<>();
+        modelRouting.getProfiles().forEach((name, profile) -> {
+            // The timeout bounds each read, so long completions only need tokens to keep arriving
+            StreamingChatLanguageModel openAiStreamingChatModel = OpenAiStreamingChatModel.builder()
+                    .apiKey(apiKey)
+                    .modelName(profile.getModel())
+                    .temperature(profile.getTemperature())
+                    .maxTokens(profile.getMaxTokens())
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .build();
+            models.put(name, new TokenAccountingStreamingChatLanguageModel(
+                    new ConcurrencyLimitedStreamingChatLanguageModel(openAiStreamingChatModel, providerConcurrencyLimiter),
+                    profile.getModel(), tokenAccounting));
+        });
+        return new RoutingStreamingChatLanguageModel(models, chatLanguageModel, meterRegistry);
+    }
+
+    @Bean
+    public Tokenizer tokenizer() {
+        // Counts locally with the model's encoding; no API key or network needed
+        return new OpenAiTokenizer(textModel);
     }
 
     @Bean
@@ -71,6 +166,14 @@ public class OpenAiConfig {
         return new OpenAiProperties(apiKey, textModel, imageModel, timeoutMs, imageTimeoutMs, temperature, maxTokens);
     }
 
+    private ChatLanguageModel cachedFor(String agent, RoutingChatLanguageModel chatModel, LlmResponseCache cache,
+                                        MeterRegistry meterRegistry) {
+        // Outermost, so a cached answer needs neither a permit nor deadline time
+        return cache.isEnabledFor(agent)
+                ? new CachingChatLanguageModel(chatModel, cache, agent, chatModel::select, meterRegistry)
+                : chatModel;
+    }
+
     public record OpenAiProperties(
             String apiKey,
             String textModel,
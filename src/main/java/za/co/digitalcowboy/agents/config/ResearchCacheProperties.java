@@ -0,0 +1,57 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * When research for one topic is reused for another with the same meaning.
+ */
+@Component
+@ConfigurationProperties(prefix = "research.cache")
+public class ResearchCacheProperties {
+    
+    private boolean enabled = false;
+    
+    /** Cosine similarity of the topic embeddings at which two topics share research. */
+    private double similarityThreshold = 0.8;
+    
+    /** Research older than this is run again. */
+    private Duration freshFor = Duration.ofHours(6);
+    
+    /** Topics kept; the oldest are dropped beyond this. */
+    private long maxTopics = 100_000;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public double getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+    
+    public void setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+    
+    public Duration getFreshFor() {
+        return freshFor;
+    }
+    
+    public void setFreshFor(Duration freshFor) {
+        this.freshFor = freshFor;
+    }
+    
+    public long getMaxTopics() {
+        return maxTopics;
+    }
+    
+    public void setMaxTopics(long maxTopics) {
+        this.maxTopics = maxTopics;
+    }
+}
@@ -0,0 +1,52 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * How the research agent uses web search: a fixed query-then-synthesize flow, or a
+ * tool-calling loop in which the model decides what to search for.
+ */
+@Component
+@ConfigurationProperties(prefix = "research")
+public class ResearchProperties {
+    
+    public enum Mode {
+        /** Generate queries, search them all, then synthesize: always two LLM calls. */
+        TWO_STEP,
+        /** Let the model call the web search tool, several searches per turn, until it answers. */
+        TOOL_CALLING
+    }
+    
+    private Mode mode = Mode.TWO_STEP;
+    
+    /** In tool-calling mode, the most LLM calls one research step may make, the answer included. */
+    private int maxRoundTrips = 3;
+    
+    /** In tool-calling mode, the most searches run for one model turn; the rest are refused. */
+    private int maxToolCallsPerTurn = 5;
+    
+    public Mode getMode() {
+        return mode;
+    }
+    
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+    
+    public int getMaxRoundTrips() {
+        return maxRoundTrips;
+    }
+    
+    public void setMaxRoundTrips(int maxRoundTrips) {
+        this.maxRoundTrips = maxRoundTrips;
+    }
+    
+    public int getMaxToolCallsPerTurn() {
+        return maxToolCallsPerTurn;
+    }
+    
+    public void setMaxToolCallsPerTurn(int maxToolCallsPerTurn) {
+        this.maxToolCallsPerTurn = maxToolCallsPerTurn;
+    }
+}
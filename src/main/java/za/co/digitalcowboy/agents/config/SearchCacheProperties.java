@@ -0,0 +1,51 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Freshness and sizing of the two-tier web search cache.
+ */
+@Component
+@ConfigurationProperties(prefix = "search.cache")
+public class SearchCacheProperties {
+    
+    /** Responses younger than this are served as they are. */
+    private Duration freshFor = Duration.ofHours(1);
+    
+    /** For this long after going stale a response is still served while it is refreshed. */
+    private Duration staleFor = Duration.ofHours(23);
+    
+    /** Entries kept in the in-memory tier. */
+    private long memoryMaxSize = 1000;
+    
+    public Duration maxAge() {
+        return freshFor.plus(staleFor);
+    }
+    
+    public Duration getFreshFor() {
+        return freshFor;
+    }
+    
+    public void setFreshFor(Duration freshFor) {
+        this.freshFor = freshFor;
+    }
+    
+    public Duration getStaleFor() {
+        return staleFor;
+    }
+    
+    public void setStaleFor(Duration staleFor) {
+        this.staleFor = staleFor;
+    }
+    
+    public long getMemoryMaxSize() {
+        return memoryMaxSize;
+    }
+    
+    public void setMemoryMaxSize(long memoryMaxSize) {
+        this.memoryMaxSize = memoryMaxSize;
+    }
+}
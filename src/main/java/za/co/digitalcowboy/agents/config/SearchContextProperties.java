@@ -0,0 +1,56 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Size limit and duplicate detection for the search results placed in the research prompt.
+ */
+@Component
+@ConfigurationProperties(prefix = "search.context")
+public class SearchContextProperties {
+    
+    /** Tokens the formatted search results may take up in the research prompt. */
+    private int maxTokens = 1500;
+    
+    /** Estimated word-shingle similarity at which two results count as the same article. */
+    private double nearDuplicateThreshold = 0.7;
+    
+    /** Words per shingle when comparing results. */
+    private int shingleSize = 3;
+    
+    /** Links each search query may add to the research sources. */
+    private int maxSourcesPerQuery = 5;
+    
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+    
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+    
+    public double getNearDuplicateThreshold() {
+        return nearDuplicateThreshold;
+    }
+    
+    public void setNearDuplicateThreshold(double nearDuplicateThreshold) {
+        this.nearDuplicateThreshold = nearDuplicateThreshold;
+    }
+    
+    public int getShingleSize() {
+        return shingleSize;
+    }
+    
+    public void setShingleSize(int shingleSize) {
+        this.shingleSize = shingleSize;
+    }
+    
+    public int getMaxSourcesPerQuery() {
+        return maxSourcesPerQuery;
+    }
+    
+    public void setMaxSourcesPerQuery(int maxSourcesPerQuery) {
+        this.maxSourcesPerQuery = maxSourcesPerQuery;
+    }
+}
@@ -0,0 +1,123 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Location, compaction and answer thresholds of the local index of fetched search results.
+ */
+@Component
+@ConfigurationProperties(prefix = "search.index")
+public class SearchIndexProperties {
+    
+    private boolean enabled = false;
+    
+    /** Directory holding the index segments. Must not be a publicly served directory. */
+    private String path = "./data/search-index";
+    
+    /** Results held in memory before they are written out as a segment. */
+    private int flushSize = 5000;
+    
+    /** Segments on disk before they are merged into one. */
+    private int maxSegments = 8;
+    
+    /** Results older than this are dropped at compaction. */
+    private Duration retention = Duration.ofDays(30);
+    
+    /** Age at which a result's relevance counts half. */
+    private Duration freshnessHalfLife = Duration.ofDays(7);
+    
+    /** Only results younger than this can answer a search locally. */
+    private Duration answerMaxAge = Duration.ofDays(3);
+    
+    /** Share of the query's weighted terms a result must contain to count as a match. */
+    private double minCoverage = 0.75;
+    
+    /** Matching results needed to answer a search without calling the provider. */
+    private int minResults = 3;
+    
+    /** Results returned when a search is answered locally. */
+    private int maxResults = 5;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public String getPath() {
+        return path;
+    }
+    
+    public void setPath(String path) {
+        this.path = path;
+    }
+    
+    public int getFlushSize() {
+        return flushSize;
+    }
+    
+    public void setFlushSize(int flushSize) {
+        this.flushSize = flushSize;
+    }
+    
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+    
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+    
+    public Duration getRetention() {
+        return retention;
+    }
+    
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+    
+    public Duration getFreshnessHalfLife() {
+        return freshnessHalfLife;
+    }
+    
+    public void setFreshnessHalfLife(Duration freshnessHalfLife) {
+        this.freshnessHalfLife = freshnessHalfLife;
+    }
+    
+    public Duration getAnswerMaxAge() {
+        return answerMaxAge;
+    }
+    
+    public void setAnswerMaxAge(Duration answerMaxAge) {
+        this.answerMaxAge = answerMaxAge;
+    }
+    
+    public double getMinCoverage() {
+        return minCoverage;
+    }
+    
+    public void setMinCoverage(double minCoverage) {
+        this.minCoverage = minCoverage;
+    }
+    
+    public int getMinResults() {
+        return minResults;
+    }
+    
+    public void setMinResults(int minResults) {
+        this.minResults = minResults;
+    }
+    
+    public int getMaxResults() {
+        return maxResults;
+    }
+    
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+}
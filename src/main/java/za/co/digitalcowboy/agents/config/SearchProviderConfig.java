@@ -0,0 +1,53 @@
+package za.co.digitalcowboy.agents.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import za.co.digitalcowboy.agents.service.search.CompositeSearchProvider;
+import za.co.digitalcowboy.agents.service.search.FixtureSearchProvider;
+import za.co.digitalcowboy.agents.service.search.MeteredSearchProvider;
+import za.co.digitalcowboy.agents.service.search.SearchProvider;
+import za.co.digitalcowboy.agents.tools.SerpApiSearchProvider;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Picks the web search backend from {@code search.provider.type}. Every backend is timed
+ * under {@code search.provider.duration}, including inside a composite.
+ */
+@Configuration
+public class SearchProviderConfig {
+    
+    @Bean("searchProvider")
+    public SearchProvider searchProvider(SearchProviderProperties properties,
+                                         SerpApiSearchProvider serpApi,
+                                         FixtureSearchProvider fixture,
+                                         @Qualifier("agentExecutor") Executor agentExecutor,
+                                         MeterRegistry meterRegistry) {
+        Map<String, SearchProvider> backends = new LinkedHashMap<>();
+        for (SearchProvider backend : List.of(serpApi, fixture)) {
+            backends.put(backend.name(), new MeteredSearchProvider(backend, meterRegistry));
+        }
+        
+        if ("composite".equalsIgnoreCase(properties.getType())) {
+            List<SearchProvider> combined = properties.getBackends().stream()
+                .map(name -> backend(backends, name))
+                .toList();
+            return new CompositeSearchProvider(combined, properties.getMode(), properties.getFailoverAfter(), agentExecutor);
+        }
+        return backend(backends, properties.getType());
+    }
+    
+    private static SearchProvider backend(Map<String, SearchProvider> backends, String name) {
+        SearchProvider backend = backends.get(name.toLowerCase());
+        if (backend == null) {
+            throw new IllegalArgumentException("Unknown search provider '" + name + "', expected one of "
+                + backends.keySet() + " or composite");
+        }
+        return backend;
+    }
+}
@@ -0,0 +1,92 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.service.search.CompositeSearchProvider;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Which web search backend answers searches, and how several are combined.
+ */
+@Component
+@ConfigurationProperties(prefix = "search.provider")
+public class SearchProviderProperties {
+    
+    /** A backend name ({@code serpapi}, {@code fixture}) or {@code composite}. */
+    private String type = "serpapi";
+    
+    /** Backends a composite provider combines, in failover order. */
+    private List<String> backends = List.of("serpapi", "fixture");
+    
+    private CompositeSearchProvider.Mode mode = CompositeSearchProvider.Mode.FAILOVER;
+    
+    /** In failover mode, how long a backend has to answer before the next one is also asked. */
+    private Duration failoverAfter = Duration.ofSeconds(3);
+    
+    /** Directory of recorded SerpAPI responses served by the fixture backend. */
+    private String fixturePath = "./fixtures/search";
+    
+    /** Latency the fixture backend adds to each search, to load-test with realistic timings. */
+    private Duration fixtureLatency = Duration.ZERO;
+    
+    /** Whether SerpAPI responses are written to the fixture directory as they are fetched. */
+    private boolean recordFixtures = false;
+    
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(String type) {
+        this.type = type;
+    }
+    
+    public List<String> getBackends() {
+        return backends;
+    }
+    
+    public void setBackends(List<String> backends) {
+        this.backends = backends;
+    }
+    
+    public CompositeSearchProvider.Mode getMode() {
+        return mode;
+    }
+    
+    public void setMode(CompositeSearchProvider.Mode mode) {
+        this.mode = mode;
+    }
+    
+    public Duration getFailoverAfter() {
+        return failoverAfter;
+    }
+    
+    public void setFailoverAfter(Duration failoverAfter) {
+        this.failoverAfter = failoverAfter;
+    }
+    
+    public String getFixturePath() {
+        return fixturePath;
+    }
+    
+    public void setFixturePath(String fixturePath) {
+        this.fixturePath = fixturePath;
+    }
+    
+    public Duration getFixtureLatency() {
+        return fixtureLatency;
+    }
+    
+    public void setFixtureLatency(Duration fixtureLatency) {
+        this.fixtureLatency = fixtureLatency;
+    }
+    
+    public boolean isRecordFixtures() {
+        return recordFixtures;
+    }
+    
+    public void setRecordFixtures(boolean recordFixtures) {
+        this.recordFixtures = recordFixtures;
+    }
+}
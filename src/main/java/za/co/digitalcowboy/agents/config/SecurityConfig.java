@@ -46,6 +46,9 @@ public class SecurityConfig {
                 // OAuth callback endpoints - public (for LinkedIn/social media redirects)
                 .requestMatchers(HttpMethod.GET, "/api/v1/connections/*/callback").permitAll()
                 
+                // Cache admin reads keys, spends search quota and clears shared caches - admins only
+                .requestMatchers("/actuator/cacheadmin", "/actuator/cacheadmin/**").hasRole("ADMIN")
+                
                 // Health and actuator endpoints - public
                 .requestMatchers("/actuator/health", "/actuator/info").permitAll()
                 .requestMatchers(HttpMethod.GET, "/actuator/**").permitAll()
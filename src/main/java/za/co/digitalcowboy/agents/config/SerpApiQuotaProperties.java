@@ -0,0 +1,90 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Rate and monthly quota of the SerpAPI plan, shared by every search this instance sends.
+ */
+@Component
+@ConfigurationProperties(prefix = "serpapi.quota")
+public class SerpApiQuotaProperties {
+    
+    private boolean enabled = true;
+    
+    /** Searches per second the plan allows. */
+    private double requestsPerSecond = 5;
+    
+    /** Searches that may go out at once after an idle spell. */
+    private int burst = 5;
+    
+    /** Searches per calendar month (UTC); 0 takes the plan's limit from the account API, if known. */
+    private long monthlyQuota = 0;
+    
+    /** Share of the monthly quota held back for interactive generations. */
+    private double bulkReserve = 0.1;
+    
+    /** Longest a search queues for the rate limit, further capped by the generation deadline. */
+    private Duration maxWait = Duration.ofSeconds(5);
+    
+    /** Whether to read the month's usage from the SerpAPI account API, which is free to call. */
+    private boolean syncWithAccount = true;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+    
+    public void setRequestsPerSecond(double requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+    
+    public int getBurst() {
+        return burst;
+    }
+    
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+    
+    public long getMonthlyQuota() {
+        return monthlyQuota;
+    }
+    
+    public void setMonthlyQuota(long monthlyQuota) {
+        this.monthlyQuota = monthlyQuota;
+    }
+    
+    public double getBulkReserve() {
+        return bulkReserve;
+    }
+    
+    public void setBulkReserve(double bulkReserve) {
+        this.bulkReserve = bulkReserve;
+    }
+    
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+    
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+    
+    public boolean isSyncWithAccount() {
+        return syncWithAccount;
+    }
+    
+    public void setSyncWithAccount(boolean syncWithAccount) {
+        this.syncWithAccount = syncWithAccount;
+    }
+}
@@ -0,0 +1,61 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.domain.TaskStatus;
+
+import java.time.Duration;
+
+/**
+ * How long a task stays pollable after its last status change, per status.
+ */
+@Component
+@ConfigurationProperties(prefix = "tasks.retention")
+public class TaskRetentionProperties {
+    
+    private Duration pending = Duration.ofHours(1);
+    private Duration inProgress = Duration.ofHours(1);
+    private Duration completed = Duration.ofHours(24);
+    private Duration failed = Duration.ofHours(6);
+    
+    public Duration forStatus(TaskStatus status) {
+        return switch (status) {
+            case PENDING -> pending;
+            case IN_PROGRESS -> inProgress;
+            case COMPLETED -> completed;
+            case FAILED -> failed;
+        };
+    }
+    
+    public Duration getPending() {
+        return pending;
+    }
+    
+    public void setPending(Duration pending) {
+        this.pending = pending;
+    }
+    
+    public Duration getInProgress() {
+        return inProgress;
+    }
+    
+    public void setInProgress(Duration inProgress) {
+        this.inProgress = inProgress;
+    }
+    
+    public Duration getCompleted() {
+        return completed;
+    }
+    
+    public void setCompleted(Duration completed) {
+        this.completed = completed;
+    }
+    
+    public Duration getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(Duration failed) {
+        this.failed = failed;
+    }
+}
@@ -0,0 +1,69 @@
+package za.co.digitalcowboy.agents.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token budgets per generation task and per user, and the tokens each optional step needs
+ * in order to start. As with the generation deadline, optional steps that would leave too
+ * little for research and content are skipped, and the search context is cut to fit.
+ */
+@Component
+@ConfigurationProperties(prefix = "generation.tokens")
+public class TokenBudgetProperties {
+
+    // Tokens one task may spend across all of its chat completions; zero means no limit
+    private long taskBudget = 0;
+
+    // Tokens one user may spend per UTC day across all of their tasks; zero means no limit
+    private long userDailyBudget = 0;
+
+    // Web search only starts if more than this is left for research and content afterwards
+    private long searchReserve = 4000;
+
+    // The image brief only starts if more than this is left
+    private long imageMinimum = 1000;
+
+    // Largest share of the tokens left that the search context of a research prompt may take
+    private double searchContextShare = 0.5;
+
+    public long getTaskBudget() {
+        return taskBudget;
+    }
+
+    public void setTaskBudget(long taskBudget) {
+        this.taskBudget = taskBudget;
+    }
+
+    public long getUserDailyBudget() {
+        return userDailyBudget;
+    }
+
+    public void setUserDailyBudget(long userDailyBudget) {
+        this.userDailyBudget = userDailyBudget;
+    }
+
+    public long getSearchReserve() {
+        return searchReserve;
+    }
+
+    public void setSearchReserve(long searchReserve) {
+        this.searchReserve = searchReserve;
+    }
+
+    public long getImageMinimum() {
+        return imageMinimum;
+    }
+
+    public void setImageMinimum(long imageMinimum) {
+        this.imageMinimum = imageMinimum;
+    }
+
+    public double getSearchContextShare() {
+        return searchContextShare;
+    }
+
+    public void setSearchContextShare(double searchContextShare) {
+        this.searchContextShare = searchContextShare;
+    }
+}
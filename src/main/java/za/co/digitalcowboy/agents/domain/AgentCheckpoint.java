@@ -0,0 +1,40 @@
+package za.co.digitalcowboy.agents.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Snapshot of a run's agent state after a node completes, stored with the task so a
+ * failed or interrupted run can resume without repeating the nodes it already finished.
+ * {@code completedNodes} holds the graph node names whose output is usable.
+ */
+public record AgentCheckpoint(
+    @JsonProperty("completedNodes")
+    Set<String> completedNodes,
+    
+    @JsonProperty("searchQueries")
+    List<String> searchQueries,
+    
+    @JsonProperty("searchResults")
+    List<WebSearchResponse> searchResults,
+    
+    @JsonProperty("research")
+    ResearchPoints research,
+    
+    @JsonProperty("content")
+    ContentDraft content,
+    
+    @JsonProperty("imageBrief")
+    ImageBrief imageBrief,
+    
+    @JsonProperty("image")
+    ImageResult image
+) {
+    public AgentCheckpoint {
+        completedNodes = completedNodes == null ? Set.of() : Set.copyOf(completedNodes);
+        searchQueries = searchQueries == null ? List.of() : searchQueries;
+        searchResults = searchResults == null ? List.of() : searchResults;
+    }
+}
@@ -13,14 +13,22 @@ public record AsyncGenerationResponse(
     String statusUrl,
     
     @JsonProperty("resultUrl")
-    String resultUrl
+    String resultUrl,
+    
+    @JsonProperty("queuePosition")
+    Integer queuePosition
 ) {
     public static AsyncGenerationResponse forTask(String taskId) {
+        return forTask(taskId, null);
+    }
+    
+    public static AsyncGenerationResponse forTask(String taskId, Integer queuePosition) {
         return new AsyncGenerationResponse(
             taskId,
             TaskStatus.PENDING,
             "/api/v1/generate/status/" + taskId,
-            "/api/v1/generate/result/" + taskId
+            "/api/v1/generate/result/" + taskId,
+            queuePosition
         );
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package za.co.digitalcowboy.agents.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public record ContentDraft(
@@ -18,7 +19,25 @@ public record ContentDraft(
     @JsonProperty("cta")
     String cta
 ) {
+    private static final String FAILED_HEADLINE = "Content Creation Error";
+    
     public static ContentDraft empty() {
         return new ContentDraft("", "", "", "", "");
     }
+    
+    // Placeholder returned when the model call or parsing fails
+    public static ContentDraft failed(String platform, String tone) {
+        return new ContentDraft(
+            platform,
+            tone,
+            FAILED_HEADLINE,
+            "Unable to generate content based on the research provided.",
+            "Please try again."
+        );
+    }
+    
+    @JsonIgnore
+    public boolean isFailed() {
+        return FAILED_HEADLINE.equals(headline);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package za.co.digitalcowboy.agents.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+public record FanOutGenerationResponse(
+    @JsonProperty("topic")
+    String topic,
+    
+    // The variants are admitted as one job, so they wait at a single position
+    @JsonProperty("queuePosition")
+    Integer queuePosition,
+    
+    @JsonProperty("tasks")
+    List<AsyncGenerationResponse> tasks
+) {
+    public static FanOutGenerationResponse forTasks(String topic, List<String> taskIds, Integer queuePosition) {
+        return new FanOutGenerationResponse(
+            topic,
+            queuePosition,
+            taskIds.stream().map(AsyncGenerationResponse::forTask).toList()
+        );
+    }
+}
@@ -0,0 +1,68 @@
+package za.co.digitalcowboy.agents.domain;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public record FanOutTopicRequest(
+    @NotBlank(message = "Topic is required")
+    String topic,
+    
+    @NotEmpty(message = "At least one platform is required")
+    @Size(max = 4, message = "At most 4 platforms can be requested")
+    List<@Pattern(regexp = "^(twitter|linkedin|instagram|blog)$",
+                  message = "Platform must be one of: twitter, linkedin, instagram, blog") String> platforms,
+    
+    @NotEmpty(message = "At least one tone is required")
+    @Size(max = 4, message = "At most 4 tones can be requested")
+    List<@Pattern(regexp = "^(professional|casual|playful|authoritative)$",
+                  message = "Tone must be one of: professional, casual, playful, authoritative") String> tones,
+    
+    @Positive(message = "Image count must be positive")
+    int imageCount,
+    
+    @Pattern(regexp = "^(interactive|bulk)$", 
+             message = "Priority must be one of: interactive, bulk")
+    String priority
+) {
+    @JsonCreator
+    public FanOutTopicRequest(
+        @JsonProperty("topic") String topic,
+        @JsonProperty("platforms") List<String> platforms,
+        @JsonProperty("tones") List<String> tones,
+        @JsonProperty("imageCount") Integer imageCount,
+        @JsonProperty("priority") String priority
+    ) {
+        this(topic, platforms, tones, imageCount != null ? imageCount : 1,
+             priority != null ? priority : TaskPriority.INTERACTIVE.getValue());
+    }
+    
+    public FanOutTopicRequest(String topic, List<String> platforms, List<String> tones, int imageCount) {
+        this(topic, platforms, tones, imageCount, TaskPriority.INTERACTIVE.getValue());
+    }
+    
+    public TaskPriority taskPriority() {
+        return TaskPriority.fromValue(priority);
+    }
+    
+    /**
+     * Expands the request into one {@link TopicRequest} per platform and tone combination,
+     * all sharing the same topic and therefore the same research.
+     */
+    public List<TopicRequest> toTopicRequests() {
+        List<TopicRequest> requests = new ArrayList<>();
+        for (String platform : platforms.stream().distinct().toList()) {
+            for (String tone : tones.stream().distinct().toList()) {
+                requests.add(new TopicRequest(topic, platform, tone, imageCount, priority));
+            }
+        }
+        return requests;
+    }
+}
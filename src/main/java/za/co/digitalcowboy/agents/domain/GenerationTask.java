@@ -1,5 +1,6 @@
 package za.co.digitalcowboy.agents.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.LocalDateTime;
 
@@ -26,26 +27,81 @@ public record GenerationTask(
     LocalDateTime updatedAt,
     
     @JsonProperty("completedAt")
-    LocalDateTime completedAt
+    LocalDateTime completedAt,
+    
+    @JsonProperty("queuePosition")
+    Integer queuePosition,
+    
+    // Internal resume state, not part of the status response
+    @JsonIgnore
+    AgentCheckpoint checkpoint,
+    
+    @JsonProperty("tokenUsage")
+    TokenTotals tokenUsage
 ) {
+    public GenerationTask {
+        tokenUsage = tokenUsage == null ? TokenTotals.NONE : tokenUsage;
+    }
+    
     public GenerationTask(String id, TopicRequest request) {
         this(id, request, TaskStatus.PENDING, null, null, 
-             LocalDateTime.now(), LocalDateTime.now(), null);
+             LocalDateTime.now(), LocalDateTime.now(), null, null);
+    }
+    
+    public GenerationTask(String id, TopicRequest request, TaskStatus status, OrchestrationResult result,
+                          String error, LocalDateTime createdAt, LocalDateTime updatedAt,
+                          LocalDateTime completedAt, Integer queuePosition) {
+        this(id, request, status, result, error, createdAt, updatedAt, completedAt, queuePosition, null, null);
     }
     
     public GenerationTask withStatus(TaskStatus newStatus) {
         return new GenerationTask(id, request, newStatus, result, error, 
-                                createdAt, LocalDateTime.now(), completedAt);
+                                createdAt, LocalDateTime.now(), completedAt, null, checkpoint, tokenUsage);
     }
     
+    // A completed task has nothing left to resume, so its checkpoint is dropped
     public GenerationTask withResult(OrchestrationResult newResult) {
         return new GenerationTask(id, request, TaskStatus.COMPLETED, newResult, error,
-                                createdAt, LocalDateTime.now(), LocalDateTime.now());
+                                createdAt, LocalDateTime.now(), LocalDateTime.now(), null, null, tokenUsage);
+    }
+    
+    // Completed with a degraded or skipped step; the checkpoint is kept so a resume reruns only that step
+    public GenerationTask withPartialResult(OrchestrationResult newResult) {
+        return new GenerationTask(id, request, TaskStatus.COMPLETED, newResult, error,
+                                createdAt, LocalDateTime.now(), LocalDateTime.now(), null, checkpoint, tokenUsage);
     }
     
     public GenerationTask withError(String newError) {
         return new GenerationTask(id, request, TaskStatus.FAILED, result, newError,
-                                createdAt, LocalDateTime.now(), LocalDateTime.now());
+                                createdAt, LocalDateTime.now(), LocalDateTime.now(), null, checkpoint, tokenUsage);
+    }
+    
+    public GenerationTask withCheckpoint(AgentCheckpoint newCheckpoint) {
+        return new GenerationTask(id, request, status, result, error,
+                                createdAt, LocalDateTime.now(), completedAt, null, newCheckpoint, tokenUsage);
+    }
+    
+    public GenerationTask withTokenUsage(TokenTotals newTokenUsage) {
+        return new GenerationTask(id, request, status, result, error,
+                                createdAt, LocalDateTime.now(), completedAt, null, checkpoint, newTokenUsage);
+    }
+    
+    // Re-queued for another attempt; the previous error and completion time no longer apply
+    public GenerationTask resubmitted() {
+        return new GenerationTask(id, request, TaskStatus.PENDING, null, null,
+                                createdAt, LocalDateTime.now(), null, null, checkpoint, tokenUsage);
+    }
+    
+    // Queue position is a read-time view and does not change updatedAt
+    public GenerationTask withQueuePosition(Integer position) {
+        return new GenerationTask(id, request, status, result, error,
+                                createdAt, updatedAt, completedAt, position, checkpoint, tokenUsage);
+    }
+    
+    /** Completed, but some step fell back or was skipped, so the task can be resumed. */
+    @JsonProperty("partial")
+    public boolean isPartial() {
+        return status == TaskStatus.COMPLETED && checkpoint != null;
     }
     
     public boolean isCompleted() {
@@ -0,0 +1,158 @@
+package za.co.digitalcowboy.agents.domain;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persistent form of a {@link GenerationTask}. The request is stored as JSON and the
+ * result and the resume checkpoint as gzip-compressed JSON. Ids are assigned by the application, so the entity
+ * tracks whether it has been written yet to let new rows insert without a lookup.
+ */
+@Entity
+@Table(name = "generation_tasks")
+public class GenerationTaskEntity implements Persistable<String> {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TaskStatus status;
+
+    @Column(name = "request_json", nullable = false, columnDefinition = "TEXT")
+    private String requestJson;
+
+    @Lob
+    @Column(name = "result_json_gz", columnDefinition = "LONGBLOB")
+    private byte[] resultJsonGz;
+
+    @Lob
+    @Column(name = "checkpoint_json_gz", columnDefinition = "LONGBLOB")
+    private byte[] checkpointJsonGz;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(name = "input_tokens", nullable = false)
+    private long inputTokens;
+
+    @Column(name = "output_tokens", nullable = false)
+    private long outputTokens;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    @PostLoad
+    @PostPersist
+    protected void markNotNew() {
+        isNew = false;
+    }
+
+    public GenerationTaskEntity() {}
+
+    public GenerationTaskEntity(String id) {
+        this.id = id;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TaskStatus status) {
+        this.status = status;
+    }
+
+    public String getRequestJson() {
+        return requestJson;
+    }
+
+    public void setRequestJson(String requestJson) {
+        this.requestJson = requestJson;
+    }
+
+    public byte[] getResultJsonGz() {
+        return resultJsonGz;
+    }
+
+    public void setResultJsonGz(byte[] resultJsonGz) {
+        this.resultJsonGz = resultJsonGz;
+    }
+
+    public byte[] getCheckpointJsonGz() {
+        return checkpointJsonGz;
+    }
+
+    public void setCheckpointJsonGz(byte[] checkpointJsonGz) {
+        this.checkpointJsonGz = checkpointJsonGz;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public long getInputTokens() {
+        return inputTokens;
+    }
+
+    public void setInputTokens(long inputTokens) {
+        this.inputTokens = inputTokens;
+    }
+
+    public long getOutputTokens() {
+        return outputTokens;
+    }
+
+    public void setOutputTokens(long outputTokens) {
+        this.outputTokens = outputTokens;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -1,5 +1,6 @@
 package za.co.digitalcowboy.agents.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
@@ -36,6 +37,11 @@ public record ImageResult(
         }
     }
     
+    @JsonIgnore
+    public boolean hasImages() {
+        return !openAiImageUrls.isEmpty() || !localImagePaths.isEmpty();
+    }
+    
     public static ImageResult empty() {
         return new ImageResult("", List.of(), List.of(), List.of());
     }
@@ -0,0 +1,27 @@
+package za.co.digitalcowboy.agents.domain;
+
+/**
+ * The agent steps that call the chat model, each routed to its own model profile.
+ */
+public enum ModelStep {
+    RESEARCH_QUERIES("research-queries", "research"),
+    RESEARCH("research", "research"),
+    CONTENT("content", "content"),
+    IMAGE_BRIEF("image-brief", "image");
+    
+    private final String value;
+    private final String agent;
+    
+    ModelStep(String value, String agent) {
+        this.value = value;
+        this.agent = agent;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    public String getAgent() {
+        return agent;
+    }
+}
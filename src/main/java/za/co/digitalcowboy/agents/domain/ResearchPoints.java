@@ -1,5 +1,6 @@
 package za.co.digitalcowboy.agents.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
@@ -19,7 +20,19 @@ public record ResearchPoints(
         }
     }
     
+    private static final String UNAVAILABLE_PREFIX = "Unable to complete research for the topic: ";
+    
     public static ResearchPoints empty() {
         return new ResearchPoints(List.of(), List.of());
     }
+    
+    // Placeholder returned when research fails
+    public static ResearchPoints unavailable(String topic) {
+        return new ResearchPoints(List.of(UNAVAILABLE_PREFIX + topic), List.of());
+    }
+    
+    @JsonIgnore
+    public boolean isUnavailable() {
+        return points.size() == 1 && points.get(0).startsWith(UNAVAILABLE_PREFIX);
+    }
 }
\ No newline at end of file
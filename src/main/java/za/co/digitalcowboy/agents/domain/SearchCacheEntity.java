@@ -0,0 +1,62 @@
+package za.co.digitalcowboy.agents.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persistent form of a cached {@link WebSearchResponse}, keyed by a SHA-256 hash of the
+ * query so that long queries fit the primary key. The response is gzip-compressed JSON.
+ */
+@Entity
+@Table(name = "search_cache")
+public class SearchCacheEntity {
+
+    @Id
+    @Column(name = "query_hash", columnDefinition = "CHAR(64)")
+    private String queryHash;
+
+    @Column(name = "query_text", nullable = false, columnDefinition = "TEXT")
+    private String query;
+
+    @Lob
+    @Column(name = "response_json_gz", nullable = false, columnDefinition = "LONGBLOB")
+    private byte[] responseJsonGz;
+
+    @Column(name = "fetched_at", nullable = false)
+    private LocalDateTime fetchedAt;
+
+    public SearchCacheEntity() {}
+
+    public SearchCacheEntity(String queryHash) {
+        this.queryHash = queryHash;
+    }
+
+    public String getQueryHash() {
+        return queryHash;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public byte[] getResponseJsonGz() {
+        return responseJsonGz;
+    }
+
+    public void setResponseJsonGz(byte[] responseJsonGz) {
+        this.responseJsonGz = responseJsonGz;
+    }
+
+    public LocalDateTime getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public void setFetchedAt(LocalDateTime fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+}
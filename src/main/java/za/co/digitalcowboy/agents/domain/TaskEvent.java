@@ -0,0 +1,12 @@
+package za.co.digitalcowboy.agents.domain;
+
+/**
+ * A step in a task's progress. {@code sequence} increases by one per event within a task
+ * and doubles as the SSE event id.
+ */
+public record TaskEvent(
+    long sequence,
+    String taskId,
+    TaskEventType type,
+    Object data
+) {}
@@ -0,0 +1,35 @@
+package za.co.digitalcowboy.agents.domain;
+
+public enum TaskEventType {
+    STATUS("status"),
+    PROGRESS("progress"),
+    RESEARCH("research"),
+    CONTENT_DELTA("contentDelta"),
+    CONTENT("content"),
+    IMAGE("image"),
+    COMPLETED("completed"),
+    FAILED("failed");
+    
+    private final String value;
+    
+    TaskEventType(String value) {
+        this.value = value;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
+    
+    public static TaskEventType fromValue(String value) {
+        for (TaskEventType type : values()) {
+            if (type.value.equalsIgnoreCase(value)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown task event type: " + value);
+    }
+}
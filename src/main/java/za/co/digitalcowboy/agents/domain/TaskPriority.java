@@ -0,0 +1,25 @@
+package za.co.digitalcowboy.agents.domain;
+
+public enum TaskPriority {
+    INTERACTIVE("interactive"),
+    BULK("bulk");
+    
+    private final String value;
+    
+    TaskPriority(String value) {
+        this.value = value;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    public static TaskPriority fromValue(String value) {
+        for (TaskPriority priority : values()) {
+            if (priority.value.equalsIgnoreCase(value)) {
+                return priority;
+            }
+        }
+        throw new IllegalArgumentException("Unknown task priority: " + value);
+    }
+}
@@ -0,0 +1,26 @@
+package za.co.digitalcowboy.agents.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Chat completion tokens spent by a generation task, across every attempt. Completions
+ * answered from the LLM response cache spend none.
+ */
+public record TokenTotals(
+    @JsonProperty("inputTokens")
+    long inputTokens,
+
+    @JsonProperty("outputTokens")
+    long outputTokens
+) {
+    public static final TokenTotals NONE = new TokenTotals(0, 0);
+
+    @JsonProperty("totalTokens")
+    public long totalTokens() {
+        return inputTokens + outputTokens;
+    }
+
+    public TokenTotals plus(TokenTotals other) {
+        return new TokenTotals(inputTokens + other.inputTokens, outputTokens + other.outputTokens);
+    }
+}
@@ -22,15 +22,29 @@ public record TopicRequest(
     String tone,
     
     @Positive(message = "Image count must be positive")
-    int imageCount
+    int imageCount,
+    
+    @Pattern(regexp = "^(interactive|bulk)$", 
+             message = "Priority must be one of: interactive, bulk")
+    String priority
 ) {
     @JsonCreator
     public TopicRequest(
         @JsonProperty("topic") String topic,
         @JsonProperty("platform") String platform,
         @JsonProperty("tone") String tone,
-        @JsonProperty("imageCount") Integer imageCount
+        @JsonProperty("imageCount") Integer imageCount,
+        @JsonProperty("priority") String priority
     ) {
-        this(topic, platform, tone, imageCount != null ? imageCount : 1);
+        this(topic, platform, tone, imageCount != null ? imageCount : 1,
+             priority != null ? priority : TaskPriority.INTERACTIVE.getValue());
+    }
+    
+    public TopicRequest(String topic, String platform, String tone, int imageCount) {
+        this(topic, platform, tone, imageCount, TaskPriority.INTERACTIVE.getValue());
+    }
+    
+    public TaskPriority taskPriority() {
+        return TaskPriority.fromValue(priority);
     }
 }
\ No newline at end of file
@@ -1,47 +1,109 @@
 package za.co.digitalcowboy.agents.graph;
 
 import za.co.digitalcowboy.agents.agents.ContentAgent;
+import za.co.digitalcowboy.agents.agents.ContentFieldListener;
 import za.co.digitalcowboy.agents.agents.ImageAgent;
 import za.co.digitalcowboy.agents.agents.ResearchAgent;
+import za.co.digitalcowboy.agents.config.GenerationDeadlineProperties;
+import za.co.digitalcowboy.agents.domain.AgentCheckpoint;
 import za.co.digitalcowboy.agents.domain.OrchestrationResult;
+import za.co.digitalcowboy.agents.domain.ResearchPoints;
 import za.co.digitalcowboy.agents.domain.TopicRequest;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.service.llm.TokenBudget;
+import za.co.digitalcowboy.agents.tools.CallBudget;
+import za.co.digitalcowboy.agents.tools.CallDeadline;
+import za.co.digitalcowboy.agents.tools.CallPriority;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
 @Component
 public class AgentGraph {
-    
+
     private static final Logger log = LoggerFactory.getLogger(AgentGraph.class);
-    
+
+    // State slots produced by the workflow nodes
+    static final String SEARCH_QUERIES = "searchQueries";
+    static final String SEARCH_RESULTS = "searchResults";
+    static final String RESEARCH = "research";
+    static final String CONTENT = "content";
+    static final String IMAGE_BRIEF = "imageBrief";
+    static final String IMAGE = "image";
+
     private final ResearchAgent researchAgent;
     private final ContentAgent contentAgent;
     private final ImageAgent imageAgent;
     private final Timer orchestrationTimer;
-    
-    public AgentGraph(ResearchAgent researchAgent, ContentAgent contentAgent, 
-                     ImageAgent imageAgent, Timer orchestrationTimer) {
+    private final DagExecutor dagExecutor;
+    private final GenerationDeadlineProperties deadlines;
+    private final MeterRegistry meterRegistry;
+
+    public AgentGraph(ResearchAgent researchAgent, ContentAgent contentAgent,
+                     ImageAgent imageAgent, Timer orchestrationTimer,
+                     @Qualifier("agentExecutor") Executor agentExecutor,
+                     GenerationDeadlineProperties deadlines,
+                     MeterRegistry meterRegistry) {
         this.researchAgent = researchAgent;
         this.contentAgent = contentAgent;
         this.imageAgent = imageAgent;
         this.orchestrationTimer = orchestrationTimer;
+        this.dagExecutor = new DagExecutor(agentExecutor);
+        this.deadlines = deadlines;
+        this.meterRegistry = meterRegistry;
     }
-    
+
     public OrchestrationResult run(TopicRequest request) {
+        return run(request, NodeListener.NONE);
+    }
+
+    public OrchestrationResult run(TopicRequest request, NodeListener listener) {
+        return execute(request, new AgentState(request), listener, TokenBudget.unlimited());
+    }
+
+    /**
+     * Continues a run from its last checkpoint, re-running only the nodes that did not
+     * complete with a usable result. A {@code null} checkpoint runs every node.
+     */
+    public OrchestrationResult resume(TopicRequest request, AgentCheckpoint checkpoint, NodeListener listener) {
+        return resume(request, checkpoint, listener, TokenBudget.unlimited());
+    }
+
+    /**
+     * As {@link #resume(TopicRequest, AgentCheckpoint, NodeListener)}, spending at most
+     * what {@code budget} allows on optional steps. Listeners can read what has been spent
+     * from the state's {@link AgentState#getTokenBudget() token budget}.
+     */
+    public OrchestrationResult resume(TopicRequest request, AgentCheckpoint checkpoint, NodeListener listener,
+                                      TokenBudget budget) {
+        AgentState state = AgentState.fromCheckpoint(request, checkpoint);
+        if (checkpoint != null) {
+            log.info("Resuming orchestration for topic: {} after nodes {}", request.topic(), checkpoint.completedNodes());
+        }
+        return execute(request, state, listener, budget);
+    }
+
+    private OrchestrationResult execute(TopicRequest request, AgentState state, NodeListener listener, TokenBudget budget) {
         try {
             return orchestrationTimer.recordCallable(() -> {
-                log.info("Starting orchestration for topic: {} on platform: {} with tone: {}", 
+                log.info("Starting orchestration for topic: {} on platform: {} with tone: {}",
                     request.topic(), request.platform(), request.tone());
-                
-                // Initialize agent state
-                AgentState state = new AgentState(request);
-                
-                // Execute workflow nodes in sequence
-                executeResearchNode(state);
-                executeContentNode(state);
-                executeImageNode(state);
-                
+
+                // Execute workflow nodes as their inputs become ready
+                state.setDeadline(newDeadline());
+                state.setTokenBudget(budget.share(request.platform(), 1));
+                dagExecutor.execute(buildGraph(state, List.of(state), List.of(listener)));
+
                 OrchestrationResult result = state.toResult();
                 log.info("Orchestration completed successfully");
                 return result;
@@ -51,43 +113,293 @@ public class AgentGraph {
             return OrchestrationResult.empty(request.topic());
         }
     }
-    
-    private void executeResearchNode(AgentState state) {
-        log.debug("Executing research node");
+
+    /**
+     * Runs research once for the shared topic and then content and image generation for
+     * every variant concurrently. Results are returned in the order of {@code requests}.
+     */
+    public List<OrchestrationResult> runFanOut(List<TopicRequest> requests) {
+        return runFanOut(requests, requests.stream().map(request -> NodeListener.NONE).toList());
+    }
+
+    /**
+     * As {@link #runFanOut(List)}, notifying {@code listeners.get(i)} as the nodes for
+     * {@code requests.get(i)} complete.
+     */
+    public List<OrchestrationResult> runFanOut(List<TopicRequest> requests, List<NodeListener> listeners) {
+        return runFanOut(requests, listeners, TokenBudget.unlimited());
+    }
+
+    /**
+     * As {@link #runFanOut(List, List)} under {@code budget}. Each variant gets its own
+     * share of it, charged an equal part of the research.
+     */
+    public List<OrchestrationResult> runFanOut(List<TopicRequest> requests, List<NodeListener> listeners,
+                                               TokenBudget budget) {
+        String topic = requests.get(0).topic();
         try {
-            var research = researchAgent.research(state.getTopic());
-            state.setResearch(research);
-            log.debug("Research node completed with {} points", research.points().size());
+            return orchestrationTimer.recordCallable(() -> {
+                log.info("Starting fan-out orchestration for topic: {} across {} variants", topic, requests.size());
+
+                List<AgentState> variants = requests.stream().map(AgentState::new).toList();
+                AgentState shared = new AgentState(requests.get(0));
+                Instant deadline = newDeadline();
+                shared.setDeadline(deadline);
+                shared.setTokenBudget(budget);
+                variants.forEach(variant -> {
+                    variant.setDeadline(deadline);
+                    variant.setTokenBudget(budget.share(variant.getPlatform(), variants.size()));
+                });
+
+                dagExecutor.execute(buildGraph(shared, variants, listeners));
+
+                List<OrchestrationResult> results = variants.stream().map(AgentState::toResult).toList();
+                log.info("Fan-out orchestration completed for {} variants", results.size());
+                return results;
+            });
         } catch (Exception e) {
-            log.error("Research node failed", e);
-            // State retains empty research, workflow continues
+            log.error("Fan-out orchestration failed", e);
+            return requests.stream().map(request -> OrchestrationResult.empty(request.topic())).toList();
+        }
+    }
+
+    /**
+     * Research nodes run against {@code shared}; every state in {@code variants} then gets
+     * its own content, image brief and image branch. A single run passes the same state
+     * for both. {@code listeners} pairs up with {@code variants}.
+     */
+    List<GraphNode> buildGraph(AgentState shared, List<AgentState> variants, List<NodeListener> listeners) {
+        List<GraphNode> nodes = new ArrayList<>();
+        nodes.add(GraphNode.of(AgentNode.QUERY.getValue(), Set.of(), SEARCH_QUERIES,
+            () -> runSharedNode(AgentNode.QUERY, shared, variants, listeners, () -> executeQueryNode(shared))));
+        nodes.add(GraphNode.of(AgentNode.SEARCH.getValue(), Set.of(SEARCH_QUERIES), SEARCH_RESULTS,
+            () -> runSharedNode(AgentNode.SEARCH, shared, variants, listeners, () -> executeSearchNode(shared))));
+        nodes.add(GraphNode.of(AgentNode.RESEARCH.getValue(), Set.of(SEARCH_RESULTS), RESEARCH,
+            () -> runSharedNode(AgentNode.RESEARCH, shared, variants, listeners, () -> executeResearchNode(shared))));
+
+        for (int i = 0; i < variants.size(); i++) {
+            AgentState variant = variants.get(i);
+            NodeListener listener = listeners.get(i);
+            String suffix = variants.size() == 1 ? "" : "[" + variant.getPlatform() + "/" + variant.getTone() + "]";
+            nodes.add(GraphNode.of(AgentNode.CONTENT.getValue() + suffix, Set.of(RESEARCH), CONTENT + suffix,
+                () -> runVariantNode(AgentNode.CONTENT, variant, listener, () -> executeContentNode(variant, listener))));
+            nodes.add(GraphNode.of(AgentNode.IMAGE_BRIEF.getValue() + suffix, Set.of(CONTENT + suffix), IMAGE_BRIEF + suffix,
+                () -> runVariantNode(AgentNode.IMAGE_BRIEF, variant, listener, () -> executeImageBriefNode(variant))));
+            nodes.add(GraphNode.of(AgentNode.IMAGE.getValue() + suffix, Set.of(IMAGE_BRIEF + suffix), IMAGE + suffix,
+                () -> runVariantNode(AgentNode.IMAGE, variant, listener, () -> executeImageNode(variant))));
+        }
+        return nodes;
+    }
+
+    // Research nodes run once against the shared state and hand their outputs to every variant
+    private void runSharedNode(AgentNode node, AgentState shared, List<AgentState> variants,
+                               List<NodeListener> listeners, Runnable action) {
+        if (shared.isCompleted(node)) {
+            log.debug("Skipping {} node completed by an earlier attempt", node.getValue());
+            return;
+        }
+        boolean ran = withinBudget(node, shared);
+        if (ran) {
+            CallPriority.run(shared.getPriority(), () -> CallDeadline.run(shared.getDeadline(),
+                () -> CallBudget.run(shared.getTokenBudget(), action)));
+        }
+        boolean succeeded = ran && succeeded(node, shared);
+        for (AgentState variant : variants) {
+            variant.setSearchQueries(shared.getSearchQueries());
+            variant.setSearchResults(shared.getSearchResults());
+            variant.setResearch(shared.getResearch());
+            if (succeeded) {
+                variant.markCompleted(node);
+            }
+        }
+        if (succeeded) {
+            shared.markCompleted(node);
+        }
+        notifyAll(node, variants, listeners);
+    }
+
+    private void runVariantNode(AgentNode node, AgentState variant, NodeListener listener, Runnable action) {
+        if (variant.isCompleted(node)) {
+            log.debug("Skipping {} node completed by an earlier attempt", node.getValue());
+            return;
+        }
+        boolean ran = withinBudget(node, variant);
+        if (ran) {
+            CallPriority.run(variant.getPriority(), () -> CallDeadline.run(variant.getDeadline(),
+                () -> CallBudget.run(variant.getTokenBudget(), action)));
+        }
+        if (ran && succeeded(node, variant)) {
+            variant.markCompleted(node);
         }
+        notify(listener, node, variant);
     }
-    
-    private void executeContentNode(AgentState state) {
-        log.debug("Executing content node");
+
+    private Instant newDeadline() {
+        return deadlines.isEnabled() ? Instant.now().plus(deadlines.getTotal()) : null;
+    }
+
+    /**
+     * Optional steps only start if they leave enough of the budget for what follows:
+     * search keeps a reserve for research and content, image steps need a minimum to
+     * finish. Research and content always run, bounded by whatever time is left. A
+     * skipped node is reported but not marked completed, so a resume runs it.
+     *
+     * <p>Image steps also need {@code generation.tokens.image-minimum} tokens left for the
+     * brief; the image itself spends no chat tokens and only needs a brief to draw.
+     */
+    private boolean withinBudget(AgentNode node, AgentState state) {
+        long requiredTokens = switch (node) {
+            case IMAGE_BRIEF -> state.getTokenBudget().properties().getImageMinimum();
+            case IMAGE -> hasImageBrief(state) ? -1 : state.getTokenBudget().properties().getImageMinimum();
+            default -> -1;
+        };
+        return withinDeadline(node, state) && withinTokens(node.getValue(), state, requiredTokens);
+    }
+
+    private boolean withinDeadline(AgentNode node, AgentState state) {
+        Duration remaining = state.remainingBudget();
+        if (remaining == null) {
+            return true;
+        }
+        Duration required = switch (node) {
+            case QUERY, SEARCH -> deadlines.getSearchReserve();
+            case IMAGE_BRIEF, IMAGE -> deadlines.getImageMinimum();
+            default -> Duration.ZERO;
+        };
+        if (remaining.compareTo(required) > 0) {
+            return true;
+        }
+        log.warn("Skipping {} node with {}ms of the generation budget left", node.getValue(), Math.max(remaining.toMillis(), 0));
+        meterRegistry.counter("generation.nodes.skipped", "node", node.getValue(), "reason", "deadline").increment();
+        return false;
+    }
+
+    private boolean withinTokens(String node, AgentState state, long required) {
+        TokenBudget budget = state.getTokenBudget();
+        if (!budget.isLimited()) {
+            return true;
+        }
+        long remaining = budget.remaining();
+        if (remaining > required) {
+            return true;
+        }
+        log.warn("Skipping {} with {} tokens of the budget left", node, remaining);
+        meterRegistry.counter("generation.nodes.skipped", "node", node, "reason", "tokens").increment();
+        return false;
+    }
+
+    private static boolean hasImageBrief(AgentState state) {
+        String prompt = state.getImageBrief().prompt();
+        return prompt != null && !prompt.isBlank();
+    }
+
+    // Research is only set before its node runs when the query node found it cached
+    private static boolean hasResearch(AgentState state) {
+        return !state.getResearch().points().isEmpty() && !state.getResearch().isUnavailable();
+    }
+
+    // Agents degrade to placeholders rather than throw; those must not count as done
+    private static boolean succeeded(AgentNode node, AgentState state) {
+        return switch (node) {
+            // Searching with no queries finds nothing; done only once the queries are
+            case SEARCH -> state.isCompleted(AgentNode.QUERY);
+            case RESEARCH -> !state.getResearch().isUnavailable();
+            case IMAGE_BRIEF -> hasImageBrief(state);
+            case CONTENT -> !state.getContent().isFailed();
+            case IMAGE -> state.getImageCount() <= 0 || state.getImage().hasImages();
+            default -> true;
+        };
+    }
+
+    private void notifyAll(AgentNode node, List<AgentState> variants, List<NodeListener> listeners) {
+        for (int i = 0; i < variants.size(); i++) {
+            notify(listeners.get(i), node, variants.get(i));
+        }
+    }
+
+    private void notify(NodeListener listener, AgentNode node, AgentState state) {
         try {
-            var content = contentAgent.createContent(state.getResearch(), state.getPlatform(), state.getTone());
-            state.setContent(content);
-            log.debug("Content node completed for platform: {}", content.platform());
+            listener.onNodeCompleted(node, state);
         } catch (Exception e) {
-            log.error("Content node failed", e);
-            // State retains empty content, workflow continues
+            // A listener must never fail the node it observes
+            log.warn("Node listener failed for {} node", node.getValue(), e);
         }
     }
-    
+
+    private void executeQueryNode(AgentState state) {
+        // Research reused from a similar topic needs neither queries nor searches
+        ResearchPoints cached = researchAgent.cachedResearch(state.getTopic());
+        if (cached != null) {
+            state.setResearch(cached);
+            log.debug("Reusing cached research, skipping query generation and search");
+            return;
+        }
+        if (!researchAgent.isWebSearchEnabled()) {
+            log.debug("Web search disabled, skipping query generation");
+            return;
+        }
+        if (researchAgent.isToolCallingEnabled()) {
+            log.debug("Research searches through tool calls, skipping query generation");
+            return;
+        }
+        // Checked here rather than for the node, so a cache hit is still found on a tight budget
+        if (!withinTokens(AgentNode.SEARCH.getValue(), state, state.getTokenBudget().properties().getSearchReserve())) {
+            return;
+        }
+        var queries = researchAgent.generateSearchQueries(state.getTopic());
+        state.setSearchQueries(queries);
+        log.debug("Query node completed with {} queries", queries.size());
+    }
+
+    private void executeSearchNode(AgentState state) {
+        if (state.getSearchQueries().isEmpty()) {
+            log.debug("No search queries, skipping search");
+            return;
+        }
+        // Queries run side by side under the generation deadline; late ones come back empty
+        List<WebSearchResponse> responses = researchAgent.searchWeb(state.getSearchQueries());
+        state.setSearchResults(responses);
+        log.debug("Search node completed with {} responses", responses.size());
+    }
+
+    private void executeResearchNode(AgentState state) {
+        if (hasResearch(state)) {
+            log.debug("Research node reusing cached research with {} points", state.getResearch().points().size());
+            return;
+        }
+        var research = researchAgent.isToolCallingEnabled()
+            ? researchAgent.research(state.getTopic())
+            : researchAgent.research(state.getTopic(), state.getSearchResults());
+        state.setResearch(research);
+        log.debug("Research node completed with {} points", research.points().size());
+    }
+
+    private void executeContentNode(AgentState state, NodeListener listener) {
+        ContentFieldListener fieldListener = listener.wantsContentDeltas()
+            ? (field, delta) -> listener.onContentDelta(field, delta)
+            : ContentFieldListener.NONE;
+        var content = contentAgent.createContent(state.getResearch(), state.getPlatform(), state.getTone(), fieldListener);
+        state.setContent(content);
+        log.debug("Content node completed for platform: {}", content.platform());
+    }
+
+    private void executeImageBriefNode(AgentState state) {
+        var brief = imageAgent.generateImageBrief(state.getContent());
+        state.setImageBrief(brief);
+        log.debug("Image brief node completed: {}", brief.prompt());
+    }
+
     private void executeImageNode(AgentState state) {
-        log.debug("Executing image node");
-        try {
-            var image = imageAgent.generateImage(state.getContent(), state.getImageCount(), state.getTopic());
-            state.setImage(image);
-            log.debug("Image node completed with {} URLs", image.openAiImageUrls().size());
-            if (!image.localImagePaths().isEmpty()) {
-                log.debug("Image node completed with {} local files", image.localImagePaths().size());
-            }
-        } catch (Exception e) {
-            log.error("Image node failed", e);
-            // State retains empty image result, workflow continues
+        if (!hasImageBrief(state)) {
+            // The brief was skipped or lost; withinBudget left tokens for writing one here
+            state.setImageBrief(imageAgent.generateImageBrief(state.getContent()));
+        }
+        var image = imageAgent.generateImage(state.getImageBrief(), state.getContent(),
+            state.getImageCount(), state.getTopic());
+        state.setImage(image);
+        log.debug("Image node completed with {} URLs", image.openAiImageUrls().size());
+        if (!image.localImagePaths().isEmpty()) {
+            log.debug("Image node completed with {} local files", image.localImagePaths().size());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package za.co.digitalcowboy.agents.graph;
+
+/**
+ * The steps of the agent workflow, in dependency order.
+ */
+public enum AgentNode {
+    QUERY("query"),
+    SEARCH("search"),
+    RESEARCH("research"),
+    CONTENT("content"),
+    IMAGE_BRIEF("imageBrief"),
+    IMAGE("image");
+    
+    private final String value;
+    
+    AgentNode(String value) {
+        this.value = value;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    public static AgentNode fromValue(String value) {
+        for (AgentNode node : values()) {
+            if (node.value.equalsIgnoreCase(value)) {
+                return node;
+            }
+        }
+        throw new IllegalArgumentException("Unknown agent node: " + value);
+    }
+}
@@ -1,20 +1,42 @@
 package za.co.digitalcowboy.agents.graph;
 
 import za.co.digitalcowboy.agents.domain.*;
+import za.co.digitalcowboy.agents.service.llm.TokenBudget;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class AgentState {
     private String topic;
     private String platform;
     private String tone;
     private int imageCount;
+    // End-to-end deadline for the run, or null for none
+    private Instant deadline;
+    private TaskPriority priority = TaskPriority.INTERACTIVE;
+    // Tokens the run has spent and may still spend
+    private TokenBudget tokenBudget = TokenBudget.unlimited();
     
+    private List<String> searchQueries;
+    private List<WebSearchResponse> searchResults;
     private ResearchPoints research;
     private ContentDraft content;
+    private ImageBrief imageBrief;
     private ImageResult image;
     
+    // Nodes whose output is usable; the rest are re-run on resume
+    private final Set<AgentNode> completedNodes = ConcurrentHashMap.newKeySet();
+    
     public AgentState() {
+        this.searchQueries = List.of();
+        this.searchResults = List.of();
         this.research = ResearchPoints.empty();
         this.content = ContentDraft.empty();
+        this.imageBrief = ImageBrief.empty();
         this.image = ImageResult.empty();
     }
     
@@ -23,8 +45,12 @@ public class AgentState {
         this.platform = request.platform();
         this.tone = request.tone();
         this.imageCount = request.imageCount();
+        this.priority = request.taskPriority();
+        this.searchQueries = List.of();
+        this.searchResults = List.of();
         this.research = ResearchPoints.empty();
         this.content = ContentDraft.empty();
+        this.imageBrief = ImageBrief.empty();
         this.image = ImageResult.empty();
     }
     
@@ -41,15 +67,62 @@ public class AgentState {
     public int getImageCount() { return imageCount; }
     public void setImageCount(int imageCount) { this.imageCount = imageCount; }
     
+    public List<String> getSearchQueries() { return searchQueries; }
+    public void setSearchQueries(List<String> searchQueries) { this.searchQueries = searchQueries; }
+    
+    public List<WebSearchResponse> getSearchResults() { return searchResults; }
+    public void setSearchResults(List<WebSearchResponse> searchResults) { this.searchResults = searchResults; }
+    
     public ResearchPoints getResearch() { return research; }
     public void setResearch(ResearchPoints research) { this.research = research; }
     
     public ContentDraft getContent() { return content; }
     public void setContent(ContentDraft content) { this.content = content; }
     
+    public ImageBrief getImageBrief() { return imageBrief; }
+    public void setImageBrief(ImageBrief imageBrief) { this.imageBrief = imageBrief; }
+    
     public ImageResult getImage() { return image; }
     public void setImage(ImageResult image) { this.image = image; }
     
+    public Instant getDeadline() { return deadline; }
+    public void setDeadline(Instant deadline) { this.deadline = deadline; }
+    
+    public TaskPriority getPriority() { return priority; }
+    public void setPriority(TaskPriority priority) { this.priority = priority; }
+    
+    public TokenBudget getTokenBudget() { return tokenBudget; }
+    public void setTokenBudget(TokenBudget tokenBudget) { this.tokenBudget = tokenBudget; }
+    
+    /** Time left before the deadline, or {@code null} if the run has none. */
+    public Duration remainingBudget() {
+        return deadline != null ? Duration.between(Instant.now(), deadline) : null;
+    }
+    
+    public boolean isCompleted(AgentNode node) { return completedNodes.contains(node); }
+    public void markCompleted(AgentNode node) { completedNodes.add(node); }
+    
+    public AgentCheckpoint toCheckpoint() {
+        Set<String> nodes = completedNodes.stream().map(AgentNode::getValue).collect(Collectors.toSet());
+        return new AgentCheckpoint(nodes, searchQueries, searchResults, research, content, imageBrief, image);
+    }
+    
+    /** Rebuilds the state a run had reached from its last checkpoint. */
+    public static AgentState fromCheckpoint(TopicRequest request, AgentCheckpoint checkpoint) {
+        AgentState state = new AgentState(request);
+        if (checkpoint == null) {
+            return state;
+        }
+        checkpoint.completedNodes().forEach(node -> state.completedNodes.add(AgentNode.fromValue(node)));
+        state.searchQueries = checkpoint.searchQueries();
+        state.searchResults = checkpoint.searchResults();
+        if (checkpoint.research() != null) state.research = checkpoint.research();
+        if (checkpoint.content() != null) state.content = checkpoint.content();
+        if (checkpoint.imageBrief() != null) state.imageBrief = checkpoint.imageBrief();
+        if (checkpoint.image() != null) state.image = checkpoint.image();
+        return state;
+    }
+    
     public OrchestrationResult toResult() {
         return new OrchestrationResult(topic, research, content, image);
     }
@@ -0,0 +1,115 @@
+package za.co.digitalcowboy.agents.graph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs a set of {@link GraphNode}s, starting each node as soon as all of its inputs are
+ * ready. Independent branches therefore overlap on the supplied executor while dependent
+ * nodes still observe their inputs in order.
+ *
+ * <p>A node that throws is logged and treated as complete so that its dependents run
+ * against whatever fallback values are already in the state.
+ */
+public class DagExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(DagExecutor.class);
+
+    private final Executor executor;
+
+    public DagExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public void execute(List<GraphNode> nodes) {
+        Map<String, CompletableFuture<Void>> ready = new HashMap<>();
+        List<CompletableFuture<Void>> scheduled = new ArrayList<>();
+
+        for (GraphNode node : topologicalOrder(nodes)) {
+            CompletableFuture<?>[] dependencies = node.inputs().stream()
+                .map(ready::get)
+                .toArray(CompletableFuture[]::new);
+
+            CompletableFuture<Void> future = CompletableFuture.allOf(dependencies)
+                .thenRunAsync(() -> runNode(node), executor);
+
+            node.outputs().forEach(output -> ready.put(output, future));
+            scheduled.add(future);
+        }
+
+        CompletableFuture.allOf(scheduled.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void runNode(GraphNode node) {
+        log.debug("Executing {} node", node.name());
+        try {
+            node.action().run();
+        } catch (Exception e) {
+            log.error("{} node failed", node.name(), e);
+            // Outputs are still marked ready, workflow continues with fallback state
+        }
+    }
+
+    static List<GraphNode> topologicalOrder(List<GraphNode> nodes) {
+        Map<String, GraphNode> producers = new HashMap<>();
+        for (GraphNode node : nodes) {
+            for (String output : node.outputs()) {
+                GraphNode existing = producers.putIfAbsent(output, node);
+                if (existing != null) {
+                    throw new IllegalStateException("State slot '" + output + "' is produced by both "
+                        + existing.name() + " and " + node.name());
+                }
+            }
+        }
+
+        Map<GraphNode, Integer> pendingInputs = new HashMap<>();
+        Map<GraphNode, Set<GraphNode>> dependents = new HashMap<>();
+        for (GraphNode node : nodes) {
+            pendingInputs.put(node, node.inputs().size());
+            for (String input : node.inputs()) {
+                GraphNode producer = producers.get(input);
+                if (producer == null) {
+                    throw new IllegalStateException("Node " + node.name() + " requires '" + input
+                        + "' but no node produces it");
+                }
+                dependents.computeIfAbsent(producer, k -> new LinkedHashSet<>()).add(node);
+            }
+        }
+
+        Deque<GraphNode> runnable = new ArrayDeque<>();
+        nodes.stream().filter(node -> node.inputs().isEmpty()).forEach(runnable::add);
+
+        List<GraphNode> ordered = new ArrayList<>(nodes.size());
+        while (!runnable.isEmpty()) {
+            GraphNode node = runnable.poll();
+            ordered.add(node);
+            for (GraphNode dependent : dependents.getOrDefault(node, Set.of())) {
+                // A dependent may consume several outputs of the same producer
+                int remaining = pendingInputs.merge(dependent, -countInputsFrom(dependent, node), Integer::sum);
+                if (remaining == 0) {
+                    runnable.add(dependent);
+                }
+            }
+        }
+
+        if (ordered.size() != nodes.size()) {
+            throw new IllegalStateException("Agent graph contains a cycle");
+        }
+        return ordered;
+    }
+
+    private static int countInputsFrom(GraphNode dependent, GraphNode producer) {
+        return (int) dependent.inputs().stream().filter(producer.outputs()::contains).count();
+    }
+}
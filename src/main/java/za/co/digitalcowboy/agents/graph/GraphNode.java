@@ -0,0 +1,24 @@
+package za.co.digitalcowboy.agents.graph;
+
+import java.util.Set;
+
+/**
+ * A single step in the agent workflow. A node becomes runnable once every state slot
+ * named in {@code inputs} has been produced by an upstream node, and marks each slot in
+ * {@code outputs} as ready when its action returns (successfully or not).
+ */
+public record GraphNode(
+    String name,
+    Set<String> inputs,
+    Set<String> outputs,
+    Runnable action
+) {
+    public GraphNode {
+        inputs = inputs == null ? Set.of() : Set.copyOf(inputs);
+        outputs = outputs == null ? Set.of() : Set.copyOf(outputs);
+    }
+
+    public static GraphNode of(String name, Set<String> inputs, String output, Runnable action) {
+        return new GraphNode(name, inputs, Set.of(output), action);
+    }
+}
@@ -0,0 +1,29 @@
+package za.co.digitalcowboy.agents.graph;
+
+/**
+ * Notified on the worker thread each time a node of a run finishes. For fan-out runs the
+ * shared research nodes notify every variant's listener with that variant's state. Nodes
+ * skipped because a resumed run had already completed them are not reported.
+ */
+@FunctionalInterface
+public interface NodeListener {
+    
+    NodeListener NONE = (node, state) -> {};
+    
+    void onNodeCompleted(AgentNode node, AgentState state);
+    
+    /**
+     * Called with content text as the model streams it, before the content node completes.
+     * Listeners that leave this as a no-op get the content in one piece instead.
+     */
+    default void onContentDelta(String field, String delta) {
+    }
+    
+    /**
+     * Asked as the content node starts. Streamed content is not answered from the LLM
+     * response cache, so listeners should only ask when someone is waiting for the text.
+     */
+    default boolean wantsContentDeltas() {
+        return false;
+    }
+}
@@ -54,15 +54,35 @@ public class ResearchPrompt {
         }
         """;
     
-    public static final String QUERY_GENERATION_PROMPT = """
-        Generate 2-3 effective search queries for researching the following topic.
+    public static final String SYSTEM_MESSAGE_WITH_TOOLS = """
+        You are a meticulous Research Agent with a web search tool.
+        Search the web for what you need to produce 5-7 concise, factual bullet points suitable for downstream content generation.
+        
+        - When you need several searches, request them together in one turn; they run in parallel
+        - Use 2-4 specific, diverse queries; search again only if the results leave a clear gap
+        - Prioritize recent, verifiable information from the search results
+        - Each bullet point should be maximum 25 words
+        - No marketing language or opinions
+        - Include source URLs from the search results when available
+        - When you have enough, answer with ONLY valid JSON matching the exact schema
+        
+        Required JSON Schema:
+        {
+          "points": ["string", "string", "string", "string", "string"],
+          "sources": ["string (URL)"]
+        }
+        """;
+    
+    public static final String FINAL_ANSWER_INSTRUCTION =
+        "No more searches are available. Answer now with the research points in valid JSON format only.";
+    
+    public static final String QUERY_GENERATION_SYSTEM_MESSAGE = """
+        Generate 2-3 effective search queries for researching the topic given by the user.
         The queries should be:
         - Specific and focused
         - Likely to return current, factual information
         - Diverse to cover different aspects of the topic
         
-        Topic: {{topic}}
-        
         Output only the queries, one per line, no numbering or bullets.
         """;
     
@@ -77,7 +97,7 @@ public class ResearchPrompt {
         "Based on these search results and your knowledge, provide 5-7 factual bullet points about this topic in valid JSON format only."
     );
     
-    public static final PromptTemplate QUERY_TEMPLATE = PromptTemplate.from(QUERY_GENERATION_PROMPT);
+    public static final PromptTemplate QUERY_TEMPLATE = PromptTemplate.from("Topic: {{topic}}");
     
     public static String formatUserPrompt(String topic) {
         return USER_TEMPLATE.apply(Map.of("topic", topic)).text();
@@ -0,0 +1,21 @@
+package za.co.digitalcowboy.agents.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import za.co.digitalcowboy.agents.domain.GenerationTaskEntity;
+import za.co.digitalcowboy.agents.domain.TaskStatus;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface GenerationTaskRepository extends JpaRepository<GenerationTaskEntity, String> {
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM GenerationTaskEntity t WHERE t.status = :status AND t.updatedAt < :cutoff")
+    int deleteByStatusUpdatedBefore(@Param("status") TaskStatus status, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,30 @@
+package za.co.digitalcowboy.agents.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import za.co.digitalcowboy.agents.domain.SearchCacheEntity;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SearchCacheRepository extends JpaRepository<SearchCacheEntity, String> {
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SearchCacheEntity s WHERE s.fetchedAt < :cutoff")
+    int deleteByFetchedAtBefore(@Param("cutoff") LocalDateTime cutoff);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SearchCacheEntity s WHERE s.queryHash = :queryHash")
+    int deleteByQueryHash(@Param("queryHash") String queryHash);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SearchCacheEntity s")
+    int deleteAllEntries();
+}
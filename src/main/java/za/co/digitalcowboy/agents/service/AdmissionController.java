@@ -0,0 +1,198 @@
+package za.co.digitalcowboy.agents.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.domain.TaskPriority;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bounds the number of generation jobs running on the task executor. Jobs beyond
+ * {@code maxConcurrent} wait in a priority-ordered queue with a visible position; when
+ * that queue is full a new job either displaces the lowest-priority queued job or is
+ * rejected with a Retry-After estimate. Nothing ever runs on the submitting thread.
+ */
+@Component
+public class AdmissionController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionController.class);
+
+    private final Executor executor;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long defaultRetryAfterSeconds;
+
+    private final TreeSet<PendingJob> queue = new TreeSet<>(
+            Comparator.comparing(PendingJob::priority).thenComparingLong(PendingJob::sequence));
+    private final Map<String, PendingJob> queuedByTaskId = new HashMap<>();
+    private int running;
+    private long sequence;
+    private double averageJobSeconds;
+
+    private final Map<TaskPriority, Counter> rejectedCounters = new EnumMap<>(TaskPriority.class);
+    private final Map<TaskPriority, Counter> shedCounters = new EnumMap<>(TaskPriority.class);
+
+    @Autowired
+    public AdmissionController(@Qualifier("taskExecutor") Executor executor,
+                               @Value("${generation.admission.max-concurrent:20}") int maxConcurrent,
+                               @Value("${generation.admission.max-queued:100}") int maxQueued,
+                               @Value("${generation.admission.default-retry-after-seconds:30}") long defaultRetryAfterSeconds,
+                               MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.defaultRetryAfterSeconds = defaultRetryAfterSeconds;
+
+        Gauge.builder("generation.admission.queued", this, AdmissionController::getQueuedCount)
+                .description("Generation jobs waiting for an execution slot")
+                .register(meterRegistry);
+        Gauge.builder("generation.admission.running", this, AdmissionController::getRunningCount)
+                .description("Generation jobs currently executing")
+                .register(meterRegistry);
+        for (TaskPriority priority : TaskPriority.values()) {
+            rejectedCounters.put(priority, Counter.builder("generation.admission.rejected")
+                    .description("Generation jobs rejected because the queue was full")
+                    .tag("priority", priority.getValue())
+                    .register(meterRegistry));
+            shedCounters.put(priority, Counter.builder("generation.admission.shed")
+                    .description("Queued generation jobs displaced by higher-priority work")
+                    .tag("priority", priority.getValue())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Admits a job covering one or more tasks. The job starts immediately if a slot is free,
+     * otherwise it is queued. {@code onShed} runs if the job is later displaced from the queue.
+     *
+     * @throws GenerationOverloadedException if the queue is full of equal or higher priority work
+     */
+    public void submit(List<String> taskIds, TaskPriority priority, Runnable job, Runnable onShed) {
+        PendingJob pending;
+        PendingJob displaced = null;
+
+        synchronized (this) {
+            pending = new PendingJob(taskIds, priority, sequence++, job, onShed);
+
+            if (running < maxConcurrent) {
+                running++;
+            } else {
+                if (queue.size() >= maxQueued) {
+                    PendingJob lowest = queue.last();
+                    if (lowest.priority().compareTo(priority) <= 0) {
+                        rejectedCounters.get(priority).increment();
+                        throw new GenerationOverloadedException(
+                                "Generation capacity exhausted, please retry later", estimateRetryAfterSeconds());
+                    }
+                    displaced = lowest;
+                    dequeue(lowest);
+                    shedCounters.get(lowest.priority()).increment();
+                }
+                PendingJob queued = pending;
+                queue.add(queued);
+                taskIds.forEach(taskId -> queuedByTaskId.put(taskId, queued));
+                pending = null;
+            }
+        }
+
+        if (displaced != null) {
+            log.warn("Shedding queued {} generation job for tasks {}", displaced.priority().getValue(), displaced.taskIds());
+            displaced.onShed().run();
+        }
+        if (pending != null) {
+            PendingJob first = pending;
+            try {
+                executor.execute(() -> drain(first));
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    running--;
+                }
+                rejectedCounters.get(priority).increment();
+                throw new GenerationOverloadedException(
+                        "Generation executor rejected the task, please retry later", estimateRetryAfterSeconds());
+            }
+        }
+    }
+
+    /**
+     * 1-based position of the task in the pending queue, or {@code null} if it is not queued.
+     */
+    public synchronized Integer getQueuePosition(String taskId) {
+        PendingJob pending = queuedByTaskId.get(taskId);
+        if (pending == null) {
+            return null;
+        }
+        return queue.headSet(pending).size() + 1;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    // Keeps the slot on this worker thread for as long as queued work remains
+    private void drain(PendingJob first) {
+        PendingJob current = first;
+        while (current != null) {
+            long start = System.nanoTime();
+            try {
+                current.job().run();
+            } catch (Exception e) {
+                log.error("Generation job for tasks {} failed", current.taskIds(), e);
+            }
+            synchronized (this) {
+                recordDuration(System.nanoTime() - start);
+                current = queue.pollFirst();
+                if (current != null) {
+                    current.taskIds().forEach(queuedByTaskId::remove);
+                } else {
+                    running--;
+                }
+            }
+        }
+    }
+
+    private void dequeue(PendingJob pending) {
+        queue.remove(pending);
+        pending.taskIds().forEach(queuedByTaskId::remove);
+    }
+
+    private void recordDuration(long nanos) {
+        double seconds = nanos / 1_000_000_000.0;
+        averageJobSeconds = averageJobSeconds == 0 ? seconds : 0.8 * averageJobSeconds + 0.2 * seconds;
+    }
+
+    private synchronized long estimateRetryAfterSeconds() {
+        if (averageJobSeconds == 0) {
+            return defaultRetryAfterSeconds;
+        }
+        // Time for the queue ahead of the caller to drain across all slots
+        double estimate = averageJobSeconds * (queue.size() + 1) / maxConcurrent;
+        return Math.max(1, (long) Math.ceil(estimate));
+    }
+
+    private record PendingJob(
+            List<String> taskIds,
+            TaskPriority priority,
+            long sequence,
+            Runnable job,
+            Runnable onShed
+    ) {}
+}
@@ -2,48 +2,173 @@ package za.co.digitalcowboy.agents.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import za.co.digitalcowboy.agents.domain.*;
 import za.co.digitalcowboy.agents.graph.AgentGraph;
+import za.co.digitalcowboy.agents.graph.AgentNode;
+import za.co.digitalcowboy.agents.graph.AgentState;
+import za.co.digitalcowboy.agents.graph.NodeListener;
+import za.co.digitalcowboy.agents.service.llm.TokenAccounting;
+import za.co.digitalcowboy.agents.service.llm.TokenBudget;
+import za.co.digitalcowboy.agents.service.task.TaskStore;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 @Service
 public class AsyncGenerationService {
 
     private static final Logger log = LoggerFactory.getLogger(AsyncGenerationService.class);
     
+    private static final String SHED_ERROR = "Task was shed to make room for higher-priority work";
+    
     private final AgentGraph agentGraph;
-    private final Executor taskExecutor;
-    private final Map<String, GenerationTask> taskStore = new ConcurrentHashMap<>();
+    private final AdmissionController admissionController;
+    private final TaskStore taskStore;
+    private final TaskEventBus taskEventBus;
+    private final TokenAccounting tokenAccounting;
+    private final Duration resumeStaleAfter;
     
-    public AsyncGenerationService(AgentGraph agentGraph, @Qualifier("taskExecutor") Executor taskExecutor) {
+    public AsyncGenerationService(AgentGraph agentGraph, AdmissionController admissionController,
+                                  TaskStore taskStore, TaskEventBus taskEventBus, TokenAccounting tokenAccounting,
+                                  @Value("${generation.resume.stale-after-ms:300000}") long resumeStaleAfterMs) {
         this.agentGraph = agentGraph;
-        this.taskExecutor = taskExecutor;
+        this.admissionController = admissionController;
+        this.taskStore = taskStore;
+        this.taskEventBus = taskEventBus;
+        this.tokenAccounting = tokenAccounting;
+        this.resumeStaleAfter = Duration.ofMillis(resumeStaleAfterMs);
     }
     
     public String startGeneration(TopicRequest request) {
+        return startGeneration(request, null);
+    }
+    
+    /**
+     * Queues a generation for {@code userId}, whose daily token budget it draws on; a
+     * {@code null} user draws only on the task budget.
+     */
+    public String startGeneration(TopicRequest request, String userId) {
         String taskId = UUID.randomUUID().toString();
         GenerationTask task = new GenerationTask(taskId, request);
-        taskStore.put(taskId, task);
+        taskStore.save(task);
+        publishStatus(task);
+        
+        try {
+            admissionController.submit(List.of(taskId), request.taskPriority(),
+                    () -> executeGeneration(taskId, userId),
+                    () -> updateTaskWithError(taskId, SHED_ERROR));
+        } catch (GenerationOverloadedException e) {
+            taskStore.remove(taskId);
+            publishFailure(taskId, e.getMessage());
+            log.warn("Rejected generation for topic: {} - {}", request.topic(), e.getMessage());
+            throw e;
+        }
         
         log.info("Started async generation task: {} for topic: {}", taskId, request.topic());
+        return taskId;
+    }
+    
+    public List<String> startFanOutGeneration(FanOutTopicRequest request) {
+        return startFanOutGeneration(request, null);
+    }
+    
+    public List<String> startFanOutGeneration(FanOutTopicRequest request, String userId) {
+        List<TopicRequest> variants = request.toTopicRequests();
+        List<String> taskIds = variants.stream()
+                .map(variant -> {
+                    GenerationTask task = new GenerationTask(UUID.randomUUID().toString(), variant);
+                    taskStore.save(task);
+                    publishStatus(task);
+                    return task.id();
+                })
+                .toList();
         
-        // Start async processing using CompletableFuture to avoid self-invocation issue
-        CompletableFuture.runAsync(() -> executeGeneration(taskId), taskExecutor);
+        // A single job shares research across every variant
+        try {
+            admissionController.submit(taskIds, request.taskPriority(),
+                    () -> executeFanOutGeneration(taskIds, variants, userId),
+                    () -> taskIds.forEach(taskId -> updateTaskWithError(taskId, SHED_ERROR)));
+        } catch (GenerationOverloadedException e) {
+            taskIds.forEach(taskId -> {
+                taskStore.remove(taskId);
+                publishFailure(taskId, e.getMessage());
+            });
+            log.warn("Rejected fan-out generation for topic: {} - {}", request.topic(), e.getMessage());
+            throw e;
+        }
         
-        return taskId;
+        log.info("Started fan-out generation tasks: {} for topic: {}", taskIds, request.topic());
+        return taskIds;
+    }
+    
+    /**
+     * Re-queues a failed task, a {@link GenerationTask#isPartial() partial} one whose image or
+     * content fell back, or one whose run stopped updating (for example because its node
+     * restarted), to continue from its last checkpoint.
+     *
+     * @return {@code false} if the task is unknown, fully completed, or still running
+     * @throws GenerationOverloadedException if the generation queue is full
+     */
+    public boolean resumeGeneration(String taskId) {
+        return resumeGeneration(taskId, null);
     }
     
-    private void executeGeneration(String taskId) {
+    /**
+     * As {@link #resumeGeneration(String)}, charging the rest of the run to {@code userId}.
+     * The task budget counts what earlier attempts spent.
+     */
+    public synchronized boolean resumeGeneration(String taskId, String userId) {
+        GenerationTask task = taskStore.find(taskId);
+        if (task == null || !isResumable(task)) {
+            return false;
+        }
+        
+        GenerationTask resubmitted = task.resubmitted();
+        taskStore.save(resubmitted);
+        taskEventBus.reopen(taskId);
+        publishStatus(resubmitted);
+        
+        try {
+            admissionController.submit(List.of(taskId), task.request().taskPriority(),
+                    () -> executeGeneration(taskId, userId),
+                    () -> updateTaskWithError(taskId, SHED_ERROR));
+        } catch (GenerationOverloadedException e) {
+            // Leave the task as it was so it can be resumed later
+            taskStore.save(task);
+            publishFailure(taskId, e.getMessage());
+            log.warn("Rejected resume of task: {} - {}", taskId, e.getMessage());
+            throw e;
+        }
+        
+        AgentCheckpoint checkpoint = task.checkpoint();
+        log.info("Resuming generation task: {} after nodes {}", taskId,
+                checkpoint != null ? checkpoint.completedNodes() : List.of());
+        return true;
+    }
+    
+    private boolean isResumable(GenerationTask task) {
+        return switch (task.status()) {
+            case FAILED -> true;
+            case COMPLETED -> task.isPartial();
+            // Running tasks checkpoint after every node, so a long silence means the run is gone
+            case PENDING, IN_PROGRESS -> admissionController.getQueuePosition(task.id()) == null
+                    && task.updatedAt().isBefore(LocalDateTime.now().minus(resumeStaleAfter));
+        };
+    }
+    
+    private void executeGeneration(String taskId, String userId) {
+        TokenTotals spent = TokenTotals.NONE;
+        TokenBudget budget = null;
         try {
-            GenerationTask task = taskStore.get(taskId);
+            GenerationTask task = taskStore.find(taskId);
             if (task == null) {
                 log.error("Task not found: {}", taskId);
                 return;
@@ -54,31 +179,100 @@ public class AsyncGenerationService {
             
             log.info("Executing generation task: {}", taskId);
             
-            // Execute the agent graph
-            OrchestrationResult result = agentGraph.run(task.request());
+            // Execute the agent graph, skipping nodes a previous attempt completed
+            spent = task.tokenUsage();
+            budget = tokenAccounting.newBudget(userId, spent.totalTokens());
+            OrchestrationResult result = agentGraph.resume(task.request(), task.checkpoint(),
+                    nodeListener(taskId, spent), budget);
             
             // Update task with result
+            saveTokenUsage(taskId, spent.plus(budget.totalsWithShares()));
             updateTaskWithResult(taskId, result);
             
             log.info("Completed generation task: {}", taskId);
             
         } catch (Exception e) {
             log.error("Error executing generation task: {}", taskId, e);
+            // The user's account was charged, so a resume must not get these tokens back
+            if (budget != null) {
+                saveTokenUsage(taskId, spent.plus(budget.totalsWithShares()));
+            }
             updateTaskWithError(taskId, e.getMessage());
         }
     }
     
+    private void executeFanOutGeneration(List<String> taskIds, List<TopicRequest> variants, String userId) {
+        try {
+            taskIds.forEach(taskId -> updateTaskStatus(taskId, TaskStatus.IN_PROGRESS));
+            
+            log.info("Executing fan-out generation tasks: {}", taskIds);
+            
+            List<OrchestrationResult> results = agentGraph.runFanOut(variants,
+                    taskIds.stream().map(taskId -> nodeListener(taskId, TokenTotals.NONE)).toList(),
+                    tokenAccounting.newBudget(userId, 0));
+            
+            for (int i = 0; i < taskIds.size(); i++) {
+                updateTaskWithResult(taskIds.get(i), results.get(i));
+            }
+            
+            log.info("Completed fan-out generation tasks: {}", taskIds);
+            
+        } catch (Exception e) {
+            log.error("Error executing fan-out generation tasks: {}", taskIds, e);
+            taskIds.forEach(taskId -> updateTaskWithError(taskId, e.getMessage()));
+        }
+    }
+    
+    /**
+     * The stored task, with its queue position while it waits for admission. The tasks of a
+     * fan-out are admitted as one job, so each reports the job's position.
+     */
     public GenerationTask getTask(String taskId) {
-        return taskStore.get(taskId);
+        GenerationTask task = taskStore.find(taskId);
+        if (task != null && task.status() == TaskStatus.PENDING) {
+            return task.withQueuePosition(admissionController.getQueuePosition(taskId));
+        }
+        return task;
+    }
+    
+    /**
+     * Subscribes to the task's events on this node, replaying those after
+     * {@code afterSequence}. Returns {@code null} if the task is not running here; use
+     * {@link #snapshotEvents} instead.
+     */
+    public TaskEventBus.Subscription subscribe(String taskId, long afterSequence, Consumer<TaskEvent> subscriber) {
+        return taskEventBus.subscribe(taskId, afterSequence, subscriber);
+    }
+    
+    // Events reconstructed from the stored task, for tasks that ran elsewhere or before a restart
+    public List<TaskEvent> snapshotEvents(GenerationTask task) {
+        List<TaskEvent> events = new ArrayList<>();
+        events.add(new TaskEvent(events.size() + 1, task.id(), TaskEventType.STATUS, Map.of("status", task.status())));
+        if (task.status() == TaskStatus.COMPLETED && task.result() != null) {
+            OrchestrationResult result = task.result();
+            events.add(new TaskEvent(events.size() + 1, task.id(), TaskEventType.RESEARCH, result.research()));
+            events.add(new TaskEvent(events.size() + 1, task.id(), TaskEventType.CONTENT, result.content()));
+            events.add(new TaskEvent(events.size() + 1, task.id(), TaskEventType.IMAGE, result.image()));
+            events.add(new TaskEvent(events.size() + 1, task.id(), TaskEventType.COMPLETED, Map.of("status", task.status())));
+        } else if (task.status() == TaskStatus.FAILED) {
+            events.add(new TaskEvent(events.size() + 1, task.id(), TaskEventType.FAILED,
+                    Map.of("status", task.status(), "error", task.error() != null ? task.error() : "Generation failed")));
+        }
+        return events;
+    }
+    
+    /** The position of the job holding {@code taskId}; every task of a fan-out shares it. */
+    public Integer getQueuePosition(String taskId) {
+        return admissionController.getQueuePosition(taskId);
     }
     
     public TaskStatus getTaskStatus(String taskId) {
-        GenerationTask task = taskStore.get(taskId);
+        GenerationTask task = taskStore.find(taskId);
         return task != null ? task.status() : null;
     }
     
     public OrchestrationResult getTaskResult(String taskId) {
-        GenerationTask task = taskStore.get(taskId);
+        GenerationTask task = taskStore.find(taskId);
         if (task != null && task.status() == TaskStatus.COMPLETED) {
             return task.result();
         }
@@ -86,42 +280,98 @@ public class AsyncGenerationService {
     }
     
     private void updateTaskStatus(String taskId, TaskStatus status) {
-        GenerationTask currentTask = taskStore.get(taskId);
+        GenerationTask currentTask = taskStore.find(taskId);
         if (currentTask != null) {
             GenerationTask updatedTask = currentTask.withStatus(status);
-            taskStore.put(taskId, updatedTask);
+            taskStore.save(updatedTask);
+            publishStatus(updatedTask);
         }
     }
     
     private void updateTaskWithResult(String taskId, OrchestrationResult result) {
-        GenerationTask currentTask = taskStore.get(taskId);
+        GenerationTask currentTask = taskStore.find(taskId);
         if (currentTask != null) {
-            GenerationTask updatedTask = currentTask.withResult(result);
-            taskStore.put(taskId, updatedTask);
+            GenerationTask updatedTask = isFinished(currentTask.checkpoint())
+                    ? currentTask.withResult(result)
+                    : currentTask.withPartialResult(result);
+            taskStore.save(updatedTask);
+            taskEventBus.publish(taskId, TaskEventType.COMPLETED, Map.of("status", updatedTask.status()));
         }
     }
     
+    // Every node produced usable output; fallbacks and skipped steps are left out of the checkpoint
+    private static boolean isFinished(AgentCheckpoint checkpoint) {
+        return checkpoint == null || Arrays.stream(AgentNode.values())
+                .allMatch(node -> checkpoint.completedNodes().contains(node.getValue()));
+    }
+    
     private void updateTaskWithError(String taskId, String error) {
-        GenerationTask currentTask = taskStore.get(taskId);
+        GenerationTask currentTask = taskStore.find(taskId);
         if (currentTask != null) {
             GenerationTask updatedTask = currentTask.withError(error);
-            taskStore.put(taskId, updatedTask);
+            taskStore.save(updatedTask);
+            publishFailure(taskId, error);
+        }
+    }
+    
+    // Streams research, content and image results as each graph node finishes, adding the
+    // tokens this run has spent to those of earlier attempts
+    private NodeListener nodeListener(String taskId, TokenTotals spentBefore) {
+        return new NodeListener() {
+            @Override
+            public void onNodeCompleted(AgentNode node, AgentState state) {
+                switch (node) {
+                    case RESEARCH -> taskEventBus.publish(taskId, TaskEventType.RESEARCH, state.getResearch());
+                    case CONTENT -> taskEventBus.publish(taskId, TaskEventType.CONTENT, state.getContent());
+                    case IMAGE -> taskEventBus.publish(taskId, TaskEventType.IMAGE, state.getImage());
+                    default -> taskEventBus.publish(taskId, TaskEventType.PROGRESS, Map.of("node", node.getValue()));
+                }
+                saveCheckpoint(taskId, state.toCheckpoint(), spentBefore.plus(state.getTokenBudget().totals()));
+            }
+            
+            @Override
+            public void onContentDelta(String field, String delta) {
+                taskEventBus.publish(taskId, TaskEventType.CONTENT_DELTA, Map.of("field", field, "delta", delta));
+            }
+            
+            // Streaming bypasses the LLM response cache, so only stream for someone watching
+            @Override
+            public boolean wantsContentDeltas() {
+                return taskEventBus.hasSubscribers(taskId);
+            }
+        };
+    }
+    
+    private void saveCheckpoint(String taskId, AgentCheckpoint checkpoint, TokenTotals tokenUsage) {
+        GenerationTask currentTask = taskStore.find(taskId);
+        if (currentTask != null && !currentTask.isCompleted()) {
+            taskStore.save(currentTask.withCheckpoint(checkpoint).withTokenUsage(tokenUsage));
+        }
+    }
+    
+    private void saveTokenUsage(String taskId, TokenTotals tokenUsage) {
+        GenerationTask currentTask = taskStore.find(taskId);
+        if (currentTask != null && !currentTask.isCompleted()) {
+            taskStore.save(currentTask.withTokenUsage(tokenUsage));
         }
     }
     
-    // Cleanup old tasks (called by scheduled task)
-    public void cleanupOldTasks() {
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(1);
-        taskStore.entrySet().removeIf(entry -> {
-            GenerationTask task = entry.getValue();
-            return task.createdAt().isBefore(cutoff);
-        });
+    private void publishStatus(GenerationTask task) {
+        taskEventBus.publish(task.id(), TaskEventType.STATUS, Map.of("status", task.status()));
+    }
+    
+    private void publishFailure(String taskId, String error) {
+        taskEventBus.publish(taskId, TaskEventType.FAILED,
+                Map.of("status", TaskStatus.FAILED, "error", error != null ? error : "Generation failed"));
+    }
+    
+    // Expire tasks past their retention (called by scheduled task)
+    public int cleanupOldTasks() {
+        return taskStore.expire(LocalDateTime.now());
     }
     
     public int getActiveTaskCount() {
-        return (int) taskStore.values().stream()
-                .filter(task -> !task.isCompleted())
-                .count();
+        return taskStore.countActive();
     }
     
     public int getTotalTaskCount() {
@@ -0,0 +1,15 @@
+package za.co.digitalcowboy.agents.service;
+
+public class GenerationOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public GenerationOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
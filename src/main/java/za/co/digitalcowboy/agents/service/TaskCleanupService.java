@@ -16,23 +16,18 @@ public class TaskCleanupService {
         this.asyncGenerationService = asyncGenerationService;
     }
     
-    @Scheduled(fixedRate = 300000) // Run every 5 minutes
+    // Expiry only touches tasks that are due, so this can run often
+    @Scheduled(fixedRateString = "${tasks.cleanup-interval-ms:60000}")
     public void cleanupOldTasks() {
-        int totalBefore = asyncGenerationService.getTotalTaskCount();
-        int activeBefore = asyncGenerationService.getActiveTaskCount();
+        int expired = asyncGenerationService.cleanupOldTasks();
         
-        asyncGenerationService.cleanupOldTasks();
+        int active = asyncGenerationService.getActiveTaskCount();
+        int total = asyncGenerationService.getTotalTaskCount();
         
-        int totalAfter = asyncGenerationService.getTotalTaskCount();
-        int activeAfter = asyncGenerationService.getActiveTaskCount();
-        
-        int cleaned = totalBefore - totalAfter;
-        
-        if (cleaned > 0) {
-            log.info("Cleaned up {} old tasks. Active tasks: {} -> {}, Total tasks: {} -> {}",
-                    cleaned, activeBefore, activeAfter, totalBefore, totalAfter);
+        if (expired > 0) {
+            log.info("Expired {} tasks. Active tasks: {}, Total tasks: {}", expired, active, total);
         } else {
-            log.debug("Task cleanup completed. Active: {}, Total: {}", activeAfter, totalAfter);
+            log.debug("Task cleanup completed. Active: {}, Total: {}", active, total);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,219 @@
+package za.co.digitalcowboy.agents.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.domain.TaskEvent;
+import za.co.digitalcowboy.agents.domain.TaskEventType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * In-process fan-out of task events to stream subscribers. Each task keeps its event
+ * history until shortly after its terminal event, so a subscriber that connects late or
+ * reconnects with a last seen sequence still receives every event exactly once, in order.
+ * <p>
+ * Publishing only queues the event for each subscriber; delivery runs on the event
+ * executor, one drain at a time per subscriber, so a slow client never holds up the
+ * generation or the other subscribers of the task.
+ */
+@Component
+public class TaskEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskEventBus.class);
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final long retainClosedMillis;
+    private final long idleEvictMillis;
+    private final Executor deliveryExecutor;
+
+    public TaskEventBus(@Value("${generation.stream.retain-closed-ms:120000}") long retainClosedMillis,
+                        @Value("${generation.stream.idle-evict-ms:1800000}") long idleEvictMillis,
+                        @Qualifier("taskEventExecutor") Executor deliveryExecutor) {
+        this.retainClosedMillis = retainClosedMillis;
+        this.idleEvictMillis = idleEvictMillis;
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    public void publish(String taskId, TaskEventType type, Object data) {
+        channels.computeIfAbsent(taskId, id -> new Channel())
+                .publish(taskId, type, data)
+                .forEach(this::scheduleDrain);
+    }
+
+    /**
+     * Accepts events again for a task that finished and is being retried. Sequence numbers
+     * carry on from the earlier attempt so reconnecting clients keep their place.
+     */
+    public void reopen(String taskId) {
+        Channel channel = channels.get(taskId);
+        if (channel != null) {
+            channel.reopen();
+        }
+    }
+
+    /**
+     * Replays events after {@code afterSequence} and then delivers new ones as they are
+     * published. Returns {@code null} if this node holds no events for the task.
+     */
+    public Subscription subscribe(String taskId, long afterSequence, Consumer<TaskEvent> consumer) {
+        Channel channel = channels.get(taskId);
+        if (channel == null) {
+            return null;
+        }
+        Subscriber subscriber = channel.subscribe(afterSequence, consumer);
+        scheduleDrain(subscriber);
+        return subscriber::close;
+    }
+
+    /**
+     * Drops channels retained past their terminal event, and channels nobody is watching
+     * that have seen no activity for the idle timeout - tasks lost to a crash or restart
+     * never publish a terminal event.
+     */
+    @Scheduled(fixedRateString = "${generation.stream.retain-closed-ms:120000}")
+    public void evictClosedChannels() {
+        long now = System.currentTimeMillis();
+        channels.values().removeIf(channel -> channel.closedBefore(now - retainClosedMillis)
+                || channel.idleBefore(now - idleEvictMillis));
+    }
+
+    /** Whether anyone on this node is currently watching the task's events. */
+    public boolean hasSubscribers(String taskId) {
+        Channel channel = channels.get(taskId);
+        return channel != null && channel.hasSubscribers();
+    }
+
+    public int getChannelCount() {
+        return channels.size();
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            deliveryExecutor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // The client reconnects with its last event id and replays what it missed
+            log.warn("Dropping stream subscriber, event delivery is saturated: {}", e.getMessage());
+            subscriber.draining.set(false);
+            subscriber.close();
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            TaskEvent event;
+            while (!subscriber.closed && (event = subscriber.pending.poll()) != null) {
+                try {
+                    subscriber.consumer.accept(event);
+                } catch (Exception e) {
+                    log.debug("Dropping subscriber for task {} after delivery failure: {}", event.taskId(), e.getMessage());
+                    subscriber.close();
+                }
+            }
+            subscriber.draining.set(false);
+            // An event queued after the last poll but before the flag cleared would
+            // otherwise wait for the next publish
+            if (subscriber.closed || subscriber.pending.isEmpty()
+                    || !subscriber.draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static class Subscriber {
+        private final Channel channel;
+        private final Consumer<TaskEvent> consumer;
+        private final Queue<TaskEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(Channel channel, Consumer<TaskEvent> consumer) {
+            this.channel = channel;
+            this.consumer = consumer;
+        }
+
+        void close() {
+            closed = true;
+            pending.clear();
+            channel.remove(this);
+        }
+    }
+
+    private static class Channel {
+        private final List<TaskEvent> history = new ArrayList<>();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private long closedAt;
+        private long lastActivity = System.currentTimeMillis();
+
+        /** Records the event, queues it for every subscriber and returns those to drain. */
+        synchronized List<Subscriber> publish(String taskId, TaskEventType type, Object data) {
+            if (closedAt > 0) {
+                return List.of();
+            }
+            TaskEvent event = new TaskEvent(history.size() + 1, taskId, type, data);
+            history.add(event);
+            lastActivity = System.currentTimeMillis();
+            if (type.isTerminal()) {
+                closedAt = lastActivity;
+            }
+            List<Subscriber> targets = List.copyOf(subscribers);
+            targets.forEach(subscriber -> subscriber.pending.add(event));
+            if (closedAt > 0) {
+                subscribers.clear();
+            }
+            return targets;
+        }
+
+        synchronized Subscriber subscribe(long afterSequence, Consumer<TaskEvent> consumer) {
+            Subscriber subscriber = new Subscriber(this, consumer);
+            int from = (int) Math.min(Math.max(afterSequence, 0), history.size());
+            subscriber.pending.addAll(history.subList(from, history.size()));
+            if (closedAt == 0) {
+                subscribers.add(subscriber);
+            }
+            lastActivity = System.currentTimeMillis();
+            return subscriber;
+        }
+
+        synchronized void remove(Subscriber subscriber) {
+            subscribers.remove(subscriber);
+        }
+
+        synchronized void reopen() {
+            closedAt = 0;
+            lastActivity = System.currentTimeMillis();
+        }
+
+        synchronized boolean closedBefore(long cutoff) {
+            return closedAt > 0 && closedAt <= cutoff;
+        }
+
+        synchronized boolean hasSubscribers() {
+            return !subscribers.isEmpty();
+        }
+
+        synchronized boolean idleBefore(long cutoff) {
+            return subscribers.isEmpty() && lastActivity <= cutoff;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package za.co.digitalcowboy.agents.service.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/cacheadmin}: lists every cache with its statistics, shows a cache's keys,
+ * evicts entries and warms caches from a list of topics. Requires {@code ROLE_ADMIN}, granted
+ * to the users in {@code admin.emails}. The {@code oauthState} cache is never exposed.
+ *
+ * <ul>
+ *   <li>{@code GET /actuator/cacheadmin} - every cache</li>
+ *   <li>{@code GET /actuator/cacheadmin/{cache}?limit=100} - one cache and its keys</li>
+ *   <li>{@code DELETE /actuator/cacheadmin/{cache}?key=...} - one entry, or all without a key</li>
+ *   <li>{@code POST /actuator/cacheadmin/{cache}} with {@code {"topics": [...]}} - warm it</li>
+ * </ul>
+ *
+ * Unknown caches answer 404.
+ */
+@Component
+@Endpoint(id = "cacheadmin")
+public class CacheAdminEndpoint {
+    
+    private static final int DEFAULT_KEY_LIMIT = 100;
+    
+    private final CacheRegistry cacheRegistry;
+    
+    public CacheAdminEndpoint(CacheRegistry cacheRegistry) {
+        this.cacheRegistry = cacheRegistry;
+    }
+    
+    @ReadOperation
+    public Map<String, List<CacheSummary>> caches() {
+        return Map.of("caches", cacheRegistry.list());
+    }
+    
+    @ReadOperation
+    public CacheDetails cache(@Selector String cache, @Nullable Integer limit) {
+        CacheSummary summary = cacheRegistry.describe(cache);
+        if (summary == null) {
+            return null;
+        }
+        return new CacheDetails(summary, cacheRegistry.keys(cache, limit != null ? limit : DEFAULT_KEY_LIMIT));
+    }
+    
+    @DeleteOperation
+    public Map<String, Object> evict(@Selector String cache, @Nullable String key) {
+        if (key == null) {
+            long cleared = cacheRegistry.clear(cache);
+            return cleared < 0 ? null : Map.of("cache", cache, "evicted", cleared);
+        }
+        if (cacheRegistry.describe(cache) == null) {
+            return null;
+        }
+        return Map.of("cache", cache, "key", key, "evicted", cacheRegistry.evict(cache, key) ? 1 : 0);
+    }
+    
+    @WriteOperation
+    public Map<String, Object> warm(@Selector String cache, List<String> topics) {
+        if (!cacheRegistry.isWarmable(cache)) {
+            return null;
+        }
+        return Map.of("cache", cache, "queued", cacheRegistry.warm(cache, topics));
+    }
+    
+    public record CacheDetails(CacheSummary cache, List<String> keys) {}
+}
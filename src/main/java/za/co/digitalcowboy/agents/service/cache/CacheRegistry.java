@@ -0,0 +1,194 @@
+package za.co.digitalcowboy.agents.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.domain.TaskPriority;
+import za.co.digitalcowboy.agents.tools.CallPriority;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Every cache in the application by name: those of the Spring {@link CacheManager} and
+ * every {@link ManagedCache} bean. Spring Boot binds the {@code CacheManager} caches to
+ * Micrometer; the managed caches are bound here under the same {@code cache.*} meters, so
+ * all of them report hits, misses, evictions, load time and size the same way.
+ *
+ * <p>Caches holding secrets are left out entirely, so their keys can never be listed or
+ * their entries evicted through the admin endpoint. They still export statistics.
+ */
+@Component
+public class CacheRegistry {
+    
+    private static final Logger log = LoggerFactory.getLogger(CacheRegistry.class);
+    
+    // Live OAuth CSRF state tokens
+    private static final Set<String> PRIVATE_CACHES = Set.of("oauthState");
+    
+    private final CacheManager cacheManager;
+    private final Map<String, ManagedCache> managed = new LinkedHashMap<>();
+    private final Map<String, CacheWarmer> warmers = new LinkedHashMap<>();
+    private final Executor warmExecutor;
+    private final MeterRegistry meterRegistry;
+    
+    public CacheRegistry(CacheManager cacheManager,
+                         List<ManagedCache> managedCaches,
+                         List<CacheWarmer> cacheWarmers,
+                         @Qualifier("cacheRefreshExecutor") Executor warmExecutor,
+                         MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.warmExecutor = warmExecutor;
+        this.meterRegistry = meterRegistry;
+        for (ManagedCache cache : managedCaches) {
+            managed.put(cache.cacheName(), cache);
+            // Tagged like the caches Spring Boot binds, so every cache shares one set of meters
+            CaffeineCacheMetrics.monitor(meterRegistry, cache.nativeCache(), cache.cacheName(),
+                Tags.of("cache.manager", "cacheRegistry"));
+        }
+        cacheWarmers.forEach(warmer -> warmers.put(warmer.cacheName(), warmer));
+    }
+    
+    public List<CacheSummary> list() {
+        TreeSet<String> names = new TreeSet<>(cacheManager.getCacheNames());
+        names.addAll(managed.keySet());
+        names.removeAll(PRIVATE_CACHES);
+        List<CacheSummary> summaries = new ArrayList<>(names.size());
+        for (String name : names) {
+            Cache<?, ?> cache = find(name);
+            if (cache != null) {
+                summaries.add(summarize(name, cache));
+            }
+        }
+        return summaries;
+    }
+    
+    /** The cache's summary, or {@code null} if there is no such cache. */
+    public CacheSummary describe(String name) {
+        Cache<?, ?> cache = find(name);
+        return cache != null ? summarize(name, cache) : null;
+    }
+    
+    /** Up to {@code limit} keys of the cache, or {@code null} if there is no such cache. */
+    public List<String> keys(String name, int limit) {
+        Cache<?, ?> cache = find(name);
+        if (cache == null) {
+            return null;
+        }
+        return cache.asMap().keySet().stream()
+            .limit(Math.max(0, limit))
+            .map(String::valueOf)
+            .toList();
+    }
+    
+    /** Removes one entry, returning whether it was cached. */
+    public boolean evict(String name, String key) {
+        ManagedCache managedCache = managed.get(name);
+        if (managedCache != null) {
+            return managedCache.evict(key);
+        }
+        Cache<?, ?> cache = find(name);
+        return cache != null && cache.asMap().remove(key) != null;
+    }
+    
+    /** Removes every entry, returning how many there were, or -1 if there is no such cache. */
+    public long clear(String name) {
+        Cache<?, ?> cache = find(name);
+        if (cache == null) {
+            return -1;
+        }
+        long size;
+        ManagedCache managedCache = managed.get(name);
+        if (managedCache != null) {
+            size = managedCache.clear();
+        } else {
+            size = cache.estimatedSize();
+            cache.invalidateAll();
+        }
+        log.info("Cleared cache {} of about {} entries", name, size);
+        return size;
+    }
+    
+    public boolean isWarmable(String name) {
+        return warmers.containsKey(name);
+    }
+    
+    /**
+     * Queues the topics for warming in the background and returns how many were accepted.
+     * Topics beyond what the executor can queue are dropped.
+     */
+    public int warm(String name, List<String> topics) {
+        CacheWarmer warmer = warmers.get(name);
+        if (warmer == null) {
+            throw new IllegalArgumentException("Cache " + name + " cannot be warmed");
+        }
+        int accepted = 0;
+        for (String topic : topics) {
+            if (topic == null || topic.isBlank()) {
+                continue;
+            }
+            try {
+                warmExecutor.execute(() -> warmTopic(name, warmer, topic));
+                accepted++;
+            } catch (RejectedExecutionException e) {
+                warmed(name, "rejected").increment(topics.size() - accepted);
+                log.warn("Cache warm queue full, dropped {} topics for {}", topics.size() - accepted, name);
+                break;
+            }
+        }
+        log.info("Queued {} topics to warm cache {}", accepted, name);
+        return accepted;
+    }
+    
+    private void warmTopic(String name, CacheWarmer warmer, String topic) {
+        try {
+            // Warming must not take quota or provider permits from live generations
+            CallPriority.run(TaskPriority.BULK, () -> warmer.warm(topic));
+            warmed(name, "warmed").increment();
+        } catch (Exception e) {
+            warmed(name, "failed").increment();
+            log.warn("Failed to warm cache {} for topic: {}", name, topic, e);
+        }
+    }
+    
+    private Cache<?, ?> find(String name) {
+        if (PRIVATE_CACHES.contains(name)) {
+            return null;
+        }
+        ManagedCache managedCache = managed.get(name);
+        if (managedCache != null) {
+            return managedCache.nativeCache();
+        }
+        return cacheManager.getCache(name) instanceof CaffeineCache caffeine ? caffeine.getNativeCache() : null;
+    }
+    
+    private CacheSummary summarize(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheSummary(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+            stats.requestCount() > 0 ? stats.hitRate() : 0, stats.evictionCount(),
+            stats.averageLoadPenalty() / 1_000_000.0, warmers.containsKey(name));
+    }
+    
+    private Counter warmed(String name, String result) {
+        return Counter.builder("cache.warm.topics")
+            .description("Topics run through a cache warmer")
+            .tag("cache", name)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,16 @@
+package za.co.digitalcowboy.agents.service.cache;
+
+/**
+ * Size and hit statistics of one cache, as reported by the cache admin endpoint. Statistics
+ * are zero for caches built without {@code recordStats()}.
+ */
+public record CacheSummary(
+    String name,
+    long size,
+    long hits,
+    long misses,
+    double hitRatio,
+    long evictions,
+    double averageLoadMillis,
+    boolean warmable
+) {}
@@ -0,0 +1,13 @@
+package za.co.digitalcowboy.agents.service.cache;
+
+/**
+ * Fills a cache ahead of traffic. {@link CacheRegistry} runs warmers in the background at
+ * bulk priority, one topic at a time.
+ */
+public interface CacheWarmer {
+    
+    /** The cache this warmer fills. */
+    String cacheName();
+    
+    void warm(String topic);
+}
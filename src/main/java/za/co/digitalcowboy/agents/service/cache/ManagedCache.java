@@ -0,0 +1,31 @@
+package za.co.digitalcowboy.agents.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+/**
+ * A Caffeine cache kept outside the Spring {@code CacheManager}. Beans implementing this are
+ * picked up by {@link CacheRegistry}, which binds their statistics to Micrometer and makes
+ * them available to the cache admin endpoint. The cache should be built with
+ * {@code recordStats()}.
+ *
+ * <p>A cache backed by another tier overrides {@link #evict} and {@link #clear} so entries
+ * removed through the admin endpoint are not loaded straight back from that tier.
+ */
+public interface ManagedCache {
+    
+    String cacheName();
+    
+    Cache<?, ?> nativeCache();
+    
+    /** Removes one entry, returning whether it was cached. */
+    default boolean evict(String key) {
+        return nativeCache().asMap().remove(key) != null;
+    }
+    
+    /** Removes every entry, returning about how many there were. */
+    default long clear() {
+        long size = nativeCache().estimatedSize();
+        nativeCache().invalidateAll();
+        return size;
+    }
+}
@@ -0,0 +1,14 @@
+package za.co.digitalcowboy.agents.service.llm;
+
+import java.time.Duration;
+
+/**
+ * A completion kept by the {@link LlmResponseCache}, with the tokens it cost when it was
+ * generated.
+ */
+public record CachedCompletion(String text, int inputTokens, int outputTokens, long createdAtMillis) {
+    
+    public boolean isOlderThan(Duration age, long nowMillis) {
+        return nowMillis - createdAtMillis > age.toMillis();
+    }
+}
@@ -0,0 +1,58 @@
+package za.co.digitalcowboy.agents.service.llm;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * The latest call latencies of one model profile, for a p95 that follows the provider as it
+ * is now. Samples older than {@code maxAge} no longer count, so a profile that stopped
+ * getting traffic because it was slow is tried again once its window has emptied.
+ */
+public class LatencyWindow {
+    
+    private final long[] latenciesNanos;
+    private final long[] recordedAtNanos;
+    private final long maxAgeNanos;
+    private final int minSamples;
+    private int next;
+    private int size;
+    
+    public LatencyWindow(int capacity, Duration maxAge, int minSamples) {
+        this.latenciesNanos = new long[Math.max(1, capacity)];
+        this.recordedAtNanos = new long[latenciesNanos.length];
+        this.maxAgeNanos = maxAge.toNanos();
+        this.minSamples = Math.max(1, minSamples);
+    }
+    
+    public synchronized void record(long latencyNanos) {
+        record(latencyNanos, System.nanoTime());
+    }
+    
+    synchronized void record(long latencyNanos, long nowNanos) {
+        latenciesNanos[next] = latencyNanos;
+        recordedAtNanos[next] = nowNanos;
+        next = (next + 1) % latenciesNanos.length;
+        size = Math.min(size + 1, latenciesNanos.length);
+    }
+    
+    /** The 95th percentile of the recent samples, or {@code null} with fewer than the minimum. */
+    public Duration p95() {
+        return p95(System.nanoTime());
+    }
+    
+    synchronized Duration p95(long nowNanos) {
+        long[] recent = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (nowNanos - recordedAtNanos[i] <= maxAgeNanos) {
+                recent[count++] = latenciesNanos[i];
+            }
+        }
+        if (count < minSamples) {
+            return null;
+        }
+        Arrays.sort(recent, 0, count);
+        int rank = (int) Math.ceil(0.95 * count) - 1;
+        return Duration.ofNanos(recent[rank]);
+    }
+}
@@ -0,0 +1,205 @@
+package za.co.digitalcowboy.agents.service.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.LlmCacheProperties;
+import za.co.digitalcowboy.agents.service.cache.ManagedCache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Completions of byte-identical prompts, keyed by a SHA-256 of the model, its sampling
+ * parameters and every message. A bounded in-memory tier sits in front of an optional disk
+ * tier of one JSON file per key, which survives restarts and is written in the background.
+ * Entries expire {@code llm.cache.ttl} after they were generated, in both tiers.
+ */
+@Component
+public class LlmResponseCache implements ManagedCache {
+    
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+    
+    public static final String CACHE_NAME = "llmResponses";
+    
+    private final LlmCacheProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Executor writeExecutor;
+    private final Cache<String, CachedCompletion> memory;
+    private final Path directory;
+    
+    private final Counter diskHits;
+    private final Counter diskMisses;
+    
+    public LlmResponseCache(LlmCacheProperties properties,
+                            ObjectMapper objectMapper,
+                            @Qualifier("cacheRefreshExecutor") Executor writeExecutor,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.objectMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+        this.writeExecutor = writeExecutor;
+        this.memory = Caffeine.newBuilder()
+            .maximumSize(properties.getMemoryMaxSize())
+            .expireAfterWrite(properties.getTtl())
+            .recordStats()
+            .build();
+        this.directory = properties.isDiskEnabled() ? Paths.get(properties.getDiskPath()) : null;
+        
+        this.diskHits = diskReads(meterRegistry, "hit");
+        this.diskMisses = diskReads(meterRegistry, "miss");
+    }
+    
+    /**
+     * The cache key of a completion request. Messages are hashed with their type, so the same
+     * text as a system or a user message gives different keys.
+     */
+    public static String key(String modelName, double temperature, int maxTokens, List<ChatMessage> messages) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, modelName);
+            update(digest, Double.toString(temperature));
+            update(digest, Integer.toString(maxTokens));
+            for (ChatMessage message : messages) {
+                update(digest, message.type().name());
+                update(digest, message instanceof AiMessage ai && ai.hasToolExecutionRequests()
+                    ? ai.toolExecutionRequests().toString()
+                    : message.text());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    public boolean isEnabledFor(String agent) {
+        return properties.isEnabledFor(agent);
+    }
+    
+    /** The cached completion for {@code key}, or {@code null} if there is none still fresh. */
+    public CachedCompletion get(String key) {
+        CachedCompletion cached = memory.getIfPresent(key);
+        if (cached != null || directory == null) {
+            return cached;
+        }
+        
+        cached = readFromDisk(key);
+        if (cached == null || cached.isOlderThan(properties.getTtl(), System.currentTimeMillis())) {
+            diskMisses.increment();
+            return null;
+        }
+        diskHits.increment();
+        memory.put(key, cached);
+        return cached;
+    }
+    
+    public void put(String key, CachedCompletion completion) {
+        memory.put(key, completion);
+        if (directory == null) {
+            return;
+        }
+        try {
+            writeExecutor.execute(() -> writeToDisk(key, completion));
+        } catch (RejectedExecutionException e) {
+            log.debug("LLM cache write-back queue full, keeping {} in memory only", key);
+        }
+    }
+    
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+    
+    @Override
+    public Cache<String, CachedCompletion> nativeCache() {
+        return memory;
+    }
+    
+    @Scheduled(fixedRateString = "${llm.cache.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - properties.getTtl().toMillis();
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to delete expired LLM cache files", e);
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} expired LLM cache files", deleted);
+        }
+    }
+    
+    private CachedCompletion readFromDisk(String key) {
+        Path file = file(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), CachedCompletion.class);
+        } catch (IOException e) {
+            log.warn("Unreadable LLM cache file {}", file, e);
+            return null;
+        }
+    }
+    
+    private void writeToDisk(String key, CachedCompletion completion) {
+        Path file = file(key);
+        try {
+            Files.createDirectories(file.getParent());
+            // Written aside and moved into place, so readers never see half a file
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            objectMapper.writeValue(temp.toFile(), completion);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write LLM cache file {}", file, e);
+        }
+    }
+    
+    private Path file(String key) {
+        // Sharded by the first byte so no directory grows too large
+        return directory.resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+    
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        // Length-prefixed, so no two different field sequences hash the same input
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+    
+    private static Counter diskReads(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("llm.cache.disk.reads")
+            .description("In-memory misses looked up in the LLM response disk tier")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,13 @@
+package za.co.digitalcowboy.agents.service.llm;
+
+/**
+ * The profile a chat completion is sent to, with the parameters that profile generates with,
+ * and why it was chosen: {@code configured}, or {@code budget} and {@code degraded} when
+ * the step's own profile was passed over for a faster one.
+ */
+public record ModelRoute(String profile, String model, double temperature, int maxTokens, String reason) {
+    
+    public boolean isDowngraded() {
+        return !"configured".equals(reason);
+    }
+}
@@ -0,0 +1,70 @@
+package za.co.digitalcowboy.agents.service.llm;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.TokenBudgetProperties;
+import za.co.digitalcowboy.agents.domain.ModelStep;
+
+import java.time.Duration;
+
+/**
+ * Counts the tokens of every chat completion, by agent, model and platform, and charges
+ * them to the {@link TokenBudget} of the generation that made it. Also hands out those
+ * budgets, drawing on the user's daily account when one is configured.
+ *
+ * <p>User accounts are kept in memory, so with several nodes each enforces the daily
+ * budget for the tasks it runs.
+ */
+@Component
+public class TokenAccounting {
+
+    private final TokenBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+    // Idle for two days means the user's day has rolled over anyway
+    private final Cache<String, UserTokenAccount> accounts = Caffeine.newBuilder()
+        .expireAfterAccess(Duration.ofDays(2))
+        .build();
+
+    public TokenAccounting(TokenBudgetProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * A budget for one task run by {@code userId}, which may be {@code null} for none.
+     * {@code alreadySpent} is what earlier attempts at the same task used.
+     */
+    public TokenBudget newBudget(String userId, long alreadySpent) {
+        long limit = properties.getTaskBudget() > 0
+            ? Math.max(0, properties.getTaskBudget() - alreadySpent)
+            : Long.MAX_VALUE;
+        UserTokenAccount account = userId != null && properties.getUserDailyBudget() > 0
+            ? accounts.get(userId, id -> new UserTokenAccount(properties.getUserDailyBudget()))
+            : null;
+        return new TokenBudget(limit, account, properties);
+    }
+
+    /**
+     * Records one completion's usage under {@code step} and {@code model}, and charges it to
+     * {@code budget} if there is one. Usage the provider did not report counts as zero.
+     */
+    public void record(ModelStep step, String model, TokenBudget budget, TokenUsage usage) {
+        if (usage == null) {
+            return;
+        }
+        int input = usage.inputTokenCount() != null ? usage.inputTokenCount() : 0;
+        int output = usage.outputTokenCount() != null ? usage.outputTokenCount() : 0;
+        String agent = step != null ? step.getAgent() : "none";
+        String platform = budget != null ? budget.platform() : "none";
+        meterRegistry.counter("llm.tokens", "agent", agent, "model", model, "platform", platform, "type", "input")
+            .increment(input);
+        meterRegistry.counter("llm.tokens", "agent", agent, "model", model, "platform", platform, "type", "output")
+            .increment(output);
+        if (budget != null) {
+            budget.record(input, output);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package za.co.digitalcowboy.agents.service.llm;
+
+import za.co.digitalcowboy.agents.config.TokenBudgetProperties;
+import za.co.digitalcowboy.agents.domain.TokenTotals;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The tokens one generation has spent and may still spend. What is left is the smaller of
+ * the task budget and what the user has left for the day; a budget with neither still
+ * counts what it spends.
+ *
+ * <p>A fan-out runs research once under the job's budget and gives each variant a
+ * {@link #share share} of it, so every task is charged its part of the research plus its
+ * own content and image brief.
+ */
+public class TokenBudget {
+
+    private final long limit;
+    private final UserTokenAccount account;
+    private final TokenBudgetProperties properties;
+    private final TokenBudget parent;
+    private final int shares;
+    private final String platform;
+    private final AtomicLong inputTokens = new AtomicLong();
+    private final AtomicLong outputTokens = new AtomicLong();
+    private final AtomicLong inputTokensWithShares = new AtomicLong();
+    private final AtomicLong outputTokensWithShares = new AtomicLong();
+
+    /**
+     * @param limit tokens the task may spend, {@link Long#MAX_VALUE} for no limit
+     * @param account the user's daily account, or {@code null} if the user has no limit
+     */
+    public TokenBudget(long limit, UserTokenAccount account, TokenBudgetProperties properties) {
+        this(limit, account, properties, null, 1, null);
+    }
+
+    private TokenBudget(long limit, UserTokenAccount account, TokenBudgetProperties properties,
+                        TokenBudget parent, int shares, String platform) {
+        this.limit = limit;
+        this.account = account;
+        this.properties = properties;
+        this.parent = parent;
+        this.shares = Math.max(1, shares);
+        this.platform = platform;
+    }
+
+    public static TokenBudget unlimited() {
+        return new TokenBudget(Long.MAX_VALUE, null, new TokenBudgetProperties());
+    }
+
+    /**
+     * A budget for one of {@code shares} variants run for {@code platform}, charged an
+     * equal part of everything spent under this one.
+     */
+    public TokenBudget share(String platform, int shares) {
+        return new TokenBudget(limit, account, properties, this, shares, platform);
+    }
+
+    public void record(long input, long output) {
+        inputTokens.addAndGet(input);
+        outputTokens.addAndGet(output);
+        for (TokenBudget budget = this; budget != null; budget = budget.parent) {
+            budget.inputTokensWithShares.addAndGet(input);
+            budget.outputTokensWithShares.addAndGet(output);
+        }
+        if (account != null) {
+            account.charge(input + output);
+        }
+    }
+
+    /** Tokens spent, including this budget's part of its parent's. */
+    public TokenTotals totals() {
+        TokenTotals own = new TokenTotals(inputTokens.get(), outputTokens.get());
+        if (parent == null) {
+            return own;
+        }
+        TokenTotals shared = parent.totals();
+        return own.plus(new TokenTotals(shared.inputTokens() / shares, shared.outputTokens() / shares));
+    }
+
+    /**
+     * Tokens spent under this budget and every share of it - what the whole run cost, for
+     * callers that hold the job's budget rather than the one the graph charged.
+     */
+    public TokenTotals totalsWithShares() {
+        return new TokenTotals(inputTokensWithShares.get(), outputTokensWithShares.get());
+    }
+
+    public boolean isLimited() {
+        return limit != Long.MAX_VALUE || account != null;
+    }
+
+    public long remaining() {
+        if (!isLimited()) {
+            return Long.MAX_VALUE;
+        }
+        long left = limit == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(0, limit - totals().totalTokens());
+        return account != null ? Math.min(left, account.remaining()) : left;
+    }
+
+    /** The most tokens the search context of a research prompt may take. */
+    public long searchContextTokens() {
+        return isLimited() ? (long) (remaining() * properties.getSearchContextShare()) : Long.MAX_VALUE;
+    }
+
+    /** The platform tag for spending under this budget; research shared by a fan-out is {@code shared}. */
+    public String platform() {
+        return platform != null ? platform : "shared";
+    }
+
+    public TokenBudgetProperties properties() {
+        return properties;
+    }
+}
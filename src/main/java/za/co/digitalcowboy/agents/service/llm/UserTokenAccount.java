@@ -0,0 +1,41 @@
+package za.co.digitalcowboy.agents.service.llm;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Tokens one user has spent today (UTC) against {@code generation.tokens.user-daily-budget}.
+ * The count starts again at zero on the first charge or check of a new day.
+ */
+public class UserTokenAccount {
+
+    private final long dailyBudget;
+    private LocalDate day = today();
+    private long spent;
+
+    public UserTokenAccount(long dailyBudget) {
+        this.dailyBudget = dailyBudget;
+    }
+
+    public synchronized void charge(long tokens) {
+        rollOver();
+        spent += tokens;
+    }
+
+    public synchronized long remaining() {
+        rollOver();
+        return Math.max(0, dailyBudget - spent);
+    }
+
+    private void rollOver() {
+        LocalDate now = today();
+        if (!now.equals(day)) {
+            day = now;
+            spent = 0;
+        }
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,170 @@
+package za.co.digitalcowboy.agents.service.research;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.ResearchCacheProperties;
+import za.co.digitalcowboy.agents.domain.ResearchPoints;
+import za.co.digitalcowboy.agents.service.cache.ManagedCache;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Research results reused across topics that mean the same thing, such as "AI in healthcare"
+ * and "healthcare AI trends". Topics are embedded in process, with no network call, and the
+ * nearest earlier topic in a {@link TopicVectorIndex} is looked up. If it is at least
+ * {@code research.cache.similarity-threshold} similar and its research is younger than
+ * {@code fresh-for}, that research is returned.
+ *
+ * <p>Results live in a Caffeine cache keyed by topic, which handles expiry and size; the
+ * index follows its removals, so evicting a topic through the cache admin endpoint also
+ * stops it from matching.
+ */
+@Component
+public class SemanticResearchCache implements ManagedCache {
+    
+    private static final Logger log = LoggerFactory.getLogger(SemanticResearchCache.class);
+    
+    public static final String CACHE_NAME = "research";
+    
+    private final ResearchCacheProperties properties;
+    private final EmbeddingModel embeddingModel;
+    private final TopicVectorIndex index = new TopicVectorIndex();
+    private final Cache<String, ResearchPoints> results;
+    
+    private final Counter hits;
+    private final Counter misses;
+    private final DistributionSummary similarity;
+    private final Timer lookupTimer;
+    
+    public SemanticResearchCache(ResearchCacheProperties properties,
+                                 @Lazy @Qualifier("topicEmbeddingModel") EmbeddingModel embeddingModel,
+                                 MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.embeddingModel = embeddingModel;
+        this.results = Caffeine.newBuilder()
+            .maximumSize(properties.getMaxTopics())
+            .expireAfterWrite(properties.getFreshFor())
+            .executor(Runnable::run)
+            .removalListener((String topic, ResearchPoints research, RemovalCause cause) -> {
+                if (cause != RemovalCause.REPLACED) {
+                    index.remove(topic);
+                }
+            })
+            .recordStats()
+            .build();
+        
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.similarity = DistributionSummary.builder("research.cache.similarity")
+            .description("Similarity of each looked-up topic to its nearest cached topic")
+            .publishPercentiles(0.5, 0.9)
+            .register(meterRegistry);
+        this.lookupTimer = Timer.builder("research.cache.lookup.duration")
+            .description("Time to embed a topic and find its nearest cached topic")
+            .register(meterRegistry);
+        Gauge.builder("research.cache.topics", index, TopicVectorIndex::size)
+            .description("Topics in the semantic research cache")
+            .register(meterRegistry);
+    }
+    
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+    
+    /** Fresh research for a topic with the same meaning, or {@code null} if there is none. */
+    public ResearchPoints get(String topic) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String key = normalize(topic);
+        ResearchPoints research = results.getIfPresent(key);
+        if (research == null) {
+            research = lookupSimilar(key);
+        }
+        (research != null ? hits : misses).increment();
+        return research;
+    }
+    
+    /** Keeps successful research for later topics; placeholders and empty results are skipped. */
+    public void put(String topic, ResearchPoints research) {
+        if (!isEnabled() || research == null || research.points().isEmpty() || research.isUnavailable()) {
+            return;
+        }
+        String key = normalize(topic);
+        try {
+            index.put(key, embed(key));
+            results.put(key, research);
+        } catch (Exception e) {
+            log.warn("Failed to cache research for topic: {}", topic, e);
+        }
+    }
+    
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+    
+    @Override
+    public Cache<String, ResearchPoints> nativeCache() {
+        return results;
+    }
+    
+    /** Drops expired topics from the index, which would otherwise wait for the next cache write. */
+    @Scheduled(fixedRateString = "${research.cache.cleanup-interval-ms:300000}")
+    public void cleanUp() {
+        results.cleanUp();
+    }
+    
+    private ResearchPoints lookupSimilar(String key) {
+        long start = System.nanoTime();
+        try {
+            TopicVectorIndex.Match match = index.nearest(embed(key));
+            if (match == null) {
+                return null;
+            }
+            similarity.record(match.score());
+            if (match.score() < properties.getSimilarityThreshold()) {
+                return null;
+            }
+            ResearchPoints research = results.getIfPresent(match.topic());
+            if (research != null) {
+                log.debug("Reusing research for '{}' as '{}' (similarity {})", match.topic(), key, match.score());
+            }
+            return research;
+        } catch (Exception e) {
+            log.warn("Semantic research cache lookup failed for topic: {}", key, e);
+            return null;
+        } finally {
+            lookupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    private float[] embed(String text) {
+        return embeddingModel.embed(text).content().vector();
+    }
+    
+    private static String normalize(String topic) {
+        return topic.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("research.cache.requests")
+            .description("Research steps looked up in the semantic research cache")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,150 @@
+package za.co.digitalcowboy.agents.service.research;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Exact nearest-neighbour search over topic vectors by cosine similarity. Vectors are
+ * normalized and quantized to signed bytes in one contiguous array, so a lookup is a single
+ * sequential pass of integer dot products over a quarter of the memory floats would take.
+ * Quantizing shifts scores by about 0.01, well below the gap between topics that mean the
+ * same and topics that are merely related. Removal moves the last vector into the freed slot
+ * to keep the array dense.
+ */
+public class TopicVectorIndex {
+    
+    public record Match(String topic, double score) {}
+    
+    private static final float SCALE = 127f;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int dimension;
+    private byte[] vectors = new byte[0];
+    private String[] topics = new String[0];
+    private int size;
+    
+    /** Adds or replaces the vector of {@code topic}. */
+    public void put(String topic, float[] vector) {
+        float[] unit = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            if (dimension == 0) {
+                dimension = unit.length;
+            } else if (unit.length != dimension) {
+                throw new IllegalArgumentException("Expected " + dimension + " dimensions, got " + unit.length);
+            }
+            Integer slot = slots.get(topic);
+            if (slot == null) {
+                ensureCapacity(size + 1);
+                slot = size++;
+                slots.put(topic, slot);
+                topics[slot] = topic;
+            }
+            System.arraycopy(quantize(unit), 0, vectors, slot * dimension, dimension);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public boolean remove(String topic) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(topic);
+            if (slot == null) {
+                return false;
+            }
+            int last = --size;
+            if (slot != last) {
+                System.arraycopy(vectors, last * dimension, vectors, slot * dimension, dimension);
+                topics[slot] = topics[last];
+                slots.put(topics[slot], slot);
+            }
+            topics[last] = null;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /** The most similar topic, or {@code null} if the index is empty. */
+    public Match nearest(float[] vector) {
+        float[] unit = normalize(vector);
+        lock.readLock().lock();
+        try {
+            if (size == 0 || unit.length != dimension) {
+                return null;
+            }
+            byte[] query = quantize(unit);
+            int best = -1;
+            int bestDot = Integer.MIN_VALUE;
+            for (int slot = 0, offset = 0; slot < size; slot++, offset += dimension) {
+                int dot = dot(query, vectors, offset, dimension);
+                if (dot > bestDot) {
+                    bestDot = dot;
+                    best = slot;
+                }
+            }
+            return new Match(topics[best], bestDot / (double) (SCALE * SCALE));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Integer sums can be reordered freely; a float reduction has to be kept in order
+    private static int dot(byte[] query, byte[] vectors, int offset, int dimension) {
+        int sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * vectors[offset + i];
+        }
+        return sum;
+    }
+    
+    private void ensureCapacity(int needed) {
+        if (needed <= topics.length) {
+            return;
+        }
+        int capacity = Math.max(16, Math.max(needed, topics.length + (topics.length >> 1)));
+        byte[] grownVectors = new byte[capacity * dimension];
+        System.arraycopy(vectors, 0, grownVectors, 0, size * dimension);
+        vectors = grownVectors;
+        String[] grownTopics = new String[capacity];
+        System.arraycopy(topics, 0, grownTopics, 0, size);
+        topics = grownTopics;
+    }
+    
+    private static byte[] quantize(float[] unit) {
+        byte[] quantized = new byte[unit.length];
+        for (int i = 0; i < unit.length; i++) {
+            quantized[i] = (byte) Math.round(unit[i] * SCALE);
+        }
+        return quantized;
+    }
+    
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector.clone();
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] unit = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+}
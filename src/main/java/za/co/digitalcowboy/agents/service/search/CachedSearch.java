@@ -0,0 +1,16 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * A search response and when it was fetched from the provider.
+ */
+public record CachedSearch(WebSearchResponse response, LocalDateTime fetchedAt) {
+    
+    public boolean isOlderThan(Duration age, LocalDateTime now) {
+        return fetchedAt.plus(age).isBefore(now);
+    }
+}
@@ -0,0 +1,175 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.tools.CallContext;
+import za.co.digitalcowboy.agents.tools.CallDeadline;
+import za.co.digitalcowboy.agents.tools.DeadlineExceededException;
+import za.co.digitalcowboy.agents.tools.SearchQuotaExceededException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Combines several backends and answers with the first response that has results.
+ *
+ * <p>In {@link Mode#RACE} every backend is asked at once. In {@link Mode#FAILOVER} they are
+ * asked in order: the next backend starts when the previous one fails, finds nothing, or
+ * has not answered within {@code failoverAfter}, and a slow backend that answers first
+ * still wins. A losing backend's call is left to finish in the background.
+ *
+ * <p>If no backend finds anything a failure wins over an empty response, so quota
+ * exhaustion and errors still reach the caller's fallback: a
+ * {@link SearchQuotaExceededException} if any backend ran out of quota, otherwise the
+ * first failure. The result is empty only when every backend answered.
+ */
+public class CompositeSearchProvider implements SearchProvider {
+    
+    private static final Logger log = LoggerFactory.getLogger(CompositeSearchProvider.class);
+    
+    public enum Mode {
+        RACE,
+        FAILOVER
+    }
+    
+    private final List<SearchProvider> backends;
+    private final Mode mode;
+    private final Duration failoverAfter;
+    private final Executor executor;
+    
+    public CompositeSearchProvider(List<SearchProvider> backends, Mode mode, Duration failoverAfter, Executor executor) {
+        this.backends = List.copyOf(backends);
+        this.mode = mode;
+        this.failoverAfter = failoverAfter;
+        this.executor = executor;
+    }
+    
+    @Override
+    public String name() {
+        return "composite";
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return backends.stream().anyMatch(SearchProvider::isEnabled);
+    }
+    
+    @Override
+    public WebSearchResponse search(String query) {
+        List<SearchProvider> enabled = backends.stream().filter(SearchProvider::isEnabled).toList();
+        if (enabled.isEmpty()) {
+            return WebSearchResponse.empty(query);
+        }
+        if (enabled.size() == 1) {
+            return enabled.get(0).search(query);
+        }
+        
+        Attempt attempt = new Attempt(query, enabled);
+        if (mode == Mode.RACE) {
+            for (int i = 0; i < enabled.size(); i++) {
+                attempt.launch(i);
+            }
+        } else {
+            attempt.launch(0);
+        }
+        return attempt.await();
+    }
+    
+    private class Attempt {
+        
+        private final String query;
+        private final List<SearchProvider> backends;
+        private final CompletableFuture<WebSearchResponse> winner = new CompletableFuture<>();
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger finished = new AtomicInteger();
+        private final AtomicReference<WebSearchResponse> firstEmpty = new AtomicReference<>();
+        private final AtomicReference<RuntimeException> firstFailure = new AtomicReference<>();
+        
+        Attempt(String query, List<SearchProvider> backends) {
+            this.query = query;
+            this.backends = backends;
+        }
+        
+        /** Starts backend {@code i} unless it has already been started. */
+        void launch(int i) {
+            if (i >= backends.size() || winner.isDone() || !started.compareAndSet(i, i + 1)) {
+                return;
+            }
+            SearchProvider backend = backends.get(i);
+            CompletableFuture.supplyAsync(CallContext.propagate(() -> backend.search(query)), executor)
+                .whenComplete((response, error) -> completed(i, backend, response, error));
+            if (mode == Mode.FAILOVER && i + 1 < backends.size()) {
+                CompletableFuture.delayedExecutor(failoverAfter.toMillis(), TimeUnit.MILLISECONDS)
+                    .execute(() -> {
+                        if (!winner.isDone() && started.get() == i + 1) {
+                            log.debug("Search backend {} is slow, also asking {}", backend.name(), backends.get(i + 1).name());
+                            launch(i + 1);
+                        }
+                    });
+            }
+        }
+        
+        private void completed(int i, SearchProvider backend, WebSearchResponse response, Throwable error) {
+            if (error == null && response == null) {
+                response = WebSearchResponse.empty(query);
+            }
+            if (error == null && !response.results().isEmpty()) {
+                winner.complete(response);
+                return;
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                log.warn("Search backend {} failed for query {}: {}", backend.name(), query, cause.getMessage());
+                RuntimeException failure = cause instanceof RuntimeException runtime
+                    ? runtime : new IllegalStateException(cause);
+                firstFailure.accumulateAndGet(failure, (first, next) ->
+                    first == null || (next instanceof SearchQuotaExceededException
+                        && !(first instanceof SearchQuotaExceededException)) ? next : first);
+            } else {
+                firstEmpty.compareAndSet(null, response);
+            }
+            
+            if (mode == Mode.FAILOVER) {
+                launch(i + 1);
+            }
+            if (finished.incrementAndGet() == backends.size()) {
+                if (firstFailure.get() != null) {
+                    winner.completeExceptionally(firstFailure.get());
+                } else {
+                    winner.complete(firstEmpty.get());
+                }
+            }
+        }
+        
+        WebSearchResponse await() {
+            try {
+                Instant deadline = CallDeadline.current();
+                if (deadline == null) {
+                    return winner.get();
+                }
+                return winner.get(Math.max(0, Duration.between(Instant.now(), deadline).toMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new DeadlineExceededException("Deadline passed waiting for search backends");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for search backends", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import za.co.digitalcowboy.agents.domain.SearchResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable index segment on disk. The term dictionary, postings and fetch times are
+ * loaded into memory when the segment is opened; the results themselves stay on disk and
+ * are read only for the few that a search returns.
+ *
+ * <p>File layout: a header, then each result as a length-prefixed record, then the sorted
+ * term dictionary with each term's postings.
+ */
+final class DiskSegment implements IndexSegment, Closeable {
+    
+    private static final int MAGIC = 0x53524958; // "SRIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int MAX_FIELD_CHARS = 8192;
+    private static final int[] NONE = new int[0];
+    
+    private final Path path;
+    private final long generation;
+    private final String[] terms;
+    private final int[][] postings;
+    private final long[] offsets;
+    private final long[] fetchedAt;
+    private final FileChannel channel;
+    
+    private DiskSegment(Path path, long generation, String[] terms, int[][] postings, long[] offsets,
+                        long[] fetchedAt, FileChannel channel) {
+        this.path = path;
+        this.generation = generation;
+        this.terms = terms;
+        this.postings = postings;
+        this.offsets = offsets;
+        this.fetchedAt = fetchedAt;
+        this.channel = channel;
+    }
+    
+    static DiskSegment open(Path path, long generation) throws IOException {
+        String[] terms;
+        int[][] postings;
+        long[] offsets;
+        long[] fetchedAt;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a search index segment: " + path);
+            }
+            int resultCount = in.readInt();
+            int termCount = in.readInt();
+            
+            offsets = new long[resultCount];
+            fetchedAt = new long[resultCount];
+            long position = HEADER_BYTES;
+            for (int i = 0; i < resultCount; i++) {
+                int length = in.readInt();
+                offsets[i] = position;
+                fetchedAt[i] = in.readLong();
+                in.skipNBytes(length - Long.BYTES);
+                position += Integer.BYTES + length;
+            }
+            
+            terms = new String[termCount];
+            postings = new int[termCount][];
+            for (int t = 0; t < termCount; t++) {
+                terms[t] = in.readUTF();
+                int[] list = new int[in.readInt()];
+                for (int i = 0; i < list.length; i++) {
+                    list[i] = in.readInt();
+                }
+                postings[t] = list;
+            }
+        }
+        return new DiskSegment(path, generation, terms, postings, offsets, fetchedAt,
+            FileChannel.open(path, StandardOpenOption.READ));
+    }
+    
+    long generation() {
+        return generation;
+    }
+    
+    Path path() {
+        return path;
+    }
+    
+    long oldestFetchedAtMillis() {
+        return Arrays.stream(fetchedAt).min().orElse(Long.MAX_VALUE);
+    }
+    
+    @Override
+    public int size() {
+        return offsets.length;
+    }
+    
+    @Override
+    public int[] postings(String term) {
+        int index = Arrays.binarySearch(terms, term);
+        return index >= 0 ? postings[index] : NONE;
+    }
+    
+    @Override
+    public long fetchedAtMillis(int result) {
+        return fetchedAt[result];
+    }
+    
+    @Override
+    public IndexedResult result(int result) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(length, offsets[result]);
+        ByteBuffer record = ByteBuffer.allocate(length.flip().getInt());
+        readFully(record, offsets[result] + Integer.BYTES);
+        
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array()))) {
+            Instant fetched = Instant.ofEpochMilli(in.readLong());
+            SearchResult searchResult = new SearchResult(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                in.readUTF(), in.readInt());
+            return new IndexedResult(searchResult, fetched);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated search index segment: " + path);
+            }
+        }
+    }
+    
+    /**
+     * Writes a segment one result at a time, so merging segments never holds their results
+     * in memory. The file only appears at its final path once complete.
+     */
+    static final class Writer implements Closeable {
+        
+        private final Path path;
+        private final long generation;
+        private final Path temp;
+        private final DataOutputStream out;
+        private final Map<String, IntList> postings = new TreeMap<>();
+        private int count;
+        
+        Writer(Path path, long generation) throws IOException {
+            this.path = path;
+            this.generation = generation;
+            this.temp = path.resolveSibling(path.getFileName() + ".tmp");
+            // Counts are patched into the header once known
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0);
+            out.writeInt(0);
+        }
+        
+        void add(IndexedResult indexed) throws IOException {
+            SearchResult result = indexed.result();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream record = new DataOutputStream(bytes);
+            record.writeLong(indexed.fetchedAt().toEpochMilli());
+            record.writeUTF(truncate(result.title()));
+            record.writeUTF(truncate(result.snippet()));
+            record.writeUTF(truncate(result.link()));
+            record.writeUTF(truncate(result.displayLink()));
+            record.writeUTF(truncate(result.date()));
+            record.writeInt(result.position() != null ? result.position() : 0);
+            
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            for (String term : indexed.terms()) {
+                postings.computeIfAbsent(term, t -> new IntList()).add(count);
+            }
+            count++;
+        }
+        
+        int count() {
+            return count;
+        }
+        
+        DiskSegment finish() throws IOException {
+            for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+                out.writeUTF(entry.getKey());
+                IntList list = entry.getValue();
+                out.writeInt(list.size);
+                for (int i = 0; i < list.size; i++) {
+                    out.writeInt(list.values[i]);
+                }
+            }
+            out.close();
+            
+            try (FileChannel header = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer counts = ByteBuffer.allocate(2 * Integer.BYTES).putInt(count).putInt(postings.size()).flip();
+                header.write(counts, 2L * Integer.BYTES);
+                header.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return open(path, generation);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            out.close();
+            Files.deleteIfExists(temp);
+        }
+        
+        private static String truncate(String value) {
+            return value.length() > MAX_FIELD_CHARS ? value.substring(0, MAX_FIELD_CHARS) : value;
+        }
+    }
+    
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+        
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
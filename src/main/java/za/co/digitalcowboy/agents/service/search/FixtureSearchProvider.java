@@ -0,0 +1,96 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.SearchProviderProperties;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.tools.CallDeadline;
+import za.co.digitalcowboy.agents.tools.SearchQueryCanonicalizer;
+import za.co.digitalcowboy.agents.tools.SerpApiResponseParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Serves recorded SerpAPI responses from {@code search.provider.fixture-path}, so the whole
+ * research path can be run and load-tested without network access or quota. A query is
+ * answered from the file named after its {@link SearchQueryCanonicalizer canonical} form,
+ * for example {@code ai-trends.json}, or from {@code default.json} when there is none.
+ * Fixtures can be recorded from live traffic with {@code search.provider.record-fixtures}.
+ */
+@Component
+public class FixtureSearchProvider implements SearchProvider {
+    
+    private static final Logger log = LoggerFactory.getLogger(FixtureSearchProvider.class);
+    
+    static final String DEFAULT_FIXTURE = "default.json";
+    
+    private final Path directory;
+    private final Duration latency;
+    private final int maxResults;
+    
+    public FixtureSearchProvider(SearchProviderProperties properties,
+                                 @Value("${serpapi.max-results:5}") int maxResults) {
+        this.directory = Paths.get(properties.getFixturePath());
+        this.latency = properties.getFixtureLatency();
+        this.maxResults = maxResults;
+    }
+    
+    /** The fixture file a query is recorded to and served from. */
+    public static String fileName(String query) {
+        String canonical = SearchQueryCanonicalizer.canonicalize(query).replace(' ', '-');
+        String safe = canonical.replaceAll("[^a-z0-9-]", "_");
+        if (safe.isEmpty()) {
+            safe = "_";
+        }
+        return (safe.length() > 200 ? safe.substring(0, 200) : safe) + ".json";
+    }
+    
+    @Override
+    public String name() {
+        return "fixture";
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return Files.isDirectory(directory);
+    }
+    
+    @Override
+    public WebSearchResponse search(String query) {
+        simulateLatency();
+        
+        Path fixture = directory.resolve(fileName(query));
+        if (!Files.isRegularFile(fixture)) {
+            fixture = directory.resolve(DEFAULT_FIXTURE);
+            if (!Files.isRegularFile(fixture)) {
+                log.debug("No search fixture for query: {}", query);
+                return WebSearchResponse.empty(query);
+            }
+        }
+        try (Reader reader = Files.newBufferedReader(fixture, StandardCharsets.UTF_8)) {
+            return SerpApiResponseParser.parse(query, reader, maxResults);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read search fixture " + fixture, e);
+        }
+    }
+    
+    private void simulateLatency() {
+        if (latency.isZero() || latency.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(CallDeadline.cap(latency).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import java.io.IOException;
+
+/**
+ * One part of the local search index. Results are numbered from zero in the order they were
+ * added, and each term maps to the ascending numbers of the results that contain it.
+ */
+interface IndexSegment {
+    
+    int size();
+    
+    /** The results containing {@code term}, in ascending order; empty if there are none. */
+    int[] postings(String term);
+    
+    long fetchedAtMillis(int result);
+    
+    IndexedResult result(int result) throws IOException;
+}
@@ -0,0 +1,28 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.tools.SearchQueryCanonicalizer;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A search result held in the local index, with the time it was fetched from the provider.
+ */
+record IndexedResult(SearchResult result, Instant fetchedAt) {
+    
+    // Words every link shares, which would only make each link match every other
+    private static final Set<String> LINK_NOISE = Set.of("http", "https", "www", "com", "org", "net", "html", "htm", "php");
+    
+    /** The distinct words the result is found by, across title, snippet, link and date. */
+    Set<String> terms() {
+        Set<String> terms = new LinkedHashSet<>(SearchQueryCanonicalizer.tokens(result.title()));
+        terms.addAll(SearchQueryCanonicalizer.tokens(result.snippet()));
+        SearchQueryCanonicalizer.tokens(result.link()).stream()
+            .filter(token -> !LINK_NOISE.contains(token))
+            .forEach(terms::add);
+        terms.addAll(SearchQueryCanonicalizer.tokens(result.date()));
+        return terms;
+    }
+}
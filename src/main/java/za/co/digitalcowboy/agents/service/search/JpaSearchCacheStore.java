@@ -0,0 +1,108 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.domain.SearchCacheEntity;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.repository.SearchCacheRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * MySQL-backed tier of the search cache. Used when {@code search.cache.store=jpa}.
+ */
+@Component
+@ConditionalOnProperty(name = "search.cache.store", havingValue = "jpa")
+public class JpaSearchCacheStore implements SearchCacheStore {
+    
+    private final SearchCacheRepository repository;
+    private final ObjectMapper objectMapper;
+    
+    public JpaSearchCacheStore(SearchCacheRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+    }
+    
+    @Override
+    public CachedSearch find(String query) {
+        return repository.findById(hash(query))
+            // Guard against the (practically impossible) hash collision
+            .filter(entity -> entity.getQuery().equals(query))
+            .map(this::toCachedSearch)
+            .orElse(null);
+    }
+    
+    @Override
+    public void save(String query, CachedSearch search) {
+        SearchCacheEntity entity = repository.findById(hash(query)).orElseGet(() -> new SearchCacheEntity(hash(query)));
+        try {
+            entity.setQuery(query);
+            entity.setResponseJsonGz(compress(objectMapper.writeValueAsBytes(search.response())));
+            entity.setFetchedAt(search.fetchedAt());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize search response for " + query, e);
+        }
+        repository.save(entity);
+    }
+    
+    @Override
+    public boolean delete(String query) {
+        return repository.deleteByQueryHash(hash(query)) > 0;
+    }
+    
+    @Override
+    public int deleteAll() {
+        return repository.deleteAllEntries();
+    }
+    
+    @Override
+    public int deleteFetchedBefore(LocalDateTime cutoff) {
+        return repository.deleteByFetchedAtBefore(cutoff);
+    }
+    
+    private CachedSearch toCachedSearch(SearchCacheEntity entity) {
+        try {
+            WebSearchResponse response = objectMapper.readValue(decompress(entity.getResponseJsonGz()), WebSearchResponse.class);
+            return new CachedSearch(response, entity.getFetchedAt());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to deserialize search response for " + entity.getQuery(), e);
+        }
+    }
+    
+    static String hash(String query) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(query.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static byte[] compress(byte[] json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return gzip.readAllBytes();
+        }
+    }
+}
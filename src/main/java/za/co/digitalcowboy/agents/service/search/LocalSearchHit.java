@@ -0,0 +1,12 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import za.co.digitalcowboy.agents.domain.SearchResult;
+
+import java.time.Instant;
+
+/**
+ * A result found in the local index. {@code coverage} is the share of the query's weighted
+ * terms it contains; {@code score} is that coverage discounted by the result's age.
+ */
+public record LocalSearchHit(SearchResult result, Instant fetchedAt, double coverage, double score) {
+}
@@ -0,0 +1,490 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.SearchIndexProperties;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.tools.SearchQueryCanonicalizer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text index of every search result fetched from the provider, so that recurring
+ * topics can be researched from results already paid for.
+ *
+ * <p>New results go into an in-memory segment that is written out as an immutable segment
+ * file once it reaches {@code search.index.flush-size}, or on the next scheduled flush.
+ * Results not yet flushed are lost on a crash, which only costs recall. Compaction merges the
+ * segments into one, keeping only the newest copy of each link and dropping results past
+ * {@code retention}, so the number of segments a search visits stays small.
+ *
+ * <p>Results are scored by the idf-weighted share of the query's terms they contain,
+ * discounted by age with a half-life of {@code freshness-half-life}.
+ */
+@Component
+public class LocalSearchIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(LocalSearchIndex.class);
+    
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.idx");
+    
+    // Terms in more results than this only re-score candidates found through rarer terms
+    private static final int MAX_CANDIDATES_PER_TERM = 50_000;
+    
+    private final SearchIndexProperties properties;
+    private final Executor backgroundExecutor;
+    private final Path directory;
+    
+    private volatile MemorySegment live = new MemorySegment();
+    private volatile MemorySegment flushing;
+    // Newest first
+    private volatile List<DiskSegment> segments = List.of();
+    private final List<DiskSegment> retired = new ArrayList<>();
+    private final AtomicLong nextGeneration = new AtomicLong(1);
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final Object writeLock = new Object();
+    
+    private final Counter answered;
+    private final Counter insufficient;
+    private final Counter fallbacks;
+    private final Timer compactionTimer;
+    
+    public LocalSearchIndex(SearchIndexProperties properties,
+                            @Qualifier("cacheRefreshExecutor") Executor backgroundExecutor,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.backgroundExecutor = backgroundExecutor;
+        this.directory = Paths.get(properties.getPath());
+        
+        this.answered = lookups(meterRegistry, "answered");
+        this.insufficient = lookups(meterRegistry, "insufficient");
+        this.fallbacks = lookups(meterRegistry, "fallback");
+        this.compactionTimer = Timer.builder("search.index.compaction.duration")
+            .description("Time taken to merge the local search index segments")
+            .register(meterRegistry);
+        Gauge.builder("search.index.results", this, LocalSearchIndex::size)
+            .description("Search results held in the local index, including superseded copies")
+            .register(meterRegistry);
+        Gauge.builder("search.index.segments", this, index -> index.segments.size())
+            .description("Segment files a local index search visits")
+            .register(meterRegistry);
+        
+        if (properties.isEnabled()) {
+            load();
+        }
+    }
+    
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+    
+    /** Indexes the results of a response fetched from the provider. */
+    public void add(WebSearchResponse response) {
+        if (!isEnabled() || response.results().isEmpty()) {
+            return;
+        }
+        Instant fetchedAt = Instant.now();
+        for (SearchResult result : response.results()) {
+            IndexedResult indexed = new IndexedResult(result, fetchedAt);
+            // A sealed segment is being flushed; its replacement is already in place
+            while (!live.add(indexed)) {
+                Thread.onSpinWait();
+            }
+        }
+        
+        if (live.size() >= properties.getFlushSize() && flushQueued.compareAndSet(false, true)) {
+            try {
+                backgroundExecutor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushQueued.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Answers a search from local results when at least {@code min-results} of them match
+     * the query well enough and are younger than {@code answer-max-age}; otherwise returns
+     * {@code null} and the caller should ask the provider. The answer carries the fetch time
+     * of its oldest result, so caching it does not make those results look new.
+     */
+    public CachedSearch answer(String query) {
+        if (!isEnabled()) {
+            return null;
+        }
+        long started = System.nanoTime();
+        Instant oldest = Instant.now().minus(properties.getAnswerMaxAge());
+        List<LocalSearchHit> hits = search(query, properties.getMaxResults()).stream()
+            .filter(hit -> hit.coverage() >= properties.getMinCoverage())
+            .filter(hit -> hit.fetchedAt().isAfter(oldest))
+            .toList();
+        
+        if (hits.size() < properties.getMinResults()) {
+            insufficient.increment();
+            log.debug("Local index has {} good results for query: {}", hits.size(), query);
+            return null;
+        }
+        answered.increment();
+        log.debug("Answered query from the local index: {}", query);
+        Instant fetchedAt = hits.stream().map(LocalSearchHit::fetchedAt).min(Comparator.naturalOrder()).orElseThrow();
+        return new CachedSearch(toResponse(query, hits, started), LocalDateTime.ofInstant(fetchedAt, ZoneId.systemDefault()));
+    }
+    
+    /**
+     * Answers from whatever local results match the query well enough, however old and
+     * however few, for when the provider cannot be asked. Returns {@code null} if none do.
+     */
+    public WebSearchResponse bestEffort(String query) {
+        if (!isEnabled()) {
+            return null;
+        }
+        long started = System.nanoTime();
+        List<LocalSearchHit> hits = search(query, properties.getMaxResults()).stream()
+            .filter(hit -> hit.coverage() >= properties.getMinCoverage())
+            .toList();
+        if (hits.isEmpty()) {
+            return null;
+        }
+        fallbacks.increment();
+        return toResponse(query, hits, started);
+    }
+    
+    private static WebSearchResponse toResponse(String query, List<LocalSearchHit> hits, long started) {
+        List<SearchResult> results = new ArrayList<>(hits.size());
+        for (LocalSearchHit hit : hits) {
+            SearchResult result = hit.result();
+            results.add(new SearchResult(result.title(), result.snippet(), result.link(), result.displayLink(),
+                result.date(), results.size() + 1));
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        return new WebSearchResponse(query, results, Map.of(), (long) results.size(), seconds);
+    }
+    
+    /** The best {@code limit} results for the query, one per link, highest score first. */
+    public List<LocalSearchHit> search(String query, int limit) {
+        List<String> terms = List.copyOf(new LinkedHashSet<>(SearchQueryCanonicalizer.tokens(query)));
+        List<IndexSegment> snapshot = snapshot();
+        if (terms.isEmpty() || snapshot.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        
+        int[][][] postings = new int[snapshot.size()][terms.size()][];
+        long total = 0;
+        long[] documentFrequency = new long[terms.size()];
+        for (int s = 0; s < snapshot.size(); s++) {
+            IndexSegment segment = snapshot.get(s);
+            total += segment.size();
+            for (int t = 0; t < terms.size(); t++) {
+                postings[s][t] = segment.postings(terms.get(t));
+                documentFrequency[t] += postings[s][t].length;
+            }
+        }
+        
+        double[] idf = new double[terms.size()];
+        double totalIdf = 0;
+        for (int t = 0; t < terms.size(); t++) {
+            idf[t] = Math.log(1 + (total - documentFrequency[t] + 0.5) / (documentFrequency[t] + 0.5));
+            totalIdf += idf[t];
+        }
+        if (totalIdf == 0) {
+            return List.of();
+        }
+        
+        // Candidates come from the selective terms; common terms only add to their scores
+        Integer[] byFrequency = new Integer[terms.size()];
+        Arrays.setAll(byFrequency, t -> t);
+        Arrays.sort(byFrequency, Comparator.comparingLong(t -> documentFrequency[t]));
+        boolean[] selective = new boolean[terms.size()];
+        for (int i = 0; i < byFrequency.length; i++) {
+            int t = byFrequency[i];
+            selective[t] = i == 0 || documentFrequency[t] <= MAX_CANDIDATES_PER_TERM;
+        }
+        
+        long now = System.currentTimeMillis();
+        double halfLifeMillis = Math.max(1, properties.getFreshnessHalfLife().toMillis());
+        int keep = limit * 4;
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+        for (int s = 0; s < snapshot.size(); s++) {
+            Map<Integer, Double> weights = new HashMap<>();
+            for (int t = 0; t < terms.size(); t++) {
+                if (selective[t]) {
+                    for (int result : postings[s][t]) {
+                        weights.merge(result, idf[t], Double::sum);
+                    }
+                }
+            }
+            for (int t = 0; t < terms.size(); t++) {
+                if (!selective[t]) {
+                    for (Map.Entry<Integer, Double> entry : weights.entrySet()) {
+                        if (Arrays.binarySearch(postings[s][t], entry.getKey()) >= 0) {
+                            entry.setValue(entry.getValue() + idf[t]);
+                        }
+                    }
+                }
+            }
+            
+            IndexSegment segment = snapshot.get(s);
+            for (Map.Entry<Integer, Double> entry : weights.entrySet()) {
+                double coverage = entry.getValue() / totalIdf;
+                long age = Math.max(0, now - segment.fetchedAtMillis(entry.getKey()));
+                double score = coverage * Math.pow(0.5, age / halfLifeMillis);
+                if (best.size() < keep) {
+                    best.add(new Candidate(segment, entry.getKey(), coverage, score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new Candidate(segment, entry.getKey(), coverage, score));
+                }
+            }
+        }
+        
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        List<LocalSearchHit> hits = new ArrayList<>(limit);
+        Set<String> links = new HashSet<>();
+        for (Candidate candidate : ranked) {
+            if (hits.size() == limit) {
+                break;
+            }
+            try {
+                IndexedResult indexed = candidate.segment().result(candidate.result());
+                if (links.add(indexed.result().link())) {
+                    hits.add(new LocalSearchHit(indexed.result(), indexed.fetchedAt(), candidate.coverage(), candidate.score()));
+                }
+            } catch (IOException e) {
+                // The segment was merged away mid-search; its results live on in the merged one
+                log.debug("Skipping local result from a retired segment: {}", e.getMessage());
+            }
+        }
+        return hits;
+    }
+    
+    public long size() {
+        long size = live.size();
+        MemorySegment beingFlushed = flushing;
+        if (beingFlushed != null) {
+            size += beingFlushed.size();
+        }
+        for (DiskSegment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+    
+    public int getSegmentCount() {
+        return segments.size();
+    }
+    
+    /** Writes the in-memory results out as a new segment, merging segments if there are too many. */
+    @Scheduled(fixedDelayString = "${search.index.flush-interval-ms:60000}")
+    public void flush() {
+        if (!isEnabled()) {
+            return;
+        }
+        boolean compactNow;
+        synchronized (writeLock) {
+            flushQueued.set(false);
+            if (live.size() == 0) {
+                return;
+            }
+            MemorySegment full = live;
+            flushing = full;
+            live = new MemorySegment();
+            List<IndexedResult> results = full.seal();
+            
+            long generation = nextGeneration.getAndIncrement();
+            try (DiskSegment.Writer writer = new DiskSegment.Writer(segmentPath(generation), generation)) {
+                for (IndexedResult result : results) {
+                    writer.add(result);
+                }
+                DiskSegment segment = writer.finish();
+                List<DiskSegment> updated = new ArrayList<>(segments.size() + 1);
+                updated.add(segment);
+                updated.addAll(segments);
+                segments = List.copyOf(updated);
+                log.debug("Flushed {} search results to {}", results.size(), segment.path());
+            } catch (IOException e) {
+                log.error("Failed to write search index segment, {} results are dropped", results.size(), e);
+            } finally {
+                flushing = null;
+            }
+            compactNow = segments.size() > properties.getMaxSegments();
+        }
+        if (compactNow) {
+            compact();
+        }
+    }
+    
+    /**
+     * Merges every segment into one, keeping only the newest copy of each link and dropping
+     * results older than {@code retention}. Does nothing if there is a single segment with
+     * nothing to drop.
+     */
+    @Scheduled(fixedDelayString = "${search.index.compaction-interval-ms:3600000}")
+    public void compact() {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (writeLock) {
+            closeRetired();
+            List<DiskSegment> current = segments;
+            long cutoff = Instant.now().minus(properties.getRetention()).toEpochMilli();
+            boolean expired = current.stream().anyMatch(segment -> segment.oldestFetchedAtMillis() < cutoff);
+            if (current.size() < 2 && !expired) {
+                return;
+            }
+            
+            long started = System.nanoTime();
+            long generation = nextGeneration.getAndIncrement();
+            Set<String> seenLinks = new HashSet<>();
+            int read = 0;
+            try (DiskSegment.Writer writer = new DiskSegment.Writer(segmentPath(generation), generation)) {
+                // Newest segment and newest result first, so the first copy of a link is the one kept
+                for (DiskSegment segment : current) {
+                    for (int i = segment.size() - 1; i >= 0; i--) {
+                        read++;
+                        if (segment.fetchedAtMillis(i) < cutoff) {
+                            continue;
+                        }
+                        IndexedResult result = segment.result(i);
+                        if (seenLinks.add(result.result().link())) {
+                            writer.add(result);
+                        }
+                    }
+                }
+                
+                if (writer.count() == 0) {
+                    segments = List.of();
+                } else {
+                    segments = List.of(writer.finish());
+                }
+                log.info("Compacted {} search index segments: kept {} of {} results", current.size(), writer.count(), read);
+            } catch (IOException e) {
+                log.error("Search index compaction failed, keeping the existing segments", e);
+                return;
+            } finally {
+                compactionTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+            
+            // Searches may still be reading the old segments; close them at the next compaction
+            for (DiskSegment segment : current) {
+                retired.add(segment);
+                try {
+                    Files.deleteIfExists(segment.path());
+                } catch (IOException e) {
+                    log.warn("Failed to delete merged segment {}", segment.path(), e);
+                }
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        flush();
+        synchronized (writeLock) {
+            closeRetired();
+            for (DiskSegment segment : segments) {
+                retired.add(segment);
+            }
+            closeRetired();
+        }
+    }
+    
+    private List<IndexSegment> snapshot() {
+        List<DiskSegment> onDisk = segments;
+        List<IndexSegment> snapshot = new ArrayList<>(onDisk.size() + 2);
+        snapshot.add(live);
+        MemorySegment beingFlushed = flushing;
+        if (beingFlushed != null) {
+            snapshot.add(beingFlushed);
+        }
+        snapshot.addAll(onDisk);
+        return snapshot;
+    }
+    
+    private void load() {
+        try {
+            Files.createDirectories(directory);
+            List<DiskSegment> loaded = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*")) {
+                for (Path file : files) {
+                    Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                    if (!matcher.matches()) {
+                        // Left behind by a flush or compaction that did not finish
+                        Files.deleteIfExists(file);
+                        continue;
+                    }
+                    long generation = Long.parseLong(matcher.group(1));
+                    nextGeneration.accumulateAndGet(generation + 1, Math::max);
+                    try {
+                        loaded.add(DiskSegment.open(file, generation));
+                    } catch (IOException e) {
+                        log.error("Skipping unreadable search index segment {}", file, e);
+                    }
+                }
+            }
+            loaded.sort(Comparator.comparingLong(DiskSegment::generation).reversed());
+            segments = List.copyOf(loaded);
+            log.info("Loaded local search index from {}: {} segments, {} results", directory, segments.size(), size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open local search index at " + directory, e);
+        }
+    }
+    
+    private Path segmentPath(long generation) {
+        return directory.resolve(String.format("segment-%012d.idx", generation));
+    }
+    
+    private void closeRetired() {
+        for (DiskSegment segment : retired) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.debug("Failed to close retired segment {}", segment.path(), e);
+            }
+        }
+        retired.clear();
+    }
+    
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("search.index.lookups")
+            .description("Searches answered from the local index, sent on to the provider, or answered locally as a fallback")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+    
+    private record Candidate(IndexSegment segment, int result, double coverage, double score) {}
+}
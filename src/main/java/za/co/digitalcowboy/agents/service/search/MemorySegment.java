@@ -0,0 +1,68 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The segment new results are added to until it is written to disk. Once sealed for
+ * writing it rejects further results, so none can be added after its contents were taken.
+ */
+final class MemorySegment implements IndexSegment {
+    
+    private static final int[] NONE = new int[0];
+    
+    private final List<IndexedResult> results = new ArrayList<>();
+    private final Map<String, int[]> postings = new HashMap<>();
+    private final Map<String, Integer> postingCounts = new HashMap<>();
+    private boolean sealed;
+    
+    /** Adds the result unless the segment is sealed. */
+    synchronized boolean add(IndexedResult result) {
+        if (sealed) {
+            return false;
+        }
+        int number = results.size();
+        results.add(result);
+        for (String term : result.terms()) {
+            int count = postingCounts.getOrDefault(term, 0);
+            int[] list = postings.get(term);
+            if (list == null || list.length == count) {
+                list = Arrays.copyOf(list == null ? NONE : list, Math.max(4, count * 2));
+                postings.put(term, list);
+            }
+            list[count] = number;
+            postingCounts.put(term, count + 1);
+        }
+        return true;
+    }
+    
+    /** Stops accepting results and returns everything added so far. */
+    synchronized List<IndexedResult> seal() {
+        sealed = true;
+        return List.copyOf(results);
+    }
+    
+    @Override
+    public synchronized int size() {
+        return results.size();
+    }
+    
+    @Override
+    public synchronized int[] postings(String term) {
+        int[] list = postings.get(term);
+        return list == null ? NONE : Arrays.copyOf(list, postingCounts.get(term));
+    }
+    
+    @Override
+    public synchronized long fetchedAtMillis(int result) {
+        return results.get(result).fetchedAt().toEpochMilli();
+    }
+    
+    @Override
+    public synchronized IndexedResult result(int result) {
+        return results.get(result);
+    }
+}
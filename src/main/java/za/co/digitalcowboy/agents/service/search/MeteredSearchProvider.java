@@ -0,0 +1,58 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every search a backend runs, as a histogram tagged by backend and
+ * by whether it returned results, returned none or failed.
+ */
+public class MeteredSearchProvider implements SearchProvider {
+    
+    private final SearchProvider delegate;
+    private final Timer results;
+    private final Timer empty;
+    private final Timer failed;
+    
+    public MeteredSearchProvider(SearchProvider delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.results = timer(meterRegistry, delegate.name(), "results");
+        this.empty = timer(meterRegistry, delegate.name(), "empty");
+        this.failed = timer(meterRegistry, delegate.name(), "error");
+    }
+    
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return delegate.isEnabled();
+    }
+    
+    @Override
+    public WebSearchResponse search(String query) {
+        long start = System.nanoTime();
+        Timer outcome = failed;
+        try {
+            WebSearchResponse response = delegate.search(query);
+            outcome = response.results().isEmpty() ? empty : results;
+            return response;
+        } finally {
+            outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    private static Timer timer(MeterRegistry meterRegistry, String provider, String outcome) {
+        return Timer.builder("search.provider.duration")
+            .description("Latency of searches run by each web search backend")
+            .tag("provider", provider)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,57 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * MinHash signatures over word shingles. The share of positions two signatures agree on
+ * estimates the Jaccard similarity of their shingle sets.
+ */
+final class MinHash {
+    
+    private static final int HASHES = 64;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    
+    private MinHash() {
+    }
+    
+    /** Signature of the text's {@code shingleSize}-word shingles, or of the whole text if shorter. */
+    static long[] signature(String text, int shingleSize) {
+        String[] words = NON_WORD.split(text.toLowerCase(Locale.ROOT).trim());
+        long[] signature = new long[HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        
+        int shingles = Math.max(1, words.length - shingleSize + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = 0x9E3779B97F4A7C15L;
+            for (int i = start; i < Math.min(words.length, start + shingleSize); i++) {
+                shingle = mix(shingle ^ words[i].hashCode());
+            }
+            for (int h = 0; h < HASHES; h++) {
+                long value = mix(shingle + h * 0xBF58476D1CE4E5B9L);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+    
+    static double similarity(long[] a, long[] b) {
+        int same = 0;
+        for (int h = 0; h < HASHES; h++) {
+            if (a[h] == b[h]) {
+                same++;
+            }
+        }
+        return (double) same / HASHES;
+    }
+    
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
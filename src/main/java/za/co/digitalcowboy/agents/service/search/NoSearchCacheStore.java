@@ -0,0 +1,39 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * No persistent tier; search responses live only in memory and are lost on restart.
+ * Used when {@code search.cache.store=none}.
+ */
+@Component
+@ConditionalOnProperty(name = "search.cache.store", havingValue = "none", matchIfMissing = true)
+public class NoSearchCacheStore implements SearchCacheStore {
+    
+    @Override
+    public CachedSearch find(String query) {
+        return null;
+    }
+    
+    @Override
+    public void save(String query, CachedSearch search) {
+    }
+    
+    @Override
+    public boolean delete(String query) {
+        return false;
+    }
+    
+    @Override
+    public int deleteAll() {
+        return 0;
+    }
+    
+    @Override
+    public int deleteFetchedBefore(LocalDateTime cutoff) {
+        return 0;
+    }
+}
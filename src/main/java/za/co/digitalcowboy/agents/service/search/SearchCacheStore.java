@@ -0,0 +1,33 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persistent second tier of the search cache, shared by every instance and kept across
+ * deploys. Calls may do I/O; {@link SearchResponseCache} only writes from a background thread.
+ */
+public interface SearchCacheStore {
+    
+    /** Returns the stored response, or {@code null} if there is none. */
+    CachedSearch find(String query);
+    
+    /** Inserts or replaces the response stored for the query. */
+    void save(String query, CachedSearch search);
+    
+    /** Deletes the response stored for the query, returning whether there was one. */
+    boolean delete(String query);
+    
+    /**
+     * Deletes every stored response.
+     *
+     * @return the number of responses deleted
+     */
+    int deleteAll();
+    
+    /**
+     * Deletes responses fetched before {@code cutoff}.
+     *
+     * @return the number of responses deleted
+     */
+    int deleteFetchedBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,34 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.agents.ResearchAgent;
+import za.co.digitalcowboy.agents.service.cache.CacheWarmer;
+import za.co.digitalcowboy.agents.tools.WebSearchService;
+
+/**
+ * Warms the web search cache for a topic by running the searches research would run for it:
+ * the generated queries, through the cache, the local index and the provider.
+ */
+@Component
+public class SearchCacheWarmer implements CacheWarmer {
+    
+    private final ResearchAgent researchAgent;
+    private final WebSearchService searchService;
+    
+    public SearchCacheWarmer(ResearchAgent researchAgent, WebSearchService searchService) {
+        this.researchAgent = researchAgent;
+        this.searchService = searchService;
+    }
+    
+    @Override
+    public String cacheName() {
+        return SearchResponseCache.CACHE_NAME;
+    }
+    
+    @Override
+    public void warm(String topic) {
+        if (searchService.isEnabled()) {
+            searchService.searchMultiple(researchAgent.generateSearchQueries(topic));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import java.util.List;
+
+/**
+ * Search results formatted for the research prompt. {@code tokensSaved} is how many tokens
+ * smaller {@code text} is than every response's results concatenated as they came.
+ */
+public record SearchContext(String text, List<String> sources, int tokens, int tokensSaved) {
+}
@@ -0,0 +1,210 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import dev.langchain4j.model.Tokenizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.SearchContextProperties;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.service.llm.TokenBudget;
+import za.co.digitalcowboy.agents.tools.CallBudget;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns the responses to a topic's search queries into the search context of the research
+ * prompt. The queries overlap, so the same article tends to come back for several of them:
+ * results are merged across queries, dropping repeated links and results whose title and
+ * snippet are near-duplicates of one already kept, and then cut to
+ * {@code search.context.max-tokens}.
+ *
+ * <p>Results are taken in rank order across queries, every query's first result before any
+ * query's second, so the budget keeps the best results of each query. Each query cites up
+ * to {@code search.context.max-sources-per-query} of the links it contributed.
+ *
+ * <p>Under a generation {@link CallBudget token budget}, the context is also held to
+ * {@code generation.tokens.search-context-share} of the tokens the generation has left.
+ */
+@Component
+public class SearchContextBuilder {
+    
+    private static final Logger log = LoggerFactory.getLogger(SearchContextBuilder.class);
+    
+    // Matches WebSearchResponse.toSummaryText
+    private static final int RESULTS_PER_QUERY = 5;
+    
+    private final SearchContextProperties properties;
+    private final Tokenizer tokenizer;
+    private final DistributionSummary contextTokens;
+    private final DistributionSummary tokensSaved;
+    private final Counter duplicateLinks;
+    private final Counter nearDuplicates;
+    private final Counter overBudget;
+    private final Counter trimmed;
+    
+    public SearchContextBuilder(SearchContextProperties properties, Tokenizer tokenizer, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.tokenizer = tokenizer;
+        
+        this.contextTokens = DistributionSummary.builder("search.context.tokens")
+            .description("Tokens of search results placed in a research prompt")
+            .baseUnit("tokens")
+            .register(meterRegistry);
+        this.tokensSaved = DistributionSummary.builder("search.context.tokens.saved")
+            .description("Prompt tokens saved per research request by merging and trimming search results")
+            .baseUnit("tokens")
+            .register(meterRegistry);
+        this.duplicateLinks = dropped(meterRegistry, "duplicate_link");
+        this.nearDuplicates = dropped(meterRegistry, "near_duplicate");
+        this.overBudget = dropped(meterRegistry, "budget");
+        this.trimmed = Counter.builder("search.context.trimmed")
+            .description("Search contexts held below search.context.max-tokens by the generation's token budget")
+            .register(meterRegistry);
+    }
+    
+    public SearchContext build(List<WebSearchResponse> responses) {
+        StringBuilder unmerged = new StringBuilder();
+        for (WebSearchResponse response : responses) {
+            unmerged.append(response.toSummaryText()).append("\n\n");
+        }
+        
+        List<List<SearchResult>> kept = new ArrayList<>(responses.size());
+        responses.forEach(response -> kept.add(new ArrayList<>()));
+        List<String> sources = new ArrayList<>();
+        Set<String> links = new HashSet<>();
+        List<long[]> signatures = new ArrayList<>();
+        boolean[] headed = new boolean[responses.size()];
+        int[] sourcesPerQuery = new int[responses.size()];
+        int budget = maxTokens();
+        
+        for (int rank = 0; rank < RESULTS_PER_QUERY; rank++) {
+            for (int q = 0; q < responses.size(); q++) {
+                List<SearchResult> results = responses.get(q).results();
+                if (rank >= results.size()) {
+                    continue;
+                }
+                SearchResult result = results.get(rank);
+                
+                String link = normalizeLink(result.link());
+                if (!link.isEmpty() && links.contains(link)) {
+                    duplicateLinks.increment();
+                    continue;
+                }
+                long[] signature = MinHash.signature(result.title() + " " + result.snippet(), properties.getShingleSize());
+                if (isNearDuplicate(signature, signatures)) {
+                    nearDuplicates.increment();
+                    continue;
+                }
+                
+                int cost = tokenizer.estimateTokenCountInText(result.toFormattedText()) + 2;
+                if (!headed[q]) {
+                    cost += tokenizer.estimateTokenCountInText(header(responses.get(q).query()));
+                }
+                if (cost > budget) {
+                    overBudget.increment();
+                    continue;
+                }
+                
+                budget -= cost;
+                headed[q] = true;
+                kept.get(q).add(result);
+                signatures.add(signature);
+                if (!link.isEmpty()) {
+                    links.add(link);
+                    if (sourcesPerQuery[q] < properties.getMaxSourcesPerQuery()) {
+                        sourcesPerQuery[q]++;
+                        sources.add(result.link());
+                    }
+                }
+            }
+        }
+        
+        String text = format(responses, kept);
+        int tokens = tokenizer.estimateTokenCountInText(text);
+        int saved = Math.max(0, tokenizer.estimateTokenCountInText(unmerged.toString()) - tokens);
+        contextTokens.record(tokens);
+        tokensSaved.record(saved);
+        log.debug("Built search context of {} tokens from {} responses, {} tokens saved", tokens, responses.size(), saved);
+        return new SearchContext(text, List.copyOf(sources), tokens, saved);
+    }
+    
+    private int maxTokens() {
+        int maxTokens = properties.getMaxTokens();
+        TokenBudget tokenBudget = CallBudget.current();
+        if (tokenBudget != null && tokenBudget.searchContextTokens() < maxTokens) {
+            trimmed.increment();
+            log.debug("Holding search context to {} tokens for the generation's token budget", tokenBudget.searchContextTokens());
+            return (int) tokenBudget.searchContextTokens();
+        }
+        return maxTokens;
+    }
+    
+    private boolean isNearDuplicate(long[] signature, List<long[]> signatures) {
+        for (long[] other : signatures) {
+            if (MinHash.similarity(signature, other) >= properties.getNearDuplicateThreshold()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String format(List<WebSearchResponse> responses, List<List<SearchResult>> kept) {
+        StringBuilder text = new StringBuilder();
+        for (int q = 0; q < responses.size(); q++) {
+            List<SearchResult> results = kept.get(q);
+            if (results.isEmpty()) {
+                continue;
+            }
+            text.append(header(responses.get(q).query()));
+            for (int i = 0; i < results.size(); i++) {
+                text.append(i + 1).append(". ").append(results.get(i).toFormattedText()).append("\n\n");
+            }
+        }
+        if (text.length() == 0) {
+            Set<String> queries = new LinkedHashSet<>();
+            responses.forEach(response -> queries.add(response.query()));
+            return "No search results found for: " + String.join(", ", queries);
+        }
+        return text.toString();
+    }
+    
+    private static String header(String query) {
+        return "Search results for '" + query + "':\n\n";
+    }
+    
+    /** Ignores scheme, {@code www.}, fragment, trailing slash and case. */
+    static String normalizeLink(String link) {
+        String normalized = link.trim().toLowerCase(Locale.ROOT);
+        int fragment = normalized.indexOf('#');
+        if (fragment >= 0) {
+            normalized = normalized.substring(0, fragment);
+        }
+        int scheme = normalized.indexOf("://");
+        if (scheme >= 0) {
+            normalized = normalized.substring(scheme + 3);
+        }
+        if (normalized.startsWith("www.")) {
+            normalized = normalized.substring(4);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+    
+    private static Counter dropped(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("search.context.results.dropped")
+            .description("Search results left out of a research prompt")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+}
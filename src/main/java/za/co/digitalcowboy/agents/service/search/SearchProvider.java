@@ -0,0 +1,22 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+
+/**
+ * A web search backend. {@link za.co.digitalcowboy.agents.tools.WebSearchService} puts the
+ * cache, local index and request coalescing in front of whichever backend is configured
+ * with {@code search.provider.type}.
+ */
+public interface SearchProvider {
+    
+    /** Name used to select the backend in configuration and to tag its metrics. */
+    String name();
+    
+    boolean isEnabled();
+    
+    /**
+     * Runs one search. An empty response means the backend found nothing; failures are
+     * thrown, so that a {@link CompositeSearchProvider} can try another backend.
+     */
+    WebSearchResponse search(String query);
+}
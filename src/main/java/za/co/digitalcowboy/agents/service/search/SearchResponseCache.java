@@ -0,0 +1,246 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.SearchCacheProperties;
+import za.co.digitalcowboy.agents.domain.TaskPriority;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.service.cache.ManagedCache;
+import za.co.digitalcowboy.agents.tools.CallPriority;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Two-tier cache of web search responses: a bounded in-memory tier in front of a
+ * {@link SearchCacheStore} that survives deploys and is shared between instances.
+ *
+ * <p>Responses are fresh for {@code search.cache.fresh-for}. For {@code stale-for} after
+ * that they are still returned straight away while a background refresh replaces them, so
+ * recurring queries never wait on the provider. Only older entries are a blocking miss.
+ *
+ * <p>The in-memory tier is registered as the {@code webSearch} cache. Evicting or clearing
+ * it through the admin endpoint removes the entries from the store as well.
+ */
+@Component
+public class SearchResponseCache implements ManagedCache {
+    
+    private static final Logger log = LoggerFactory.getLogger(SearchResponseCache.class);
+    
+    public static final String CACHE_NAME = "webSearch";
+    
+    private final SearchCacheStore store;
+    private final Executor refreshExecutor;
+    private final SearchCacheProperties properties;
+    private final Cache<String, CachedSearch> memory;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter storeHits;
+    private final Counter storeMisses;
+    private final Counter refreshFailures;
+    
+    public SearchResponseCache(SearchCacheStore store,
+                               @Qualifier("cacheRefreshExecutor") Executor refreshExecutor,
+                               SearchCacheProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.store = store;
+        this.refreshExecutor = refreshExecutor;
+        this.properties = properties;
+        this.memory = Caffeine.newBuilder()
+            .maximumSize(properties.getMemoryMaxSize())
+            .expireAfterWrite(properties.maxAge())
+            .recordStats()
+            .build();
+        
+        this.hits = requests(meterRegistry, "hit");
+        this.staleHits = requests(meterRegistry, "stale");
+        this.misses = requests(meterRegistry, "miss");
+        this.storeHits = storeReads(meterRegistry, "hit");
+        this.storeMisses = storeReads(meterRegistry, "miss");
+        this.refreshFailures = Counter.builder("search.cache.refresh.failures")
+            .description("Background refreshes of stale search responses that failed")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Returns the cached response for {@code query}, calling {@code loader} on a miss and in
+     * the background once the cached response has gone stale. Empty responses are never
+     * cached, since they include provider failures and deadline cut-offs.
+     */
+    public WebSearchResponse get(String query, Function<String, WebSearchResponse> loader) {
+        return getOrLoad(query, key -> new CachedSearch(loader.apply(key), LocalDateTime.now()));
+    }
+    
+    /**
+     * As {@link #get}, for loaders that may answer with results fetched earlier, such as the
+     * local index. The entry keeps the fetch time the loader reports, so serving those
+     * results again never extends how long they stay fresh.
+     */
+    public WebSearchResponse getOrLoad(String query, Function<String, CachedSearch> loader) {
+        LocalDateTime now = LocalDateTime.now();
+        CachedSearch cached = lookup(query, now);
+        
+        if (cached == null) {
+            misses.increment();
+            log.debug("Search cache miss for query: {}", query);
+            CachedSearch loaded = loader.apply(query);
+            put(query, loaded);
+            return loaded.response();
+        }
+        
+        if (cached.isOlderThan(properties.getFreshFor(), now)) {
+            staleHits.increment();
+            log.debug("Serving stale search response for query: {}", query);
+            refreshInBackground(query, loader);
+        } else {
+            hits.increment();
+            log.debug("Search cache hit for query: {}", query);
+        }
+        return cached.response();
+    }
+    
+    public void put(String query, WebSearchResponse response) {
+        put(query, new CachedSearch(response, LocalDateTime.now()));
+    }
+    
+    public void put(String query, CachedSearch search) {
+        if (search.response().results().isEmpty()) {
+            return;
+        }
+        memory.put(query, search);
+        try {
+            refreshExecutor.execute(() -> saveToStore(query, search));
+        } catch (RejectedExecutionException e) {
+            log.debug("Search cache write-back queue full, keeping {} in memory only", query);
+        }
+    }
+    
+    @Override
+    public String cacheName() {
+        return CACHE_NAME;
+    }
+    
+    @Override
+    public Cache<String, CachedSearch> nativeCache() {
+        return memory;
+    }
+    
+    @Override
+    public boolean evict(String query) {
+        boolean inMemory = memory.asMap().remove(query) != null;
+        return store.delete(query) || inMemory;
+    }
+    
+    @Override
+    public long clear() {
+        long inMemory = memory.estimatedSize();
+        memory.invalidateAll();
+        // Entries in memory have normally been written back to the store as well
+        return Math.max(inMemory, store.deleteAll());
+    }
+    
+    public long getMemorySize() {
+        return memory.estimatedSize();
+    }
+    
+    @Scheduled(fixedRateString = "${search.cache.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        try {
+            int deleted = store.deleteFetchedBefore(LocalDateTime.now().minus(properties.maxAge()));
+            if (deleted > 0) {
+                log.info("Deleted {} expired search responses", deleted);
+            }
+        } catch (Exception e) {
+            log.error("Failed to delete expired search responses", e);
+        }
+    }
+    
+    private CachedSearch lookup(String query, LocalDateTime now) {
+        CachedSearch cached = memory.getIfPresent(query);
+        if (cached != null) {
+            // Entries promoted from the store were already part-way through their life
+            if (!cached.isOlderThan(properties.maxAge(), now)) {
+                return cached;
+            }
+            memory.invalidate(query);
+        }
+        
+        try {
+            cached = store.find(query);
+        } catch (Exception e) {
+            log.warn("Search cache store lookup failed for query: {}", query, e);
+            cached = null;
+        }
+        if (cached == null || cached.isOlderThan(properties.maxAge(), now)) {
+            storeMisses.increment();
+            return null;
+        }
+        storeHits.increment();
+        memory.put(query, cached);
+        return cached;
+    }
+    
+    private void refreshInBackground(String query, Function<String, CachedSearch> loader) {
+        if (!refreshing.add(query)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    // Nobody is waiting on a refresh, so it yields to interactive searches
+                    CachedSearch refreshed = CallPriority.call(TaskPriority.BULK, () -> loader.apply(query));
+                    if (refreshed.response().results().isEmpty()) {
+                        // Keep serving the stale response until a refresh succeeds
+                        refreshFailures.increment();
+                    } else {
+                        put(query, refreshed);
+                    }
+                } catch (Exception e) {
+                    refreshFailures.increment();
+                    log.warn("Background refresh failed for query: {}", query, e);
+                } finally {
+                    refreshing.remove(query);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The next stale read will try again
+            refreshing.remove(query);
+        }
+    }
+    
+    private void saveToStore(String query, CachedSearch search) {
+        try {
+            store.save(query, search);
+        } catch (Exception e) {
+            log.warn("Failed to write search response for {} to the cache store", query, e);
+        }
+    }
+    
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("search.cache.requests")
+            .description("Web search lookups answered fresh, answered stale, or missing the cache")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+    
+    private static Counter storeReads(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("search.cache.store.reads")
+            .description("In-memory misses looked up in the persistent search cache tier")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,62 @@
+package za.co.digitalcowboy.agents.service.task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.TaskRetentionProperties;
+import za.co.digitalcowboy.agents.domain.GenerationTask;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Node-local store; tasks are lost on restart. Used when {@code tasks.store.type=memory}.
+ */
+@Component
+@ConditionalOnProperty(name = "tasks.store.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTaskStore implements TaskStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(InMemoryTaskStore.class);
+    
+    private final TaskIndex tasks;
+    
+    public InMemoryTaskStore(TaskRetentionProperties retention,
+                             @Value("${tasks.store.hot-max-size:10000}") long maxSize) {
+        this.tasks = new TaskIndex(retention, maxSize);
+    }
+    
+    @Override
+    public void save(GenerationTask task) {
+        List<GenerationTask> evicted = tasks.put(task);
+        if (!evicted.isEmpty()) {
+            log.warn("Task store full, dropped {} finished tasks closest to expiry", evicted.size());
+        }
+    }
+    
+    @Override
+    public GenerationTask find(String taskId) {
+        return tasks.get(taskId);
+    }
+    
+    @Override
+    public void remove(String taskId) {
+        tasks.remove(taskId);
+    }
+    
+    @Override
+    public int expire(LocalDateTime now) {
+        return tasks.expire(now).size();
+    }
+    
+    @Override
+    public int countActive() {
+        return tasks.activeCount();
+    }
+    
+    @Override
+    public int size() {
+        return tasks.size();
+    }
+}
@@ -0,0 +1,326 @@
+package za.co.digitalcowboy.agents.service.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import za.co.digitalcowboy.agents.config.TaskRetentionProperties;
+import za.co.digitalcowboy.agents.domain.AgentCheckpoint;
+import za.co.digitalcowboy.agents.domain.GenerationTask;
+import za.co.digitalcowboy.agents.domain.GenerationTaskEntity;
+import za.co.digitalcowboy.agents.domain.OrchestrationResult;
+import za.co.digitalcowboy.agents.domain.TaskStatus;
+import za.co.digitalcowboy.agents.domain.TokenTotals;
+import za.co.digitalcowboy.agents.domain.TopicRequest;
+import za.co.digitalcowboy.agents.repository.GenerationTaskRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * MySQL-backed store with a hot in-memory tier. Writes land in memory and in a write
+ * buffer that a scheduled flush swaps out and writes in batches, so state transitions
+ * never wait on the database. Polls for tasks written on this node are answered from memory; tasks loaded
+ * from the database are only cached once finished, since another node may still be
+ * updating them.
+ */
+@Component
+@ConditionalOnProperty(name = "tasks.store.type", havingValue = "jpa")
+public class JpaTaskStore implements TaskStore {
+
+    private static final Logger log = LoggerFactory.getLogger(JpaTaskStore.class);
+
+    private final GenerationTaskRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final TaskRetentionProperties retention;
+    private final Timer flushTimer;
+
+    private final TaskIndex hot;
+    // Guards the two buffers; writers only ever touch the pending one
+    private final Object bufferLock = new Object();
+    // One flush at a time, so a task's states reach the database in order
+    private final Object flushLock = new Object();
+    private WriteBuffer pending = new WriteBuffer();
+    // Swapped out by the running flush and still served to reads until it has been written
+    private WriteBuffer inFlight = new WriteBuffer();
+    private volatile boolean closed;
+
+    public JpaTaskStore(GenerationTaskRepository repository,
+                        TransactionTemplate transactionTemplate,
+                        ObjectMapper objectMapper,
+                        TaskRetentionProperties retention,
+                        @Value("${tasks.store.hot-max-size:10000}") long hotMaxSize,
+                        @Value("${tasks.store.batch-size:100}") int batchSize,
+                        MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+        this.batchSize = batchSize;
+        this.retention = retention;
+        this.hot = new TaskIndex(retention, hotMaxSize);
+
+        this.flushTimer = Timer.builder("tasks.store.flush.duration")
+                .description("Time taken to write a batch of task changes")
+                .register(meterRegistry);
+        Gauge.builder("tasks.store.pending_writes", this, JpaTaskStore::getPendingWriteCount)
+                .description("Task changes waiting to be written to the database")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void save(GenerationTask task) {
+        // Anything pushed out of the hot tier is still in the database or a write buffer
+        hot.put(task);
+        synchronized (bufferLock) {
+            pending.save(task);
+        }
+        if (closed) {
+            // Late writes from jobs finishing during shutdown
+            flush();
+        }
+    }
+
+    @Override
+    public GenerationTask find(String taskId) {
+        GenerationTask task = hot.get(taskId);
+        if (task != null) {
+            return task;
+        }
+        synchronized (bufferLock) {
+            // Newest first: a change or delete made during a flush shadows the one being written
+            for (WriteBuffer buffer : List.of(pending, inFlight)) {
+                if (buffer.contains(taskId)) {
+                    return buffer.changes.get(taskId);
+                }
+            }
+        }
+
+        try {
+            task = repository.findById(taskId).map(this::toTask).orElse(null);
+        } catch (Exception e) {
+            log.error("Failed to load task {} from the database", taskId, e);
+            return null;
+        }
+        if (task != null && task.isCompleted()) {
+            // A save made while the row was loading wins over the database copy
+            return hot.promote(task);
+        }
+        return task;
+    }
+
+    @Override
+    public void remove(String taskId) {
+        hot.remove(taskId);
+        synchronized (bufferLock) {
+            pending.remove(taskId);
+        }
+    }
+
+    @Override
+    public int expire(LocalDateTime now) {
+        int expired = hot.expire(now).size();
+
+        // Rows are found through the (status, updated_at) index, one range per status
+        for (TaskStatus status : TaskStatus.values()) {
+            try {
+                int deleted = repository.deleteByStatusUpdatedBefore(status, now.minus(retention.forStatus(status)));
+                if (deleted > 0) {
+                    log.info("Deleted {} expired {} tasks from the database", deleted, status);
+                }
+            } catch (Exception e) {
+                log.error("Failed to delete expired {} tasks", status, e);
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public int countActive() {
+        return hot.activeCount();
+    }
+
+    @Override
+    public int size() {
+        return hot.size();
+    }
+
+    public int getPendingWriteCount() {
+        synchronized (bufferLock) {
+            return pending.size() + inFlight.size();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tasks.store.flush-interval-ms:200}")
+    public void flush() {
+        synchronized (flushLock) {
+            WriteBuffer flushing;
+            synchronized (bufferLock) {
+                if (pending.size() == 0) {
+                    return;
+                }
+                // Writers carry on into a fresh buffer while this one is written out
+                flushing = pending;
+                pending = new WriteBuffer();
+                inFlight = flushing;
+            }
+
+            try {
+                flushTimer.record(() -> write(flushing));
+            } finally {
+                synchronized (bufferLock) {
+                    inFlight = new WriteBuffer();
+                }
+            }
+            log.debug("Flushed {} task changes and {} deletes", flushing.changes.size(), flushing.deletes.size());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        flush();
+    }
+
+    private void write(WriteBuffer flushing) {
+        List<GenerationTask> changed = new ArrayList<>(flushing.changes.values());
+        for (int start = 0; start < changed.size(); start += batchSize) {
+            List<GenerationTask> batch = changed.subList(start, Math.min(start + batchSize, changed.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+            } catch (Exception e) {
+                log.error("Failed to write {} task changes, retrying on next flush", batch.size(), e);
+                requeue(batch, List.of());
+            }
+        }
+        if (!flushing.deletes.isEmpty()) {
+            List<String> deleted = List.copyOf(flushing.deletes);
+            try {
+                repository.deleteAllByIdInBatch(deleted);
+            } catch (Exception e) {
+                log.error("Failed to delete {} tasks, retrying on next flush", deleted.size(), e);
+                requeue(List.of(), deleted);
+            }
+        }
+    }
+
+    private void writeBatch(List<GenerationTask> batch) {
+        // One lookup for the whole batch; existing rows become managed and update in place
+        Map<String, GenerationTaskEntity> existing = repository
+                .findAllById(batch.stream().map(GenerationTask::id).toList()).stream()
+                .collect(Collectors.toMap(GenerationTaskEntity::getId, Function.identity()));
+
+        List<GenerationTaskEntity> entities = new ArrayList<>(batch.size());
+        for (GenerationTask task : batch) {
+            GenerationTaskEntity entity = existing.getOrDefault(task.id(), new GenerationTaskEntity(task.id()));
+            apply(task, entity);
+            entities.add(entity);
+        }
+        repository.saveAll(entities);
+    }
+
+    private void requeue(List<GenerationTask> changes, List<String> deletes) {
+        synchronized (bufferLock) {
+            // Keep any newer change or delete that arrived while the batch was in flight
+            changes.stream().filter(task -> !pending.contains(task.id())).forEach(pending::save);
+            deletes.stream().filter(taskId -> !pending.contains(taskId)).forEach(pending::remove);
+        }
+    }
+
+    private void apply(GenerationTask task, GenerationTaskEntity entity) {
+        try {
+            entity.setStatus(task.status());
+            entity.setRequestJson(objectMapper.writeValueAsString(task.request()));
+            entity.setResultJsonGz(task.result() != null ? compress(objectMapper.writeValueAsBytes(task.result())) : null);
+            entity.setCheckpointJsonGz(task.checkpoint() != null ? compress(objectMapper.writeValueAsBytes(task.checkpoint())) : null);
+            entity.setError(task.error());
+            entity.setInputTokens(task.tokenUsage().inputTokens());
+            entity.setOutputTokens(task.tokenUsage().outputTokens());
+            entity.setCreatedAt(task.createdAt());
+            entity.setUpdatedAt(task.updatedAt());
+            entity.setCompletedAt(task.completedAt());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize task " + task.id(), e);
+        }
+    }
+
+    private GenerationTask toTask(GenerationTaskEntity entity) {
+        try {
+            TopicRequest request = objectMapper.readValue(entity.getRequestJson(), TopicRequest.class);
+            OrchestrationResult result = entity.getResultJsonGz() != null
+                    ? objectMapper.readValue(decompress(entity.getResultJsonGz()), OrchestrationResult.class)
+                    : null;
+            AgentCheckpoint checkpoint = entity.getCheckpointJsonGz() != null
+                    ? objectMapper.readValue(decompress(entity.getCheckpointJsonGz()), AgentCheckpoint.class)
+                    : null;
+            return new GenerationTask(entity.getId(), request, entity.getStatus(), result, entity.getError(),
+                    entity.getCreatedAt(), entity.getUpdatedAt(), entity.getCompletedAt(), null, checkpoint,
+                    new TokenTotals(entity.getInputTokens(), entity.getOutputTokens()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to deserialize task " + entity.getId(), e);
+        }
+    }
+
+    private static byte[] compress(byte[] json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return gzip.readAllBytes();
+        }
+    }
+
+    /** Latest unwritten change per task in first-changed order, plus deleted task ids. */
+    private static class WriteBuffer {
+        private final Map<String, GenerationTask> changes = new LinkedHashMap<>();
+        private final Set<String> deletes = new HashSet<>();
+
+        void save(GenerationTask task) {
+            deletes.remove(task.id());
+            changes.put(task.id(), task);
+        }
+
+        void remove(String taskId) {
+            changes.remove(taskId);
+            deletes.add(taskId);
+        }
+
+        boolean contains(String taskId) {
+            return changes.containsKey(taskId) || deletes.contains(taskId);
+        }
+
+        int size() {
+            return changes.size() + deletes.size();
+        }
+    }
+}
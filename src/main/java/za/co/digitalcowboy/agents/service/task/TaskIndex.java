@@ -0,0 +1,160 @@
+package za.co.digitalcowboy.agents.service.task;
+
+import za.co.digitalcowboy.agents.config.TaskRetentionProperties;
+import za.co.digitalcowboy.agents.domain.GenerationTask;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory tasks with counters kept up to date on every change and deadline-ordered
+ * expiry queues, so counting is O(1) and expiry only touches tasks that are due.
+ *
+ * <p>Every save pushes a new deadline rather than moving the old one; superseded
+ * entries are recognised and dropped when they reach the head of their queue.
+ *
+ * <p>The size limit applies to finished tasks only. Running tasks are never evicted -
+ * their result would be lost - and sit in a queue of their own, so eviction only ever
+ * scans finished ones. Eviction also never picks the task being added, so a task
+ * promoted from a slower tier stays until something else pushes it out.
+ */
+class TaskIndex {
+
+    private final Map<String, GenerationTask> tasks = new ConcurrentHashMap<>();
+    private final PriorityQueue<Deadline> activeDeadlines = new PriorityQueue<>(Comparator.comparing(Deadline::at));
+    private final PriorityQueue<Deadline> finishedDeadlines = new PriorityQueue<>(Comparator.comparing(Deadline::at));
+    private final TaskRetentionProperties retention;
+    private final long maxSize;
+    private volatile int activeCount;
+
+    TaskIndex(TaskRetentionProperties retention, long maxSize) {
+        this.retention = retention;
+        this.maxSize = maxSize;
+    }
+
+    GenerationTask get(String taskId) {
+        return tasks.get(taskId);
+    }
+
+    /**
+     * Adds or replaces the task. If that takes the finished tasks over the size limit, the
+     * other finished tasks closest to expiry are dropped and returned.
+     */
+    synchronized List<GenerationTask> put(GenerationTask task) {
+        GenerationTask previous = tasks.put(task.id(), task);
+        activeCount += activeDelta(previous, task);
+        queueOf(task).add(new Deadline(deadlineOf(task), task.id()));
+
+        List<GenerationTask> evicted = List.of();
+        while (tasks.size() - activeCount > maxSize) {
+            GenerationTask next = pollCurrent(finishedDeadlines, null, task.id());
+            if (next == null) {
+                break;
+            }
+            if (evicted.isEmpty()) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(next);
+        }
+        compactIfSparse();
+        return evicted;
+    }
+
+    /**
+     * Adds a task loaded from a slower tier, unless the index already holds it - a save
+     * that landed while it was loading is newer. Returns the task now held.
+     */
+    synchronized GenerationTask promote(GenerationTask task) {
+        GenerationTask current = tasks.get(task.id());
+        if (current != null) {
+            return current;
+        }
+        put(task);
+        return task;
+    }
+
+    synchronized GenerationTask remove(String taskId) {
+        GenerationTask previous = tasks.remove(taskId);
+        activeCount += activeDelta(previous, null);
+        return previous;
+    }
+
+    /** Removes and returns every task whose retention has elapsed at {@code now}. */
+    synchronized List<GenerationTask> expire(LocalDateTime now) {
+        List<GenerationTask> expired = new ArrayList<>();
+        for (PriorityQueue<Deadline> queue : List.of(activeDeadlines, finishedDeadlines)) {
+            GenerationTask next;
+            while ((next = pollCurrent(queue, now, null)) != null) {
+                expired.add(next);
+            }
+        }
+        return expired;
+    }
+
+    int activeCount() {
+        return activeCount;
+    }
+
+    int size() {
+        return tasks.size();
+    }
+
+    // Pops deadlines up to {@code until} (or any, if null) until one still matches a task
+    // other than {@code keep}, whose current deadline is put back
+    private GenerationTask pollCurrent(PriorityQueue<Deadline> queue, LocalDateTime until, String keep) {
+        Deadline kept = null;
+        try {
+            while (!queue.isEmpty()) {
+                if (until != null && queue.peek().at().isAfter(until)) {
+                    return null;
+                }
+                Deadline deadline = queue.poll();
+                GenerationTask task = tasks.get(deadline.taskId());
+                if (task != null && queueOf(task) == queue && deadlineOf(task).equals(deadline.at())) {
+                    if (task.id().equals(keep)) {
+                        kept = deadline;
+                        continue;
+                    }
+                    tasks.remove(task.id());
+                    activeCount += activeDelta(task, null);
+                    return task;
+                }
+            }
+            return null;
+        } finally {
+            if (kept != null) {
+                queue.add(kept);
+            }
+        }
+    }
+
+    private void compactIfSparse() {
+        // Superseded and removed entries only leave via the head; rebuild before they pile up
+        if (activeDeadlines.size() + finishedDeadlines.size() > 4 * tasks.size() + 1024) {
+            activeDeadlines.clear();
+            finishedDeadlines.clear();
+            tasks.values().forEach(task -> queueOf(task).add(new Deadline(deadlineOf(task), task.id())));
+        }
+    }
+
+    private PriorityQueue<Deadline> queueOf(GenerationTask task) {
+        return task.isCompleted() ? finishedDeadlines : activeDeadlines;
+    }
+
+    private LocalDateTime deadlineOf(GenerationTask task) {
+        return task.updatedAt().plus(retention.forStatus(task.status()));
+    }
+
+    private static int activeDelta(GenerationTask previous, GenerationTask current) {
+        int before = previous != null && !previous.isCompleted() ? 1 : 0;
+        int after = current != null && !current.isCompleted() ? 1 : 0;
+        return after - before;
+    }
+
+    private record Deadline(LocalDateTime at, String taskId) {}
+}
@@ -0,0 +1,33 @@
+package za.co.digitalcowboy.agents.service.task;
+
+import za.co.digitalcowboy.agents.domain.GenerationTask;
+
+import java.time.LocalDateTime;
+
+/**
+ * Holds generation tasks for polling. {@link #save} sits on the generation path and must
+ * not block on I/O; {@link #find} serves status polls and should answer from memory.
+ */
+public interface TaskStore {
+    
+    /** Inserts or replaces the task with the same id. */
+    void save(GenerationTask task);
+    
+    /** Returns the task, or {@code null} if it is unknown. */
+    GenerationTask find(String taskId);
+    
+    void remove(String taskId);
+    
+    /**
+     * Drops tasks whose per-status retention has elapsed at {@code now}.
+     *
+     * @return the number of tasks expired from memory
+     */
+    int expire(LocalDateTime now);
+    
+    /** Tasks held in memory that have not completed or failed, in O(1). */
+    int countActive();
+    
+    /** Tasks held in memory, in O(1). */
+    int size();
+}
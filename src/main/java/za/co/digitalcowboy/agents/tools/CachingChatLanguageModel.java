@@ -0,0 +1,116 @@
+package za.co.digitalcowboy.agents.tools;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import za.co.digitalcowboy.agents.service.llm.CachedCompletion;
+import za.co.digitalcowboy.agents.service.llm.LlmResponseCache;
+import za.co.digitalcowboy.agents.service.llm.ModelRoute;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Answers a prompt the agent has sent before from the {@link LlmResponseCache} instead of
+ * calling the model again. Concurrent misses for the same prompt share one call. Requests
+ * offering tools are never cached, since their answers drive further calls.
+ */
+public class CachingChatLanguageModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final LlmResponseCache cache;
+    private final Supplier<ModelRoute> route;
+    private final SingleFlight<String, Response<AiMessage>> inFlight;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter inputTokensSaved;
+    private final Counter outputTokensSaved;
+
+    /**
+     * @param route the route {@code delegate} will take for the call, whose model and
+     *              parameters go into the cache key
+     */
+    public CachingChatLanguageModel(ChatLanguageModel delegate, LlmResponseCache cache, String agent,
+                                    Supplier<ModelRoute> route, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.route = route;
+
+        this.hits = requests(meterRegistry, agent, "hit");
+        this.misses = requests(meterRegistry, agent, "miss");
+        this.inputTokensSaved = tokensSaved(meterRegistry, agent, "input");
+        this.outputTokensSaved = tokensSaved(meterRegistry, agent, "output");
+        this.inFlight = new SingleFlight<>(hits::increment);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        ModelRoute target = route.get();
+        String key = LlmResponseCache.key(target.model(), target.temperature(), target.maxTokens(), messages);
+        CachedCompletion cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            inputTokensSaved.increment(cached.inputTokens());
+            outputTokensSaved.increment(cached.outputTokens());
+            // Nothing was spent on this answer
+            return Response.from(AiMessage.from(cached.text()), new TokenUsage(0, 0), FinishReason.STOP);
+        }
+
+        return inFlight.execute(key, () -> {
+            misses.increment();
+            // The call must take the route its key was built from
+            Response<AiMessage> response = CallRoute.call(target, () -> delegate.generate(messages));
+            if (isCacheable(response)) {
+                TokenUsage usage = response.tokenUsage();
+                cache.put(key, new CachedCompletion(response.content().text(),
+                    usage != null && usage.inputTokenCount() != null ? usage.inputTokenCount() : 0,
+                    usage != null && usage.outputTokenCount() != null ? usage.outputTokenCount() : 0,
+                    System.currentTimeMillis()));
+            }
+            return response;
+        });
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return delegate.generate(messages, toolSpecifications);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return delegate.generate(messages, toolSpecification);
+    }
+
+    private static boolean isCacheable(Response<AiMessage> response) {
+        // Truncated answers are not worth repeating
+        return response != null
+            && response.content() != null
+            && !response.content().hasToolExecutionRequests()
+            && response.content().text() != null
+            && !response.content().text().isBlank()
+            && response.finishReason() != FinishReason.LENGTH;
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String agent, String result) {
+        return Counter.builder("llm.cache.requests")
+            .description("Chat completions looked up in the LLM response cache")
+            .tag("agent", agent)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private static Counter tokensSaved(MeterRegistry meterRegistry, String agent, String type) {
+        return Counter.builder("llm.cache.tokens.saved")
+            .description("Tokens the cached answers cost when they were first generated")
+            .tag("agent", agent)
+            .tag("type", type)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,26 @@
+package za.co.digitalcowboy.agents.tools;
+
+import za.co.digitalcowboy.agents.service.llm.TokenBudget;
+
+/**
+ * The token budget of the generation running on the current thread. Agent graph nodes set
+ * it around their work; chat completions made under it are charged to it, and the search
+ * context is cut to what it has left.
+ */
+public final class CallBudget {
+
+    private static final CallContext<TokenBudget> CURRENT = new CallContext<>();
+
+    private CallBudget() {
+    }
+
+    /** Runs {@code action} charging {@code budget}; a {@code null} budget means none. */
+    public static void run(TokenBudget budget, Runnable action) {
+        CURRENT.run(budget, action);
+    }
+
+    /** The current budget, or {@code null} outside any. */
+    public static TokenBudget current() {
+        return CURRENT.get();
+    }
+}
@@ -0,0 +1,77 @@
+package za.co.digitalcowboy.agents.tools;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * One value bound to the current thread for the duration of a call, such as the
+ * generation's deadline or the agent step making it. {@link CallDeadline},
+ * {@link CallPriority}, {@link CallBudget}, {@link CallStep} and {@link CallRoute} each keep
+ * theirs in one of these.
+ *
+ * <p>The values are thread-bound: work handed to another executor must be wrapped with
+ * {@link #propagate(Supplier)}, which carries every context along at once, so one added
+ * later travels with the others without touching the call sites.
+ */
+public final class CallContext<T> {
+
+    // One per Call* holder, registered as each class is loaded
+    private static final List<CallContext<?>> ALL = new CopyOnWriteArrayList<>();
+
+    private final ThreadLocal<T> current = new ThreadLocal<>();
+
+    CallContext() {
+        ALL.add(this);
+    }
+
+    /** The value in force on this thread, or {@code null} outside any. */
+    T get() {
+        return current.get();
+    }
+
+    /** Runs {@code action} with {@code value} in force, then restores the previous value. */
+    <R> R call(T value, Supplier<R> action) {
+        T previous = current.get();
+        current.set(value);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+
+    void run(T value, Runnable action) {
+        call(value, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /** Wraps {@code action} so that it runs under every context of the caller on any thread. */
+    public static <R> Supplier<R> propagate(Supplier<R> action) {
+        Supplier<R> bound = action;
+        for (CallContext<?> context : ALL) {
+            bound = context.bindCurrent(bound);
+        }
+        return bound;
+    }
+
+    /** As {@link #propagate(Supplier)}, for work without a result. */
+    public static Runnable propagate(Runnable action) {
+        Supplier<Void> bound = propagate(() -> {
+            action.run();
+            return null;
+        });
+        return bound::get;
+    }
+
+    private <R> Supplier<R> bindCurrent(Supplier<R> action) {
+        T value = current.get();
+        return () -> call(value, action);
+    }
+}
@@ -0,0 +1,79 @@
+package za.co.digitalcowboy.agents.tools;
+
+import okhttp3.Call;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The end-to-end deadline of the generation running on the current thread. Agent graph
+ * nodes set it around their work, and provider calls shrink their timeouts to whatever
+ * budget is left, so no single call can overrun the request as a whole.
+ *
+ * <p>The deadline is thread-bound: work handed to another executor must be wrapped with
+ * {@link CallContext#propagate(Supplier)} to carry it along.
+ */
+public final class CallDeadline {
+
+    private static final CallContext<Instant> CURRENT = new CallContext<>();
+
+    private CallDeadline() {
+    }
+
+    /** Runs {@code action} with {@code deadline} in force; a {@code null} deadline means none. */
+    public static void run(Instant deadline, Runnable action) {
+        CURRENT.run(deadline, action);
+    }
+
+    public static <T> T call(Instant deadline, Supplier<T> action) {
+        return CURRENT.call(deadline, action);
+    }
+
+    public static Instant current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * The budget left on this thread's deadline.
+     *
+     * @throws IllegalStateException if no deadline is set
+     * @throws DeadlineExceededException if the deadline has already passed
+     */
+    public static Duration remaining() {
+        Instant deadline = CURRENT.get();
+        if (deadline == null) {
+            throw new IllegalStateException("No generation deadline on this thread");
+        }
+        Duration remaining = Duration.between(Instant.now(), deadline);
+        if (remaining.isNegative() || remaining.isZero()) {
+            throw new DeadlineExceededException("Generation deadline passed " + remaining.negated().toMillis() + "ms ago");
+        }
+        return remaining;
+    }
+
+    /**
+     * The smaller of {@code timeout} and the budget left on this thread's deadline, if any.
+     *
+     * @throws DeadlineExceededException if the deadline has already passed
+     */
+    public static Duration cap(Duration timeout) {
+        if (CURRENT.get() == null) {
+            return timeout;
+        }
+        Duration remaining = remaining();
+        return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+    }
+
+    /**
+     * Bounds the whole OkHttp call, including connect and body reads, by the remaining budget.
+     * Calls made without a deadline keep the client's own timeouts.
+     */
+    public static Call apply(Call call) {
+        if (CURRENT.get() != null) {
+            call.timeout().timeout(remaining().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+}
@@ -0,0 +1,32 @@
+package za.co.digitalcowboy.agents.tools;
+
+import za.co.digitalcowboy.agents.domain.TaskPriority;
+
+import java.util.function.Supplier;
+
+/**
+ * The priority of the generation running on the current thread, so that shared provider
+ * limits can serve interactive work ahead of bulk work. Threads without one count as
+ * interactive. Like {@link CallDeadline} it is thread-bound, and
+ * {@link CallContext#propagate(Supplier)} carries it to other threads as well.
+ */
+public final class CallPriority {
+
+    private static final CallContext<TaskPriority> CURRENT = new CallContext<>();
+
+    private CallPriority() {
+    }
+
+    public static void run(TaskPriority priority, Runnable action) {
+        CURRENT.run(priority, action);
+    }
+
+    public static <T> T call(TaskPriority priority, Supplier<T> action) {
+        return CURRENT.call(priority, action);
+    }
+
+    public static TaskPriority current() {
+        TaskPriority priority = CURRENT.get();
+        return priority != null ? priority : TaskPriority.INTERACTIVE;
+    }
+}
@@ -0,0 +1,28 @@
+package za.co.digitalcowboy.agents.tools;
+
+import za.co.digitalcowboy.agents.service.llm.ModelRoute;
+
+import java.util.function.Supplier;
+
+/**
+ * A model route already chosen for the chat completion made on the current thread. A
+ * decorator that needs the route before the call, as the response cache does for its key,
+ * selects it once and pins it here, so {@link RoutingChatLanguageModel} sends the call to
+ * the same profile instead of selecting again.
+ */
+public final class CallRoute {
+
+    private static final CallContext<ModelRoute> CURRENT = new CallContext<>();
+
+    private CallRoute() {
+    }
+
+    public static <T> T call(ModelRoute route, Supplier<T> action) {
+        return CURRENT.call(route, action);
+    }
+
+    /** The pinned route, or {@code null} if the router should select one. */
+    public static ModelRoute current() {
+        return CURRENT.get();
+    }
+}
@@ -0,0 +1,27 @@
+package za.co.digitalcowboy.agents.tools;
+
+import za.co.digitalcowboy.agents.domain.ModelStep;
+
+import java.util.function.Supplier;
+
+/**
+ * The agent step making chat completions on the current thread, which decides the model
+ * profile they are routed to. Agents set it around each model call; calls made without one
+ * use the default profile.
+ */
+public final class CallStep {
+
+    private static final CallContext<ModelStep> CURRENT = new CallContext<>();
+
+    private CallStep() {
+    }
+
+    public static <T> T call(ModelStep step, Supplier<T> action) {
+        return CURRENT.call(step, action);
+    }
+
+    /** The current step, or {@code null} outside any. */
+    public static ModelStep current() {
+        return CURRENT.get();
+    }
+}
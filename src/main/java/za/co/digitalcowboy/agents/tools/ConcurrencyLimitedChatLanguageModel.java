@@ -0,0 +1,39 @@
+package za.co.digitalcowboy.agents.tools;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import za.co.digitalcowboy.agents.tools.ProviderConcurrencyLimiter.Provider;
+
+import java.util.List;
+
+/**
+ * Routes every chat completion through the {@link Provider#OPENAI_CHAT} permits.
+ */
+public class ConcurrencyLimitedChatLanguageModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final ProviderConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedChatLanguageModel(ChatLanguageModel delegate, ProviderConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return limiter.call(Provider.OPENAI_CHAT, () -> delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return limiter.call(Provider.OPENAI_CHAT, () -> delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return limiter.call(Provider.OPENAI_CHAT, () -> delegate.generate(messages, toolSpecification));
+    }
+}
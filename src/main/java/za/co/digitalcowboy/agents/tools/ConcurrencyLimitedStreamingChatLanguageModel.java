@@ -0,0 +1,83 @@
+package za.co.digitalcowboy.agents.tools;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import za.co.digitalcowboy.agents.tools.ProviderConcurrencyLimiter.Permit;
+import za.co.digitalcowboy.agents.tools.ProviderConcurrencyLimiter.Provider;
+
+import java.util.List;
+
+/**
+ * Holds a {@link Provider#OPENAI_CHAT} permit from the start of each streamed completion
+ * until it completes or fails, so streaming and blocking calls share one limit.
+ */
+public class ConcurrencyLimitedStreamingChatLanguageModel implements StreamingChatLanguageModel {
+
+    private final StreamingChatLanguageModel delegate;
+    private final ProviderConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedStreamingChatLanguageModel(StreamingChatLanguageModel delegate, ProviderConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        Permit permit = limiter.acquire(Provider.OPENAI_CHAT);
+        try {
+            delegate.generate(messages, releasing(permit, handler));
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications,
+                         StreamingResponseHandler<AiMessage> handler) {
+        Permit permit = limiter.acquire(Provider.OPENAI_CHAT);
+        try {
+            delegate.generate(messages, toolSpecifications, releasing(permit, handler));
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification,
+                         StreamingResponseHandler<AiMessage> handler) {
+        Permit permit = limiter.acquire(Provider.OPENAI_CHAT);
+        try {
+            delegate.generate(messages, toolSpecification, releasing(permit, handler));
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    private static StreamingResponseHandler<AiMessage> releasing(Permit permit, StreamingResponseHandler<AiMessage> handler) {
+        return new StreamingResponseHandler<>() {
+            @Override
+            public void onNext(String token) {
+                handler.onNext(token);
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                permit.close();
+                handler.onComplete(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                permit.close();
+                handler.onError(error);
+            }
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package za.co.digitalcowboy.agents.tools;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Bounds each chat completion by the caller's {@link CallDeadline}. The OpenAI client's
+ * timeout is fixed when the model is built, so the call runs on {@code callExecutor}
+ * while the caller waits only for the remaining budget.
+ *
+ * <p>Only the caller is released at the deadline. An abandoned call is interrupted, which
+ * stops it if it is still waiting for a provider permit, but OkHttp's blocking socket reads
+ * ignore interrupts: a request already sent runs on until it answers or hits the profile's
+ * {@code timeout}, holding its thread, permit and connection until then.
+ */
+public class DeadlineChatLanguageModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final Executor callExecutor;
+
+    public DeadlineChatLanguageModel(ChatLanguageModel delegate, Executor callExecutor) {
+        this.delegate = delegate;
+        this.callExecutor = callExecutor;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return withinDeadline(() -> delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return withinDeadline(() -> delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return withinDeadline(() -> delegate.generate(messages, toolSpecification));
+    }
+
+    private Response<AiMessage> withinDeadline(Supplier<Response<AiMessage>> call) {
+        if (CallDeadline.current() == null) {
+            return call.get();
+        }
+        Duration budget = CallDeadline.remaining();
+        FutureTask<Response<AiMessage>> future = new FutureTask<>(CallContext.propagate(call)::get);
+        callExecutor.execute(future);
+        try {
+            return future.get(budget.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new DeadlineExceededException("Chat completion abandoned after " + budget.toMillis() + "ms at the generation deadline");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for chat completion", e);
+        }
+    }
+}
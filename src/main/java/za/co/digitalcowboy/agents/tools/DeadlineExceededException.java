@@ -0,0 +1,12 @@
+package za.co.digitalcowboy.agents.tools;
+
+/**
+ * Thrown when a provider call is skipped or abandoned because the generation it belongs
+ * to has used up its time budget.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
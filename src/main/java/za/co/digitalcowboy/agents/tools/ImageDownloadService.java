@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -25,12 +26,15 @@ public class ImageDownloadService {
     private final OkHttpClient httpClient;
     private final boolean downloadEnabled;
     private final String storagePath;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
     
     public ImageDownloadService(
             OkHttpClient httpClient,
             @Value("${images.download-enabled}") boolean downloadEnabled,
-            @Value("${images.local-storage-path}") String storagePath) {
+            @Value("${images.local-storage-path}") String storagePath,
+            ProviderConcurrencyLimiter concurrencyLimiter) {
         this.httpClient = httpClient;
+        this.concurrencyLimiter = concurrencyLimiter;
         this.downloadEnabled = downloadEnabled;
         this.storagePath = storagePath;
         
@@ -76,17 +80,10 @@ public class ImageDownloadService {
                     .url(imageUrl)
                     .build();
             
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    log.error("Failed to download image: HTTP {}", response.code());
-                    return new ImageDownloadResult(imageUrl, null); // Return original URL on failure
-                }
-                
-                if (response.body() != null) {
-                    Files.write(targetPath, response.body().bytes());
-                    log.info("Downloaded image to: {}", targetPath.toAbsolutePath());
-                    return new ImageDownloadResult(targetPath.toAbsolutePath().toString(), filename);
-                }
+            ImageDownloadResult downloaded = concurrencyLimiter.call(ProviderConcurrencyLimiter.Provider.IMAGE_DOWNLOAD,
+                    () -> fetchImage(request, targetPath, filename));
+            if (downloaded != null) {
+                return downloaded;
             }
             
         } catch (Exception e) {
@@ -97,5 +94,23 @@ public class ImageDownloadService {
         return new ImageDownloadResult(imageUrl, null);
     }
     
+    private ImageDownloadResult fetchImage(Request request, Path targetPath, String filename) {
+        try (Response response = CallDeadline.apply(httpClient.newCall(request)).execute()) {
+            if (!response.isSuccessful()) {
+                log.error("Failed to download image: HTTP {}", response.code());
+                return null;
+            }
+            
+            if (response.body() != null) {
+                Files.write(targetPath, response.body().bytes());
+                log.info("Downloaded image to: {}", targetPath.toAbsolutePath());
+                return new ImageDownloadResult(targetPath.toAbsolutePath().toString(), filename);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
     public record ImageDownloadResult(String localPath, String filename) {}
 }
\ No newline at end of file
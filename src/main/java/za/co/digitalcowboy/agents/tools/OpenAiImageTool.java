@@ -14,6 +14,8 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Component
 public class OpenAiImageTool {
@@ -27,17 +29,23 @@ public class OpenAiImageTool {
     private final ImageDownloadService imageDownloadService;
     private final boolean keepRemoteUrl;
     private final String baseUrl;
+    private final Executor downloadExecutor;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
     
     public OpenAiImageTool(@Qualifier("imageHttpClient") OkHttpClient httpClient, ObjectMapper objectMapper, 
                           OpenAiProperties openAiProperties, ImageDownloadService imageDownloadService,
                           @Value("${images.keep-remote-url}") boolean keepRemoteUrl,
-                          @Value("${images.base-url}") String baseUrl) {
+                          @Value("${images.base-url}") String baseUrl,
+                          @Qualifier("agentExecutor") Executor downloadExecutor,
+                          ProviderConcurrencyLimiter concurrencyLimiter) {
         this.httpClient = httpClient;
         this.objectMapper = objectMapper;
         this.openAiProperties = openAiProperties;
         this.imageDownloadService = imageDownloadService;
         this.keepRemoteUrl = keepRemoteUrl;
         this.baseUrl = baseUrl;
+        this.downloadExecutor = downloadExecutor;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
     
     public ImageResult generateImage(String prompt, int count) {
@@ -69,45 +77,58 @@ public class OpenAiImageTool {
                     .addHeader("Content-Type", "application/json")
                     .build();
             
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    String errorBody = response.body() != null ? response.body().string() : "No error body";
-                    log.error("OpenAI Images API error: {} - {}", response.code(), errorBody);
-                    throw new RuntimeException("OpenAI Images API failed: " + response.code());
-                }
-                
-                String responseBody = response.body().string();
-                ImageGenerationResponse apiResponse = objectMapper.readValue(responseBody, ImageGenerationResponse.class);
-                
-                List<String> imageUrls = apiResponse.data().stream()
-                        .map(ImageData::url)
-                        .toList();
-                
-                log.debug("Successfully generated {} image(s)", imageUrls.size());
-                
-                // Download images locally and build HTTP URLs
-                List<String> localPaths = new ArrayList<>();
-                List<String> localImageUrls = new ArrayList<>();
-                
-                for (String imageUrl : imageUrls) {
-                    ImageDownloadService.ImageDownloadResult downloadResult = 
-                            imageDownloadService.downloadImageDetailed(imageUrl, topic);
-                    localPaths.add(downloadResult.localPath());
-                    
-                    // Build HTTP URL if image was downloaded locally
-                    if (downloadResult.filename() != null) {
-                        String httpUrl = baseUrl + "/generated-image/" + downloadResult.filename();
-                        localImageUrls.add(httpUrl);
-                    }
-                }
+            // Hold the images permit only for the generation call, downloads have their own
+            List<String> imageUrls = concurrencyLimiter.call(ProviderConcurrencyLimiter.Provider.OPENAI_IMAGES,
+                    () -> requestImageUrls(request));
+            
+            log.debug("Successfully generated {} image(s)", imageUrls.size());
+            
+            // Download images locally in parallel and build HTTP URLs
+            List<CompletableFuture<ImageDownloadService.ImageDownloadResult>> downloads = imageUrls.stream()
+                    .map(imageUrl -> CompletableFuture.supplyAsync(CallContext.propagate(
+                            () -> imageDownloadService.downloadImageDetailed(imageUrl, topic)), downloadExecutor))
+                    .toList();
+            
+            List<String> localPaths = new ArrayList<>();
+            List<String> localImageUrls = new ArrayList<>();
+            
+            for (CompletableFuture<ImageDownloadService.ImageDownloadResult> download : downloads) {
+                ImageDownloadService.ImageDownloadResult downloadResult = download.join();
+                localPaths.add(downloadResult.localPath());
                 
-                // Return based on configuration
-                if (keepRemoteUrl) {
-                    return new ImageResult(prompt, imageUrls, localPaths, localImageUrls);
-                } else {
-                    return new ImageResult(prompt, List.of(), localPaths, localImageUrls);
+                // Build HTTP URL if image was downloaded locally
+                if (downloadResult.filename() != null) {
+                    String httpUrl = baseUrl + "/generated-image/" + downloadResult.filename();
+                    localImageUrls.add(httpUrl);
                 }
             }
+            
+            // Return based on configuration
+            if (keepRemoteUrl) {
+                return new ImageResult(prompt, imageUrls, localPaths, localImageUrls);
+            } else {
+                return new ImageResult(prompt, List.of(), localPaths, localImageUrls);
+            }
+        } catch (IOException e) {
+            log.error("Error generating image", e);
+            throw new RuntimeException("Failed to generate image: " + e.getMessage(), e);
+        }
+    }
+    
+    private List<String> requestImageUrls(Request request) {
+        try (Response response = CallDeadline.apply(httpClient.newCall(request)).execute()) {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "No error body";
+                log.error("OpenAI Images API error: {} - {}", response.code(), errorBody);
+                throw new RuntimeException("OpenAI Images API failed: " + response.code());
+            }
+            
+            String responseBody = response.body().string();
+            ImageGenerationResponse apiResponse = objectMapper.readValue(responseBody, ImageGenerationResponse.class);
+            
+            return apiResponse.data().stream()
+                    .map(ImageData::url)
+                    .toList();
         } catch (IOException e) {
             log.error("Error generating image", e);
             throw new RuntimeException("Failed to generate image: " + e.getMessage(), e);
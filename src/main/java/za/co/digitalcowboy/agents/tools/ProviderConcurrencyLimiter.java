@@ -0,0 +1,117 @@
+package za.co.digitalcowboy.agents.tools;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of in-flight calls to each downstream provider. With virtual threads
+ * the executors no longer bound concurrency, so these permits are what protect OpenAI,
+ * SerpAPI and the image CDN from a burst of generations.
+ */
+@Component
+public class ProviderConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderConcurrencyLimiter.class);
+
+    public enum Provider {
+        OPENAI_CHAT("openai-chat"),
+        OPENAI_IMAGES("openai-images"),
+        SERPAPI("serpapi"),
+        IMAGE_DOWNLOAD("image-download");
+
+        private final String value;
+
+        Provider(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private final Map<Provider, Semaphore> permits = new EnumMap<>(Provider.class);
+    private final long acquireTimeoutMs;
+
+    public ProviderConcurrencyLimiter(@Value("${providers.limits.openai-chat:16}") int openAiChatLimit,
+                                      @Value("${providers.limits.openai-images:4}") int openAiImagesLimit,
+                                      @Value("${providers.limits.serpapi:8}") int serpApiLimit,
+                                      @Value("${providers.limits.image-download:8}") int imageDownloadLimit,
+                                      @Value("${providers.acquire-timeout-ms:60000}") long acquireTimeoutMs,
+                                      MeterRegistry meterRegistry) {
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        register(Provider.OPENAI_CHAT, openAiChatLimit, meterRegistry);
+        register(Provider.OPENAI_IMAGES, openAiImagesLimit, meterRegistry);
+        register(Provider.SERPAPI, serpApiLimit, meterRegistry);
+        register(Provider.IMAGE_DOWNLOAD, imageDownloadLimit, meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} once a permit for {@code provider} is available.
+     *
+     * @throws IllegalStateException if no permit frees up within the acquire timeout
+     */
+    public <T> T call(Provider provider, Supplier<T> call) {
+        try (Permit permit = acquire(provider)) {
+            return call.get();
+        }
+    }
+
+    /**
+     * Takes a permit for calls that complete asynchronously, such as streamed completions.
+     * The caller must close it when the call finishes; closing more than once is harmless.
+     *
+     * @throws IllegalStateException if no permit frees up within the acquire timeout
+     */
+    public Permit acquire(Provider provider) {
+        Semaphore semaphore = permits.get(provider);
+        // Waiting for a permit spends the same generation budget as the call itself
+        long timeoutMs = CallDeadline.cap(Duration.ofMillis(acquireTimeoutMs)).toMillis();
+        try {
+            if (!semaphore.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Timed out after {}ms waiting for {} capacity", timeoutMs, provider.getValue());
+                throw new IllegalStateException("Timed out waiting for " + provider.getValue() + " capacity");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + provider.getValue() + " capacity", e);
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        };
+    }
+
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private void register(Provider provider, int limit, MeterRegistry meterRegistry) {
+        Semaphore semaphore = new Semaphore(limit, true);
+        permits.put(provider, semaphore);
+
+        Gauge.builder("provider.calls.in_flight", semaphore, s -> limit - s.availablePermits())
+                .description("Calls currently in flight to a downstream provider")
+                .tag("provider", provider.getValue())
+                .register(meterRegistry);
+        Gauge.builder("provider.calls.waiting", semaphore, Semaphore::getQueueLength)
+                .description("Callers waiting for a downstream provider permit")
+                .tag("provider", provider.getValue())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,232 @@
+package za.co.digitalcowboy.agents.tools;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.model.Tokenizer;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import za.co.digitalcowboy.agents.config.ModelRoutingProperties;
+import za.co.digitalcowboy.agents.config.ModelRoutingProperties.Profile;
+import za.co.digitalcowboy.agents.domain.ModelStep;
+import za.co.digitalcowboy.agents.service.llm.LatencyWindow;
+import za.co.digitalcowboy.agents.service.llm.ModelRoute;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Sends each chat completion to the model profile of the {@link CallStep} making it, or to
+ * the {@link CallRoute} an outer decorator already selected for it. A
+ * profile with a {@code downgrade-to} hands the call to that faster profile instead when
+ * less than {@code llm.routing.downgrade-below-budget} is left of the generation deadline,
+ * or when its own recent p95 latency is over {@code degraded-p95}.
+ *
+ * <p>Also records how many tokens each call leads with in system messages: the static
+ * prefix a provider can serve from its prompt cache once it is long enough.
+ */
+public class RoutingChatLanguageModel implements ChatLanguageModel {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutingChatLanguageModel.class);
+    // System messages are prompt constants, so this stays small; the cap guards against any that are not
+    private static final int MAX_PREFIXES = 64;
+
+    private final Map<String, ChatLanguageModel> models;
+    private final ModelRoutingProperties properties;
+    private final Tokenizer tokenizer;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ProfileMeters> meters = new HashMap<>();
+    private final Map<String, Integer> prefixTokens = new ConcurrentHashMap<>();
+
+    public RoutingChatLanguageModel(Map<String, ChatLanguageModel> models, ModelRoutingProperties properties,
+                                    Tokenizer tokenizer, MeterRegistry meterRegistry) {
+        this.models = Map.copyOf(models);
+        this.properties = properties;
+        this.tokenizer = tokenizer;
+        this.meterRegistry = meterRegistry;
+        for (String name : properties.getProfiles().keySet()) {
+            meters.put(name, new ProfileMeters(name, properties, meterRegistry));
+        }
+        validate();
+    }
+
+    /** The route the current thread's next call will take. */
+    public ModelRoute select() {
+        ModelStep step = CallStep.current();
+        String name = properties.profileFor(step);
+        Profile profile = properties.getProfiles().get(name);
+        String reason = "configured";
+
+        String fallback = profile.getDowngradeTo();
+        if (fallback != null && !fallback.isBlank()) {
+            if (isBudgetTight()) {
+                reason = "budget";
+            } else if (isDegraded(name, profile)) {
+                reason = "degraded";
+            }
+            if (!"configured".equals(reason)) {
+                log.debug("Routing {} call from profile {} to {} ({})", step != null ? step.getValue() : "unscoped", name, fallback, reason);
+                name = fallback;
+                profile = properties.getProfiles().get(fallback);
+            }
+        }
+        return new ModelRoute(name, profile.getModel(), profile.getTemperature(), profile.getMaxTokens(), reason);
+    }
+
+    // A route pinned by an outer decorator was selected for this very call; selecting again
+    // could pick another profile if a downgrade kicked in in between
+    ModelRoute route() {
+        ModelRoute pinned = CallRoute.current();
+        return pinned != null ? pinned : select();
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        ModelRoute route = route();
+        return call(route, messages, () -> models.get(route.profile()).generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        ModelRoute route = route();
+        return call(route, messages, () -> models.get(route.profile()).generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        ModelRoute route = route();
+        return call(route, messages, () -> models.get(route.profile()).generate(messages, toolSpecification));
+    }
+
+    private Response<AiMessage> call(ModelRoute route, List<ChatMessage> messages, Supplier<Response<AiMessage>> call) {
+        ModelStep step = CallStep.current();
+        String stepName = step != null ? step.getValue() : "none";
+        meterRegistry.counter("llm.profile.requests",
+            "profile", route.profile(),
+            "step", stepName,
+            "reason", route.reason()).increment();
+        meterRegistry.summary("llm.prompt.prefix.tokens", "step", stepName).record(prefixTokens(messages));
+
+        ProfileMeters profileMeters = meters.get(route.profile());
+        long start = System.nanoTime();
+        try {
+            Response<AiMessage> response = call.get();
+            TokenUsage usage = response != null ? response.tokenUsage() : null;
+            if (usage != null) {
+                profileMeters.inputTokens.increment(usage.inputTokenCount() != null ? usage.inputTokenCount() : 0);
+                profileMeters.outputTokens.increment(usage.outputTokenCount() != null ? usage.outputTokenCount() : 0);
+            }
+            return response;
+        } finally {
+            // Failures count too: a profile timing out is the one most in need of passing over
+            long elapsed = System.nanoTime() - start;
+            profileMeters.duration.record(elapsed, TimeUnit.NANOSECONDS);
+            profileMeters.latencies.record(elapsed);
+        }
+    }
+
+    /** Tokens in the system messages at the head of the conversation, before any user input. */
+    private int prefixTokens(List<ChatMessage> messages) {
+        int tokens = 0;
+        for (ChatMessage message : messages) {
+            if (!(message instanceof SystemMessage system)) {
+                break;
+            }
+            Integer known = prefixTokens.get(system.text());
+            if (known == null) {
+                known = tokenizer.estimateTokenCountInText(system.text());
+                if (prefixTokens.size() < MAX_PREFIXES) {
+                    prefixTokens.put(system.text(), known);
+                }
+            }
+            tokens += known;
+        }
+        return tokens;
+    }
+
+    private boolean isBudgetTight() {
+        Instant deadline = CallDeadline.current();
+        return deadline != null
+            && Duration.between(Instant.now(), deadline).compareTo(properties.getDowngradeBelowBudget()) < 0;
+    }
+
+    private boolean isDegraded(String name, Profile profile) {
+        Duration threshold = profile.getDegradedP95();
+        if (threshold == null || threshold.isZero() || threshold.isNegative()) {
+            return false;
+        }
+        Duration p95 = meters.get(name).latencies.p95();
+        return p95 != null && p95.compareTo(threshold) > 0;
+    }
+
+    private void validate() {
+        Map<String, Profile> profiles = properties.getProfiles();
+        if (!profiles.containsKey(properties.getDefaultProfile())) {
+            throw new IllegalStateException("Unknown default model profile: " + properties.getDefaultProfile());
+        }
+        properties.getSteps().forEach((step, name) -> {
+            if (!profiles.containsKey(name)) {
+                throw new IllegalStateException("Step " + step.getValue() + " uses unknown model profile: " + name);
+            }
+        });
+        profiles.forEach((name, profile) -> {
+            if (!models.containsKey(name)) {
+                throw new IllegalStateException("No chat model for profile: " + name);
+            }
+            String fallback = profile.getDowngradeTo();
+            if (fallback != null && !fallback.isBlank() && !profiles.containsKey(fallback)) {
+                throw new IllegalStateException("Profile " + name + " downgrades to unknown profile: " + fallback);
+            }
+        });
+    }
+
+    private static class ProfileMeters {
+
+        private final Timer duration;
+        private final Counter inputTokens;
+        private final Counter outputTokens;
+        private final LatencyWindow latencies;
+
+        ProfileMeters(String profile, ModelRoutingProperties properties, MeterRegistry meterRegistry) {
+            this.duration = Timer.builder("llm.profile.duration")
+                .description("Chat completion latency per model profile")
+                .tag("profile", profile)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+            this.inputTokens = tokens(meterRegistry, profile, "input");
+            this.outputTokens = tokens(meterRegistry, profile, "output");
+            this.latencies = new LatencyWindow(properties.getLatencyWindowSize(), properties.getLatencyWindowAge(),
+                properties.getLatencyMinSamples());
+            TimeGauge.builder("llm.profile.recent.p95", latencies, TimeUnit.MILLISECONDS,
+                    window -> {
+                        Duration p95 = window.p95();
+                        return p95 != null ? p95.toMillis() : 0;
+                    })
+                .description("p95 latency of the profile's recent calls, which downgrade decisions use")
+                .tag("profile", profile)
+                .register(meterRegistry);
+        }
+
+        private static Counter tokens(MeterRegistry meterRegistry, String profile, String type) {
+            return Counter.builder("llm.profile.tokens")
+                .description("Tokens used per model profile")
+                .tag("profile", profile)
+                .tag("type", type)
+                .register(meterRegistry);
+        }
+    }
+}
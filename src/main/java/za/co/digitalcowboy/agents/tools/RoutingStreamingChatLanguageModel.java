@@ -0,0 +1,65 @@
+package za.co.digitalcowboy.agents.tools;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import za.co.digitalcowboy.agents.domain.ModelStep;
+import za.co.digitalcowboy.agents.service.llm.ModelRoute;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming counterpart of {@link RoutingChatLanguageModel}. The blocking router selects
+ * the route, so a streamed completion goes to the same profile, and is downgraded under
+ * the same conditions, as a blocking call from its step would be. Streamed calls are
+ * counted in {@code llm.profile.requests} but stay out of the latency window, since their
+ * duration is the length of the answer rather than the wait for it.
+ */
+public class RoutingStreamingChatLanguageModel implements StreamingChatLanguageModel {
+
+    private final Map<String, StreamingChatLanguageModel> models;
+    private final RoutingChatLanguageModel router;
+    private final MeterRegistry meterRegistry;
+
+    public RoutingStreamingChatLanguageModel(Map<String, StreamingChatLanguageModel> models,
+                                             RoutingChatLanguageModel router, MeterRegistry meterRegistry) {
+        this.models = Map.copyOf(models);
+        this.router = router;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        model().generate(messages, handler);
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications,
+                         StreamingResponseHandler<AiMessage> handler) {
+        model().generate(messages, toolSpecifications, handler);
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification,
+                         StreamingResponseHandler<AiMessage> handler) {
+        model().generate(messages, toolSpecification, handler);
+    }
+
+    private StreamingChatLanguageModel model() {
+        ModelRoute route = router.route();
+        StreamingChatLanguageModel model = models.get(route.profile());
+        if (model == null) {
+            throw new IllegalStateException("No streaming chat model for profile: " + route.profile());
+        }
+        ModelStep step = CallStep.current();
+        meterRegistry.counter("llm.profile.requests",
+            "profile", route.profile(),
+            "step", step != null ? step.getValue() : "none",
+            "reason", route.reason()).increment();
+        return model;
+    }
+}
@@ -0,0 +1,55 @@
+package za.co.digitalcowboy.agents.tools;
+
+import java.text.Normalizer;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reduces a search query to a cache key, so generated queries that differ only trivially
+ * in wording share one cached response. The key is the set of significant words, lower
+ * case, without punctuation or stopwords, in sorted order. The current year is dropped too,
+ * since cached responses already stay fresh for much less than a year.
+ */
+public final class SearchQueryCanonicalizer {
+
+    private static final Set<String> STOPWORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "how", "in", "is", "it",
+        "of", "on", "or", "the", "this", "to", "what", "when", "where", "which", "who", "why",
+        "with", "about", "into", "vs", "versus");
+
+    private SearchQueryCanonicalizer() {
+    }
+
+    public static String canonicalize(String query) {
+        return canonicalize(query, Year.now());
+    }
+
+    static String canonicalize(String query, Year currentYear) {
+        String year = currentYear.toString();
+        String key = tokens(query).stream()
+            .filter(token -> !token.equals(year))
+            .distinct()
+            .sorted()
+            .collect(Collectors.joining(" "));
+
+        // A query made only of stopwords still needs a key of its own
+        return key.isEmpty() ? normalize(query).strip().replaceAll("\\s+", " ") : key;
+    }
+
+    /** The significant words of {@code text} in order: lower case, without punctuation or stopwords. */
+    public static List<String> tokens(String text) {
+        // Keep + and # so that queries like "c++" and "c#" stay distinct from "c"
+        return Arrays.stream(normalize(text).split("[^\\p{L}\\p{N}+#]+"))
+            .filter(token -> !token.isEmpty())
+            .filter(token -> !STOPWORDS.contains(token))
+            .toList();
+    }
+
+    private static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+}
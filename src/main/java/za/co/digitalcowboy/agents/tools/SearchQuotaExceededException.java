@@ -0,0 +1,12 @@
+package za.co.digitalcowboy.agents.tools;
+
+/**
+ * Thrown when a search is not sent to SerpAPI because the plan's rate or monthly quota
+ * leaves no room for it. Callers fall back to cached or locally indexed results.
+ */
+public class SearchQuotaExceededException extends RuntimeException {
+
+    public SearchQuotaExceededException(String message) {
+        super(message);
+    }
+}
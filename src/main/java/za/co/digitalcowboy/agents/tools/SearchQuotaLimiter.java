@@ -0,0 +1,263 @@
+package za.co.digitalcowboy.agents.tools;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.SerpApiQuotaProperties;
+import za.co.digitalcowboy.agents.domain.TaskPriority;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps SerpAPI calls within the plan's per-second rate and monthly quota. The rate is a
+ * token bucket of {@code serpapi.quota.burst} searches refilled at
+ * {@code requests-per-second}; a search without a token queues for up to
+ * {@code max-wait}, never past its generation deadline. Interactive searches are served
+ * ahead of bulk ones while both are queued, and bulk searches may not use the last
+ * {@code bulk-reserve} of the monthly quota.
+ *
+ * <p>Usage is counted locally and, when the account API is available, replaced by the
+ * account's own figure on each sync so that every instance sees the shared total.
+ */
+@Component
+public class SearchQuotaLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchQuotaLimiter.class);
+
+    private final SerpApiQuotaProperties properties;
+    private final Clock clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final int[] waiting = new int[TaskPriority.values().length];
+    private double tokens;
+    private long refilledAt;
+    // After a 429 no search goes out before this
+    private long pausedUntil;
+
+    private YearMonth month;
+    private long usedThisMonth;
+    private long accountQuota;
+
+    private final Map<TaskPriority, Counter> acquired = new EnumMap<>(TaskPriority.class);
+    private final Map<TaskPriority, Counter> rateLimited = new EnumMap<>(TaskPriority.class);
+    private final Map<TaskPriority, Counter> quotaExhausted = new EnumMap<>(TaskPriority.class);
+
+    @Autowired
+    public SearchQuotaLimiter(SerpApiQuotaProperties properties, MeterRegistry meterRegistry) {
+        this(properties, Clock.systemUTC(), meterRegistry);
+    }
+
+    SearchQuotaLimiter(SerpApiQuotaProperties properties, Clock clock, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.clock = clock;
+        this.tokens = properties.getBurst();
+        this.refilledAt = System.nanoTime();
+        this.pausedUntil = refilledAt;
+        this.month = YearMonth.now(clock.withZone(ZoneOffset.UTC));
+
+        for (TaskPriority priority : TaskPriority.values()) {
+            acquired.put(priority, requests(meterRegistry, priority, "acquired"));
+            rateLimited.put(priority, requests(meterRegistry, priority, "rate_limited"));
+            quotaExhausted.put(priority, requests(meterRegistry, priority, "quota_exhausted"));
+        }
+        Gauge.builder("serpapi.quota.used", this, SearchQuotaLimiter::getUsedThisMonth)
+            .description("SerpAPI searches used this calendar month")
+            .register(meterRegistry);
+        Gauge.builder("serpapi.quota.remaining", this, SearchQuotaLimiter::remaining)
+            .description("SerpAPI searches left this month, if the quota is known")
+            .register(meterRegistry);
+        Gauge.builder("serpapi.quota.projected.usage", this, SearchQuotaLimiter::projectedMonthUsage)
+            .description("SerpAPI searches this month will use at the month-to-date rate")
+            .register(meterRegistry);
+        Gauge.builder("serpapi.quota.exhaustion.seconds", this, SearchQuotaLimiter::secondsUntilExhaustion)
+            .description("Time until the monthly quota runs out at the month-to-date rate")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Takes a slot for one search, waiting for the rate limit if need be.
+     *
+     * @throws SearchQuotaExceededException if the monthly quota is used up for this priority
+     *         or no slot frees up in time
+     * @throws DeadlineExceededException if the generation deadline has already passed
+     */
+    public void acquire(TaskPriority priority) {
+        if (!properties.isEnabled()) {
+            lock.lock();
+            try {
+                rollMonth();
+                usedThisMonth++;
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+
+        Duration maxWait = CallDeadline.cap(properties.getMaxWait());
+        long giveUpAt = System.nanoTime() + maxWait.toNanos();
+        lock.lock();
+        waiting[priority.ordinal()]++;
+        try {
+            while (true) {
+                rollMonth();
+                if (!withinQuota(priority)) {
+                    quotaExhausted.get(priority).increment();
+                    throw new SearchQuotaExceededException("Monthly SerpAPI quota used up for " + priority.getValue()
+                        + " searches (" + usedThisMonth + " of " + quota() + ")");
+                }
+
+                long now = System.nanoTime();
+                refill(now);
+                // Bulk searches give way while an interactive one is queued
+                boolean turn = priority == TaskPriority.INTERACTIVE || waiting[TaskPriority.INTERACTIVE.ordinal()] == 0;
+                boolean paused = now - pausedUntil < 0;
+                if (turn && !paused && tokens >= 1) {
+                    tokens -= 1;
+                    usedThisMonth++;
+                    acquired.get(priority).increment();
+                    return;
+                }
+
+                long remaining = giveUpAt - now;
+                if (remaining <= 0) {
+                    rateLimited.get(priority).increment();
+                    throw new SearchQuotaExceededException("No SerpAPI slot for a " + priority.getValue()
+                        + " search within " + maxWait.toMillis() + "ms");
+                }
+                long untilSlot = !turn ? remaining
+                    : paused ? pausedUntil - now
+                    : (long) Math.ceil((1 - tokens) / properties.getRequestsPerSecond() * 1e9);
+                changed.awaitNanos(Math.max(1, Math.min(untilSlot, remaining)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SearchQuotaExceededException("Interrupted waiting for a SerpAPI slot");
+        } finally {
+            waiting[priority.ordinal()]--;
+            changed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    /** Holds every search back for {@code retryAfter}, after SerpAPI answered 429. */
+    public void pause(Duration retryAfter) {
+        lock.lock();
+        try {
+            long until = System.nanoTime() + retryAfter.toNanos();
+            if (until - pausedUntil > 0) {
+                pausedUntil = until;
+            }
+            tokens = 0;
+            log.warn("SerpAPI rate limit hit, pausing searches for {}ms", retryAfter.toMillis());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the local usage count with the account's. A plan limit of 0 or less is
+     * ignored, as is any plan limit when {@code serpapi.quota.monthly-quota} is set.
+     */
+    public void syncUsage(long used, long planQuota) {
+        lock.lock();
+        try {
+            rollMonth();
+            usedThisMonth = used;
+            accountQuota = Math.max(0, planQuota);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isAccountSyncEnabled() {
+        return properties.isEnabled() && properties.isSyncWithAccount();
+    }
+
+    public long getUsedThisMonth() {
+        lock.lock();
+        try {
+            rollMonth();
+            return usedThisMonth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The monthly quota in force, or 0 if unknown. */
+    public long quota() {
+        return properties.getMonthlyQuota() > 0 ? properties.getMonthlyQuota() : accountQuota;
+    }
+
+    public double remaining() {
+        long quota = quota();
+        return quota > 0 ? Math.max(0, quota - getUsedThisMonth()) : Double.NaN;
+    }
+
+    public double projectedMonthUsage() {
+        Instant now = clock.instant();
+        double elapsed = Math.max(3600, Duration.between(monthStart(), now).toSeconds());
+        double length = Duration.between(monthStart(), month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC)).toSeconds();
+        return getUsedThisMonth() * length / elapsed;
+    }
+
+    /** Seconds until the quota runs out at this month's rate so far; NaN if it is unknown or unused. */
+    public double secondsUntilExhaustion() {
+        long quota = quota();
+        long used = getUsedThisMonth();
+        if (quota <= 0 || used == 0) {
+            return Double.NaN;
+        }
+        double elapsed = Math.max(3600, Duration.between(monthStart(), clock.instant()).toSeconds());
+        return Math.max(0, quota - used) / (used / elapsed);
+    }
+
+    private boolean withinQuota(TaskPriority priority) {
+        long quota = quota();
+        if (quota <= 0) {
+            return true;
+        }
+        double limit = priority == TaskPriority.BULK ? quota * (1 - properties.getBulkReserve()) : quota;
+        return usedThisMonth < limit;
+    }
+
+    private void refill(long now) {
+        double earned = (now - refilledAt) / 1e9 * properties.getRequestsPerSecond();
+        tokens = Math.min(properties.getBurst(), tokens + earned);
+        refilledAt = now;
+    }
+
+    private void rollMonth() {
+        YearMonth current = YearMonth.now(clock.withZone(ZoneOffset.UTC));
+        if (!current.equals(month)) {
+            month = current;
+            usedThisMonth = 0;
+        }
+    }
+
+    private Instant monthStart() {
+        return month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, TaskPriority priority, String result) {
+        return Counter.builder("serpapi.quota.requests")
+            .description("Searches let through or held back by the SerpAPI rate and quota limits")
+            .tag("priority", priority.getValue())
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,163 @@
+package za.co.digitalcowboy.agents.tools;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a SerpAPI search response as a stream, picking out the organic results, knowledge
+ * graph and search metadata and skipping everything else (ads, images, related questions)
+ * without building it in memory. Results past {@code maxResults} are skipped the same way.
+ *
+ * <p>Fields of an unexpected type are read as empty rather than failing the response; a
+ * body that is not JSON at all fails with an {@link IOException}.
+ */
+public final class SerpApiResponseParser {
+
+    private SerpApiResponseParser() {
+    }
+
+    public static WebSearchResponse parse(String query, Reader body, int maxResults) throws IOException {
+        List<SearchResult> results = new ArrayList<>();
+        Map<String, Object> knowledgeGraph = new HashMap<>();
+        long totalResults = 0L;
+        double searchTime = 0.0;
+
+        JsonReader reader = new JsonReader(body);
+        reader.setLenient(true);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "organic_results" -> readOrganicResults(reader, results, maxResults);
+                case "knowledge_graph" -> readKnowledgeGraph(reader, knowledgeGraph);
+                case "search_information" -> {
+                    if (!expect(reader, JsonToken.BEGIN_OBJECT)) {
+                        continue;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "total_results" -> totalResults = readLong(reader);
+                            // Either a number or a string like "0.45 seconds"
+                            case "time_taken_displayed" -> searchTime = parseSeconds(readString(reader));
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new WebSearchResponse(query, results, knowledgeGraph, totalResults, searchTime);
+    }
+
+    private static void readOrganicResults(JsonReader reader, List<SearchResult> results, int maxResults) throws IOException {
+        if (!expect(reader, JsonToken.BEGIN_ARRAY)) {
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (results.size() >= maxResults || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            String title = "", snippet = "", link = "", displayLink = "", date = "";
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "title" -> title = readString(reader);
+                    case "snippet" -> snippet = readString(reader);
+                    case "link" -> link = readString(reader);
+                    case "displayed_link" -> displayLink = readString(reader);
+                    case "date" -> date = readString(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            results.add(new SearchResult(title, snippet, link, displayLink, date, results.size() + 1));
+        }
+        reader.endArray();
+    }
+
+    private static void readKnowledgeGraph(JsonReader reader, Map<String, Object> knowledgeGraph) throws IOException {
+        if (!expect(reader, JsonToken.BEGIN_OBJECT)) {
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "title" -> putIfPresent(knowledgeGraph, "title", readString(reader));
+                case "description" -> putIfPresent(knowledgeGraph, "description", readString(reader));
+                case "source" -> {
+                    if (!expect(reader, JsonToken.BEGIN_OBJECT)) {
+                        continue;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (reader.nextName().equals("link")) {
+                            putIfPresent(knowledgeGraph, "sourceLink", readString(reader));
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    // Skips the value and returns false unless it starts with the expected token
+    private static boolean expect(JsonReader reader, JsonToken token) throws IOException {
+        if (reader.peek() == token) {
+            return true;
+        }
+        reader.skipValue();
+        return false;
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        return switch (reader.peek()) {
+            case STRING, NUMBER -> reader.nextString();
+            case BOOLEAN -> String.valueOf(reader.nextBoolean());
+            default -> {
+                reader.skipValue();
+                yield "";
+            }
+        };
+    }
+
+    private static long readLong(JsonReader reader) throws IOException {
+        String value = readString(reader).replaceAll("[^0-9]", "");
+        try {
+            return value.isEmpty() ? 0L : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static double parseSeconds(String value) {
+        try {
+            return Double.parseDouble(value.replaceAll("[^0-9.]", ""));
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    private static void putIfPresent(Map<String, Object> map, String key, String value) {
+        if (!value.isEmpty()) {
+            map.put(key, value);
+        }
+    }
+}
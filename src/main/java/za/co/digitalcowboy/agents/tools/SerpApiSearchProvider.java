@@ -0,0 +1,181 @@
+package za.co.digitalcowboy.agents.tools;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import za.co.digitalcowboy.agents.config.SearchProviderProperties;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.service.search.FixtureSearchProvider;
+import za.co.digitalcowboy.agents.service.search.SearchProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Google search through SerpAPI. Each call takes a slot from the {@link SearchQuotaLimiter}
+ * and a SerpAPI permit from the {@link ProviderConcurrencyLimiter} before it goes out.
+ */
+@Component
+public class SerpApiSearchProvider implements SearchProvider {
+    
+    private static final Logger log = LoggerFactory.getLogger(SerpApiSearchProvider.class);
+    
+    @Value("${serpapi.api-key:}")
+    private String apiKey;
+    
+    @Value("${serpapi.search-engine:google}")
+    private String searchEngine;
+    
+    @Value("${serpapi.location:United States}")
+    private String location;
+    
+    @Value("${serpapi.max-results:5}")
+    private int maxResults;
+    
+    @Value("${serpapi.enabled:true}")
+    private boolean enabled;
+    
+    private final OkHttpClient httpClient;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final SearchQuotaLimiter quotaLimiter;
+    // Where live responses are recorded as fixtures, or null
+    private final Path fixtureDirectory;
+    
+    public SerpApiSearchProvider(ProviderConcurrencyLimiter concurrencyLimiter,
+                                 SearchQuotaLimiter quotaLimiter,
+                                 SearchProviderProperties providerProperties) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.quotaLimiter = quotaLimiter;
+        this.fixtureDirectory = providerProperties.isRecordFixtures() ? Paths.get(providerProperties.getFixturePath()) : null;
+        this.httpClient = new OkHttpClient.Builder()
+            .connectTimeout(30, TimeUnit.SECONDS)
+            .readTimeout(30, TimeUnit.SECONDS)
+            .build();
+    }
+    
+    @Override
+    public String name() {
+        return "serpapi";
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return enabled && apiKey != null && !apiKey.isEmpty();
+    }
+    
+    /**
+     * @throws SearchQuotaExceededException if the rate or monthly quota leaves no room, or
+     *         SerpAPI answers 429
+     */
+    @Override
+    public WebSearchResponse search(String query) {
+        quotaLimiter.acquire(CallPriority.current());
+        log.debug("Searching web for query: {}", query);
+        
+        Request request = new Request.Builder()
+            .url(buildSearchUrl(query))
+            .get()
+            .build();
+        
+        return concurrencyLimiter.call(ProviderConcurrencyLimiter.Provider.SERPAPI, () -> {
+            try (Response response = CallDeadline.apply(httpClient.newCall(request)).execute()) {
+                if (response.code() == 429) {
+                    quotaLimiter.pause(retryAfter(response));
+                    throw new SearchQuotaExceededException("SerpAPI rejected the search with HTTP 429");
+                }
+                if (!response.isSuccessful()) {
+                    throw new IllegalStateException("SERP API request failed with status: " + response.code());
+                }
+                
+                WebSearchResponse parsed;
+                if (fixtureDirectory != null) {
+                    byte[] body = response.body().bytes();
+                    record(query, body);
+                    parsed = SerpApiResponseParser.parse(query,
+                        new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8), maxResults);
+                } else {
+                    // Parsed straight off the socket; the bulk of the payload is never built
+                    parsed = SerpApiResponseParser.parse(query, response.body().charStream(), maxResults);
+                }
+                log.debug("Parsed {} search results for query: {}", parsed.results().size(), query);
+                return parsed;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    /**
+     * Brings the quota usage in line with the SerpAPI account, which counts the searches of
+     * every instance sharing the key. The account API does not count against the quota.
+     */
+    @Scheduled(fixedDelayString = "${serpapi.quota.sync-interval-ms:600000}")
+    public void syncQuota() {
+        if (!isEnabled() || !quotaLimiter.isAccountSyncEnabled()) {
+            return;
+        }
+        HttpUrl url = HttpUrl.parse("https://serpapi.com/account").newBuilder()
+            .addQueryParameter("api_key", apiKey)
+            .build();
+        try (Response response = httpClient.newCall(new Request.Builder().url(url).get().build()).execute()) {
+            if (!response.isSuccessful()) {
+                log.warn("SerpAPI account lookup failed with status: {}", response.code());
+                return;
+            }
+            JsonObject account = JsonParser.parseReader(response.body().charStream()).getAsJsonObject();
+            long used = account.has("this_month_usage") ? account.get("this_month_usage").getAsLong() : 0;
+            long planQuota = account.has("searches_per_month") ? account.get("searches_per_month").getAsLong() : 0;
+            quotaLimiter.syncUsage(used, planQuota);
+            log.debug("SerpAPI quota synced: {} of {} searches used this month", used, planQuota);
+        } catch (Exception e) {
+            log.warn("Failed to sync SerpAPI quota usage", e);
+        }
+    }
+    
+    private void record(String query, byte[] body) {
+        try {
+            Files.createDirectories(fixtureDirectory);
+            Files.write(fixtureDirectory.resolve(FixtureSearchProvider.fileName(query)), body);
+        } catch (IOException e) {
+            log.warn("Failed to record search fixture for query: {}", query, e);
+        }
+    }
+    
+    private HttpUrl buildSearchUrl(String query) {
+        return HttpUrl.parse("https://serpapi.com/search")
+            .newBuilder()
+            .addQueryParameter("api_key", apiKey)
+            .addQueryParameter("engine", searchEngine)
+            .addQueryParameter("q", query)
+            .addQueryParameter("location", location)
+            .addQueryParameter("hl", "en")
+            .addQueryParameter("gl", "us")
+            .addQueryParameter("num", String.valueOf(maxResults))
+            .build();
+    }
+    
+    private static Duration retryAfter(Response response) {
+        String header = response.header("Retry-After");
+        try {
+            return header != null ? Duration.ofSeconds(Long.parseLong(header.trim())) : Duration.ofSeconds(1);
+        } catch (NumberFormatException e) {
+            return Duration.ofSeconds(1);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package za.co.digitalcowboy.agents.tools;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import za.co.digitalcowboy.agents.service.llm.TokenAccounting;
+
+import java.util.List;
+
+/**
+ * Passes the token usage of each completion from {@code model} to {@link TokenAccounting},
+ * under the caller's {@link CallStep} and charged to its {@link CallBudget}.
+ */
+public class TokenAccountingChatLanguageModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final String model;
+    private final TokenAccounting accounting;
+
+    public TokenAccountingChatLanguageModel(ChatLanguageModel delegate, String model, TokenAccounting accounting) {
+        this.delegate = delegate;
+        this.model = model;
+        this.accounting = accounting;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return recorded(delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return recorded(delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return recorded(delegate.generate(messages, toolSpecification));
+    }
+
+    private Response<AiMessage> recorded(Response<AiMessage> response) {
+        if (response != null) {
+            accounting.record(CallStep.current(), model, CallBudget.current(), response.tokenUsage());
+        }
+        return response;
+    }
+}
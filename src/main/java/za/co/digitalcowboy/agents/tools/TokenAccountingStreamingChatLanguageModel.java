@@ -0,0 +1,72 @@
+package za.co.digitalcowboy.agents.tools;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import za.co.digitalcowboy.agents.domain.ModelStep;
+import za.co.digitalcowboy.agents.service.llm.TokenAccounting;
+import za.co.digitalcowboy.agents.service.llm.TokenBudget;
+
+import java.util.List;
+
+/**
+ * Streaming counterpart of {@link TokenAccountingChatLanguageModel}. Completion arrives on
+ * the client's thread, so the caller's step and budget are captured when the call starts.
+ */
+public class TokenAccountingStreamingChatLanguageModel implements StreamingChatLanguageModel {
+
+    private final StreamingChatLanguageModel delegate;
+    private final String model;
+    private final TokenAccounting accounting;
+
+    public TokenAccountingStreamingChatLanguageModel(StreamingChatLanguageModel delegate, String model,
+                                                     TokenAccounting accounting) {
+        this.delegate = delegate;
+        this.model = model;
+        this.accounting = accounting;
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        delegate.generate(messages, recording(handler));
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications,
+                         StreamingResponseHandler<AiMessage> handler) {
+        delegate.generate(messages, toolSpecifications, recording(handler));
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, ToolSpecification toolSpecification,
+                         StreamingResponseHandler<AiMessage> handler) {
+        delegate.generate(messages, toolSpecification, recording(handler));
+    }
+
+    private StreamingResponseHandler<AiMessage> recording(StreamingResponseHandler<AiMessage> handler) {
+        ModelStep step = CallStep.current();
+        TokenBudget budget = CallBudget.current();
+        return new StreamingResponseHandler<>() {
+            @Override
+            public void onNext(String token) {
+                handler.onNext(token);
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                if (response != null) {
+                    accounting.record(step, model, budget, response.tokenUsage());
+                }
+                handler.onComplete(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
+        };
+    }
+}
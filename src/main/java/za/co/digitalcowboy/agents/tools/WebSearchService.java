@@ -0,0 +1,214 @@
+package za.co.digitalcowboy.agents.tools;
+
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import za.co.digitalcowboy.agents.service.search.CachedSearch;
+import za.co.digitalcowboy.agents.service.search.LocalSearchIndex;
+import za.co.digitalcowboy.agents.service.search.SearchProvider;
+import za.co.digitalcowboy.agents.service.search.SearchResponseCache;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Web search for the agents, independent of the backend behind it. The configured
+ * {@link SearchProvider} does the searching; this service adds caching, the local index,
+ * coalescing of identical searches and the multi-query fan-out.
+ */
+@Service
+public class WebSearchService {
+    
+    private static final Logger log = LoggerFactory.getLogger(WebSearchService.class);
+    
+    private final SearchProvider provider;
+    private final SearchResponseCache responseCache;
+    private final LocalSearchIndex localIndex;
+    private final Executor searchExecutor;
+    private final int maxParallelQueries;
+    private final long searchTimeoutMs;
+    private final Timer fanOutTimer;
+    private final SingleFlight<String, WebSearchResponse> inFlightSearches;
+    private final Counter localFallbacks;
+    private final Counter emptyFallbacks;
+    
+    public WebSearchService(@Qualifier("searchProvider") SearchProvider provider,
+                            SearchResponseCache responseCache,
+                            LocalSearchIndex localIndex,
+                            @Qualifier("agentExecutor") Executor searchExecutor,
+                            MeterRegistry meterRegistry,
+                            @Value("${serpapi.max-parallel-queries:3}") int maxParallelQueries,
+                            @Value("${serpapi.search-timeout-ms:30000}") long searchTimeoutMs) {
+        this.provider = provider;
+        this.responseCache = responseCache;
+        this.localIndex = localIndex;
+        this.searchExecutor = searchExecutor;
+        this.maxParallelQueries = Math.max(1, maxParallelQueries);
+        this.searchTimeoutMs = searchTimeoutMs;
+        
+        this.fanOutTimer = Timer.builder("search.fanout.duration")
+            .description("Time to answer every query of a multi-query search")
+            .register(meterRegistry);
+        Counter coalesced = Counter.builder("search.singleflight.coalesced")
+            .description("Searches that shared a provider call already in flight for the same query")
+            .register(meterRegistry);
+        this.inFlightSearches = new SingleFlight<>(coalesced::increment);
+        this.localFallbacks = quotaFallbacks(meterRegistry, "local");
+        this.emptyFallbacks = quotaFallbacks(meterRegistry, "none");
+    }
+    
+    /**
+     * Answers from the search cache when possible. Caching is done here rather than through
+     * {@code @Cacheable} so that {@link #searchMultiple} and every other caller go through it.
+     * Stale responses are returned immediately and refreshed in the background.
+     *
+     * <p>Queries are cached under their {@link SearchQueryCanonicalizer canonical} form, and
+     * concurrent misses for the same canonical query share a single provider call.
+     *
+     * <p>A cache miss is answered from the {@link LocalSearchIndex} when it holds enough
+     * recent, well-matching results, cached as of when those results were fetched; otherwise
+     * the provider is called and its results are indexed.
+     *
+     * <p>When the provider holds a search back for quota, a
+     * stale cached response is still served as usual, and a miss falls back to the best
+     * local matches of any age before coming back empty.
+     */
+    public WebSearchResponse search(String query) {
+        if (!isEnabled()) {
+            log.warn("Search provider {} is not configured or disabled. Returning empty results.", provider.name());
+            return WebSearchResponse.empty(query);
+        }
+        
+        String key = SearchQueryCanonicalizer.canonicalize(query);
+        WebSearchResponse response;
+        try {
+            response = responseCache.getOrLoad(key, k -> {
+                CachedSearch local = localIndex.answer(query);
+                if (local != null) {
+                    return local;
+                }
+                try {
+                    WebSearchResponse fetched = inFlightSearches.execute(k, () -> {
+                        WebSearchResponse result = fetch(query);
+                        localIndex.add(result);
+                        return result;
+                    });
+                    return new CachedSearch(fetched, LocalDateTime.now());
+                } catch (DeadlineExceededException e) {
+                    log.warn("Deadline passed waiting on a shared search for query: {}", query);
+                    return new CachedSearch(WebSearchResponse.empty(query), LocalDateTime.now());
+                }
+            });
+        } catch (SearchQuotaExceededException e) {
+            return fallback(query, e);
+        }
+        
+        // A response shared with another wording still reads as an answer to this query
+        return response.query().equals(query)
+            ? response
+            : new WebSearchResponse(query, response.results(), response.knowledgeGraph(),
+                response.totalResults(), response.searchTime());
+    }
+    
+    /**
+     * Runs the queries side by side, at most {@code serpapi.max-parallel-queries} at a time,
+     * so the batch takes about as long as its slowest query. All of them share one deadline:
+     * the generation's if one is set, otherwise {@code serpapi.search-timeout-ms}. Queries
+     * still running when it passes come back empty.
+     */
+    public List<WebSearchResponse> searchMultiple(List<String> queries) {
+        if (queries.size() <= 1) {
+            return queries.stream().map(this::search).toList();
+        }
+        
+        Instant deadline = CallDeadline.current() != null
+            ? CallDeadline.current()
+            : Instant.now().plusMillis(searchTimeoutMs);
+        AtomicReferenceArray<WebSearchResponse> responses = new AtomicReferenceArray<>(queries.size());
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < queries.size()) {
+                responses.set(i, search(queries.get(i)));
+            }
+        };
+        
+        long start = System.nanoTime();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(maxParallelQueries, queries.size())];
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = CompletableFuture.runAsync(
+                CallContext.propagate(() -> CallDeadline.run(deadline, worker)), searchExecutor);
+        }
+        try {
+            long remainingMs = Math.max(0, deadline.toEpochMilli() - System.currentTimeMillis());
+            CompletableFuture.allOf(workers).get(remainingMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Search deadline reached with queries still running, continuing with partial results");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Search worker failed", e.getCause());
+        }
+        fanOutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        
+        List<WebSearchResponse> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            WebSearchResponse response = responses.get(i);
+            results.add(response != null ? response : WebSearchResponse.empty(queries.get(i)));
+        }
+        return results;
+    }
+    
+    /**
+     * Calls the provider directly, bypassing the cache. Quota and deadline failures are
+     * passed on; anything else comes back as an empty response.
+     */
+    private WebSearchResponse fetch(String query) {
+        try {
+            WebSearchResponse response = provider.search(query);
+            return response != null ? response : WebSearchResponse.empty(query);
+        } catch (SearchQuotaExceededException | DeadlineExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error performing web search for query: {}", query, e);
+            return WebSearchResponse.empty(query);
+        }
+    }
+    
+    private WebSearchResponse fallback(String query, SearchQuotaExceededException e) {
+        WebSearchResponse local = localIndex.bestEffort(query);
+        if (local != null) {
+            localFallbacks.increment();
+            log.warn("{}; answering from {} local results for query: {}", e.getMessage(), local.results().size(), query);
+            return local;
+        }
+        emptyFallbacks.increment();
+        log.warn("{}; no local results for query: {}", e.getMessage(), query);
+        return WebSearchResponse.empty(query);
+    }
+    
+    private static Counter quotaFallbacks(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("search.quota.fallbacks")
+            .description("Searches held back by the SerpAPI quota and answered without it")
+            .tag("source", source)
+            .register(meterRegistry);
+    }
+    
+    public boolean isEnabled() {
+        return provider.isEnabled();
+    }
+}
@@ -6,14 +6,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class WebSearchTool {
     
     private static final Logger log = LoggerFactory.getLogger(WebSearchTool.class);
     
-    private final SerpApiSearchService searchService;
+    private final WebSearchService searchService;
     
-    public WebSearchTool(SerpApiSearchService searchService) {
+    public WebSearchTool(WebSearchService searchService) {
         this.searchService = searchService;
     }
     
@@ -36,6 +38,15 @@ public class WebSearchTool {
         }
     }
     
+    /**
+     * Runs the searches of several {@link #searchWeb} calls side by side, as the model issues
+     * them in a single turn. Responses come back in the order of {@code queries}.
+     */
+    public List<WebSearchResponse> searchWebAll(List<String> queries) {
+        log.debug("WebSearchTool invoked with {} queries", queries.size());
+        return searchService.searchMultiple(queries);
+    }
+    
     @Tool("Generate effective search queries for a topic")
     public String[] generateSearchQueries(String topic, int numberOfQueries) {
         log.debug("Generating {} search queries for topic: {}", numberOfQueries, topic);
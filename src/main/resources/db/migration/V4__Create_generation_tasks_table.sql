@@ -0,0 +1,13 @@
+CREATE TABLE generation_tasks (
+    id VARCHAR(36) PRIMARY KEY,
+    status ENUM('PENDING', 'IN_PROGRESS', 'COMPLETED', 'FAILED') NOT NULL,
+    request_json TEXT NOT NULL,         -- TopicRequest as JSON
+    result_json_gz LONGBLOB,            -- Gzip-compressed OrchestrationResult JSON
+    error TEXT,
+    created_at TIMESTAMP(3) NOT NULL,
+    updated_at TIMESTAMP(3) NOT NULL,
+    completed_at TIMESTAMP(3) NULL,
+    
+    INDEX idx_status (status),
+    INDEX idx_created_at (created_at)
+);
@@ -0,0 +1,6 @@
+-- Retention is per status and measured from the last update, so expiry deletes
+-- walk one (status, updated_at) range per status
+
+ALTER TABLE generation_tasks
+ADD INDEX idx_status_updated_at (status, updated_at),
+DROP INDEX idx_status;
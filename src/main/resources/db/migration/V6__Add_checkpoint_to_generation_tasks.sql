@@ -0,0 +1,5 @@
+-- Agent state after the last completed node, gzip-compressed JSON, so failed or
+-- interrupted tasks can resume without repeating finished work
+
+ALTER TABLE generation_tasks
+ADD COLUMN checkpoint_json_gz LONGBLOB NULL AFTER result_json_gz;
@@ -0,0 +1,11 @@
+-- Second tier of the web search cache, shared by every instance and kept across deploys.
+-- Expiry deletes walk the fetched_at index
+
+CREATE TABLE search_cache (
+    query_hash CHAR(64) PRIMARY KEY,    -- SHA-256 of the query, hex encoded
+    query_text TEXT NOT NULL,
+    response_json_gz LONGBLOB NOT NULL, -- Gzip-compressed WebSearchResponse JSON
+    fetched_at TIMESTAMP(3) NOT NULL,
+    
+    INDEX idx_fetched_at (fetched_at)
+);
@@ -0,0 +1,5 @@
+-- Chat completion tokens spent by each task across all of its attempts
+
+ALTER TABLE generation_tasks
+ADD COLUMN input_tokens BIGINT NOT NULL DEFAULT 0 AFTER error,
+ADD COLUMN output_tokens BIGINT NOT NULL DEFAULT 0 AFTER input_tokens;
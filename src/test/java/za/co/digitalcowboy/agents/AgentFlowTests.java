@@ -3,41 +3,72 @@ package za.co.digitalcowboy.agents;
 import za.co.digitalcowboy.agents.agents.ContentAgent;
 import za.co.digitalcowboy.agents.agents.ImageAgent;
 import za.co.digitalcowboy.agents.agents.ResearchAgent;
+import za.co.digitalcowboy.agents.agents.ToolCallingResearcher;
+import za.co.digitalcowboy.agents.config.GenerationDeadlineProperties;
+import za.co.digitalcowboy.agents.config.ResearchCacheProperties;
+import za.co.digitalcowboy.agents.config.ResearchProperties;
+import za.co.digitalcowboy.agents.config.SearchContextProperties;
+import za.co.digitalcowboy.agents.config.TokenBudgetProperties;
 import za.co.digitalcowboy.agents.domain.*;
 import za.co.digitalcowboy.agents.graph.AgentGraph;
+import za.co.digitalcowboy.agents.graph.NodeListener;
+import za.co.digitalcowboy.agents.service.llm.TokenAccounting;
+import za.co.digitalcowboy.agents.service.research.SemanticResearchCache;
+import za.co.digitalcowboy.agents.service.search.SearchContextBuilder;
 import za.co.digitalcowboy.agents.tools.OpenAiImageTool;
-import za.co.digitalcowboy.agents.tools.SerpApiSearchService;
+import za.co.digitalcowboy.agents.tools.TokenAccountingChatLanguageModel;
+import za.co.digitalcowboy.agents.tools.WebSearchService;
+import za.co.digitalcowboy.agents.tools.WebSearchTool;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class AgentFlowTests {
     
-    @Mock
-    private ChatLanguageModel mockChatModel;
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private PromptChatModel mockChatModel;
     
     @Mock
     private OpenAiImageTool mockImageTool;
     
     @Mock
-    private SerpApiSearchService mockSearchService;
+    private WebSearchService mockSearchService;
     
     private ObjectMapper objectMapper;
     private Timer mockTimer;
+    private SearchContextBuilder searchContextBuilder;
+    private ToolCallingResearcher toolCallingResearcher;
+    private SemanticResearchCache disabledResearchCache;
+    // No listener here asks for content deltas, so content is always generated in one piece
+    private final StreamingChatLanguageModel unusedStreamingModel =
+        (messages, handler) -> handler.onError(new UnsupportedOperationException("Content is not streamed in these tests"));
     private AgentGraph agentGraph;
     
     @BeforeEach
@@ -45,12 +76,17 @@ public class AgentFlowTests {
         objectMapper = new ObjectMapper();
         SimpleMeterRegistry registry = new SimpleMeterRegistry();
         mockTimer = Timer.builder("test.timer").register(registry);
+        searchContextBuilder = new SearchContextBuilder(new SearchContextProperties(), new OpenAiTokenizer("gpt-4o"), registry);
+        toolCallingResearcher = new ToolCallingResearcher(mockChatModel, objectMapper, new WebSearchTool(mockSearchService),
+            new ResearchProperties(), registry);
+        disabledResearchCache = new SemanticResearchCache(new ResearchCacheProperties(), null, registry);
         
-        ResearchAgent researchAgent = new ResearchAgent(mockChatModel, objectMapper, mockTimer, mockSearchService);
-        ContentAgent contentAgent = new ContentAgent(mockChatModel, objectMapper, mockTimer);
+        ResearchAgent researchAgent = new ResearchAgent(mockChatModel, objectMapper, mockTimer, mockSearchService, searchContextBuilder, toolCallingResearcher, disabledResearchCache);
+        ContentAgent contentAgent = new ContentAgent(mockChatModel, unusedStreamingModel, objectMapper, mockTimer, 5000);
         ImageAgent imageAgent = new ImageAgent(mockChatModel, objectMapper, mockImageTool, mockTimer);
         
-        agentGraph = new AgentGraph(researchAgent, contentAgent, imageAgent, mockTimer);
+        agentGraph = new AgentGraph(researchAgent, contentAgent, imageAgent, mockTimer, Runnable::run,
+            new GenerationDeadlineProperties(), new SimpleMeterRegistry());
         
         // By default, mock search service as disabled
         when(mockSearchService.isEnabled()).thenReturn(false);
@@ -92,7 +128,7 @@ public class AgentFlowTests {
             }
             """;
         
-        when(mockChatModel.generate(anyString()))
+        when(mockChatModel.complete(anyString()))
             .thenReturn(researchJson)
             .thenReturn(contentJson)
             .thenReturn(imageBriefJson);
@@ -142,7 +178,7 @@ public class AgentFlowTests {
             }
             """;
         
-        when(mockChatModel.generate(anyString()))
+        when(mockChatModel.complete(anyString()))
             .thenReturn("{\"points\":[\"AI point 1\",\"AI point 2\",\"AI point 3\",\"AI point 4\",\"AI point 5\"],\"sources\":[]}")
             .thenReturn(contentJson)
             .thenReturn("{\"prompt\":\"Professional AI business illustration\"}");
@@ -173,7 +209,7 @@ public class AgentFlowTests {
             }
             """;
         
-        when(mockChatModel.generate(anyString()))
+        when(mockChatModel.complete(anyString()))
             .thenReturn("{\"points\":[\"AI point 1\",\"AI point 2\",\"AI point 3\",\"AI point 4\",\"AI point 5\"],\"sources\":[]}")
             .thenReturn(contentJson)
             .thenReturn("{\"prompt\":\"Blog illustration about AI Guide\"}");
@@ -197,7 +233,7 @@ public class AgentFlowTests {
     @Test
     void testErrorHandling() {
         // Simulate LLM failures
-        when(mockChatModel.generate(anyString())).thenThrow(new RuntimeException("API Error"));
+        when(mockChatModel.complete(anyString())).thenThrow(new RuntimeException("API Error"));
         when(mockImageTool.generateImage(anyString(), any(Integer.class), anyString()))
             .thenReturn(new ImageResult("fallback prompt", List.of(), List.of(), List.of()));
         
@@ -269,11 +305,11 @@ public class AgentFlowTests {
             }
             """;
         
-        when(mockChatModel.generate(anyString()))
+        when(mockChatModel.complete(anyString()))
             .thenReturn(queries)
             .thenReturn(researchJson);
         
-        ResearchAgent researchAgent = new ResearchAgent(mockChatModel, objectMapper, mockTimer, mockSearchService);
+        ResearchAgent researchAgent = new ResearchAgent(mockChatModel, objectMapper, mockTimer, mockSearchService, searchContextBuilder, toolCallingResearcher, disabledResearchCache);
         ResearchPoints result = researchAgent.research("Artificial Intelligence");
         
         assertThat(result.points()).hasSize(5);
@@ -281,6 +317,246 @@ public class AgentFlowTests {
         assertThat(result.sources()).contains("https://example.com/ai-2025");
     }
     
+    @Test
+    void testSearchNodeSearchesAllQueriesAsOneBatch() {
+        when(mockSearchService.isEnabled()).thenReturn(true);
+        
+        when(mockChatModel.complete(anyString()))
+            .thenReturn("query one\nquery two\nquery three")
+            .thenReturn("{\"points\":[\"AI point 1\",\"AI point 2\",\"AI point 3\",\"AI point 4\",\"AI point 5\"],\"sources\":[]}")
+            .thenReturn("{\"platform\":\"twitter\",\"tone\":\"casual\",\"headline\":\"Test\",\"body\":\"Test content\",\"cta\":\"Test CTA\"}")
+            .thenReturn("{\"prompt\":\"Test image prompt\"}");
+        
+        // searchMultiple bounds the parallelism and cuts the batch off at the generation deadline
+        when(mockSearchService.searchMultiple(anyList())).thenAnswer(invocation -> {
+            List<String> queries = invocation.getArgument(0);
+            return queries.stream()
+                .map(query -> new WebSearchResponse(query,
+                    List.of(SearchResult.of("Result for " + query, "Snippet", "https://example.com/" + query.replace(' ', '-'))),
+                    null, 1L, 0.1))
+                .toList();
+        });
+        
+        when(mockImageTool.generateImage(anyString(), any(Integer.class), anyString()))
+            .thenReturn(new ImageResult("test prompt", List.of(), List.of(), List.of()));
+        
+        OrchestrationResult result = agentGraph.run(new TopicRequest("AI", "twitter", "casual", 1));
+        
+        verify(mockSearchService).searchMultiple(List.of("query one", "query two", "query three"));
+        verify(mockSearchService, never()).search(anyString());
+        assertThat(result.research().points()).hasSize(5);
+        assertThat(result.research().sources()).contains("https://example.com/query-one");
+        assertThat(result.content().headline()).isEqualTo("Test");
+        assertThat(result.image().prompt()).isEqualTo("test prompt");
+    }
+    
+    @Test
+    void testFanOutRunsResearchOnce() {
+        when(mockChatModel.complete(anyString())).thenAnswer(invocation -> {
+            String prompt = invocation.getArgument(0);
+            if (prompt.contains("Research Agent")) {
+                return "{\"points\":[\"AI point 1\",\"AI point 2\",\"AI point 3\",\"AI point 4\",\"AI point 5\"],\"sources\":[]}";
+            }
+            if (prompt.contains("Content Agent")) {
+                String platform = prompt.contains("linkedin content") ? "linkedin" : "twitter";
+                return "{\"platform\":\"" + platform + "\",\"tone\":\"professional\",\"headline\":\"Headline\",\"body\":\"Body\",\"cta\":\"CTA\"}";
+            }
+            return "{\"prompt\":\"Image prompt\"}";
+        });
+        
+        when(mockImageTool.generateImage(anyString(), any(Integer.class), anyString()))
+            .thenReturn(new ImageResult("test prompt", List.of(), List.of(), List.of()));
+        
+        FanOutTopicRequest request = new FanOutTopicRequest("AI", List.of("twitter", "linkedin"), List.of("professional"), 1);
+        List<OrchestrationResult> results = agentGraph.runFanOut(request.toTopicRequests());
+        
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).content().platform()).isEqualTo("twitter");
+        assertThat(results.get(1).content().platform()).isEqualTo("linkedin");
+        assertThat(results).allSatisfy(result -> assertThat(result.research().points()).hasSize(5));
+        
+        verify(mockChatModel, times(1)).complete(contains("Research Agent"));
+        verify(mockChatModel, times(2)).complete(contains("Content Agent"));
+    }
+    
+    @Test
+    void testResumeRerunsOnlyIncompleteNodes() {
+        when(mockChatModel.complete(anyString())).thenAnswer(invocation -> {
+            String prompt = invocation.getArgument(0);
+            if (prompt.contains("Research Agent")) {
+                return "{\"points\":[\"AI point 1\",\"AI point 2\",\"AI point 3\",\"AI point 4\",\"AI point 5\"],\"sources\":[]}";
+            }
+            if (prompt.contains("Content Agent")) {
+                return "{\"platform\":\"twitter\",\"tone\":\"professional\",\"headline\":\"Headline\",\"body\":\"Body\",\"cta\":\"CTA\"}";
+            }
+            return "{\"prompt\":\"Image prompt\"}";
+        });
+        
+        // The first attempt times out generating the image
+        when(mockImageTool.generateImage(anyString(), any(Integer.class), anyString()))
+            .thenThrow(new RuntimeException("timeout"))
+            .thenReturn(new ImageResult("Image prompt", List.of("https://example.com/image1.png")));
+        
+        TopicRequest request = new TopicRequest("AI", "twitter", "professional", 1);
+        AtomicReference<AgentCheckpoint> checkpoint = new AtomicReference<>();
+        OrchestrationResult first = agentGraph.run(request, (node, state) -> checkpoint.set(state.toCheckpoint()));
+        
+        assertThat(first.image().openAiImageUrls()).isEmpty();
+        assertThat(checkpoint.get().completedNodes()).containsExactlyInAnyOrder("query", "search", "research", "content", "imageBrief");
+        
+        OrchestrationResult resumed = agentGraph.resume(request, checkpoint.get(), NodeListener.NONE);
+        
+        assertThat(resumed.content().headline()).isEqualTo("Headline");
+        assertThat(resumed.image().openAiImageUrls()).containsExactly("https://example.com/image1.png");
+        verify(mockChatModel, times(1)).complete(contains("Research Agent"));
+        verify(mockChatModel, times(1)).complete(contains("Content Agent"));
+        verify(mockImageTool, times(2)).generateImage(anyString(), any(Integer.class), anyString());
+    }
+    
+    @Test
+    void testCachedResearchSkipsQueriesAndSearch() {
+        ResearchPoints cached = new ResearchPoints(
+            List.of("AI point 1", "AI point 2", "AI point 3", "AI point 4", "AI point 5"), List.of());
+        SemanticResearchCache researchCache = mock(SemanticResearchCache.class);
+        when(researchCache.get("AI for healthcare")).thenReturn(cached);
+        when(mockChatModel.complete(anyString()))
+            .thenReturn("{\"platform\":\"twitter\",\"tone\":\"professional\",\"headline\":\"Headline\",\"body\":\"Body\",\"cta\":\"CTA\"}");
+        lenient().when(mockSearchService.isEnabled()).thenReturn(true);
+        
+        AgentGraph cachedGraph = new AgentGraph(
+            new ResearchAgent(mockChatModel, objectMapper, mockTimer, mockSearchService, searchContextBuilder,
+                toolCallingResearcher, researchCache),
+            new ContentAgent(mockChatModel, unusedStreamingModel, objectMapper, mockTimer, 5000),
+            new ImageAgent(mockChatModel, objectMapper, mockImageTool, mockTimer),
+            mockTimer, Runnable::run, new GenerationDeadlineProperties(), new SimpleMeterRegistry());
+        
+        OrchestrationResult result = cachedGraph.run(new TopicRequest("AI for healthcare", "twitter", "professional", 0));
+        
+        assertThat(result.research()).isEqualTo(cached);
+        assertThat(result.content().headline()).isEqualTo("Headline");
+        verify(mockSearchService, never()).searchMultiple(anyList());
+        verify(mockChatModel, never()).complete(contains("search queries"));
+        verify(mockChatModel, never()).complete(contains("Research Agent"));
+        verify(researchCache, never()).put(anyString(), any());
+    }
+    
+    @Test
+    void testTightDeadlineSkipsSearchAndImage() {
+        when(mockChatModel.complete(anyString())).thenAnswer(invocation -> {
+            String prompt = invocation.getArgument(0);
+            if (prompt.contains("Research Agent")) {
+                return "{\"points\":[\"AI point 1\",\"AI point 2\",\"AI point 3\",\"AI point 4\",\"AI point 5\"],\"sources\":[]}";
+            }
+            return "{\"platform\":\"twitter\",\"tone\":\"professional\",\"headline\":\"Headline\",\"body\":\"Body\",\"cta\":\"CTA\"}";
+        });
+        // Search would run if the budget allowed it
+        lenient().when(mockSearchService.isEnabled()).thenReturn(true);
+        
+        // Less budget than either optional step needs
+        GenerationDeadlineProperties deadlines = new GenerationDeadlineProperties();
+        deadlines.setTotal(Duration.ofSeconds(20));
+        deadlines.setSearchReserve(Duration.ofSeconds(60));
+        deadlines.setImageMinimum(Duration.ofSeconds(30));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AgentGraph tightGraph = new AgentGraph(
+            new ResearchAgent(mockChatModel, objectMapper, mockTimer, mockSearchService, searchContextBuilder, toolCallingResearcher, disabledResearchCache),
+            new ContentAgent(mockChatModel, unusedStreamingModel, objectMapper, mockTimer, 5000),
+            new ImageAgent(mockChatModel, objectMapper, mockImageTool, mockTimer),
+            mockTimer, Runnable::run, deadlines, registry);
+        
+        OrchestrationResult result = tightGraph.run(new TopicRequest("AI", "twitter", "professional", 1));
+        
+        assertThat(result.research().points()).hasSize(5);
+        assertThat(result.content().headline()).isEqualTo("Headline");
+        assertThat(result.image().hasImages()).isFalse();
+        verify(mockSearchService, never()).searchMultiple(anyList());
+        verify(mockImageTool, never()).generateImage(anyString(), any(Integer.class), anyString());
+        assertThat(registry.counter("generation.nodes.skipped", "node", "image", "reason", "deadline").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testResumeRerunsNodesSkippedForTheDeadline() {
+        when(mockChatModel.complete(anyString())).thenAnswer(invocation -> {
+            String prompt = invocation.getArgument(0);
+            if (prompt.contains("Research Agent")) {
+                return "{\"points\":[\"AI point 1\",\"AI point 2\",\"AI point 3\",\"AI point 4\",\"AI point 5\"],\"sources\":[]}";
+            }
+            if (prompt.contains("Content Agent")) {
+                return "{\"platform\":\"twitter\",\"tone\":\"professional\",\"headline\":\"Headline\",\"body\":\"Body\",\"cta\":\"CTA\"}";
+            }
+            return "{\"prompt\":\"Image prompt\"}";
+        });
+        when(mockImageTool.generateImage(anyString(), any(Integer.class), anyString()))
+            .thenReturn(new ImageResult("Image prompt", List.of("https://example.com/image1.png")));
+        
+        // Too little budget for the query, search or image steps
+        GenerationDeadlineProperties deadlines = new GenerationDeadlineProperties();
+        deadlines.setTotal(Duration.ofSeconds(20));
+        deadlines.setSearchReserve(Duration.ofSeconds(60));
+        deadlines.setImageMinimum(Duration.ofSeconds(30));
+        AgentGraph tightGraph = new AgentGraph(
+            new ResearchAgent(mockChatModel, objectMapper, mockTimer, mockSearchService, searchContextBuilder, toolCallingResearcher, disabledResearchCache),
+            new ContentAgent(mockChatModel, unusedStreamingModel, objectMapper, mockTimer, 5000),
+            new ImageAgent(mockChatModel, objectMapper, mockImageTool, mockTimer),
+            mockTimer, Runnable::run, deadlines, new SimpleMeterRegistry());
+        
+        TopicRequest request = new TopicRequest("AI", "twitter", "professional", 1);
+        AtomicReference<AgentCheckpoint> checkpoint = new AtomicReference<>();
+        tightGraph.run(request, (node, state) -> checkpoint.set(state.toCheckpoint()));
+        
+        // Skipped nodes are reported but stay open
+        assertThat(checkpoint.get().completedNodes()).containsExactlyInAnyOrder("research", "content");
+        
+        OrchestrationResult resumed = agentGraph.resume(request, checkpoint.get(), NodeListener.NONE);
+        
+        assertThat(resumed.image().openAiImageUrls()).containsExactly("https://example.com/image1.png");
+        verify(mockImageTool).generateImage(eq("Image prompt"), eq(1), anyString());
+        verify(mockChatModel, times(1)).complete(contains("Research Agent"));
+        verify(mockChatModel, times(1)).complete(contains("Content Agent"));
+    }
+    
+    @Test
+    void testTightTokenBudgetSkipsSearchAndImage() {
+        when(mockChatModel.complete(anyString())).thenAnswer(invocation -> {
+            String prompt = invocation.getArgument(0);
+            if (prompt.contains("Research Agent")) {
+                return "{\"points\":[\"AI point 1\",\"AI point 2\",\"AI point 3\",\"AI point 4\",\"AI point 5\"],\"sources\":[]}";
+            }
+            return "{\"platform\":\"twitter\",\"tone\":\"professional\",\"headline\":\"Headline\",\"body\":\"Body\",\"cta\":\"CTA\"}";
+        });
+        // Search would run if the budget allowed it
+        lenient().when(mockSearchService.isEnabled()).thenReturn(true);
+        
+        // Fewer tokens than search reserves, and nothing left for the image once research and content spend any
+        TokenBudgetProperties tokens = new TokenBudgetProperties();
+        tokens.setTaskBudget(2000);
+        tokens.setSearchReserve(4000);
+        tokens.setImageMinimum(2000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TokenAccounting accounting = new TokenAccounting(tokens, registry);
+        ChatLanguageModel accounted = new TokenAccountingChatLanguageModel(mockChatModel, "gpt-4o-mini", accounting);
+        AgentGraph budgetGraph = new AgentGraph(
+            new ResearchAgent(accounted, objectMapper, mockTimer, mockSearchService, searchContextBuilder, toolCallingResearcher, disabledResearchCache),
+            new ContentAgent(accounted, unusedStreamingModel, objectMapper, mockTimer, 5000),
+            new ImageAgent(accounted, objectMapper, mockImageTool, mockTimer),
+            mockTimer, Runnable::run, new GenerationDeadlineProperties(), registry);
+        
+        AtomicReference<TokenTotals> spent = new AtomicReference<>();
+        NodeListener listener = (node, state) -> spent.set(state.getTokenBudget().totals());
+        OrchestrationResult result = budgetGraph.resume(new TopicRequest("AI", "twitter", "professional", 1), null,
+            listener, accounting.newBudget("alice", 0));
+        
+        assertThat(result.research().points()).hasSize(5);
+        assertThat(result.content().headline()).isEqualTo("Headline");
+        assertThat(result.image().hasImages()).isFalse();
+        verify(mockSearchService, never()).searchMultiple(anyList());
+        verify(mockChatModel, never()).complete(contains("search queries"));
+        verify(mockImageTool, never()).generateImage(anyString(), any(Integer.class), anyString());
+        assertThat(registry.counter("generation.nodes.skipped", "node", "search", "reason", "tokens").count()).isEqualTo(1);
+        assertThat(registry.counter("generation.nodes.skipped", "node", "imageBrief", "reason", "tokens").count()).isEqualTo(1);
+        assertThat(spent.get().totalTokens()).isPositive().isLessThan(2000);
+    }
+    
     @Test
     void testResearchConstraints() {
         String researchJson = """
@@ -297,9 +573,9 @@ public class AgentFlowTests {
             }
             """;
         
-        when(mockChatModel.generate(anyString())).thenReturn(researchJson);
+        when(mockChatModel.complete(anyString())).thenReturn(researchJson);
         
-        ResearchAgent researchAgent = new ResearchAgent(mockChatModel, objectMapper, mockTimer, mockSearchService);
+        ResearchAgent researchAgent = new ResearchAgent(mockChatModel, objectMapper, mockTimer, mockSearchService, searchContextBuilder, toolCallingResearcher, disabledResearchCache);
         ResearchPoints result = researchAgent.research("Test Topic");
         
         assertThat(result.points()).hasSizeBetween(5, 7);
@@ -3,74 +3,105 @@ package za.co.digitalcowboy.agents;
 import za.co.digitalcowboy.agents.agents.ContentAgent;
 import za.co.digitalcowboy.agents.agents.ImageAgent;
 import za.co.digitalcowboy.agents.agents.ResearchAgent;
+import za.co.digitalcowboy.agents.agents.ToolCallingResearcher;
+import za.co.digitalcowboy.agents.config.GenerationDeadlineProperties;
+import za.co.digitalcowboy.agents.config.ResearchCacheProperties;
+import za.co.digitalcowboy.agents.config.ResearchProperties;
+import za.co.digitalcowboy.agents.config.SearchContextProperties;
+import za.co.digitalcowboy.agents.config.TaskRetentionProperties;
+import za.co.digitalcowboy.agents.config.TokenBudgetProperties;
 import za.co.digitalcowboy.agents.domain.*;
 import za.co.digitalcowboy.agents.graph.AgentGraph;
+import za.co.digitalcowboy.agents.service.AdmissionController;
 import za.co.digitalcowboy.agents.service.AsyncGenerationService;
+import za.co.digitalcowboy.agents.service.TaskEventBus;
+import za.co.digitalcowboy.agents.service.llm.TokenAccounting;
+import za.co.digitalcowboy.agents.service.research.SemanticResearchCache;
+import za.co.digitalcowboy.agents.service.search.SearchContextBuilder;
+import za.co.digitalcowboy.agents.service.task.InMemoryTaskStore;
 import za.co.digitalcowboy.agents.tools.OpenAiImageTool;
-import za.co.digitalcowboy.agents.tools.SerpApiSearchService;
+import za.co.digitalcowboy.agents.tools.TokenAccountingChatLanguageModel;
+import za.co.digitalcowboy.agents.tools.WebSearchService;
+import za.co.digitalcowboy.agents.tools.WebSearchTool;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executor;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class AsyncGenerationTests {
     
-    @Mock
-    private ChatLanguageModel mockChatModel;
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private PromptChatModel mockChatModel;
     
     @Mock
     private OpenAiImageTool mockImageTool;
     
     @Mock
-    private Executor mockExecutor;
-    
-    @Mock
-    private SerpApiSearchService mockSearchService;
+    private WebSearchService mockSearchService;
     
     private AsyncGenerationService asyncGenerationService;
     private AgentGraph agentGraph;
+    private SimpleMeterRegistry meterRegistry;
     
     @BeforeEach
     void setUp() {
-        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        meterRegistry = new SimpleMeterRegistry();
         Timer mockTimer = Timer.builder("test.timer").register(meterRegistry);
         ObjectMapper objectMapper = new ObjectMapper();
         
         // Setup mock responses with valid JSON matching domain models
-        when(mockChatModel.generate(anyString()))
+        when(mockChatModel.complete(anyString()))
             .thenReturn("{\"points\":[\"Test insight 1\",\"Test insight 2\",\"Test insight 3\",\"Test insight 4\",\"Test insight 5\"],\"sources\":[\"source1\"]}")
             .thenReturn("{\"platform\":\"twitter\",\"tone\":\"casual\",\"headline\":\"Test\",\"body\":\"Test content\",\"cta\":\"Test CTA\"}")
             .thenReturn("{\"prompt\":\"Test image prompt\"}");
         
-        when(mockImageTool.generateImage(anyString(), any(Integer.class), anyString()))
-            .thenReturn(new ImageResult("test prompt", List.of(), List.of(), List.of()));
+        lenient().when(mockImageTool.generateImage(anyString(), any(Integer.class), anyString()))
+            .thenReturn(new ImageResult("test prompt", List.of("https://images.example.com/1.png")));
         
         // Mock search service as disabled by default
         when(mockSearchService.isEnabled()).thenReturn(false);
         
-        // Create agents with mocks
-        ResearchAgent researchAgent = new ResearchAgent(mockChatModel, objectMapper, mockTimer, mockSearchService);
-        ContentAgent contentAgent = new ContentAgent(mockChatModel, objectMapper, mockTimer);
-        ImageAgent imageAgent = new ImageAgent(mockChatModel, objectMapper, mockImageTool, mockTimer);
+        // Create agents with mocks, counting tokens as the OpenAI config does
+        TokenAccounting tokenAccounting = new TokenAccounting(new TokenBudgetProperties(), meterRegistry);
+        ChatLanguageModel chatModel = new TokenAccountingChatLanguageModel(mockChatModel, "gpt-4o-mini", tokenAccounting);
+        ResearchAgent researchAgent = new ResearchAgent(chatModel, objectMapper, mockTimer, mockSearchService,
+            new SearchContextBuilder(new SearchContextProperties(), new OpenAiTokenizer("gpt-4o"), meterRegistry),
+            new ToolCallingResearcher(chatModel, objectMapper, new WebSearchTool(mockSearchService), new ResearchProperties(), meterRegistry),
+            new SemanticResearchCache(new ResearchCacheProperties(), null, meterRegistry));
+        // Nobody subscribes before these synchronous runs finish, so content is never streamed
+        StreamingChatLanguageModel unusedStreamingModel =
+            (messages, handler) -> handler.onError(new UnsupportedOperationException("Content is not streamed in these tests"));
+        ContentAgent contentAgent = new ContentAgent(chatModel, unusedStreamingModel, objectMapper, mockTimer, 5000);
+        ImageAgent imageAgent = new ImageAgent(chatModel, objectMapper, mockImageTool, mockTimer);
         
         // Create agent graph
-        agentGraph = new AgentGraph(researchAgent, contentAgent, imageAgent, mockTimer);
+        agentGraph = new AgentGraph(researchAgent, contentAgent, imageAgent, mockTimer, Runnable::run,
+            new GenerationDeadlineProperties(), new SimpleMeterRegistry());
         
-        // Create async service with mock executor
-        asyncGenerationService = new AsyncGenerationService(agentGraph, mockExecutor);
+        // Create async service with a direct executor so tasks run synchronously
+        AdmissionController admissionController = new AdmissionController(Runnable::run, 20, 100, 30, meterRegistry);
+        asyncGenerationService = new AsyncGenerationService(agentGraph, admissionController,
+                new InMemoryTaskStore(new TaskRetentionProperties(), 10000), new TaskEventBus(120000, 1800000, Runnable::run),
+                tokenAccounting, 300000);
     }
     
     @Test
@@ -104,6 +135,22 @@ public class AsyncGenerationTests {
         assertThat(task.error()).isNull();
     }
     
+    @Test
+    void testCompletedTaskRecordsTokenUsage() {
+        TopicRequest request = new TopicRequest("AI Testing", "twitter", "casual", 1);
+        
+        String taskId = asyncGenerationService.startGeneration(request, "alice");
+        
+        GenerationTask task = asyncGenerationService.getTask(taskId);
+        assertThat(task.status()).isEqualTo(TaskStatus.COMPLETED);
+        assertThat(task.tokenUsage().inputTokens()).isPositive();
+        assertThat(task.tokenUsage().outputTokens()).isPositive();
+        // Every call is counted by agent, model and platform
+        double contentInput = meterRegistry.counter("llm.tokens", "agent", "content", "model", "gpt-4o-mini",
+            "platform", "twitter", "type", "input").count();
+        assertThat(contentInput).isPositive();
+    }
+    
     @Test
     void testTaskOperations() {
         // Test task creation
@@ -155,4 +202,55 @@ public class AsyncGenerationTests {
         // Active count may be 0 if task completed synchronously
         assertThat(asyncGenerationService.getActiveTaskCount()).isGreaterThanOrEqualTo(initialActive);
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testTaskEventsStreamInNodeOrder() {
+        TopicRequest request = new TopicRequest("AI Testing", "twitter", "casual", 1);
+        String taskId = asyncGenerationService.startGeneration(request);
+        
+        List<TaskEventType> received = new ArrayList<>();
+        TaskEventBus.Subscription subscription = asyncGenerationService.subscribe(taskId, 0, event -> received.add(event.type()));
+        
+        assertThat(subscription).isNotNull();
+        assertThat(received).containsSubsequence(
+            TaskEventType.STATUS, TaskEventType.RESEARCH, TaskEventType.CONTENT, TaskEventType.IMAGE, TaskEventType.COMPLETED);
+        assertThat(received.get(received.size() - 1)).isEqualTo(TaskEventType.COMPLETED);
+    }
+    
+    @Test
+    void testResumeRequeuesFailedTask_AndRejectsCompletedTask() {
+        TopicRequest request = new TopicRequest("AI Testing", "twitter", "casual", 1);
+        String taskId = asyncGenerationService.startGeneration(request);
+        
+        // Completed tasks have nothing to resume
+        assertThat(asyncGenerationService.getTask(taskId).isPartial()).isFalse();
+        assertThat(asyncGenerationService.resumeGeneration(taskId)).isFalse();
+        assertThat(asyncGenerationService.resumeGeneration("non-existent-task")).isFalse();
+    }
+    
+    @Test
+    void testResumeRerunsOnlyTheImage_WhenTaskCompletedWithFallbackImage() {
+        when(mockImageTool.generateImage(anyString(), any(Integer.class), anyString()))
+            .thenThrow(new RuntimeException("Image API unavailable"))
+            .thenReturn(new ImageResult("test prompt", List.of("https://images.example.com/1.png")));
+        TopicRequest request = new TopicRequest("AI Testing", "twitter", "casual", 1);
+        String taskId = asyncGenerationService.startGeneration(request);
+        
+        GenerationTask degraded = asyncGenerationService.getTask(taskId);
+        assertThat(degraded.status()).isEqualTo(TaskStatus.COMPLETED);
+        assertThat(degraded.result().image().hasImages()).isFalse();
+        assertThat(degraded.isPartial()).isTrue();
+        
+        assertThat(asyncGenerationService.resumeGeneration(taskId)).isTrue();
+        
+        GenerationTask resumed = asyncGenerationService.getTask(taskId);
+        assertThat(resumed.status()).isEqualTo(TaskStatus.COMPLETED);
+        assertThat(resumed.result().image().hasImages()).isTrue();
+        assertThat(resumed.result().content().headline()).isEqualTo("Test");
+        assertThat(resumed.isPartial()).isFalse();
+        // Research, content and the image brief came from the checkpoint
+        verify(mockChatModel, times(3)).complete(anyString());
+        verify(mockImageTool, times(2)).generateImage(anyString(), any(Integer.class), anyString());
+        assertThat(asyncGenerationService.resumeGeneration(taskId)).isFalse();
+    }
+}
@@ -0,0 +1,37 @@
+package za.co.digitalcowboy.agents;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.List;
+
+/**
+ * Chat model for mocking with {@code CALLS_REAL_METHODS}: the system and user messages the
+ * agents send are joined into one prompt and passed to {@link #complete(String)}, so tests
+ * can stub and verify on the prompt text alone. Token usage is reported at four characters
+ * a token.
+ */
+public abstract class PromptChatModel implements ChatLanguageModel {
+
+    public abstract String complete(String prompt);
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        StringBuilder prompt = new StringBuilder();
+        for (ChatMessage message : messages) {
+            if (message instanceof SystemMessage system) {
+                prompt.append(system.text());
+            } else if (message instanceof UserMessage user) {
+                prompt.append("\n\nUser: ").append(user.text());
+            }
+        }
+        String completion = complete(prompt.toString());
+        return Response.from(AiMessage.from(completion),
+            new TokenUsage(prompt.length() / 4, completion != null ? completion.length() / 4 : 0));
+    }
+}
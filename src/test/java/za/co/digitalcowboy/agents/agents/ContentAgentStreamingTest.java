@@ -0,0 +1,90 @@
+package za.co.digitalcowboy.agents.agents;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.domain.ContentDraft;
+import za.co.digitalcowboy.agents.domain.ResearchPoints;
+import za.co.digitalcowboy.agents.prompts.ContentPrompt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ContentAgentStreamingTest {
+    
+    private static final List<String> TOKENS = List.of(
+        "{\"platform\":\"twitter\",\"tone\":\"casual\",", "\"headline\":\"Fast", " take\",",
+        "\"body\":\"Streaming ", "works\",\"cta\":\"Try it\"}");
+    
+    private final ChatLanguageModel chatModel = mock(ChatLanguageModel.class);
+    private final Timer timer = Timer.builder("test.timer").register(new SimpleMeterRegistry());
+    
+    @Test
+    void createContent_ShouldRelayFieldsAndParseFullCompletion_WhenStreaming() {
+        ContentAgent agent = new ContentAgent(chatModel, new TokenStreamingModel(), new ObjectMapper(), timer, 5000);
+        List<String> deltas = new ArrayList<>();
+        
+        ContentDraft draft = agent.createContent(research(), "twitter", "casual",
+            (field, delta) -> deltas.add(field + ":" + delta));
+        
+        assertThat(deltas).containsExactly("headline:Fast", "headline: take", "body:Streaming ", "body:works", "cta:Try it");
+        assertThat(draft.headline()).isEqualTo("Fast take");
+        assertThat(draft.body()).isEqualTo("Streaming works");
+        verifyNoInteractions(chatModel);
+    }
+    
+    @Test
+    void createContent_ShouldSendInstructionsAsUnchangingSystemMessage() {
+        TokenStreamingModel streamingModel = new TokenStreamingModel();
+        ContentAgent agent = new ContentAgent(chatModel, streamingModel, new ObjectMapper(), timer, 5000);
+        
+        agent.createContent(research(), "twitter", "casual", (field, delta) -> {});
+        List<ChatMessage> first = streamingModel.messages;
+        agent.createContent(research(), "linkedin", "professional", (field, delta) -> {});
+        List<ChatMessage> second = streamingModel.messages;
+        
+        assertThat(first).hasSize(2);
+        assertThat(first.get(0)).isEqualTo(SystemMessage.from(ContentPrompt.SYSTEM_MESSAGE));
+        assertThat(second.get(0)).isEqualTo(first.get(0));
+        assertThat(((UserMessage) second.get(1)).text()).contains("linkedin").doesNotContain("Content Agent");
+    }
+    
+    @Test
+    void createContent_ShouldFallBackToErrorDraft_WhenStreamFails() {
+        StreamingChatLanguageModel failing = (messages, handler) -> handler.onError(new RuntimeException("boom"));
+        ContentAgent agent = new ContentAgent(chatModel, failing, new ObjectMapper(), timer, 5000);
+        
+        ContentDraft draft = agent.createContent(research(), "twitter", "casual", (field, delta) -> {});
+        
+        assertThat(draft.headline()).isEqualTo("Content Creation Error");
+        assertThat(draft.platform()).isEqualTo("twitter");
+    }
+    
+    private static ResearchPoints research() {
+        return new ResearchPoints(List.of("Point 1", "Point 2", "Point 3", "Point 4", "Point 5"), List.of());
+    }
+    
+    private static class TokenStreamingModel implements StreamingChatLanguageModel {
+        private List<ChatMessage> messages;
+        
+        @Override
+        public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+            this.messages = messages;
+            TOKENS.forEach(handler::onNext);
+            handler.onComplete(Response.from(AiMessage.from(String.join("", TOKENS))));
+        }
+    }
+}
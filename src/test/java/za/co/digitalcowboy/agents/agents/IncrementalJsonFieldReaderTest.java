@@ -0,0 +1,58 @@
+package za.co.digitalcowboy.agents.agents;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalJsonFieldReaderTest {
+    
+    private final List<String> deltas = new ArrayList<>();
+    private final Map<String, StringBuilder> values = new LinkedHashMap<>();
+    
+    private final IncrementalJsonFieldReader reader = new IncrementalJsonFieldReader(
+        Set.of("headline", "body", "cta"),
+        (field, delta) -> {
+            deltas.add(field + ":" + delta);
+            values.computeIfAbsent(field, f -> new StringBuilder()).append(delta);
+        });
+    
+    @Test
+    void feed_ShouldEmitFieldText_AsEachChunkArrives() {
+        reader.feed("{\"platform\":\"twitter\",\"head");
+        reader.feed("line\":\"Big ");
+        assertThat(deltas).containsExactly("headline:Big ");
+        
+        reader.feed("news\",\"body\":\"Line one");
+        reader.feed("\\nLine two\",\"cta\":\"Go\"}");
+        
+        assertThat(values).containsOnlyKeys("headline", "body", "cta");
+        assertThat(values.get("headline")).hasToString("Big news");
+        assertThat(values.get("body")).hasToString("Line one\nLine two");
+        assertThat(values.get("cta")).hasToString("Go");
+    }
+    
+    @Test
+    void feed_ShouldDecodeEscapes_SplitAcrossChunks() {
+        reader.feed("{\"body\":\"Say \\");
+        reader.feed("\"hi\\\" \\u00");
+        reader.feed("e9 \\ud83d");
+        reader.feed("\\ude80\"}");
+        
+        assertThat(values.get("body")).hasToString("Say \"hi\" é \uD83D\uDE80");
+        assertThat(deltas).noneMatch(delta -> Character.isHighSurrogate(delta.charAt(delta.length() - 1)));
+    }
+    
+    @Test
+    void feed_ShouldIgnoreCodeFences_NestedValues_AndOtherFields() {
+        reader.feed("```json\n{\"tone\":\"casual\",\"meta\":{\"body\":\"nested\",\"tags\":[\"}\"]},");
+        reader.feed("\"headline\":\"Real\",\"count\":3}\n```");
+        
+        assertThat(deltas).containsExactly("headline:Real");
+    }
+}
@@ -0,0 +1,151 @@
+package za.co.digitalcowboy.agents.agents;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.config.ResearchCacheProperties;
+import za.co.digitalcowboy.agents.config.ResearchProperties;
+import za.co.digitalcowboy.agents.config.SearchContextProperties;
+import za.co.digitalcowboy.agents.domain.ResearchPoints;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.prompts.ResearchPrompt;
+import za.co.digitalcowboy.agents.service.research.SemanticResearchCache;
+import za.co.digitalcowboy.agents.service.search.SearchContextBuilder;
+import za.co.digitalcowboy.agents.tools.WebSearchService;
+import za.co.digitalcowboy.agents.tools.WebSearchTool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ToolCallingResearcherTest {
+    
+    private static final String ANSWER =
+        "{\"points\":[\"Point 1\",\"Point 2\",\"Point 3\",\"Point 4\",\"Point 5\"],\"sources\":[]}";
+    
+    private final WebSearchService searchService = mock(WebSearchService.class);
+    private final List<List<String>> searchBatches = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private ResearchProperties properties;
+    private ScriptedModel model;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new ResearchProperties();
+        properties.setMode(ResearchProperties.Mode.TOOL_CALLING);
+        model = new ScriptedModel();
+        
+        when(searchService.isEnabled()).thenReturn(true);
+        when(searchService.searchMultiple(anyList())).thenAnswer(invocation -> {
+            List<String> queries = invocation.getArgument(0);
+            searchBatches.add(queries);
+            return queries.stream()
+                .map(query -> new WebSearchResponse(query,
+                    List.of(SearchResult.of("Result for " + query, "Snippet", "https://example.com/" + query.replace(' ', '-'))),
+                    null, 1L, 0.1))
+                .toList();
+        });
+    }
+    
+    @Test
+    void research_ShouldRunTurnsToolCallsTogether_AndMergeTheirSources() {
+        model.respond(AiMessage.from(search("1", "ai trends"), search("2", "ai market size"), search("3", "ai regulation")));
+        model.respond(AiMessage.from(ANSWER));
+        
+        ResearchPoints research = newResearchAgent().research("AI");
+        
+        assertThat(searchBatches).containsExactly(List.of("ai trends", "ai market size", "ai regulation"));
+        assertThat(research.points()).hasSize(5);
+        assertThat(research.sources()).containsExactly("https://example.com/ai-trends",
+            "https://example.com/ai-market-size", "https://example.com/ai-regulation");
+        
+        List<ChatMessage> answerTurn = model.calls.get(1);
+        assertThat(answerTurn).filteredOn(ToolExecutionResultMessage.class::isInstance).hasSize(3);
+        assertThat(meterRegistry.get("research.tool.fanout").summary().max()).isEqualTo(3);
+        assertThat(meterRegistry.get("research.tool.round_trips").summary().totalAmount()).isEqualTo(2);
+        assertThat(meterRegistry.get("research.tool.tokens").tag("type", "input").counter().count()).isEqualTo(200);
+    }
+    
+    @Test
+    void research_ShouldCapSearchesPerTurn_AndForceAnAnswerOnLastRoundTrip() {
+        properties.setMaxRoundTrips(2);
+        properties.setMaxToolCallsPerTurn(2);
+        model.respond(AiMessage.from(search("1", "ai trends"), search("2", "ai market size"), search("3", "ai regulation")));
+        model.respond(AiMessage.from(ANSWER));
+        
+        ToolCallingResearcher.Result result = newResearcher().research("AI");
+        
+        assertThat(result.roundTrips()).isEqualTo(2);
+        assertThat(searchBatches).containsExactly(List.of("ai trends", "ai market size"));
+        assertThat(model.toolsOffered).containsExactly(true, false);
+        assertThat(model.calls.get(1).get(model.calls.get(1).size() - 1).text())
+            .isEqualTo(ResearchPrompt.FINAL_ANSWER_INSTRUCTION);
+        assertThat(meterRegistry.get("research.tool.calls.refused").counter().count()).isEqualTo(1);
+    }
+    
+    private ToolCallingResearcher newResearcher() {
+        return new ToolCallingResearcher(model, new ObjectMapper(), new WebSearchTool(searchService), properties, meterRegistry);
+    }
+    
+    private ResearchAgent newResearchAgent() {
+        return new ResearchAgent(model, new ObjectMapper(), Timer.builder("test.timer").register(meterRegistry), searchService,
+            new SearchContextBuilder(new SearchContextProperties(), new OpenAiTokenizer("gpt-4o"), meterRegistry),
+            newResearcher(), new SemanticResearchCache(new ResearchCacheProperties(), null, meterRegistry));
+    }
+    
+    private static ToolExecutionRequest search(String id, String query) {
+        return ToolExecutionRequest.builder()
+            .id(id)
+            .name("searchWeb")
+            .arguments("{\"arg0\":\"" + query + "\"}")
+            .build();
+    }
+    
+    private static class ScriptedModel implements ChatLanguageModel {
+        
+        private final Deque<AiMessage> responses = new ArrayDeque<>();
+        private final List<List<ChatMessage>> calls = new ArrayList<>();
+        private final List<Boolean> toolsOffered = new ArrayList<>();
+        
+        void respond(AiMessage message) {
+            responses.add(message);
+        }
+        
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            toolsOffered.add(false);
+            return next(messages);
+        }
+        
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+            assertThat(toolSpecifications).extracting(ToolSpecification::name).containsExactly("searchWeb");
+            toolsOffered.add(true);
+            return next(messages);
+        }
+        
+        private Response<AiMessage> next(List<ChatMessage> messages) {
+            calls.add(List.copyOf(messages));
+            return Response.from(responses.removeFirst(), new TokenUsage(100, 20));
+        }
+    }
+}
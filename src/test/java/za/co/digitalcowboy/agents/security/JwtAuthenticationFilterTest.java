@@ -0,0 +1,64 @@
+package za.co.digitalcowboy.agents.security;
+
+import za.co.digitalcowboy.agents.config.AdminProperties;
+import za.co.digitalcowboy.agents.domain.User;
+import za.co.digitalcowboy.agents.service.AuthService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private JwtService jwtService;
+    private AuthService authService;
+    private AdminProperties adminProperties;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        String secret = Base64.getEncoder().encodeToString("mySecretKeyForTestingPurposes123456789".getBytes());
+        jwtService = new JwtService(secret, 30L, 7L);
+        authService = mock(AuthService.class);
+        adminProperties = new AdminProperties();
+        adminProperties.setEmails(List.of("ops@example.com"));
+        filter = new JwtAuthenticationFilter(jwtService, authService, adminProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ShouldGrantAdminRole_OnlyToConfiguredEmails() throws Exception {
+        assertThat(authenticate("OPS@example.com")).containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+
+        SecurityContextHolder.clearContext();
+        assertThat(authenticate("someone@example.com")).containsExactly("ROLE_USER");
+    }
+
+    private List<String> authenticate(String email) throws Exception {
+        User user = new User(email, "John", "Doe", "hashedPassword");
+        when(authService.loadUserByUsername(email)).thenReturn(user);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + jwtService.generateAccessToken(user));
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+    }
+}
@@ -0,0 +1,94 @@
+package za.co.digitalcowboy.agents.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.domain.TaskPriority;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControllerTest {
+    
+    private Queue<Runnable> workers;
+    private SimpleMeterRegistry meterRegistry;
+    private AdmissionController admissionController;
+    private List<String> completed;
+    private List<String> shed;
+    
+    @BeforeEach
+    void setUp() {
+        workers = new ArrayDeque<>();
+        meterRegistry = new SimpleMeterRegistry();
+        // Hold worker hand-offs so the test controls when slots free up
+        admissionController = new AdmissionController(workers::add, 1, 2, 30, meterRegistry);
+        completed = new ArrayList<>();
+        shed = new ArrayList<>();
+    }
+    
+    @Test
+    void submit_ShouldQueueWithPosition_WhenAllSlotsBusy() {
+        submit("a", TaskPriority.INTERACTIVE);
+        submit("b", TaskPriority.BULK);
+        submit("c", TaskPriority.INTERACTIVE);
+        
+        assertThat(admissionController.getRunningCount()).isEqualTo(1);
+        assertThat(admissionController.getQueuedCount()).isEqualTo(2);
+        assertThat(admissionController.getQueuePosition("a")).isNull();
+        assertThat(admissionController.getQueuePosition("c")).isEqualTo(1);
+        assertThat(admissionController.getQueuePosition("b")).isEqualTo(2);
+        assertThat(meterRegistry.get("generation.admission.queued").gauge().value()).isEqualTo(2.0);
+    }
+    
+    @Test
+    void drain_ShouldRunQueuedJobsOnTheSameWorker_InPriorityOrder() {
+        submit("a", TaskPriority.INTERACTIVE);
+        submit("b", TaskPriority.BULK);
+        submit("c", TaskPriority.INTERACTIVE);
+        
+        assertThat(workers).hasSize(1);
+        workers.poll().run();
+        
+        assertThat(completed).containsExactly("a", "c", "b");
+        assertThat(admissionController.getRunningCount()).isZero();
+        assertThat(admissionController.getQueuedCount()).isZero();
+    }
+    
+    @Test
+    void submit_ShouldReject_WhenQueueFullOfEqualPriorityWork() {
+        submit("a", TaskPriority.INTERACTIVE);
+        submit("b", TaskPriority.INTERACTIVE);
+        submit("c", TaskPriority.INTERACTIVE);
+        
+        assertThatThrownBy(() -> submit("d", TaskPriority.INTERACTIVE))
+            .isInstanceOf(GenerationOverloadedException.class)
+            .satisfies(e -> assertThat(((GenerationOverloadedException) e).getRetryAfterSeconds()).isEqualTo(30));
+        
+        assertThat(meterRegistry.get("generation.admission.rejected").tag("priority", "interactive").counter().count())
+            .isEqualTo(1.0);
+    }
+    
+    @Test
+    void submit_ShouldShedLowestPriority_WhenQueueFullAndHigherPriorityArrives() {
+        submit("a", TaskPriority.INTERACTIVE);
+        submit("b", TaskPriority.BULK);
+        submit("c", TaskPriority.BULK);
+        
+        submit("d", TaskPriority.INTERACTIVE);
+        
+        assertThat(shed).containsExactly("c");
+        assertThat(admissionController.getQueuePosition("d")).isEqualTo(1);
+        assertThat(admissionController.getQueuePosition("c")).isNull();
+        assertThat(meterRegistry.get("generation.admission.shed").tag("priority", "bulk").counter().count())
+            .isEqualTo(1.0);
+    }
+    
+    private void submit(String taskId, TaskPriority priority) {
+        admissionController.submit(List.of(taskId), priority, () -> completed.add(taskId), () -> shed.add(taskId));
+    }
+}
@@ -0,0 +1,141 @@
+package za.co.digitalcowboy.agents.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.domain.TaskEvent;
+import za.co.digitalcowboy.agents.domain.TaskEventType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskEventBusTest {
+    
+    private TaskEventBus eventBus;
+    
+    @BeforeEach
+    void setUp() {
+        eventBus = new TaskEventBus(0, 1800000, Runnable::run);
+    }
+    
+    @Test
+    void subscribe_ShouldReplayEventsAfterSequence_ThenDeliverLiveEvents() {
+        eventBus.publish("task", TaskEventType.STATUS, Map.of("status", "PENDING"));
+        eventBus.publish("task", TaskEventType.RESEARCH, "research");
+        
+        List<TaskEvent> received = new ArrayList<>();
+        eventBus.subscribe("task", 1, received::add);
+        eventBus.publish("task", TaskEventType.CONTENT, "content");
+        
+        assertThat(received).extracting(TaskEvent::sequence).containsExactly(2L, 3L);
+        assertThat(received).extracting(TaskEvent::type).containsExactly(TaskEventType.RESEARCH, TaskEventType.CONTENT);
+    }
+    
+    @Test
+    void publish_ShouldStopDelivering_AfterTerminalEvent() {
+        List<TaskEvent> received = new ArrayList<>();
+        eventBus.publish("task", TaskEventType.STATUS, "PENDING");
+        eventBus.subscribe("task", 0, received::add);
+        
+        eventBus.publish("task", TaskEventType.COMPLETED, "COMPLETED");
+        eventBus.publish("task", TaskEventType.CONTENT, "late");
+        
+        assertThat(received).extracting(TaskEvent::type).containsExactly(TaskEventType.STATUS, TaskEventType.COMPLETED);
+    }
+    
+    @Test
+    void hasSubscribers_ShouldTrackOpenSubscriptions() {
+        eventBus.publish("task", TaskEventType.STATUS, "PENDING");
+        assertThat(eventBus.hasSubscribers("task")).isFalse();
+        assertThat(eventBus.hasSubscribers("unknown")).isFalse();
+        
+        TaskEventBus.Subscription subscription = eventBus.subscribe("task", 0, event -> {});
+        assertThat(eventBus.hasSubscribers("task")).isTrue();
+        
+        subscription.close();
+        assertThat(eventBus.hasSubscribers("task")).isFalse();
+    }
+    
+    @Test
+    void subscribe_ShouldReturnNull_WhenTaskHasNoEventsOnThisNode() {
+        eventBus.publish("task", TaskEventType.FAILED, "error");
+        
+        assertThat(eventBus.subscribe("unknown", 0, event -> {})).isNull();
+        
+        eventBus.evictClosedChannels();
+        assertThat(eventBus.subscribe("task", 0, event -> {})).isNull();
+        assertThat(eventBus.getChannelCount()).isZero();
+    }
+    
+    @Test
+    void publish_ShouldDropSubscriber_WhenDeliveryFails() {
+        List<TaskEvent> received = new ArrayList<>();
+        eventBus.publish("task", TaskEventType.STATUS, "PENDING");
+        eventBus.subscribe("task", 0, event -> {
+            throw new IllegalStateException("client gone");
+        });
+        eventBus.subscribe("task", 0, received::add);
+        
+        eventBus.publish("task", TaskEventType.PROGRESS, "query");
+        
+        assertThat(received).hasSize(2);
+    }
+    
+    @Test
+    void publish_ShouldNotWaitForSlowSubscriber() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            TaskEventBus bus = new TaskEventBus(0, 1800000, executor);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch fastReceived = new CountDownLatch(3);
+            List<TaskEvent> slowReceived = new ArrayList<>();
+            bus.publish("task", TaskEventType.STATUS, "PENDING");
+            bus.subscribe("task", 0, event -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (slowReceived) {
+                    slowReceived.add(event);
+                }
+            });
+            bus.subscribe("task", 0, event -> fastReceived.countDown());
+            
+            // Both publishes return while the slow client is still stuck on the first event
+            bus.publish("task", TaskEventType.PROGRESS, "query");
+            bus.publish("task", TaskEventType.COMPLETED, "COMPLETED");
+            assertThat(fastReceived.await(5, TimeUnit.SECONDS)).isTrue();
+            
+            release.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(slowReceived).extracting(TaskEvent::sequence).containsExactly(1L, 2L, 3L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    void evictClosedChannels_ShouldDropIdleUnwatchedChannels() {
+        TaskEventBus bus = new TaskEventBus(120000, 0, Runnable::run);
+        bus.publish("abandoned", TaskEventType.STATUS, "RUNNING");
+        bus.publish("watched", TaskEventType.STATUS, "RUNNING");
+        TaskEventBus.Subscription subscription = bus.subscribe("watched", 0, event -> {});
+        
+        bus.evictClosedChannels();
+        
+        assertThat(bus.subscribe("abandoned", 0, event -> {})).isNull();
+        assertThat(bus.getChannelCount()).isEqualTo(1);
+        
+        subscription.close();
+        bus.evictClosedChannels();
+        assertThat(bus.getChannelCount()).isZero();
+    }
+}
@@ -0,0 +1,129 @@
+package za.co.digitalcowboy.agents.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import za.co.digitalcowboy.agents.domain.TaskPriority;
+import za.co.digitalcowboy.agents.tools.CallPriority;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CacheRegistryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private Cache<String, String> managedCache;
+    private Map<String, TaskPriority> warmedTopics;
+    private CacheRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        managedCache = Caffeine.newBuilder().recordStats().build();
+        warmedTopics = new ConcurrentHashMap<>();
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+            new CaffeineCache("oauthState", Caffeine.newBuilder().recordStats().build()),
+            new CaffeineCache("serpApiCache", Caffeine.newBuilder().recordStats().build())));
+        cacheManager.afterPropertiesSet();
+
+        ManagedCache managed = new ManagedCache() {
+            @Override
+            public String cacheName() {
+                return "webSearch";
+            }
+
+            @Override
+            public Cache<?, ?> nativeCache() {
+                return managedCache;
+            }
+        };
+        CacheWarmer warmer = new CacheWarmer() {
+            @Override
+            public String cacheName() {
+                return "webSearch";
+            }
+
+            @Override
+            public void warm(String topic) {
+                warmedTopics.put(topic, CallPriority.current());
+                managedCache.put(topic, "warmed");
+            }
+        };
+        // Runs warming inline so the test can check it straight away
+        registry = new CacheRegistry(cacheManager, List.of(managed), List.of(warmer), Runnable::run, meterRegistry);
+    }
+
+    @Test
+    void constructor_ShouldBindManagedCacheStatisticsToMicrometer() {
+        managedCache.put("ai trends", "response");
+        managedCache.getIfPresent("ai trends");
+        managedCache.getIfPresent("solar panels");
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "webSearch").tag("result", "hit")
+            .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "webSearch").tag("result", "miss")
+            .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.size").tag("cache", "webSearch").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void list_ShouldIncludeCacheManagerAndManagedCaches_WithStatistics() {
+        managedCache.put("ai trends", "response");
+        managedCache.getIfPresent("ai trends");
+        managedCache.getIfPresent("solar panels");
+
+        List<CacheSummary> caches = registry.list();
+
+        assertThat(caches).extracting(CacheSummary::name).containsExactly("serpApiCache", "webSearch");
+        CacheSummary webSearch = registry.describe("webSearch");
+        assertThat(webSearch.size()).isEqualTo(1);
+        assertThat(webSearch.hitRatio()).isEqualTo(0.5);
+        assertThat(webSearch.warmable()).isTrue();
+        assertThat(registry.describe("missing")).isNull();
+    }
+
+    @Test
+    void keysEvictAndClear_ShouldWorkOnAnyCacheByName() {
+        managedCache.put("ai trends", "response");
+        managedCache.put("solar panels", "response");
+
+        assertThat(registry.keys("webSearch", 10)).containsExactlyInAnyOrder("ai trends", "solar panels");
+        assertThat(registry.keys("webSearch", 1)).hasSize(1);
+        assertThat(registry.evict("webSearch", "ai trends")).isTrue();
+        assertThat(registry.evict("webSearch", "ai trends")).isFalse();
+        assertThat(registry.clear("webSearch")).isEqualTo(1);
+        assertThat(managedCache.estimatedSize()).isZero();
+        assertThat(registry.clear("missing")).isEqualTo(-1);
+    }
+
+    @Test
+    void warm_ShouldRunWarmerAtBulkPriority_ForEachTopic() {
+        int queued = registry.warm("webSearch", List.of("ai trends", " ", "solar panels"));
+
+        assertThat(queued).isEqualTo(2);
+        assertThat(warmedTopics).containsOnlyKeys("ai trends", "solar panels");
+        assertThat(warmedTopics.values()).containsOnly(TaskPriority.BULK);
+        assertThat(meterRegistry.get("cache.warm.topics").tag("cache", "webSearch").tag("result", "warmed")
+            .counter().count()).isEqualTo(2);
+        assertThatThrownBy(() -> registry.warm("serpApiCache", List.of("ai trends")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void oauthState_ShouldNotBeReachable() {
+        assertThat(registry.describe("oauthState")).isNull();
+        assertThat(registry.keys("oauthState", 10)).isNull();
+        assertThat(registry.evict("oauthState", "state")).isFalse();
+        assertThat(registry.clear("oauthState")).isEqualTo(-1);
+    }
+}
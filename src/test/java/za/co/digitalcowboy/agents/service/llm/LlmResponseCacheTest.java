@@ -0,0 +1,103 @@
+package za.co.digitalcowboy.agents.service.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.co.digitalcowboy.agents.config.LlmCacheProperties;
+import za.co.digitalcowboy.agents.tools.CachingChatLanguageModel;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LlmResponseCacheTest {
+
+    @TempDir
+    Path diskPath;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LlmCacheProperties properties;
+    private AtomicInteger modelCalls;
+    private ChatLanguageModel model;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new LlmCacheProperties();
+        properties.setAgents(Set.of("research"));
+        properties.setDiskPath(diskPath.toString());
+        modelCalls = new AtomicInteger();
+        model = messages -> Response.from(
+            AiMessage.from("answer " + modelCalls.incrementAndGet()), new TokenUsage(120, 30));
+    }
+
+    @Test
+    void generate_ShouldAnswerRepeatedPromptFromCache_AndCountSavedTokens() {
+        ChatLanguageModel cached = cachingModel(newCache(), 0.7);
+
+        String first = cached.generate("Research electric bikes");
+        Response<AiMessage> second = cached.generate(List.of(UserMessage.from("Research electric bikes")));
+
+        assertThat(second.content().text()).isEqualTo(first);
+        assertThat(second.tokenUsage().totalTokenCount()).isZero();
+        assertThat(modelCalls).hasValue(1);
+        assertThat(meterRegistry.get("llm.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("llm.cache.tokens.saved").tag("type", "input").counter().count()).isEqualTo(120);
+    }
+
+    @Test
+    void generate_ShouldCallModel_WhenTemperatureOrMessageTypeDiffers() {
+        LlmResponseCache cache = newCache();
+
+        cachingModel(cache, 0.7).generate("Research electric bikes");
+        cachingModel(cache, 0.2).generate("Research electric bikes");
+        cachingModel(cache, 0.7).generate(List.of((ChatMessage) SystemMessage.from("Research electric bikes")));
+
+        assertThat(modelCalls).hasValue(3);
+    }
+
+    @Test
+    void get_ShouldServeFromDisk_AfterRestart() {
+        properties.setDiskEnabled(true);
+        String key = LlmResponseCache.key("gpt-4o", 0.7, 2000, List.of(UserMessage.from("topic")));
+        newCache().put(key, new CachedCompletion("stored", 10, 5, System.currentTimeMillis()));
+
+        CachedCompletion reloaded = newCache().get(key);
+
+        assertThat(reloaded).isNotNull();
+        assertThat(reloaded.text()).isEqualTo("stored");
+        assertThat(meterRegistry.get("llm.cache.disk.reads").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_ShouldIgnoreDiskEntry_WhenOlderThanTtl() {
+        properties.setDiskEnabled(true);
+        String key = LlmResponseCache.key("gpt-4o", 0.7, 2000, List.of(UserMessage.from("topic")));
+        long expired = System.currentTimeMillis() - properties.getTtl().toMillis() - 1000;
+        newCache().put(key, new CachedCompletion("stale", 10, 5, expired));
+
+        assertThat(newCache().get(key)).isNull();
+    }
+
+    private LlmResponseCache newCache() {
+        // Writes inline so the disk tier can be read straight away
+        return new LlmResponseCache(properties, new ObjectMapper(), Runnable::run, meterRegistry);
+    }
+
+    private ChatLanguageModel cachingModel(LlmResponseCache cache, double temperature) {
+        ModelRoute route = new ModelRoute("primary", "gpt-4o", temperature, 2000, "configured");
+        return new CachingChatLanguageModel(model, cache, "research", () -> route, meterRegistry);
+    }
+}
@@ -0,0 +1,109 @@
+package za.co.digitalcowboy.agents.service.llm;
+
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.config.TokenBudgetProperties;
+import za.co.digitalcowboy.agents.domain.ModelStep;
+import za.co.digitalcowboy.agents.domain.TokenTotals;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenAccountingTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private TokenBudgetProperties properties;
+    private TokenAccounting accounting;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new TokenBudgetProperties();
+        accounting = new TokenAccounting(properties, meterRegistry);
+    }
+
+    @Test
+    void record_ShouldCountTokensByAgentModelAndPlatform() {
+        TokenBudget budget = accounting.newBudget(null, 0).share("linkedin", 1);
+
+        accounting.record(ModelStep.CONTENT, "gpt-4o", budget, new TokenUsage(120, 40));
+        accounting.record(ModelStep.CONTENT, "gpt-4o", budget, new TokenUsage(80, 10));
+
+        assertThat(meterRegistry.counter("llm.tokens", "agent", "content", "model", "gpt-4o",
+            "platform", "linkedin", "type", "input").count()).isEqualTo(200);
+        assertThat(meterRegistry.counter("llm.tokens", "agent", "content", "model", "gpt-4o",
+            "platform", "linkedin", "type", "output").count()).isEqualTo(50);
+        assertThat(budget.totals()).isEqualTo(new TokenTotals(200, 50));
+        // Without a configured budget the spend is counted but never limits the task
+        assertThat(budget.isLimited()).isFalse();
+        assertThat(budget.remaining()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void newBudget_ShouldCountWhatEarlierAttemptsSpent() {
+        properties.setTaskBudget(1000);
+
+        TokenBudget budget = accounting.newBudget(null, 600);
+        accounting.record(ModelStep.RESEARCH, "gpt-4o-mini", budget, new TokenUsage(150, 50));
+
+        assertThat(budget.remaining()).isEqualTo(200);
+        assertThat(budget.searchContextTokens()).isEqualTo(100);
+    }
+
+    @Test
+    void share_ShouldChargeEachVariantItsPartOfTheResearch() {
+        properties.setTaskBudget(1000);
+        TokenBudget job = accounting.newBudget(null, 0);
+        TokenBudget twitter = job.share("twitter", 2);
+        TokenBudget linkedin = job.share("linkedin", 2);
+
+        accounting.record(ModelStep.RESEARCH, "gpt-4o-mini", job, new TokenUsage(300, 100));
+        accounting.record(ModelStep.CONTENT, "gpt-4o", twitter, new TokenUsage(100, 50));
+
+        assertThat(twitter.totals()).isEqualTo(new TokenTotals(250, 100));
+        assertThat(linkedin.totals()).isEqualTo(new TokenTotals(150, 50));
+        assertThat(twitter.remaining()).isEqualTo(650);
+        assertThat(meterRegistry.counter("llm.tokens", "agent", "research", "model", "gpt-4o-mini",
+            "platform", "shared", "type", "input").count()).isEqualTo(300);
+    }
+
+    @Test
+    void totalsWithShares_ShouldCountWhatTheGraphSpentUnderAShare() {
+        TokenBudget task = accounting.newBudget(null, 0);
+        TokenBudget graph = task.share("twitter", 1);
+
+        accounting.record(ModelStep.CONTENT, "gpt-4o", graph, new TokenUsage(100, 40));
+
+        // The task's own counters never see the spend, so a failed run is saved from these
+        assertThat(task.totals()).isEqualTo(TokenTotals.NONE);
+        assertThat(task.totalsWithShares()).isEqualTo(new TokenTotals(100, 40));
+        assertThat(graph.totalsWithShares()).isEqualTo(graph.totals());
+    }
+
+    @Test
+    void newBudget_ShouldShareTheUserDailyBudgetAcrossTasks() {
+        properties.setUserDailyBudget(1000);
+        TokenBudget first = accounting.newBudget("alice", 0);
+        accounting.record(ModelStep.CONTENT, "gpt-4o", first, new TokenUsage(500, 200));
+
+        TokenBudget second = accounting.newBudget("alice", 0);
+        TokenBudget otherUser = accounting.newBudget("bob", 0);
+
+        assertThat(second.isLimited()).isTrue();
+        assertThat(second.remaining()).isEqualTo(300);
+        assertThat(otherUser.remaining()).isEqualTo(1000);
+        // Tasks without a user draw only on the task budget
+        assertThat(accounting.newBudget(null, 0).isLimited()).isFalse();
+    }
+
+    @Test
+    void record_ShouldTreatMissingUsageAsNothingSpent() {
+        TokenBudget budget = accounting.newBudget(null, 0);
+
+        accounting.record(ModelStep.IMAGE_BRIEF, "gpt-4o-mini", budget, null);
+        accounting.record(ModelStep.IMAGE_BRIEF, "gpt-4o-mini", budget, new TokenUsage(null, 20));
+
+        assertThat(budget.totals()).isEqualTo(new TokenTotals(0, 20));
+    }
+}
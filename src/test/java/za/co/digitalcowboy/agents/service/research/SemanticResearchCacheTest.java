@@ -0,0 +1,78 @@
+package za.co.digitalcowboy.agents.service.research;
+
+import dev.langchain4j.model.embedding.AllMiniLmL6V2QuantizedEmbeddingModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.config.ResearchCacheProperties;
+import za.co.digitalcowboy.agents.domain.ResearchPoints;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticResearchCacheTest {
+
+    private static EmbeddingModel embeddingModel;
+
+    private final ResearchPoints research = new ResearchPoints(
+        List.of("Point 1", "Point 2", "Point 3", "Point 4", "Point 5"), List.of("https://example.com"));
+
+    private SimpleMeterRegistry meterRegistry;
+    private ResearchCacheProperties properties;
+    private SemanticResearchCache cache;
+
+    @BeforeAll
+    static void loadModel() {
+        embeddingModel = new AllMiniLmL6V2QuantizedEmbeddingModel();
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new ResearchCacheProperties();
+        properties.setEnabled(true);
+        cache = new SemanticResearchCache(properties, embeddingModel, meterRegistry);
+    }
+
+    @Test
+    void get_ShouldReuseResearch_WhenTopicMeansTheSame() {
+        cache.put("AI in healthcare", research);
+
+        assertThat(cache.get("AI for healthcare")).isEqualTo(research);
+        assertThat(cache.get("healthcare AI trends")).isEqualTo(research);
+        assertThat(meterRegistry.get("research.cache.requests").tag("result", "hit").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void get_ShouldMiss_WhenTopicIsOnlyRelated() {
+        cache.put("AI in healthcare", research);
+
+        assertThat(cache.get("AI in finance")).isNull();
+        assertThat(cache.get("electric bikes")).isNull();
+        assertThat(meterRegistry.get("research.cache.requests").tag("result", "miss").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void get_ShouldMiss_WhenTopicWasEvicted() {
+        cache.put("AI in healthcare", research);
+
+        cache.nativeCache().invalidate("ai in healthcare");
+
+        assertThat(cache.get("AI for healthcare")).isNull();
+        assertThat(meterRegistry.get("research.cache.topics").gauge().value()).isZero();
+    }
+
+    @Test
+    void put_ShouldSkipUnavailableResearch_AndEverythingWhenDisabled() {
+        cache.put("AI in healthcare", ResearchPoints.unavailable("AI in healthcare"));
+        assertThat(cache.get("AI in healthcare")).isNull();
+
+        properties.setEnabled(false);
+        cache.put("AI in healthcare", research);
+        assertThat(cache.get("AI in healthcare")).isNull();
+        assertThat(cache.nativeCache().estimatedSize()).isZero();
+    }
+}
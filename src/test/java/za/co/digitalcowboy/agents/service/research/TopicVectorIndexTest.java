@@ -0,0 +1,37 @@
+package za.co.digitalcowboy.agents.service.research;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TopicVectorIndexTest {
+
+    @Test
+    void nearest_ShouldReturnMostSimilarTopic_WithCosineScore() {
+        TopicVectorIndex index = new TopicVectorIndex();
+        index.put("a", new float[] {1, 0, 0});
+        index.put("b", new float[] {0, 2, 0});
+        index.put("c", new float[] {0, 0, 3});
+
+        TopicVectorIndex.Match match = index.nearest(new float[] {0, 1, 1});
+
+        assertThat(match.topic()).isIn("b", "c");
+        assertThat(match.score()).isCloseTo(Math.sqrt(0.5), within(0.01));
+    }
+
+    @Test
+    void remove_ShouldKeepRemainingTopicsFindable() {
+        TopicVectorIndex index = new TopicVectorIndex();
+        index.put("a", new float[] {1, 0, 0});
+        index.put("b", new float[] {0, 1, 0});
+        index.put("c", new float[] {0, 0, 1});
+
+        assertThat(index.remove("a")).isTrue();
+        assertThat(index.remove("a")).isFalse();
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.nearest(new float[] {0, 0, 1}).topic()).isEqualTo("c");
+        assertThat(index.nearest(new float[] {0, 1, 0}).topic()).isEqualTo("b");
+    }
+}
@@ -0,0 +1,142 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.tools.SearchQuotaExceededException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompositeSearchProviderTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void search_ShouldAnswerWithFastestBackend_WhenRacing() {
+        StubBackend slow = new StubBackend("slow", query -> answer(query, "https://slow.example.com", 1000));
+        StubBackend fast = new StubBackend("fast", query -> answer(query, "https://fast.example.com", 0));
+        CompositeSearchProvider composite = new CompositeSearchProvider(List.of(slow, fast),
+            CompositeSearchProvider.Mode.RACE, Duration.ofSeconds(5), executor);
+
+        long start = System.nanoTime();
+        WebSearchResponse response = composite.search("ai trends");
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(500));
+        assertThat(response.results()).extracting(SearchResult::link).containsExactly("https://fast.example.com");
+        assertThat(slow.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void search_ShouldFailOver_WhenBackendFailsOrFindsNothing() {
+        StubBackend failing = new StubBackend("failing", query -> {
+            throw new IllegalStateException("down");
+        });
+        StubBackend empty = new StubBackend("empty", WebSearchResponse::empty);
+        StubBackend working = new StubBackend("working", query -> answer(query, "https://working.example.com", 0));
+        CompositeSearchProvider composite = new CompositeSearchProvider(List.of(failing, empty, working),
+            CompositeSearchProvider.Mode.FAILOVER, Duration.ofSeconds(5), executor);
+
+        WebSearchResponse response = composite.search("ai trends");
+
+        assertThat(response.results()).extracting(SearchResult::link).containsExactly("https://working.example.com");
+        assertThat(List.of(failing, empty, working)).allSatisfy(backend -> assertThat(backend.calls.get()).isEqualTo(1));
+    }
+
+    @Test
+    void search_ShouldAskNextBackend_WhenFirstIsSlow_AndLeaveLaterOnesAlone() {
+        StubBackend slow = new StubBackend("slow", query -> answer(query, "https://slow.example.com", 2000));
+        StubBackend backup = new StubBackend("backup", query -> answer(query, "https://backup.example.com", 0));
+        StubBackend unused = new StubBackend("unused", query -> answer(query, "https://unused.example.com", 0));
+        CompositeSearchProvider composite = new CompositeSearchProvider(List.of(slow, backup, unused),
+            CompositeSearchProvider.Mode.FAILOVER, Duration.ofMillis(100), executor);
+
+        WebSearchResponse response = composite.search("ai trends");
+
+        assertThat(response.results()).extracting(SearchResult::link).containsExactly("https://backup.example.com");
+        assertThat(unused.calls.get()).isZero();
+    }
+
+    @Test
+    void search_ShouldRethrowFirstFailure_WhenEveryBackendFails() {
+        StubBackend first = new StubBackend("first", query -> {
+            throw new IllegalStateException("first down");
+        });
+        StubBackend second = new StubBackend("second", query -> {
+            throw new IllegalStateException("second down");
+        });
+        CompositeSearchProvider composite = new CompositeSearchProvider(List.of(first, second),
+            CompositeSearchProvider.Mode.FAILOVER, Duration.ofSeconds(5), executor);
+
+        assertThatThrownBy(() -> composite.search("ai trends"))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("first down");
+    }
+
+    @Test
+    void search_ShouldRethrowQuotaExhaustion_InsteadOfAnEmptyResponse() {
+        StubBackend serpApi = new StubBackend("serpapi", query -> {
+            throw new IllegalStateException("serpapi down");
+        });
+        StubBackend quota = new StubBackend("quota", query -> {
+            throw new SearchQuotaExceededException("Monthly SerpAPI quota used up");
+        });
+        StubBackend fixture = new StubBackend("fixture", WebSearchResponse::empty);
+        CompositeSearchProvider composite = new CompositeSearchProvider(List.of(serpApi, quota, fixture),
+            CompositeSearchProvider.Mode.FAILOVER, Duration.ofSeconds(5), executor);
+
+        // The caller's quota fallback only runs if the exhaustion reaches it
+        assertThatThrownBy(() -> composite.search("ai trends"))
+            .isInstanceOf(SearchQuotaExceededException.class);
+    }
+
+    private static WebSearchResponse answer(String query, String link, long delayMs) {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new WebSearchResponse(query, List.of(SearchResult.of("Result", "Snippet", link)), null, 1L, 0.1);
+    }
+
+    private static class StubBackend implements SearchProvider {
+
+        private final String name;
+        private final Function<String, WebSearchResponse> search;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        StubBackend(String name, Function<String, WebSearchResponse> search) {
+            this.name = name;
+            this.search = search;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public WebSearchResponse search(String query) {
+            calls.incrementAndGet();
+            return search.apply(query);
+        }
+    }
+}
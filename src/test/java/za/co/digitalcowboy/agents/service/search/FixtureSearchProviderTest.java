@@ -0,0 +1,57 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.co.digitalcowboy.agents.config.SearchProviderProperties;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixtureSearchProviderTest {
+
+    @TempDir
+    Path fixtures;
+
+    @Test
+    void search_ShouldServeFixtureRecordedForCanonicalQuery() throws IOException {
+        copyFixture(FixtureSearchProvider.fileName("AI market size"));
+        FixtureSearchProvider provider = newProvider();
+
+        WebSearchResponse response = provider.search("ai  MARKET size?");
+
+        assertThat(FixtureSearchProvider.fileName("AI market size")).isEqualTo("ai-market-size.json");
+        assertThat(response.query()).isEqualTo("ai  MARKET size?");
+        assertThat(response.results()).extracting(SearchResult::link)
+            .contains("https://www.grandviewresearch.com/industry-analysis/artificial-intelligence-ai-market");
+    }
+
+    @Test
+    void search_ShouldFallBackToDefaultFixture_OrComeBackEmpty() throws IOException {
+        FixtureSearchProvider provider = newProvider();
+
+        assertThat(provider.isEnabled()).isTrue();
+        assertThat(provider.search("solar panels").results()).isEmpty();
+
+        copyFixture(FixtureSearchProvider.DEFAULT_FIXTURE);
+
+        assertThat(provider.search("solar panels").results()).isNotEmpty();
+    }
+
+    private FixtureSearchProvider newProvider() {
+        SearchProviderProperties properties = new SearchProviderProperties();
+        properties.setFixturePath(fixtures.toString());
+        return new FixtureSearchProvider(properties, 5);
+    }
+
+    private void copyFixture(String fileName) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/serpapi/search-response.json")) {
+            Files.copy(in, fixtures.resolve(fileName));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.repository.SearchCacheRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaSearchCacheStoreTest {
+    
+    @Autowired
+    private SearchCacheRepository repository;
+    
+    private JpaSearchCacheStore store;
+    
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        store = new JpaSearchCacheStore(repository, new ObjectMapper().findAndRegisterModules());
+    }
+    
+    @Test
+    void save_ShouldRoundTripResponse_AndReplaceOnRefresh() {
+        LocalDateTime fetchedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        WebSearchResponse response = new WebSearchResponse("ai news",
+            List.of(SearchResult.of("AI News", "Snippet", "https://example.com/ai")),
+            Map.of("title", "Artificial intelligence"), 42L, 0.3);
+        
+        store.save("ai news", new CachedSearch(response, fetchedAt.minusHours(3)));
+        store.save("ai news", new CachedSearch(response, fetchedAt));
+        
+        CachedSearch found = store.find("ai news");
+        assertThat(repository.count()).isEqualTo(1);
+        assertThat(found.response()).isEqualTo(response);
+        assertThat(found.fetchedAt()).isEqualTo(fetchedAt);
+        assertThat(store.find("other query")).isNull();
+    }
+    
+    @Test
+    void deleteFetchedBefore_ShouldOnlyDeleteOlderResponses() {
+        WebSearchResponse response = new WebSearchResponse("q", List.of(SearchResult.of("T", "S", "https://example.com")),
+            null, 1L, 0.1);
+        store.save("old", new CachedSearch(response, LocalDateTime.now().minusDays(2)));
+        store.save("new", new CachedSearch(response, LocalDateTime.now()));
+        
+        assertThat(store.deleteFetchedBefore(LocalDateTime.now().minusDays(1))).isEqualTo(1);
+        assertThat(store.find("old")).isNull();
+        assertThat(store.find("new")).isNotNull();
+    }
+    
+    @Test
+    void deleteAndDeleteAll_ShouldRemoveStoredResponses() {
+        WebSearchResponse response = new WebSearchResponse("q", List.of(SearchResult.of("T", "S", "https://example.com")),
+            null, 1L, 0.1);
+        store.save("ai news", new CachedSearch(response, LocalDateTime.now()));
+        store.save("solar panels", new CachedSearch(response, LocalDateTime.now()));
+        store.save("wind farms", new CachedSearch(response, LocalDateTime.now()));
+        
+        assertThat(store.delete("ai news")).isTrue();
+        assertThat(store.delete("ai news")).isFalse();
+        assertThat(store.find("ai news")).isNull();
+        assertThat(store.deleteAll()).isEqualTo(2);
+        assertThat(repository.count()).isZero();
+    }
+}
@@ -0,0 +1,123 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.co.digitalcowboy.agents.config.SearchIndexProperties;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalSearchIndexTest {
+    
+    @TempDir
+    Path directory;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private SearchIndexProperties properties;
+    private LocalSearchIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new SearchIndexProperties();
+        properties.setEnabled(true);
+        properties.setPath(directory.toString());
+        properties.setMinResults(2);
+        index = newIndex();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        index.close();
+    }
+    
+    private LocalSearchIndex newIndex() {
+        return new LocalSearchIndex(properties, Runnable::run, meterRegistry);
+    }
+    
+    @Test
+    void answer_ShouldServeQuery_FromPreviouslyFetchedResults() {
+        index.add(response("quantum computing breakthroughs",
+            SearchResult.of("Quantum computing breakthrough announced", "Researchers report a quantum error correction milestone", "https://example.com/quantum"),
+            SearchResult.of("Quantum computing in 2024", "Where quantum computing stands today", "https://example.org/quantum-2024"),
+            SearchResult.of("Cooking with cast iron", "Seasoning tips", "https://example.net/cast-iron")));
+        
+        WebSearchResponse answer = index.answer("Quantum computing").response();
+        
+        assertThat(answer).isNotNull();
+        assertThat(answer.query()).isEqualTo("Quantum computing");
+        assertThat(answer.results()).extracting(SearchResult::link)
+            .containsExactlyInAnyOrder("https://example.com/quantum", "https://example.org/quantum-2024");
+        assertThat(answer.results()).extracting(SearchResult::position).containsExactly(1, 2);
+        assertThat(meterRegistry.get("search.index.lookups").tag("result", "answered").counter().count()).isEqualTo(1);
+    }
+    
+    @Test
+    void answer_ShouldReturnNull_WhenTooFewResultsCoverTheQuery() {
+        index.add(response("quantum computing",
+            SearchResult.of("Quantum computing explained", "An introduction", "https://example.com/quantum"),
+            SearchResult.of("Computing history", "From abacus to laptops", "https://example.com/history")));
+        
+        // Only one result mentions quantum, and none mention cryptography
+        assertThat(index.answer("quantum computing")).isNull();
+        assertThat(index.answer("quantum cryptography")).isNull();
+        assertThat(meterRegistry.get("search.index.lookups").tag("result", "insufficient").counter().count()).isEqualTo(2);
+    }
+    
+    @Test
+    void flush_ShouldKeepResults_AcrossRestarts() {
+        index.add(response("rust adoption",
+            SearchResult.of("Rust adoption grows", "Survey results", "https://example.com/rust"),
+            SearchResult.of("Why teams adopt Rust", "Memory safety", "https://example.org/rust")));
+        index.flush();
+        index.close();
+        
+        index = newIndex();
+        
+        assertThat(index.getSegmentCount()).isEqualTo(1);
+        assertThat(index.search("rust adoption", 5)).extracting(hit -> hit.result().link())
+            .containsExactlyInAnyOrder("https://example.com/rust", "https://example.org/rust");
+    }
+    
+    @Test
+    void compact_ShouldMergeSegments_KeepingNewestCopyOfEachLink() {
+        index.add(response("kotlin", SearchResult.of("Kotlin old", "Old snippet", "https://example.com/kotlin")));
+        index.flush();
+        index.add(response("kotlin",
+            SearchResult.of("Kotlin new", "New snippet", "https://example.com/kotlin"),
+            SearchResult.of("Kotlin coroutines", "Guide", "https://example.org/kotlin-coroutines")));
+        index.flush();
+        
+        index.compact();
+        
+        assertThat(index.getSegmentCount()).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.search("kotlin", 5)).extracting(hit -> hit.result().title())
+            .containsExactlyInAnyOrder("Kotlin new", "Kotlin coroutines");
+    }
+    
+    @Test
+    void compact_ShouldDropResults_OlderThanRetention() {
+        index.add(response("go", SearchResult.of("Go generics", "Type parameters", "https://example.com/go")));
+        index.flush();
+        properties.setRetention(Duration.ZERO);
+        
+        index.compact();
+        
+        assertThat(index.size()).isZero();
+        assertThat(index.search("go generics", 5)).isEmpty();
+        assertThat(directory.toFile().list()).isEmpty();
+    }
+    
+    private static WebSearchResponse response(String query, SearchResult... results) {
+        return new WebSearchResponse(query, List.of(results), null, (long) results.length, 0.1);
+    }
+}
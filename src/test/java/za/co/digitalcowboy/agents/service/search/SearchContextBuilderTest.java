@@ -0,0 +1,101 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.config.SearchContextProperties;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchContextBuilderTest {
+    
+    private static final String SNIPPET = "The central bank held interest rates steady on Wednesday, "
+        + "citing cooling inflation and a resilient labour market, and signalled cuts later this year.";
+    
+    private SimpleMeterRegistry meterRegistry;
+    private SearchContextProperties properties;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new SearchContextProperties();
+    }
+    
+    private SearchContextBuilder newBuilder() {
+        return new SearchContextBuilder(properties, new OpenAiTokenizer("gpt-4o"), meterRegistry);
+    }
+    
+    @Test
+    void build_ShouldKeepOneCopy_OfALinkReturnedForSeveralQueries() {
+        SearchContext context = newBuilder().build(List.of(
+            response("interest rates", SearchResult.of("Rates on hold", SNIPPET, "https://www.example.com/rates/")),
+            response("central bank decision", SearchResult.of("Rates on hold", SNIPPET, "https://example.com/rates"))));
+        
+        assertThat(context.text()).containsOnlyOnce("Rates on hold");
+        assertThat(context.text()).doesNotContain("central bank decision");
+        assertThat(context.sources()).containsExactly("https://www.example.com/rates/");
+        assertThat(context.tokensSaved()).isPositive();
+        assertThat(meterRegistry.get("search.context.results.dropped").tag("reason", "duplicate_link").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("search.context.tokens.saved").summary().totalAmount()).isEqualTo(context.tokensSaved());
+    }
+    
+    @Test
+    void build_ShouldDropNearDuplicateSnippets_FromOtherSites() {
+        SearchContext context = newBuilder().build(List.of(
+            response("interest rates",
+                SearchResult.of("Central bank holds rates", SNIPPET, "https://news.example.com/a"),
+                SearchResult.of("Mortgage costs", "What the decision means for homeowners.", "https://example.org/mortgages")),
+            response("rate decision",
+                SearchResult.of("Central bank holds rates steady", "UPDATE: " + SNIPPET, "https://syndicated.example.net/b"))));
+        
+        assertThat(context.text()).contains("https://news.example.com/a", "https://example.org/mortgages");
+        assertThat(context.text()).doesNotContain("https://syndicated.example.net/b");
+        assertThat(meterRegistry.get("search.context.results.dropped").tag("reason", "near_duplicate").counter().count()).isEqualTo(1);
+    }
+    
+    @Test
+    void build_ShouldFitTokenBudget_KeepingEachQuerysTopResultFirst() {
+        properties.setMaxTokens(80);
+        
+        SearchContext context = newBuilder().build(List.of(
+            response("first query",
+                SearchResult.of("First top", "Alpha beta gamma delta epsilon zeta eta theta.", "https://one.example.com/1"),
+                SearchResult.of("First second", "Iota kappa lambda mu nu xi omicron pi.", "https://one.example.com/2")),
+            response("second query",
+                SearchResult.of("Second top", "Rho sigma tau upsilon phi chi psi omega.", "https://two.example.com/1"),
+                SearchResult.of("Second second", "One two three four five six seven eight.", "https://two.example.com/2"))));
+        
+        assertThat(context.tokens()).isLessThanOrEqualTo(80);
+        assertThat(context.text()).contains("First top", "Second top");
+        assertThat(meterRegistry.get("search.context.results.dropped").tag("reason", "budget").counter().count()).isPositive();
+    }
+    
+    @Test
+    void build_ShouldCapSourcesPerQuery_NotAcrossAllQueries() {
+        List<WebSearchResponse> responses = List.of(
+            response("first query",
+                SearchResult.of("Alpha", "Alpha beta gamma delta epsilon zeta eta theta.", "https://one.example.com/1"),
+                SearchResult.of("Iota", "Iota kappa lambda mu nu xi omicron pi.", "https://one.example.com/2")),
+            response("second query",
+                SearchResult.of("Rho", "Rho sigma tau upsilon phi chi psi omega.", "https://two.example.com/1"),
+                SearchResult.of("Count", "One two three four five six seven eight.", "https://two.example.com/2")),
+            response("third query",
+                SearchResult.of("Colours", "Red orange yellow green blue indigo violet white.", "https://three.example.com/1"),
+                SearchResult.of("Days", "Monday tuesday wednesday thursday friday saturday sunday.", "https://three.example.com/2")));
+        
+        assertThat(newBuilder().build(responses).sources()).hasSize(6);
+        
+        properties.setMaxSourcesPerQuery(1);
+        assertThat(newBuilder().build(responses).sources()).containsExactlyInAnyOrder(
+            "https://one.example.com/1", "https://two.example.com/1", "https://three.example.com/1");
+    }
+    
+    private static WebSearchResponse response(String query, SearchResult... results) {
+        return new WebSearchResponse(query, List.of(results), null, (long) results.length, 0.1);
+    }
+}
@@ -0,0 +1,170 @@
+package za.co.digitalcowboy.agents.service.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.config.SearchCacheProperties;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResponseCacheTest {
+    
+    private final Map<String, CachedSearch> stored = new ConcurrentHashMap<>();
+    private final List<Runnable> background = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private SearchCacheProperties properties;
+    
+    private final SearchCacheStore store = new SearchCacheStore() {
+        @Override
+        public CachedSearch find(String query) {
+            return stored.get(query);
+        }
+        
+        @Override
+        public void save(String query, CachedSearch search) {
+            stored.put(query, search);
+        }
+        
+        @Override
+        public boolean delete(String query) {
+            return stored.remove(query) != null;
+        }
+        
+        @Override
+        public int deleteAll() {
+            int size = stored.size();
+            stored.clear();
+            return size;
+        }
+        
+        @Override
+        public int deleteFetchedBefore(LocalDateTime cutoff) {
+            return 0;
+        }
+    };
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new SearchCacheProperties();
+        properties.setFreshFor(Duration.ofHours(1));
+        properties.setStaleFor(Duration.ofHours(23));
+    }
+    
+    @Test
+    void get_ShouldServeStaleResponse_AndRefreshInBackground() {
+        stored.put("ai news", new CachedSearch(response("ai news", "old"), LocalDateTime.now().minusHours(2)));
+        SearchResponseCache cache = newCache();
+        
+        WebSearchResponse first = cache.get("ai news", this::load);
+        
+        // Served from the store without waiting on the provider
+        assertThat(first.results().get(0).title()).isEqualTo("old");
+        assertThat(loads.get()).isZero();
+        assertThat(count("stale")).isEqualTo(1);
+        
+        runBackground();
+        
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.get("ai news", this::load).results().get(0).title()).isEqualTo("fresh");
+        assertThat(stored.get("ai news").response().results().get(0).title()).isEqualTo("fresh");
+        assertThat(count("hit")).isEqualTo(1);
+    }
+    
+    @Test
+    void getOrLoad_ShouldKeepTheLoadersFetchTime_SoIndexedResultsAgeNormally() {
+        LocalDateTime fetchedAt = LocalDateTime.now().minusHours(2);
+        SearchResponseCache cache = newCache();
+        
+        cache.getOrLoad("ai news", query -> new CachedSearch(response(query, "indexed"), fetchedAt));
+        runBackground();
+        
+        // Results fetched two hours ago are already stale, however recently they were cached
+        assertThat(stored.get("ai news").fetchedAt()).isEqualTo(fetchedAt);
+        assertThat(cache.get("ai news", this::load).results().get(0).title()).isEqualTo("indexed");
+        assertThat(count("stale")).isEqualTo(1);
+    }
+    
+    @Test
+    void get_ShouldLoadAndWriteBack_WhenStoredResponseIsTooOld() {
+        stored.put("ai news", new CachedSearch(response("ai news", "ancient"), LocalDateTime.now().minusDays(2)));
+        SearchResponseCache cache = newCache();
+        
+        assertThat(cache.get("ai news", this::load).results().get(0).title()).isEqualTo("fresh");
+        assertThat(count("miss")).isEqualTo(1);
+        
+        runBackground();
+        assertThat(stored.get("ai news").response().results().get(0).title()).isEqualTo("fresh");
+        
+        // A new instance (e.g. after a deploy) starts warm from the store
+        assertThat(newCache().get("ai news", this::load).results().get(0).title()).isEqualTo("fresh");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+    
+    @Test
+    void get_ShouldNotCacheEmptyResponses() {
+        SearchResponseCache cache = newCache();
+        
+        cache.get("nothing", WebSearchResponse::empty);
+        cache.get("nothing", WebSearchResponse::empty);
+        runBackground();
+        
+        assertThat(count("miss")).isEqualTo(2);
+        assertThat(stored).isEmpty();
+    }
+    
+    @Test
+    void evictAndClear_ShouldReachTheStore_SoEntriesAreNotReloaded() {
+        SearchResponseCache cache = newCache();
+        cache.get("ai news", this::load);
+        cache.get("solar panels", this::load);
+        runBackground();
+        
+        assertThat(cache.evict("ai news")).isTrue();
+        assertThat(stored).doesNotContainKey("ai news");
+        cache.get("ai news", this::load);
+        assertThat(loads.get()).isEqualTo(3);
+        runBackground();
+        
+        assertThat(cache.clear()).isEqualTo(2);
+        assertThat(stored).isEmpty();
+        assertThat(cache.getMemorySize()).isZero();
+        assertThat(cache.evict("ai news")).isFalse();
+    }
+    
+    private SearchResponseCache newCache() {
+        return new SearchResponseCache(store, background::add, properties, meterRegistry);
+    }
+    
+    private void runBackground() {
+        // A refresh queues its own write-back, so drain until idle
+        while (!background.isEmpty()) {
+            background.remove(0).run();
+        }
+    }
+    
+    private WebSearchResponse load(String query) {
+        loads.incrementAndGet();
+        return response(query, "fresh");
+    }
+    
+    private double count(String result) {
+        return meterRegistry.get("search.cache.requests").tag("result", result).counter().count();
+    }
+    
+    private static WebSearchResponse response(String query, String title) {
+        return new WebSearchResponse(query, List.of(SearchResult.of(title, "Snippet", "https://example.com/" + title)),
+            null, 1L, 0.1);
+    }
+}
@@ -0,0 +1,183 @@
+package za.co.digitalcowboy.agents.service.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import za.co.digitalcowboy.agents.config.TaskRetentionProperties;
+import za.co.digitalcowboy.agents.domain.*;
+import za.co.digitalcowboy.agents.repository.GenerationTaskRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaTaskStoreTest {
+    
+    @Autowired
+    private GenerationTaskRepository repository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private JpaTaskStore store;
+    
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        store = newStore();
+    }
+    
+    @Test
+    void save_ShouldServeReadsFromMemory_UntilFlushed() {
+        GenerationTask task = new GenerationTask("task-1", new TopicRequest("AI", "twitter", "casual", 1));
+        
+        store.save(task);
+        
+        assertThat(store.find("task-1")).isEqualTo(task);
+        assertThat(store.getPendingWriteCount()).isEqualTo(1);
+        assertThat(repository.count()).isZero();
+        
+        store.flush();
+        
+        assertThat(store.getPendingWriteCount()).isZero();
+        assertThat(repository.findById("task-1")).get()
+            .extracting(GenerationTaskEntity::getStatus).isEqualTo(TaskStatus.PENDING);
+    }
+    
+    @Test
+    void flush_ShouldCoalesceTransitions_AndRoundTripCompressedResult() {
+        GenerationTask task = new GenerationTask("task-2", new TopicRequest("AI", "linkedin", "professional", 1));
+        OrchestrationResult result = new OrchestrationResult("AI",
+            new ResearchPoints(List.of("Point 1", "Point 2"), List.of("https://example.com")),
+            new ContentDraft("linkedin", "professional", "Headline", "Body", "CTA"),
+            new ImageResult("prompt", List.of(), List.of("/tmp/image.png"), List.of()));
+        
+        store.save(task);
+        store.flush();
+        store.save(task.withStatus(TaskStatus.IN_PROGRESS));
+        store.save(task.withStatus(TaskStatus.IN_PROGRESS).withResult(result));
+        store.flush();
+        
+        GenerationTaskEntity entity = repository.findById("task-2").orElseThrow();
+        assertThat(entity.getStatus()).isEqualTo(TaskStatus.COMPLETED);
+        assertThat(entity.getResultJsonGz()).startsWith((byte) 0x1f, (byte) 0x8b);
+        
+        // A fresh store (e.g. after a deploy) reads the task back from the database
+        GenerationTask reloaded = newStore().find("task-2");
+        assertThat(reloaded.status()).isEqualTo(TaskStatus.COMPLETED);
+        assertThat(reloaded.request().platform()).isEqualTo("linkedin");
+        assertThat(reloaded.result()).isEqualTo(result);
+    }
+    
+    @Test
+    void flush_ShouldRoundTripCheckpoint_ForFailedTask() {
+        GenerationTask task = new GenerationTask("task-4", new TopicRequest("AI", "twitter", "casual", 1));
+        AgentCheckpoint checkpoint = new AgentCheckpoint(Set.of("query", "search", "research", "content"),
+            List.of("AI news"),
+            List.of(new WebSearchResponse("AI news", List.of(SearchResult.of("Title", "Snippet", "https://example.com")), null, 1L, 0.2)),
+            new ResearchPoints(List.of("Point 1"), List.of()),
+            new ContentDraft("twitter", "casual", "Headline", "Body", "CTA"),
+            null, null);
+        
+        store.save(task.withCheckpoint(checkpoint).withError("Image generation timed out"));
+        store.flush();
+        
+        GenerationTask reloaded = newStore().find("task-4");
+        assertThat(reloaded.status()).isEqualTo(TaskStatus.FAILED);
+        assertThat(reloaded.checkpoint()).isEqualTo(checkpoint);
+    }
+    
+    @Test
+    void remove_ShouldDeleteFlushedTask() {
+        store.save(new GenerationTask("task-3", new TopicRequest("AI", "twitter", "casual", 1)));
+        store.flush();
+        
+        store.remove("task-3");
+        assertThat(store.find("task-3")).isNull();
+        store.flush();
+        
+        assertThat(repository.existsById("task-3")).isFalse();
+    }
+    
+    @Test
+    void expire_ShouldDeleteRowsPastTheirStatusRetention() {
+        LocalDateTime now = LocalDateTime.now();
+        TopicRequest request = new TopicRequest("AI", "twitter", "casual", 1);
+        store.save(new GenerationTask("old-failed", request, TaskStatus.FAILED, null, "boom",
+            now.minusDays(2), now.minusDays(2), now.minusDays(2), null));
+        store.save(new GenerationTask("recent-completed", request, TaskStatus.COMPLETED, null, null,
+            now.minusHours(2), now.minusHours(2), now.minusHours(2), null));
+        store.flush();
+        
+        int expired = store.expire(now);
+        
+        assertThat(expired).isEqualTo(1);
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(repository.existsById("old-failed")).isFalse();
+        assertThat(repository.existsById("recent-completed")).isTrue();
+    }
+    
+    @Test
+    void flush_ShouldKeepChangesMadeWhileItIsWriting() {
+        TopicRequest request = new TopicRequest("AI", "twitter", "casual", 1);
+        GenerationTask task = new GenerationTask("task-5", request).withError("Timed out");
+        GenerationTask other = new GenerationTask("task-6", request).withError("Timed out");
+        AtomicReference<Runnable> duringWrite = new AtomicReference<>();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                Runnable hook = duringWrite.getAndSet(null);
+                if (hook != null) {
+                    hook.run();
+                }
+                return super.execute(action);
+            }
+        };
+        // A hot tier of one pushes a finished task out while both are only in the write buffer
+        JpaTaskStore store = newStore(transactionTemplate, 1);
+        store.save(task);
+        store.save(other);
+        
+        duringWrite.set(() -> {
+            assertThat(store.find("task-5")).isNotNull();
+            assertThat(store.find("task-6")).isNotNull();
+            store.save(task.withResult(OrchestrationResult.empty("AI")));
+        });
+        store.flush();
+        
+        assertThat(repository.findById("task-5")).get()
+            .extracting(GenerationTaskEntity::getStatus).isEqualTo(TaskStatus.FAILED);
+        assertThat(store.getPendingWriteCount()).isEqualTo(1);
+        
+        store.flush();
+        
+        assertThat(repository.findById("task-5")).get()
+            .extracting(GenerationTaskEntity::getStatus).isEqualTo(TaskStatus.COMPLETED);
+        assertThat(store.getPendingWriteCount()).isZero();
+    }
+    
+    private JpaTaskStore newStore() {
+        return newStore(new TransactionTemplate(transactionManager), 1000);
+    }
+    
+    private JpaTaskStore newStore(TransactionTemplate transactionTemplate, long hotMaxSize) {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        return new JpaTaskStore(repository, transactionTemplate, objectMapper,
+            new TaskRetentionProperties(), hotMaxSize, 50, new SimpleMeterRegistry());
+    }
+}
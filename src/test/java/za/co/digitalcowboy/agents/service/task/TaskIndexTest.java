@@ -0,0 +1,121 @@
+package za.co.digitalcowboy.agents.service.task;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.config.TaskRetentionProperties;
+import za.co.digitalcowboy.agents.domain.GenerationTask;
+import za.co.digitalcowboy.agents.domain.OrchestrationResult;
+import za.co.digitalcowboy.agents.domain.TaskStatus;
+import za.co.digitalcowboy.agents.domain.TopicRequest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskIndexTest {
+    
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+    
+    private TaskIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        TaskRetentionProperties retention = new TaskRetentionProperties();
+        retention.setPending(Duration.ofHours(1));
+        retention.setInProgress(Duration.ofHours(1));
+        retention.setCompleted(Duration.ofHours(24));
+        retention.setFailed(Duration.ofHours(6));
+        index = new TaskIndex(retention, 3);
+    }
+    
+    @Test
+    void put_ShouldMaintainCounters_AcrossTransitions() {
+        index.put(task("a", TaskStatus.PENDING, T0));
+        index.put(task("b", TaskStatus.PENDING, T0));
+        assertThat(index.activeCount()).isEqualTo(2);
+        
+        index.put(task("a", TaskStatus.IN_PROGRESS, T0));
+        assertThat(index.activeCount()).isEqualTo(2);
+        
+        index.put(task("a", TaskStatus.COMPLETED, T0));
+        assertThat(index.activeCount()).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(2);
+        
+        index.remove("b");
+        assertThat(index.activeCount()).isZero();
+        assertThat(index.size()).isEqualTo(1);
+    }
+    
+    @Test
+    void expire_ShouldApplyRetentionOfCurrentStatus() {
+        index.put(task("pending", TaskStatus.PENDING, T0));
+        index.put(task("completed", TaskStatus.PENDING, T0));
+        index.put(task("completed", TaskStatus.COMPLETED, T0));
+        
+        // The superseded one-hour pending deadline for "completed" must not expire it
+        assertThat(index.expire(T0.plusHours(2))).extracting(GenerationTask::id).containsExactly("pending");
+        assertThat(index.get("completed")).isNotNull();
+        assertThat(index.activeCount()).isZero();
+        
+        assertThat(index.expire(T0.plusHours(25))).extracting(GenerationTask::id).containsExactly("completed");
+        assertThat(index.size()).isZero();
+    }
+    
+    @Test
+    void put_ShouldEvictFinishedTaskClosestToExpiry_WhenFull() {
+        index.put(task("completed", TaskStatus.COMPLETED, T0));
+        index.put(task("failed", TaskStatus.FAILED, T0));
+        index.put(task("pending", TaskStatus.PENDING, T0.plusHours(1)));
+        index.put(task("other", TaskStatus.COMPLETED, T0.plusHours(1)));
+        
+        // Three finished tasks fit; the pending one does not count towards the limit
+        assertThat(index.put(task("new", TaskStatus.FAILED, T0.plusHours(1))))
+            .extracting(GenerationTask::id).containsExactly("failed");
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.activeCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void put_ShouldNeverEvictRunningTask_WhenCapIsFullOfCompletedTasks() {
+        index.put(task("running", TaskStatus.IN_PROGRESS, T0));
+        for (int i = 0; i < 10; i++) {
+            index.put(task("completed-" + i, TaskStatus.COMPLETED, T0.plusHours(i)));
+        }
+        
+        // The running task expires first, yet only completed tasks make room
+        assertThat(index.get("running")).isNotNull();
+        assertThat(index.get("completed-9")).isNotNull();
+        assertThat(index.get("completed-0")).isNull();
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.activeCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void promote_ShouldKeepPromotedTask_AndNotReplaceNewerState() {
+        index.put(task("failed", TaskStatus.FAILED, T0.plusHours(2)));
+        index.put(task("pending", TaskStatus.PENDING, T0.plusHours(8)));
+        index.put(task("completed", TaskStatus.COMPLETED, T0));
+        index.put(task("failed-later", TaskStatus.FAILED, T0.plusHours(3)));
+        
+        // Loaded from the database and closest to expiry, yet another task makes room for it
+        GenerationTask loaded = task("old", TaskStatus.FAILED, T0);
+        assertThat(index.promote(loaded)).isSameAs(loaded);
+        assertThat(index.get("old")).isSameAs(loaded);
+        assertThat(index.get("failed")).isNull();
+        assertThat(index.size()).isEqualTo(4);
+        
+        // A save that landed while the stale copy was loading is kept
+        GenerationTask saved = task("pending", TaskStatus.COMPLETED, T0.plusHours(9));
+        index.put(saved);
+        assertThat(index.promote(task("pending", TaskStatus.PENDING, T0.plusHours(8)))).isSameAs(saved);
+        assertThat(index.get("pending")).isSameAs(saved);
+    }
+    
+    private static GenerationTask task(String id, TaskStatus status, LocalDateTime updatedAt) {
+        boolean done = status == TaskStatus.COMPLETED || status == TaskStatus.FAILED;
+        return new GenerationTask(id, new TopicRequest("AI", "twitter", "casual", 1), status,
+            status == TaskStatus.COMPLETED ? OrchestrationResult.empty("AI") : null, null,
+            T0, updatedAt, done ? updatedAt : null, null);
+    }
+}
@@ -0,0 +1,51 @@
+package za.co.digitalcowboy.agents.tools;
+
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.domain.ModelStep;
+import za.co.digitalcowboy.agents.domain.TaskPriority;
+import za.co.digitalcowboy.agents.service.llm.ModelRoute;
+import za.co.digitalcowboy.agents.service.llm.TokenBudget;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CallContextTest {
+    
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    
+    @Test
+    void propagate_ShouldCarryEveryContextToAnotherThread() throws Exception {
+        Instant deadline = Instant.now().plusSeconds(30);
+        TokenBudget budget = TokenBudget.unlimited();
+        ModelRoute route = new ModelRoute("cheap", "gpt-4o-mini", 0.2, 500, "deadline");
+        
+        Supplier<List<Object>> seen = () -> List.of(CallDeadline.current(), CallPriority.current(),
+            CallBudget.current(), CallStep.current(), CallRoute.current());
+        AtomicReference<Supplier<List<Object>>> propagated = new AtomicReference<>();
+        CallDeadline.run(deadline, () -> CallPriority.run(TaskPriority.BULK, () -> CallBudget.run(budget,
+            () -> CallStep.call(ModelStep.CONTENT, () -> CallRoute.call(route,
+                () -> propagated.getAndSet(CallContext.propagate(seen)))))));
+        
+        assertThat(CompletableFuture.supplyAsync(propagated.get(), executor).get())
+            .containsExactly(deadline, TaskPriority.BULK, budget, ModelStep.CONTENT, route);
+    }
+    
+    @Test
+    void propagate_ShouldRestoreTheWorkerThreadsOwnContextsAfterwards() throws Exception {
+        Supplier<TaskPriority> propagated = CallPriority.call(TaskPriority.BULK,
+            () -> CallContext.propagate(CallPriority::current));
+        
+        assertThat(CompletableFuture.supplyAsync(propagated, executor).get()).isEqualTo(TaskPriority.BULK);
+        
+        assertThat(CompletableFuture.supplyAsync(CallPriority::current, executor).get())
+            .isEqualTo(TaskPriority.INTERACTIVE);
+        assertThat(CompletableFuture.supplyAsync(CallDeadline::current, executor).get()).isNull();
+    }
+}
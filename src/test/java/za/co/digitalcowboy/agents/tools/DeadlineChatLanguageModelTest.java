@@ -0,0 +1,80 @@
+package za.co.digitalcowboy.agents.tools;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeadlineChatLanguageModelTest {
+    
+    private final ExecutorService callExecutor = Executors.newCachedThreadPool();
+    
+    private final ChatLanguageModel slowModel = messages -> {
+        try {
+            Thread.sleep(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Response.from(AiMessage.from("late"));
+    };
+    
+    @AfterEach
+    void tearDown() {
+        callExecutor.shutdownNow();
+    }
+    
+    @Test
+    void generate_ShouldGiveUpAtTheDeadline_WhenCallOverruns() {
+        ChatLanguageModel model = new DeadlineChatLanguageModel(slowModel, callExecutor);
+        long start = System.nanoTime();
+        
+        assertThatThrownBy(() -> CallDeadline.run(Instant.now().plusMillis(100), () -> model.generate("prompt")))
+            .isInstanceOf(DeadlineExceededException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    }
+    
+    @Test
+    void generate_ShouldInterruptTheAbandonedCall() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ChatLanguageModel model = new DeadlineChatLanguageModel(messages -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return Response.from(AiMessage.from("late"));
+        }, callExecutor);
+        
+        assertThatThrownBy(() -> CallDeadline.run(Instant.now().plusMillis(100), () -> model.generate("prompt")))
+            .isInstanceOf(DeadlineExceededException.class);
+        // Interrupted, so a call still waiting for a permit gives up instead of starting late
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+    
+    @Test
+    void generate_ShouldFailFast_WhenDeadlineAlreadyPassed() {
+        ChatLanguageModel model = new DeadlineChatLanguageModel(slowModel, callExecutor);
+        
+        assertThatThrownBy(() -> CallDeadline.run(Instant.now().minusMillis(1), () -> model.generate("prompt")))
+            .isInstanceOf(DeadlineExceededException.class);
+    }
+    
+    @Test
+    void generate_ShouldCallThrough_WithoutDeadline() {
+        ChatLanguageModel model = new DeadlineChatLanguageModel(messages -> Response.from(AiMessage.from("ok")), callExecutor);
+        
+        assertThat(model.generate("prompt")).isEqualTo("ok");
+        assertThat(CallDeadline.current()).isNull();
+    }
+}
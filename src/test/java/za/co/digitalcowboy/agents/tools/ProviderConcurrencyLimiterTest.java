@@ -0,0 +1,69 @@
+package za.co.digitalcowboy.agents.tools;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.tools.ProviderConcurrencyLimiter.Provider;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProviderConcurrencyLimiterTest {
+    
+    private SimpleMeterRegistry meterRegistry;
+    private ProviderConcurrencyLimiter limiter;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new ProviderConcurrencyLimiter(2, 1, 1, 1, 50, meterRegistry);
+    }
+    
+    @Test
+    void call_ShouldTimeOut_WhenProviderPermitsAreHeld() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> inFlight = CompletableFuture.supplyAsync(() -> limiter.call(Provider.SERPAPI, () -> {
+            holding.countDown();
+            await(release);
+            return "first";
+        }));
+        holding.await(5, TimeUnit.SECONDS);
+        
+        assertThat(meterRegistry.get("provider.calls.in_flight").tag("provider", "serpapi").gauge().value())
+            .isEqualTo(1.0);
+        assertThatThrownBy(() -> limiter.call(Provider.SERPAPI, () -> "second"))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("serpapi");
+        
+        // Other providers have their own permits
+        assertThat(limiter.call(Provider.OPENAI_CHAT, () -> "chat")).isEqualTo("chat");
+        
+        release.countDown();
+        assertThat(inFlight.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(limiter.call(Provider.SERPAPI, () -> "third")).isEqualTo("third");
+    }
+    
+    @Test
+    void call_ShouldReleasePermit_WhenCallThrows() {
+        assertThatThrownBy(() -> limiter.call(Provider.OPENAI_IMAGES, () -> {
+            throw new RuntimeException("API Error");
+        })).hasMessage("API Error");
+        
+        assertThat(limiter.call(Provider.OPENAI_IMAGES, () -> "ok")).isEqualTo("ok");
+        assertThat(meterRegistry.get("provider.calls.in_flight").tag("provider", "openai-images").gauge().value())
+            .isZero();
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package za.co.digitalcowboy.agents.tools;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.config.ModelRoutingProperties;
+import za.co.digitalcowboy.agents.domain.ModelStep;
+import za.co.digitalcowboy.agents.service.llm.ModelRoute;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RoutingChatLanguageModelTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ModelRoutingProperties properties;
+    private long primaryLatencyMs;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new ModelRoutingProperties();
+        properties.setLatencyMinSamples(3);
+    }
+
+    @Test
+    void generate_ShouldUseProfileOfCallStep() {
+        RoutingChatLanguageModel router = newRouter();
+
+        assertThat(CallStep.call(ModelStep.RESEARCH_QUERIES, () -> router.generate("queries"))).isEqualTo("fast");
+        assertThat(CallStep.call(ModelStep.CONTENT, () -> router.generate("content"))).isEqualTo("primary");
+        assertThat(router.generate("unscoped")).isEqualTo("primary");
+
+        assertThat(meterRegistry.get("llm.profile.tokens").tags("profile", "fast", "type", "output").counter().count())
+            .isEqualTo(5);
+        assertThat(meterRegistry.get("llm.profile.requests").tags("profile", "primary", "step", "content").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void generate_ShouldDowngrade_WhenDeadlineBudgetIsTight() {
+        RoutingChatLanguageModel router = newRouter();
+
+        String answeredBy = CallDeadline.call(Instant.now().plusSeconds(5),
+            () -> CallStep.call(ModelStep.CONTENT, () -> router.generate("content")));
+
+        assertThat(answeredBy).isEqualTo("fast");
+        assertThat(meterRegistry.get("llm.profile.requests").tags("profile", "fast", "reason", "budget").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void generate_ShouldKeepPinnedRoute_EvenIfADowngradeWouldNowApply() {
+        RoutingChatLanguageModel router = newRouter();
+        ModelRoute selected = CallStep.call(ModelStep.CONTENT, router::select);
+
+        // The budget turned tight after the cache key was built from the selected route
+        String answeredBy = CallDeadline.call(Instant.now().plusSeconds(5),
+            () -> CallStep.call(ModelStep.CONTENT, () -> CallRoute.call(selected, () -> router.generate("content"))));
+
+        assertThat(answeredBy).isEqualTo("primary");
+        assertThat(meterRegistry.get("llm.profile.requests").tags("profile", "primary", "reason", "configured").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void streamingGenerate_ShouldDowngradeContent_WhenDeadlineBudgetIsTight() {
+        List<String> answeredBy = new ArrayList<>();
+        StreamingChatLanguageModel primary = (messages, handler) -> answeredBy.add("primary");
+        StreamingChatLanguageModel fast = (messages, handler) -> answeredBy.add("fast");
+        RoutingStreamingChatLanguageModel router = new RoutingStreamingChatLanguageModel(
+            Map.of("primary", primary, "fast", fast), newRouter(), meterRegistry);
+
+        CallStep.call(ModelStep.CONTENT, () -> {
+            router.generate("content", null);
+            CallDeadline.run(Instant.now().plusSeconds(5), () -> router.generate("content", null));
+            return null;
+        });
+
+        assertThat(answeredBy).containsExactly("primary", "fast");
+        assertThat(meterRegistry.get("llm.profile.requests").tags("profile", "fast", "step", "content", "reason", "budget")
+            .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void generate_ShouldDowngrade_WhenRecentP95IsDegraded() {
+        properties.getProfiles().get("primary").setDegradedP95(Duration.ofMillis(20));
+        RoutingChatLanguageModel router = newRouter();
+        primaryLatencyMs = 40;
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(router.generate("content")).isEqualTo("primary");
+        }
+
+        assertThat(router.select().profile()).isEqualTo("fast");
+        assertThat(router.select().reason()).isEqualTo("degraded");
+    }
+
+    @Test
+    void generate_ShouldRecordSystemPrefixTokens() {
+        RoutingChatLanguageModel router = newRouter();
+        OpenAiTokenizer tokenizer = new OpenAiTokenizer("gpt-4o");
+        String instructions = "You are a Content Agent. Answer in valid JSON only.";
+
+        CallStep.call(ModelStep.CONTENT, () -> router.generate(
+            SystemMessage.from(instructions), UserMessage.from("Write about electric bikes")));
+        CallStep.call(ModelStep.CONTENT, () -> router.generate(
+            SystemMessage.from(instructions), UserMessage.from("Write about solar panels")));
+        CallStep.call(ModelStep.RESEARCH, () -> router.generate("unstructured"));
+
+        assertThat(meterRegistry.get("llm.prompt.prefix.tokens").tags("step", "content").summary().totalAmount())
+            .isEqualTo(2.0 * tokenizer.estimateTokenCountInText(instructions));
+        assertThat(meterRegistry.get("llm.prompt.prefix.tokens").tags("step", "research").summary().totalAmount())
+            .isZero();
+    }
+
+    @Test
+    void constructor_ShouldFail_WhenStepUsesUnknownProfile() {
+        properties.getSteps().put(ModelStep.CONTENT, "missing");
+
+        assertThatThrownBy(this::newRouter)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("missing");
+    }
+
+    private RoutingChatLanguageModel newRouter() {
+        ChatLanguageModel primary = messages -> {
+            sleep(primaryLatencyMs);
+            return Response.from(AiMessage.from("primary"), new TokenUsage(100, 50));
+        };
+        ChatLanguageModel fast = messages -> Response.from(AiMessage.from("fast"), new TokenUsage(10, 5));
+        return new RoutingChatLanguageModel(Map.of("primary", primary, "fast", fast), properties,
+            new OpenAiTokenizer("gpt-4o"), meterRegistry);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
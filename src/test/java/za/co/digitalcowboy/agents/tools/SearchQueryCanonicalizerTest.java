@@ -0,0 +1,30 @@
+package za.co.digitalcowboy.agents.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Year;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchQueryCanonicalizerTest {
+
+    private static final Year YEAR = Year.of(2025);
+
+    @Test
+    void canonicalize_ShouldMatchTriviallyDifferentWordings() {
+        String key = SearchQueryCanonicalizer.canonicalize("AI market size 2025", YEAR);
+
+        assertThat(SearchQueryCanonicalizer.canonicalize("  ai   Market-Size ", YEAR)).isEqualTo(key);
+        assertThat(SearchQueryCanonicalizer.canonicalize("What is the size of the AI market?", YEAR)).isEqualTo(key);
+        assertThat(key).isEqualTo("ai market size");
+    }
+
+    @Test
+    void canonicalize_ShouldKeepDistinguishingTokens() {
+        assertThat(SearchQueryCanonicalizer.canonicalize("AI market size 2019", YEAR))
+            .isNotEqualTo(SearchQueryCanonicalizer.canonicalize("AI market size", YEAR));
+        assertThat(SearchQueryCanonicalizer.canonicalize("C++ tutorial", YEAR))
+            .isNotEqualTo(SearchQueryCanonicalizer.canonicalize("C tutorial", YEAR));
+        assertThat(SearchQueryCanonicalizer.canonicalize("The Who", YEAR)).isEqualTo("the who");
+    }
+}
@@ -0,0 +1,102 @@
+package za.co.digitalcowboy.agents.tools;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.config.SerpApiQuotaProperties;
+import za.co.digitalcowboy.agents.domain.TaskPriority;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchQuotaLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SerpApiQuotaProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new SerpApiQuotaProperties();
+    }
+
+    @Test
+    void acquire_ShouldRejectSearch_WhenNoSlotFreesUpWithinMaxWait() {
+        properties.setRequestsPerSecond(1);
+        properties.setBurst(2);
+        properties.setMaxWait(Duration.ofMillis(50));
+        SearchQuotaLimiter limiter = new SearchQuotaLimiter(properties, meterRegistry);
+
+        limiter.acquire(TaskPriority.INTERACTIVE);
+        limiter.acquire(TaskPriority.INTERACTIVE);
+
+        assertThatThrownBy(() -> limiter.acquire(TaskPriority.INTERACTIVE))
+            .isInstanceOf(SearchQuotaExceededException.class);
+        assertThat(meterRegistry.get("serpapi.quota.requests").tag("priority", "interactive").tag("result", "rate_limited")
+            .counter().count()).isEqualTo(1);
+        assertThat(limiter.getUsedThisMonth()).isEqualTo(2);
+    }
+
+    @Test
+    void acquire_ShouldKeepQuotaReserve_ForInteractiveSearches() {
+        properties.setMonthlyQuota(100);
+        SearchQuotaLimiter limiter = new SearchQuotaLimiter(properties, meterRegistry);
+        limiter.syncUsage(90, 0);
+
+        assertThatThrownBy(() -> limiter.acquire(TaskPriority.BULK))
+            .isInstanceOf(SearchQuotaExceededException.class)
+            .hasMessageContaining("90 of 100");
+        limiter.acquire(TaskPriority.INTERACTIVE);
+
+        assertThat(limiter.getUsedThisMonth()).isEqualTo(91);
+        assertThat(limiter.remaining()).isEqualTo(9);
+        assertThat(meterRegistry.get("serpapi.quota.requests").tag("priority", "bulk").tag("result", "quota_exhausted")
+            .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void acquire_ShouldServeQueuedInteractiveSearch_BeforeBulk() throws Exception {
+        properties.setRequestsPerSecond(5);
+        properties.setBurst(1);
+        properties.setMaxWait(Duration.ofSeconds(2));
+        SearchQuotaLimiter limiter = new SearchQuotaLimiter(properties, meterRegistry);
+        limiter.acquire(TaskPriority.INTERACTIVE);
+
+        // The bulk search queues first, but the interactive one takes the next slot
+        List<TaskPriority> order = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> bulk = CompletableFuture.runAsync(() -> {
+            limiter.acquire(TaskPriority.BULK);
+            order.add(TaskPriority.BULK);
+        });
+        Thread.sleep(50);
+        CompletableFuture<Void> interactive = CompletableFuture.runAsync(() -> {
+            limiter.acquire(TaskPriority.INTERACTIVE);
+            order.add(TaskPriority.INTERACTIVE);
+        });
+
+        CompletableFuture.allOf(bulk, interactive).get(5, TimeUnit.SECONDS);
+        assertThat(order).containsExactly(TaskPriority.INTERACTIVE, TaskPriority.BULK);
+    }
+
+    @Test
+    void secondsUntilExhaustion_ShouldProjectMonthToDateRate() {
+        // Ten days into a 30-day month with a third of the quota used
+        Clock clock = Clock.fixed(Instant.parse("2024-06-11T00:00:00Z"), ZoneOffset.UTC);
+        properties.setMonthlyQuota(3000);
+        SearchQuotaLimiter limiter = new SearchQuotaLimiter(properties, clock, meterRegistry);
+        limiter.syncUsage(1000, 0);
+
+        assertThat(limiter.projectedMonthUsage()).isEqualTo(3000.0);
+        assertThat(limiter.secondsUntilExhaustion()).isEqualTo(Duration.ofDays(20).toSeconds());
+        assertThat(meterRegistry.get("serpapi.quota.remaining").gauge().value()).isEqualTo(2000.0);
+    }
+}
@@ -0,0 +1,68 @@
+package za.co.digitalcowboy.agents.tools;
+
+import org.junit.jupiter.api.Test;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SerpApiResponseParserTest {
+
+    @Test
+    void parse_ShouldExtractUsedFields_FromSampleResponse() throws IOException {
+        WebSearchResponse response;
+        try (Reader body = new InputStreamReader(
+                getClass().getResourceAsStream("/serpapi/search-response.json"), StandardCharsets.UTF_8)) {
+            response = SerpApiResponseParser.parse("ai market size", body, 5);
+        }
+
+        assertThat(response.query()).isEqualTo("ai market size");
+        assertThat(response.results()).hasSize(5);
+        assertThat(response.results()).extracting(SearchResult::position).containsExactly(1, 2, 3, 4, 5);
+
+        SearchResult first = response.results().get(0);
+        assertThat(first.title()).isEqualTo("Artificial Intelligence Market Size, Share & Trends Report");
+        assertThat(first.link()).isEqualTo("https://www.grandviewresearch.com/industry-analysis/artificial-intelligence-ai-market");
+        assertThat(first.displayLink()).isEqualTo("https://www.grandviewresearch.com › industry-analysis");
+        assertThat(first.date()).isEqualTo("Apr 10, 2025");
+        assertThat(response.results().get(2).date()).isEmpty();
+
+        assertThat(response.knowledgeGraph())
+            .containsEntry("title", "Artificial intelligence")
+            .containsEntry("sourceLink", "https://en.wikipedia.org/wiki/Artificial_intelligence")
+            .containsKey("description");
+        assertThat(response.totalResults()).isEqualTo(1_230_000_000L);
+        assertThat(response.searchTime()).isEqualTo(0.45);
+    }
+
+    @Test
+    void parse_ShouldTolerateUnexpectedFieldTypes() throws IOException {
+        String body = """
+            {"organic_results": [{"title": 42, "snippet": {"text": "nested"}, "link": "https://example.com"}, "ad"],
+             "knowledge_graph": [],
+             "search_information": {"total_results": "1,200", "time_taken_displayed": "0.31 seconds"}}
+            """;
+
+        WebSearchResponse response = SerpApiResponseParser.parse("q", new StringReader(body), 5);
+
+        assertThat(response.results()).hasSize(1);
+        assertThat(response.results().get(0).title()).isEqualTo("42");
+        assertThat(response.results().get(0).snippet()).isEmpty();
+        assertThat(response.knowledgeGraph()).isEmpty();
+        assertThat(response.totalResults()).isEqualTo(1200L);
+        assertThat(response.searchTime()).isEqualTo(0.31);
+    }
+
+    @Test
+    void parse_ShouldFail_WhenBodyIsTruncated() {
+        assertThatThrownBy(() -> SerpApiResponseParser.parse("q", new StringReader("{\"organic_results\": [{\"title\": \"x\""), 5))
+            .isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,169 @@
+package za.co.digitalcowboy.agents.tools;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import za.co.digitalcowboy.agents.config.SearchCacheProperties;
+import za.co.digitalcowboy.agents.config.SearchIndexProperties;
+import za.co.digitalcowboy.agents.config.SerpApiQuotaProperties;
+import za.co.digitalcowboy.agents.domain.SearchResult;
+import za.co.digitalcowboy.agents.domain.WebSearchResponse;
+import za.co.digitalcowboy.agents.service.search.LocalSearchIndex;
+import za.co.digitalcowboy.agents.service.search.NoSearchCacheStore;
+import za.co.digitalcowboy.agents.service.search.SearchProvider;
+import za.co.digitalcowboy.agents.service.search.SearchResponseCache;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebSearchServiceTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger fetches;
+    private CountDownLatch allFetchesStarted;
+    private WebSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        fetches = new AtomicInteger();
+        allFetchesStarted = new CountDownLatch(3);
+
+        // Every fetch waits until three are in flight, so a sequential fan-out would stall
+        searchService = newService(query -> {
+                fetches.incrementAndGet();
+                allFetchesStarted.countDown();
+                try {
+                    allFetchesStarted.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new WebSearchResponse(query,
+                    List.of(SearchResult.of("Result for " + query, "Snippet", "https://example.com/result")),
+                    null, 1L, 0.1);
+        });
+    }
+
+    private WebSearchService newService(Function<String, WebSearchResponse> search) {
+        return newService(search, newLocalIndex());
+    }
+
+    private WebSearchService newService(Function<String, WebSearchResponse> search, LocalSearchIndex localIndex) {
+        return new WebSearchService(new StubProvider(search), newResponseCache(), localIndex, executor, meterRegistry, 3, 2000);
+    }
+
+    private SearchResponseCache newResponseCache() {
+        return new SearchResponseCache(new NoSearchCacheStore(), executor, new SearchCacheProperties(), meterRegistry);
+    }
+
+    private LocalSearchIndex newLocalIndex() {
+        // Disabled, so every miss reaches the provider
+        return new LocalSearchIndex(new SearchIndexProperties(), executor, meterRegistry);
+    }
+
+    private record StubProvider(Function<String, WebSearchResponse> search) implements SearchProvider {
+
+        @Override
+        public String name() {
+            return "stub";
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public WebSearchResponse search(String query) {
+            return search.apply(query);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void searchMultiple_ShouldRunQueriesConcurrently_AndKeepQueryOrder() {
+        long start = System.nanoTime();
+
+        List<WebSearchResponse> responses = searchService.searchMultiple(List.of("one", "two", "three"));
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(responses).extracting(WebSearchResponse::query).containsExactly("one", "two", "three");
+        assertThat(responses).allSatisfy(response -> assertThat(response.results()).hasSize(1));
+    }
+
+    @Test
+    void searchMultiple_ShouldAnswerRepeatedQueriesFromCache() {
+        searchService.searchMultiple(List.of("one", "two", "three"));
+        List<WebSearchResponse> repeated = searchService.searchMultiple(List.of("one", "two", "three"));
+
+        assertThat(fetches.get()).isEqualTo(3);
+        assertThat(repeated).extracting(WebSearchResponse::query).containsExactly("one", "two", "three");
+        assertThat(meterRegistry.get("search.cache.requests").tag("result", "miss").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("search.cache.requests").tag("result", "hit").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void searchMultiple_ShouldShareOneFetch_ForEquivalentQueriesInFlight() {
+        // The fetch holds until both other callers have joined it
+        WebSearchService coalescing = newService(query -> {
+                fetches.incrementAndGet();
+                long giveUp = System.currentTimeMillis() + 1000;
+                while (meterRegistry.get("search.singleflight.coalesced").counter().count() < 2
+                        && System.currentTimeMillis() < giveUp) {
+                    Thread.onSpinWait();
+                }
+                return new WebSearchResponse(query,
+                    List.of(SearchResult.of("AI trends", "Snippet", "https://example.com/ai")), null, 1L, 0.1);
+        });
+
+        List<WebSearchResponse> responses = coalescing.searchMultiple(List.of("AI trends", "ai  TRENDS!", "trends in AI"));
+
+        assertThat(fetches.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("search.singleflight.coalesced").counter().count()).isEqualTo(2);
+        assertThat(responses).extracting(WebSearchResponse::query).containsExactly("AI trends", "ai  TRENDS!", "trends in AI");
+        assertThat(responses).allSatisfy(response -> assertThat(response.results()).hasSize(1));
+    }
+
+    @Test
+    void search_ShouldFallBackToLocalResults_WhenQuotaIsUsedUp(@TempDir Path indexDirectory) {
+        SerpApiQuotaProperties quota = new SerpApiQuotaProperties();
+        quota.setMonthlyQuota(1);
+        SearchIndexProperties index = new SearchIndexProperties();
+        index.setEnabled(true);
+        index.setPath(indexDirectory.toString());
+        LocalSearchIndex localIndex = new LocalSearchIndex(index, executor, meterRegistry);
+        SearchQuotaLimiter quotaLimiter = new SearchQuotaLimiter(quota, meterRegistry);
+        WebSearchService limited = newService(query -> {
+                quotaLimiter.acquire(CallPriority.current());
+                fetches.incrementAndGet();
+                return new WebSearchResponse(query,
+                    List.of(SearchResult.of("Electric vehicle sales", "EV sales by region", "https://example.com/ev")), null, 1L, 0.1);
+        }, localIndex);
+
+        limited.search("electric vehicle sales");
+        WebSearchResponse fallback = limited.search("EV sales, electric vehicle");
+        WebSearchResponse nothing = limited.search("solar panels");
+
+        assertThat(fetches.get()).isEqualTo(1);
+        assertThat(fallback.results()).extracting(SearchResult::link).containsExactly("https://example.com/ev");
+        assertThat(nothing.results()).isEmpty();
+        assertThat(meterRegistry.get("search.quota.fallbacks").tag("source", "local").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("search.quota.fallbacks").tag("source", "none").counter().count()).isEqualTo(1);
+        localIndex.close();
+    }
+}